@@ -1,9 +1,20 @@
 package com.warrington;
 
+import com.warrington.monkey.aot.AotCompiler;
+import com.warrington.monkey.repl.Engine;
 import com.warrington.monkey.repl.Repl;
 
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
 class Main {
-    public static void main(String[] args) {
+    public static void main(String[] args) throws IOException {
+        if (args.length > 0 && args[0].equals("compile")) {
+            compile(args);
+            return;
+        }
+
         String user = System.getProperty("user.name");
 
         if (user == null) {
@@ -14,6 +25,41 @@ class Main {
 
         System.out.println("Feel free to type in commands");
 
-        Repl.start();
+        Repl.start(selectEngine(args));
+    }
+
+    /**
+     * {@code compile <script> [<jar>]} turns a script into a jar that runs it with {@code java -jar}.
+     */
+    private static void compile(String[] args) throws IOException {
+        if (args.length < 2) {
+            System.err.println("usage: compile <script> [<jar>]");
+            System.exit(2);
+        }
+
+        final Path script = Path.of(args[1]);
+        final Path jar = args.length > 2
+            ? Path.of(args[2])
+            : Path.of(script.getFileName().toString().replaceFirst("\\.[^.]*$", "") + ".jar");
+
+        final var compiler = new AotCompiler();
+
+        if (!compiler.writeJar(Files.readString(script), jar)) {
+            compiler.errors().forEach(error -> System.err.printf("\t%s\n", error));
+            System.exit(1);
+        }
+
+        compiler.inlined().forEach(System.out::println);
+        System.out.printf("Wrote %s\n", jar);
+    }
+
+    private static Engine selectEngine(String[] args) {
+        for (String arg : args) {
+            if (arg.startsWith("--engine=")) {
+                return Engine.valueOf(arg.substring("--engine=".length()).toUpperCase());
+            }
+        }
+
+        return Engine.EVALUATOR;
     }
 }
\ No newline at end of file
@@ -0,0 +1,406 @@
+package com.warrington.monkey.analysis;
+
+import com.warrington.monkey.ast.*;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Replaces calls to small helper functions with the helper's body.
+ * <p>
+ * A helper qualifies when it is bound by a top level {@code let name = fn(...) { expression }},
+ * nothing else in the program binds {@code name}, its body is a single expression of at most
+ * {@link #maxSize} nodes without lets, assignments, loops, returns, function literals or calls to itself. Calls
+ * after that let with exactly as many arguments as parameters are then inlined, provided that
+ * <ul>
+ *     <li>no function around the call binds a name the body reads, so it still means the same, and</li>
+ *     <li>arguments are still evaluated once each, in order and before anything in the body that
+ *     could fail or have an effect. Literals and parameters of the calling function it never
+ *     assigns to can be read any number of times, anything else has to appear exactly once, in
+ *     order, up front.</li>
+ * </ul>
+ * Only bindings within one program are seen. When later programs run against the same globals,
+ * as REPL lines do, one of them may bind a helper again, which calls in a function defined
+ * earlier have to see; an inliner {@link #forSession} therefore inlines only calls outside
+ * functions, which run before the program ends.
+ */
+public final class Inliner {
+    /**
+     * Largest body, in AST nodes, inlined by default, from the {@code monkey.inline.maxSize} system property.
+     */
+    public static final int DEFAULT_MAX_SIZE = Integer.getInteger("monkey.inline.maxSize", 16);
+
+    // Events a body's evaluation goes through: a parameter index, or this for something that may fail or have an effect
+    private static final int EFFECT = -1;
+
+    private final int maxSize;
+    private final boolean session;
+    private final Map<String, Candidate> candidates = new HashMap<>();
+    private final Map<String, Integer> callSites = new LinkedHashMap<>();
+    private final Deque<Scope> scopes = new ArrayDeque<>();
+
+    public Inliner() {
+        this(DEFAULT_MAX_SIZE);
+    }
+
+    public Inliner(int maxSize) {
+        this(maxSize, false);
+    }
+
+    private Inliner(int maxSize, boolean session) {
+        this.maxSize = maxSize;
+        this.session = session;
+    }
+
+    /**
+     * An inliner for programs run one after another against the same globals, like REPL lines.
+     */
+    public static Inliner forSession() {
+        return new Inliner(DEFAULT_MAX_SIZE, true);
+    }
+
+    public record Inlining(String name, int size, int callSites) {
+        @Override
+        public String toString() {
+            return "inlined %s (%d nodes) at %d call site%s".formatted(name, size, callSites, callSites == 1 ? "" : "s");
+        }
+    }
+
+    private record Candidate(String name, List<String> parameters, Expression body, int size, Set<String> freeNames, List<Integer> events) {
+    }
+
+    // The names a function binds: parameters are always set, lets may not have run yet and assigned names can change
+    private record Scope(Set<String> parameters, Set<String> lets) {
+        boolean binds(String name) {
+            return parameters.contains(name) || lets.contains(name);
+        }
+    }
+
+    /**
+     * What the last {@link #inline(Program)} inlined, in the order the helpers were defined.
+     */
+    public List<Inlining> inlined() {
+        return callSites.entrySet().stream()
+            .map(entry -> new Inlining(entry.getKey(), candidates.get(entry.getKey()).size(), entry.getValue()))
+            .toList();
+    }
+
+    public Program inline(Program program) {
+        candidates.clear();
+        callSites.clear();
+
+        final Map<String, Integer> bindings = new HashMap<>();
+
+        countBindings(program, bindings);
+
+        final var inlined = new Program();
+
+        for (Statement statement : program.getStatements()) {
+            final Statement rewritten = rewriteStatement(statement);
+
+            inlined.addStatement(rewritten);
+
+            if (rewritten instanceof LetStatement ls && ls.value() instanceof FunctionLiteral fl && bindings.get(ls.name().value()) == 1) {
+                final Candidate candidate = candidate(ls.name().value(), fl);
+
+                if (candidate != null) {
+                    candidates.put(candidate.name(), candidate);
+                }
+            }
+        }
+
+        return inlined;
+    }
+
+    private Candidate candidate(String name, FunctionLiteral fl) {
+        if (fl.body().statements().size() != 1 || !(fl.body().statements().getFirst() instanceof ExpressionStatement es) || es.getExpression() == null) {
+            return null;
+        }
+
+        final List<String> parameters = fl.parameters().stream().map(Identifier::value).toList();
+
+        if (new HashSet<>(parameters).size() != parameters.size()) {
+            return null;
+        }
+
+        final Expression body = es.getExpression();
+        final int size = size(body);
+
+        if (size > maxSize || !isInlinable(body)) {
+            return null;
+        }
+
+        final var freeNames = new HashSet<String>();
+
+        collectFreeNames(body, parameters, freeNames);
+
+        if (freeNames.contains(name)) {
+            return null;
+        }
+
+        final var events = new ArrayList<Integer>();
+
+        collectEvents(body, parameters, false, events);
+
+        return new Candidate(name, parameters, body, size, freeNames, events);
+    }
+
+    private Statement rewriteStatement(Statement statement) {
+        return switch (statement) {
+            case ExpressionStatement es -> new ExpressionStatement(es.token(), rewrite(es.getExpression()));
+            case LetStatement ls -> new LetStatement(ls.token(), ls.name(), rewrite(ls.value()));
+            case ReturnStatement rs -> new ReturnStatement(rs.token(), rewrite(rs.returnValue()));
+            case AssignStatement as -> new AssignStatement(as.token(), as.name(), rewrite(as.value()));
+            case BlockStatement bs -> rewriteBlock(bs);
+            case null, default -> statement;
+        };
+    }
+
+    private BlockStatement rewriteBlock(BlockStatement block) {
+        return new BlockStatement(block.token(), block.statements().stream().map(this::rewriteStatement).toList());
+    }
+
+    private Expression rewrite(Expression expression) {
+        return switch (expression) {
+            case PrefixExpression pe -> {
+                final var rewritten = new PrefixExpression(pe.token(), pe.operator());
+
+                rewritten.setRight(rewrite(pe.right()));
+
+                yield rewritten;
+            }
+            case InfixExpression ie -> {
+                final var rewritten = new InfixExpression(ie.token(), ie.operator(), rewrite(ie.left()));
+
+                rewritten.setRight(rewrite(ie.right()));
+
+                yield rewritten;
+            }
+            case IfExpression ifExpression -> new IfExpression(
+                ifExpression.token(),
+                rewrite(ifExpression.condition()),
+                rewriteBlock(ifExpression.consequence()),
+                ifExpression.alternative() == null ? null : rewriteBlock(ifExpression.alternative())
+            );
+            case FunctionLiteral fl -> {
+                final var lets = new HashSet<String>();
+
+                Resolver.forEachBinding(fl.body(), name -> lets.add(name.value()));
+                lets.addAll(Resolver.assignedNames(fl.body()));
+                scopes.push(new Scope(Set.copyOf(fl.parameters().stream().map(Identifier::value).toList()), lets));
+
+                try {
+                    yield fl.withBody(rewriteBlock(fl.body()));
+                } finally {
+                    scopes.pop();
+                }
+            }
+            case WhileExpression we -> new WhileExpression(we.token(), rewrite(we.condition()), rewriteBlock(we.body()));
+            case ForExpression fe -> new ForExpression(fe.token(), fe.variable(), rewrite(fe.iterable()), rewriteBlock(fe.body()));
+            case ArrayLiteral al -> new ArrayLiteral(al.token(), al.elements().stream().map(this::rewrite).toList());
+            case HashLiteral hl -> {
+                final var pairs = new LinkedHashMap<Expression, Expression>();
+
+                hl.pairs().forEach((key, value) -> pairs.put(rewrite(key), rewrite(value)));
+
+                yield new HashLiteral(hl.token(), pairs);
+            }
+            case IndexExpression ie -> new IndexExpression(ie.token(), rewrite(ie.left()), rewrite(ie.index()));
+            case CallExpression ce -> {
+                final Expression function = rewrite(ce.function());
+                final List<Expression> arguments = ce.arguments().stream().map(this::rewrite).toList();
+
+                if (function instanceof Identifier i && candidates.get(i.value()) instanceof Candidate candidate && canInline(candidate, arguments)) {
+                    callSites.merge(candidate.name(), 1, Integer::sum);
+
+                    final var replacements = new HashMap<String, Expression>();
+
+                    for (int index = 0; index < arguments.size(); index++) {
+                        replacements.put(candidate.parameters().get(index), arguments.get(index));
+                    }
+
+                    yield Substitution.copy(candidate.body(), replacements);
+                }
+
+                yield new CallExpression(ce.token(), function, arguments);
+            }
+            case null, default -> expression;
+        };
+    }
+
+    private boolean canInline(Candidate candidate, List<Expression> arguments) {
+        if (arguments.size() != candidate.parameters().size()) {
+            return false;
+        }
+
+        // A function can be called after a later program binds the helper again
+        if (session && !scopes.isEmpty()) {
+            return false;
+        }
+
+        for (String name : candidate.freeNames()) {
+            if (scopes.stream().anyMatch(scope -> scope.binds(name))) {
+                return false;
+            }
+        }
+
+        final var effectful = new boolean[arguments.size()];
+
+        for (int i = 0; i < arguments.size(); i++) {
+            effectful[i] = !isRepeatable(arguments.get(i));
+        }
+
+        // Effectful arguments must each be reached once, in order, before anything else happens
+        int expected = nextEffectful(effectful, 0);
+        boolean effectSeen = false;
+
+        for (int event : candidate.events()) {
+            if (event == EFFECT) {
+                effectSeen = true;
+                continue;
+            }
+
+            final int parameter = event >= 0 ? event : -(event + 2);
+
+            if (!effectful[parameter]) {
+                continue;
+            }
+
+            if (event < 0 || effectSeen || parameter != expected) {
+                return false;
+            }
+
+            expected = nextEffectful(effectful, parameter + 1);
+        }
+
+        return expected == arguments.size();
+    }
+
+    private static int nextEffectful(boolean[] effectful, int from) {
+        int i = from;
+
+        while (i < effectful.length && !effectful[i]) {
+            i++;
+        }
+
+        return i;
+    }
+
+    /**
+     * Literals, and parameters of the innermost function binding the name, give the same value
+     * every time they are evaluated and can never fail.
+     */
+    private boolean isRepeatable(Expression argument) {
+        return switch (argument) {
+            case Constant c -> true;
+            case IntegerLiteral il -> true;
+            case FloatLiteral fl -> true;
+            case StringLiteral sl -> true;
+            case MonkeyBoolean mb -> true;
+            case Identifier i -> {
+                for (Scope scope : scopes) {
+                    if (scope.binds(i.value())) {
+                        yield !scope.lets().contains(i.value());
+                    }
+                }
+
+                yield false;
+            }
+            default -> false;
+        };
+    }
+
+    /**
+     * Records, in evaluation order, the parameters read and the steps that may fail or have an
+     * effect. Parameters read only in some branch of an if are recorded as {@code -(index + 2)}.
+     */
+    private static void collectEvents(Node node, List<String> parameters, boolean branched, List<Integer> events) {
+        switch (node) {
+            case Identifier i -> {
+                final int index = parameters.indexOf(i.value());
+
+                events.add(index < 0 ? EFFECT : branched ? -(index + 2) : index);
+            }
+            case IfExpression ifExpression -> {
+                collectEvents(ifExpression.condition(), parameters, branched, events);
+                events.add(EFFECT);
+                collectEvents(ifExpression.consequence(), parameters, true, events);
+
+                if (ifExpression.alternative() != null) {
+                    collectEvents(ifExpression.alternative(), parameters, true, events);
+                }
+            }
+            case HashLiteral hl -> hl.pairs().forEach((key, value) -> {
+                collectEvents(key, parameters, branched, events);
+                events.add(EFFECT);
+                collectEvents(value, parameters, branched, events);
+            });
+            case PrefixExpression pe -> {
+                collectEvents(pe.right(), parameters, branched, events);
+                events.add(EFFECT);
+            }
+            case InfixExpression ie -> {
+                collectEvents(ie.left(), parameters, branched, events);
+                collectEvents(ie.right(), parameters, branched, events);
+                events.add(EFFECT);
+            }
+            case IndexExpression ie -> {
+                collectEvents(ie.left(), parameters, branched, events);
+                collectEvents(ie.index(), parameters, branched, events);
+                events.add(EFFECT);
+            }
+            case CallExpression ce -> {
+                Nodes.children(ce).forEach(child -> collectEvents(child, parameters, branched, events));
+                events.add(EFFECT);
+            }
+            default -> Nodes.children(node).forEach(child -> collectEvents(child, parameters, branched, events));
+        }
+    }
+
+    private static boolean isInlinable(Node node) {
+        return switch (node) {
+            case LetStatement ls -> false;
+            case ReturnStatement rs -> false;
+            case AssignStatement as -> false;
+            case WhileExpression we -> false;
+            case ForExpression fe -> false;
+            case FunctionLiteral fl -> false;
+            default -> Nodes.children(node).stream().allMatch(Inliner::isInlinable);
+        };
+    }
+
+    private static void collectFreeNames(Node node, List<String> parameters, Set<String> names) {
+        if (node instanceof Identifier i && !parameters.contains(i.value())) {
+            names.add(i.value());
+        }
+
+        Nodes.children(node).forEach(child -> collectFreeNames(child, parameters, names));
+    }
+
+    private static int size(Node node) {
+        return 1 + Nodes.children(node).stream().mapToInt(Inliner::size).sum();
+    }
+
+    /**
+     * Counts, per name, the lets, parameters, loop variables and assignments binding it anywhere in {@code node}.
+     */
+    static void countBindings(Node node, Map<String, Integer> bindings) {
+        switch (node) {
+            case LetStatement ls -> bindings.merge(ls.name().value(), 1, Integer::sum);
+            case AssignStatement as -> bindings.merge(as.name().value(), 1, Integer::sum);
+            case ForExpression fe -> bindings.merge(fe.variable().value(), 1, Integer::sum);
+            case FunctionLiteral fl -> fl.parameters().forEach(p -> bindings.merge(p.value(), 1, Integer::sum));
+            default -> {
+            }
+        }
+
+        Nodes.children(node).forEach(child -> countBindings(child, bindings));
+    }
+}
@@ -0,0 +1,81 @@
+package com.warrington.monkey.analysis;
+
+import com.warrington.monkey.ast.*;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Generic traversal helpers over the AST, for analyses that only care about a few node types.
+ */
+public final class Nodes {
+
+    private Nodes() {
+    }
+
+    /**
+     * The direct children of {@code node} in evaluation order. Missing children
+     * (e.g. after a parse error, or an if without else) are left out.
+     */
+    public static List<Node> children(Node node) {
+        final var children = new ArrayList<Node>();
+
+        switch (node) {
+            case Program p -> children.addAll(p.getStatements());
+            case ExpressionStatement es -> children.add(es.getExpression());
+            case BlockStatement bs -> children.addAll(bs.statements());
+            case ReturnStatement rs -> children.add(rs.returnValue());
+            case AssignStatement as -> {
+                children.add(as.value());
+                children.add(as.name());
+            }
+            case LetStatement ls -> {
+                children.add(ls.value());
+                children.add(ls.name());
+            }
+            case PrefixExpression pe -> children.add(pe.right());
+            case InfixExpression ie -> {
+                children.add(ie.left());
+                children.add(ie.right());
+            }
+            case IfExpression ifExpression -> {
+                children.add(ifExpression.condition());
+                children.add(ifExpression.consequence());
+                children.add(ifExpression.alternative());
+            }
+            case WhileExpression we -> {
+                children.add(we.condition());
+                children.add(we.body());
+            }
+            case ForExpression fe -> {
+                children.add(fe.iterable());
+                children.add(fe.variable());
+                children.add(fe.body());
+            }
+            case FunctionLiteral fl -> {
+                children.addAll(fl.parameters());
+                children.add(fl.body());
+            }
+            case ArrayLiteral al -> children.addAll(al.elements());
+            case HashLiteral hl -> hl.pairs().forEach((key, value) -> {
+                children.add(key);
+                children.add(value);
+            });
+            case IndexExpression ie -> {
+                children.add(ie.left());
+                children.add(ie.index());
+            }
+            case CallExpression ce -> {
+                children.add(ce.function());
+                children.addAll(ce.arguments());
+            }
+            case ParallelExpression pe -> children.add(pe.expression());
+            default -> {
+            }
+        }
+
+        children.removeIf(child -> child == null);
+
+        return children;
+    }
+}
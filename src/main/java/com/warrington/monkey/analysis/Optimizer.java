@@ -0,0 +1,149 @@
+package com.warrington.monkey.analysis;
+
+import com.warrington.monkey.ast.*;
+import com.warrington.monkey.evaluator.Evaluator;
+import com.warrington.monkey.evaluator.Operators;
+import com.warrington.monkey.object.Int;
+import com.warrington.monkey.object.MonkeyError;
+import com.warrington.monkey.object.MonkeyFloat;
+import com.warrington.monkey.object.MonkeyObject;
+import com.warrington.monkey.object.Str;
+
+import java.util.LinkedHashMap;
+import java.util.function.Supplier;
+
+/**
+ * Rewrites a parsed program into one that does less work at runtime, for every engine.
+ * <p>
+ * Literals become {@link Constant}s whose value is created once, operators applied to
+ * constants are folded, and an if whose condition folds to a constant keeps only the
+ * branch that can run. Anything that would produce an error, or throw like a division
+ * by zero, is left for runtime so it is still reported where and when it happens.
+ */
+public final class Optimizer {
+
+    private Optimizer() {
+    }
+
+    public static Program optimize(Program program) {
+        final var optimized = new Program();
+
+        program.getStatements().forEach(statement -> optimized.addStatement(optimizeStatement(statement)));
+
+        return optimized;
+    }
+
+    private static Statement optimizeStatement(Statement statement) {
+        return switch (statement) {
+            case ExpressionStatement es -> new ExpressionStatement(es.token(), optimizeExpression(es.getExpression()));
+            case LetStatement ls -> new LetStatement(ls.token(), ls.name(), optimizeExpression(ls.value()));
+            case ReturnStatement rs -> new ReturnStatement(rs.token(), optimizeExpression(rs.returnValue()));
+            case AssignStatement as -> new AssignStatement(as.token(), as.name(), optimizeExpression(as.value()));
+            case BlockStatement bs -> optimizeBlock(bs);
+            case null, default -> statement;
+        };
+    }
+
+    private static BlockStatement optimizeBlock(BlockStatement block) {
+        return new BlockStatement(block.token(), block.statements().stream().map(Optimizer::optimizeStatement).toList());
+    }
+
+    private static Expression optimizeExpression(Expression expression) {
+        return switch (expression) {
+            case IntegerLiteral il -> new Constant(il, Int.of(il.value()));
+            case FloatLiteral fl -> new Constant(fl, new MonkeyFloat(fl.value()));
+            case StringLiteral sl -> new Constant(sl, new Str(sl.value()));
+            case MonkeyBoolean mb -> new Constant(mb, Operators.nativeBoolToBooleanObject(mb.value()));
+            case PrefixExpression pe -> {
+                final Expression right = optimizeExpression(pe.right());
+
+                if (right instanceof Constant constant) {
+                    final MonkeyObject folded = fold(() -> Operators.evalPrefixExpression(pe.operator(), constant.value()));
+
+                    if (folded != null) {
+                        yield new Constant(pe, folded);
+                    }
+                }
+
+                final var optimized = new PrefixExpression(pe.token(), pe.operator());
+
+                optimized.setRight(right);
+
+                yield optimized;
+            }
+            case InfixExpression ie -> {
+                final Expression left = optimizeExpression(ie.left());
+                final Expression right = optimizeExpression(ie.right());
+
+                if (left instanceof Constant leftConstant && right instanceof Constant rightConstant) {
+                    final MonkeyObject folded = fold(() -> Operators.evalInfixExpression(ie.operator(), leftConstant.value(), rightConstant.value()));
+
+                    if (folded != null) {
+                        yield new Constant(ie, folded);
+                    }
+                }
+
+                final var optimized = new InfixExpression(ie.token(), ie.operator(), left);
+
+                optimized.setRight(right);
+
+                yield optimized;
+            }
+            case IfExpression ifExpression -> optimizeIf(ifExpression);
+            case WhileExpression we -> new WhileExpression(we.token(), optimizeExpression(we.condition()), optimizeBlock(we.body()));
+            case ForExpression fe -> new ForExpression(fe.token(), fe.variable(), optimizeExpression(fe.iterable()), optimizeBlock(fe.body()));
+            case FunctionLiteral fl -> fl.withBody(optimizeBlock(fl.body()));
+            case ArrayLiteral al -> new ArrayLiteral(al.token(), al.elements().stream().map(Optimizer::optimizeExpression).toList());
+            case HashLiteral hl -> {
+                final var pairs = new LinkedHashMap<Expression, Expression>();
+
+                hl.pairs().forEach((key, value) -> pairs.put(optimizeExpression(key), optimizeExpression(value)));
+
+                yield new HashLiteral(hl.token(), pairs);
+            }
+            case IndexExpression ie -> new IndexExpression(ie.token(), optimizeExpression(ie.left()), optimizeExpression(ie.index()));
+            case CallExpression ce -> new CallExpression(ce.token(), optimizeExpression(ce.function()), ce.arguments().stream().map(Optimizer::optimizeExpression).toList());
+            case null, default -> expression;
+        };
+    }
+
+    private static Expression optimizeIf(IfExpression ifExpression) {
+        final Expression condition = optimizeExpression(ifExpression.condition());
+        final BlockStatement consequence = optimizeBlock(ifExpression.consequence());
+        final BlockStatement alternative = ifExpression.alternative() == null ? null : optimizeBlock(ifExpression.alternative());
+
+        if (!(condition instanceof Constant constant)) {
+            return new IfExpression(ifExpression.token(), condition, consequence, alternative);
+        }
+
+        final BlockStatement taken = Operators.isTruthy(constant.value()) ? consequence : alternative;
+
+        if (taken == null) {
+            return new Constant(ifExpression, Evaluator.NULL);
+        }
+
+        // A block of one expression is worth that expression; anything else keeps its block
+        if (taken.statements().size() == 1 && taken.statements().getFirst() instanceof ExpressionStatement es && es.getExpression() != null) {
+            return es.getExpression();
+        }
+
+        return taken == consequence
+            ? new IfExpression(ifExpression.token(), condition, consequence, null)
+            : new IfExpression(ifExpression.token(), condition, consequence, alternative);
+    }
+
+    /**
+     * Evaluates an operator on constants, or returns null if that is better left to runtime.
+     */
+    private static MonkeyObject fold(Supplier<MonkeyObject> operation) {
+        final MonkeyObject result;
+
+        try {
+            result = operation.get();
+        } catch (ArithmeticException e) {
+            return null;
+        }
+
+        return result instanceof MonkeyError ? null : result;
+    }
+}
@@ -0,0 +1,340 @@
+package com.warrington.monkey.analysis;
+
+import com.warrington.monkey.ast.*;
+import com.warrington.monkey.evaluator.Builtins;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Finds the parts of a program that can be evaluated at the same time, for
+ * {@code Evaluator#evalInParallel}, and marks them as {@link ParallelExpression}s.
+ * Runs before the {@link Resolver}.
+ * <p>
+ * A function is pure when calling it has no effect outside its own frame: it calls nothing
+ * effectful and assigns only names of its own. {@code puts} is the one effectful builtin, the
+ * others are pure. Of the functions the program defines only those bound once at the top level
+ * are known when they are called; their purity is a greatest fixpoint, so recursion alone does
+ * not make a function impure. Calling any other function is an effect, and so is calling a name
+ * an earlier program of the session bound, e.g. a REPL line that bound {@code first} to a
+ * function of its own.
+ * <p>
+ * An expression is independent when it is pure and binds, assigns or returns nothing in the
+ * frame it is evaluated in. The arguments of a call, the elements of an array literal, the keys
+ * and values of a hash literal, and a run of top level lets none of which reads a name an
+ * earlier one binds, can then be evaluated in any order when all of them are independent.
+ * They are only marked when at least two are expected to take {@link #THRESHOLD} nodes or more
+ * to evaluate, and then only those. Loops and calls of recursive functions are expected to take
+ * as long as it gets.
+ */
+public final class Purity {
+    /**
+     * Estimated number of nodes evaluated from which an expression is worth a thread, from the
+     * {@code monkey.parallel.threshold} system property.
+     */
+    public static final int THRESHOLD = Integer.getInteger("monkey.parallel.threshold", 1000);
+
+    private static final long UNBOUNDED = Long.MAX_VALUE;
+    private static final Set<String> EFFECTFUL_BUILTINS = Set.of("puts");
+
+    private final Map<String, Integer> bindings = new HashMap<>();
+    private final Map<String, FunctionLiteral> functions = new HashMap<>();
+    private final Set<FunctionLiteral> impure = Collections.newSetFromMap(new IdentityHashMap<>());
+    private final Map<FunctionLiteral, Long> costs = new IdentityHashMap<>();
+    private int groups;
+
+    private Purity() {
+    }
+
+    /**
+     * A copy of {@code program} with the expressions worth evaluating on threads of their own marked.
+     */
+    public static Program parallelize(Program program) {
+        return parallelize(program, Set.of());
+    }
+
+    /**
+     * Like {@link #parallelize(Program)} for a program run against globals that already bind
+     * {@code globals}.
+     */
+    public static Program parallelize(Program program, Collection<String> globals) {
+        final var purity = new Purity();
+
+        Inliner.countBindings(program, purity.bindings);
+        globals.forEach(name -> purity.bindings.merge(name, 1, Integer::sum));
+
+        for (Statement statement : program.getStatements()) {
+            if (statement instanceof LetStatement ls && ls.value() instanceof FunctionLiteral fl && purity.bindings.get(ls.name().value()) == 1) {
+                purity.functions.put(ls.name().value(), fl);
+            }
+        }
+
+        purity.solve();
+
+        return purity.rewriteProgram(program);
+    }
+
+    // Takes the top level functions from all pure to those that are until nothing changes
+    private void solve() {
+        boolean changed = true;
+
+        while (changed) {
+            changed = false;
+
+            for (FunctionLiteral fl : functions.values()) {
+                if (!impure.contains(fl) && hasEffects(fl.body(), locals(fl))) {
+                    impure.add(fl);
+                    changed = true;
+                }
+            }
+        }
+    }
+
+    // The names a function binds in its own frame, which it may assign to and stay pure
+    private static Set<String> locals(FunctionLiteral fl) {
+        final Set<String> locals = new HashSet<>();
+
+        fl.parameters().forEach(p -> locals.add(p.value()));
+        Resolver.forEachBinding(fl.body(), name -> locals.add(name.value()));
+
+        return locals;
+    }
+
+    private boolean hasEffects(Node node, Set<String> locals) {
+        return switch (node) {
+            // Making a closure runs none of it
+            case FunctionLiteral ignored -> false;
+            case AssignStatement as when !locals.contains(as.name().value()) -> true;
+            case CallExpression ce when !isPure(ce.function()) -> true;
+            default -> Nodes.children(node).stream().anyMatch(child -> hasEffects(child, locals));
+        };
+    }
+
+    private boolean isPure(Expression callee) {
+        if (!(callee instanceof Identifier i)) {
+            return false;
+        }
+
+        if (functions.containsKey(i.value())) {
+            return !impure.contains(functions.get(i.value()));
+        }
+
+        return !bindings.containsKey(i.value()) && Builtins.get(i.value()) != null && !EFFECTFUL_BUILTINS.contains(i.value());
+    }
+
+    private boolean isIndependent(Expression expression) {
+        return !hasEffects(expression, Set.of()) && !writesFrame(expression);
+    }
+
+    private static boolean writesFrame(Node node) {
+        return switch (node) {
+            case FunctionLiteral ignored -> false;
+            case LetStatement ignored -> true;
+            case ReturnStatement ignored -> true;
+            case ForExpression ignored -> true;
+            default -> Nodes.children(node).stream().anyMatch(Purity::writesFrame);
+        };
+    }
+
+    // About how many nodes evaluating the node takes
+    private long cost(Node node) {
+        return switch (node) {
+            case FunctionLiteral ignored -> 1;
+            // A loop may run any number of times
+            case WhileExpression ignored -> UNBOUNDED;
+            case ForExpression ignored -> UNBOUNDED;
+            case CallExpression ce when ce.function() instanceof Identifier i && functions.containsKey(i.value()) ->
+                plus(functionCost(functions.get(i.value())), childrenCost(ce));
+            default -> childrenCost(node);
+        };
+    }
+
+    private long childrenCost(Node node) {
+        long cost = 1;
+
+        for (Node child : Nodes.children(node)) {
+            cost = plus(cost, cost(child));
+        }
+
+        return cost;
+    }
+
+    private long functionCost(FunctionLiteral fl) {
+        final Long known = costs.get(fl);
+
+        if (known != null) {
+            return known;
+        }
+
+        // Reached again while its cost is being worked out, the function recurses, as deep as its arguments say
+        costs.put(fl, UNBOUNDED);
+
+        final long cost = cost(fl.body());
+
+        costs.put(fl, cost);
+
+        return cost;
+    }
+
+    private static long plus(long a, long b) {
+        return a > UNBOUNDED - b ? UNBOUNDED : a + b;
+    }
+
+    private boolean isExpensive(Expression expression) {
+        return cost(expression) >= THRESHOLD;
+    }
+
+    /**
+     * The expressions, rewritten, with the expensive ones marked if they can be evaluated
+     * together: all of them are independent and at least two are expensive.
+     */
+    private List<Expression> parallel(List<Expression> expressions, List<Expression> others) {
+        final boolean together = expressions.stream().filter(this::isExpensive).count() >= 2
+            && expressions.stream().allMatch(this::isIndependent)
+            && others.stream().allMatch(this::isIndependent);
+
+        return expressions.stream()
+            .map(e -> together && isExpensive(e) ? new ParallelExpression(rewrite(e), 0) : rewrite(e))
+            .toList();
+    }
+
+    private Program rewriteProgram(Program program) {
+        final List<Statement> statements = program.getStatements();
+        final var rewritten = new Program();
+        int i = 0;
+
+        while (i < statements.size()) {
+            final int end = endOfRun(statements, i);
+            int first = i;
+            int last = end - 1;
+
+            // Only the stretch from the first expensive let to the last is worth forking
+            while (first < end && !isExpensive(((LetStatement) statements.get(first)).value())) {
+                first++;
+            }
+
+            while (last > first && !isExpensive(((LetStatement) statements.get(last)).value())) {
+                last--;
+            }
+
+            if (end - i < 2 || last <= first) {
+                rewritten.addStatement(rewriteStatement(statements.get(i)));
+                i++;
+
+                continue;
+            }
+
+            final int group = groups++;
+
+            for (int j = i; j < end; j++) {
+                final var ls = (LetStatement) statements.get(j);
+
+                rewritten.addStatement(j < first || j > last
+                    ? rewriteStatement(ls)
+                    : new LetStatement(ls.token(), ls.name(), new ParallelExpression(rewrite(ls.value()), group)));
+            }
+
+            i = end;
+        }
+
+        return rewritten;
+    }
+
+    // Where the run of independent lets starting at start ends, none of which reads a name an earlier one binds
+    private int endOfRun(List<Statement> statements, int start) {
+        final Set<String> bound = new HashSet<>();
+        int end = start;
+
+        while (end < statements.size()
+            && statements.get(end) instanceof LetStatement ls
+            && isIndependent(ls.value())
+            && Collections.disjoint(names(ls.value()), bound)) {
+            bound.add(ls.name().value());
+            end++;
+        }
+
+        return end;
+    }
+
+    private static Set<String> names(Node node) {
+        final Set<String> names = new HashSet<>();
+
+        collectNames(node, names);
+
+        return names;
+    }
+
+    private static void collectNames(Node node, Set<String> names) {
+        if (node instanceof Identifier i) {
+            names.add(i.value());
+        }
+
+        Nodes.children(node).forEach(child -> collectNames(child, names));
+    }
+
+    private Statement rewriteStatement(Statement statement) {
+        return switch (statement) {
+            case ExpressionStatement es -> new ExpressionStatement(es.token(), rewrite(es.getExpression()));
+            case LetStatement ls -> new LetStatement(ls.token(), ls.name(), rewrite(ls.value()));
+            case ReturnStatement rs -> new ReturnStatement(rs.token(), rewrite(rs.returnValue()));
+            case AssignStatement as -> new AssignStatement(as.token(), as.name(), rewrite(as.value()));
+            case BlockStatement bs -> rewriteBlock(bs);
+            case null, default -> statement;
+        };
+    }
+
+    private BlockStatement rewriteBlock(BlockStatement block) {
+        return new BlockStatement(block.token(), block.statements().stream().map(this::rewriteStatement).toList());
+    }
+
+    private Expression rewrite(Expression expression) {
+        return switch (expression) {
+            case PrefixExpression pe -> {
+                final var rewritten = new PrefixExpression(pe.token(), pe.operator());
+
+                rewritten.setRight(rewrite(pe.right()));
+
+                yield rewritten;
+            }
+            case InfixExpression ie -> {
+                final var rewritten = new InfixExpression(ie.token(), ie.operator(), rewrite(ie.left()));
+
+                rewritten.setRight(rewrite(ie.right()));
+
+                yield rewritten;
+            }
+            case IfExpression ifExpression -> new IfExpression(
+                ifExpression.token(),
+                rewrite(ifExpression.condition()),
+                rewriteBlock(ifExpression.consequence()),
+                ifExpression.alternative() == null ? null : rewriteBlock(ifExpression.alternative())
+            );
+            case WhileExpression we -> new WhileExpression(we.token(), rewrite(we.condition()), rewriteBlock(we.body()));
+            case ForExpression fe -> new ForExpression(fe.token(), fe.variable(), rewrite(fe.iterable()), rewriteBlock(fe.body()));
+            case FunctionLiteral fl -> fl.withBody(rewriteBlock(fl.body()));
+            case ArrayLiteral al -> new ArrayLiteral(al.token(), parallel(al.elements(), List.of()));
+            case HashLiteral hl -> {
+                final List<Expression> keys = new ArrayList<>(hl.pairs().keySet());
+                final List<Expression> values = parallel(new ArrayList<>(hl.pairs().values()), keys);
+                final var pairs = new LinkedHashMap<Expression, Expression>();
+
+                for (int i = 0; i < keys.size(); i++) {
+                    pairs.put(rewrite(keys.get(i)), values.get(i));
+                }
+
+                yield new HashLiteral(hl.token(), pairs);
+            }
+            case IndexExpression ie -> new IndexExpression(ie.token(), rewrite(ie.left()), rewrite(ie.index()));
+            case CallExpression ce -> new CallExpression(ce.token(), rewrite(ce.function()), parallel(ce.arguments(), List.of()));
+            case null, default -> expression;
+        };
+    }
+}
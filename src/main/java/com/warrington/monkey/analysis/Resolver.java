@@ -0,0 +1,233 @@
+package com.warrington.monkey.analysis;
+
+import com.warrington.monkey.ast.*;
+import com.warrington.monkey.object.Environment;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Consumer;
+
+/**
+ * Assigns every {@link Identifier} a static (depth, slot) address before evaluation.
+ * <p>
+ * Each function literal gets one frame holding its parameters followed by every name
+ * it binds with let, wherever in the body that let appears. Names that no enclosing
+ * function binds are globals and get a slot in the global {@link Environment}. A slot
+ * that is still empty at runtime (e.g. read before its let ran) falls back to a lookup
+ * by name, which keeps the dynamic scoping rules of the original environment chain.
+ * <p>
+ * It also decides what closures keep of the frame they are made in. A closure that reads
+ * only names already bound for good when it is made, parameters and lets that run before
+ * it and are the only binding of their name, keeps a copy of just those slots; any other
+ * keeps the frame itself. A name assigned to anywhere in the function, or bound in a loop, is
+ * never copied. A function none of whose closures keep its frame has no way to
+ * let it outlive a call, which its literal is marked with.
+ */
+public final class Resolver {
+    private final Environment globals;
+    private final Deque<FunctionScope> scopes = new ArrayDeque<>();
+
+    private Resolver(Environment globals) {
+        this.globals = globals;
+    }
+
+    public static void resolve(Program program, Environment globals) {
+        final var resolver = new Resolver(globals);
+
+        forEachBinding(program, name -> globals.declare(name.value()));
+
+        resolver.resolveNode(program);
+    }
+
+    private void resolveNode(Node node) {
+        switch (node) {
+            case Identifier i -> resolveIdentifier(i);
+            case FunctionLiteral fl -> resolveFunction(fl);
+            case LetStatement ls -> {
+                Nodes.children(ls).forEach(this::resolveNode);
+
+                if (!scopes.isEmpty()) {
+                    scopes.peek().bound.add(ls.name().value());
+                }
+            }
+            case ForExpression fe when !scopes.isEmpty() -> {
+                resolveNode(fe.iterable());
+                resolveNode(fe.variable());
+
+                // The variable is bound while the body runs, and only then if there was an element
+                final var bound = new HashSet<>(scopes.peek().bound);
+
+                scopes.peek().bound.add(fe.variable().value());
+                resolveNode(fe.body());
+                scopes.peek().bound.retainAll(bound);
+            }
+            case BlockStatement bs when !scopes.isEmpty() -> {
+                // Lets in a block, e.g. a branch of an if, may not have run once it is left
+                final var bound = new HashSet<>(scopes.peek().bound);
+
+                Nodes.children(bs).forEach(this::resolveNode);
+                scopes.peek().bound.retainAll(bound);
+            }
+            default -> Nodes.children(node).forEach(this::resolveNode);
+        }
+    }
+
+    private void resolveFunction(FunctionLiteral fl) {
+        final var scope = new FunctionScope();
+
+        final var names = new HashSet<String>();
+
+        collectNames(fl, names);
+        fl.setClosed(scopes.stream().noneMatch(enclosing -> names.stream().anyMatch(enclosing.slots::containsKey)));
+
+        if (!scopes.isEmpty()) {
+            final int[] captured = captureFrom(scopes.peek(), names);
+
+            fl.setCapturedSlots(captured);
+
+            // Keeping the frame itself lets it outlive the call
+            if (captured == null) {
+                scopes.peek().capturing = true;
+            }
+        } else {
+            fl.setCapturedSlots(null);
+        }
+
+        fl.parameters().forEach(param -> scope.declare(param.value()));
+        scope.bound.addAll(scope.names);
+        forEachBinding(fl.body(), name -> scope.declare(name.value()));
+        // Assigned anywhere, closures within it included, or bound again on every iteration of
+        // a loop, a name can change after a closure is made
+        scope.rebound.addAll(assignedNames(fl.body()));
+        collectLoopBindings(fl.body(), scope.rebound);
+
+        scopes.push(scope);
+
+        fl.parameters().forEach(this::resolveIdentifier);
+        resolveNode(fl.body());
+
+        scopes.pop();
+
+        fl.setSlotNames(scope.names);
+        fl.setFramesEscape(scope.capturing);
+    }
+
+    /**
+     * The slots of {@code creator}'s frame a closure reading {@code names} reads, or null if
+     * one of them could still change after the closure is made.
+     */
+    private static int[] captureFrom(FunctionScope creator, Set<String> names) {
+        final var captured = new ArrayList<Integer>();
+
+        for (String name : names) {
+            final Integer slot = creator.slots.get(name);
+
+            if (slot == null) {
+                continue;
+            }
+
+            if (creator.rebound.contains(name) || !creator.bound.contains(name)) {
+                return null;
+            }
+
+            captured.add(slot);
+        }
+
+        return captured.stream().mapToInt(Integer::intValue).sorted().toArray();
+    }
+
+    private static void collectNames(Node node, Set<String> names) {
+        if (node instanceof Identifier i) {
+            names.add(i.value());
+        }
+
+        Nodes.children(node).forEach(child -> collectNames(child, names));
+    }
+
+    private void resolveIdentifier(Identifier identifier) {
+        int depth = 0;
+
+        for (Iterator<FunctionScope> it = scopes.iterator(); it.hasNext(); depth++) {
+            final Integer slot = it.next().slots.get(identifier.value());
+
+            if (slot != null) {
+                identifier.resolve(depth, slot);
+                return;
+            }
+        }
+
+        identifier.resolveGlobal(depth, globals.declare(identifier.value()));
+    }
+
+    /**
+     * Visits the names that lets and for loops bind into the current frame, i.e. everything
+     * except those inside nested function literals.
+     */
+    public static void forEachBinding(Node node, Consumer<Identifier> action) {
+        switch (node) {
+            case LetStatement ls -> action.accept(ls.name());
+            case ForExpression fe -> action.accept(fe.variable());
+            default -> {
+            }
+        }
+
+        if (!(node instanceof FunctionLiteral)) {
+            Nodes.children(node).forEach(child -> forEachBinding(child, action));
+        }
+    }
+
+    /**
+     * The names assigned to anywhere in {@code node}, nested function literals included.
+     */
+    static Set<String> assignedNames(Node node) {
+        final var names = new HashSet<String>();
+
+        collectAssignedNames(node, names);
+
+        return names;
+    }
+
+    private static void collectLoopBindings(Node node, Set<String> names) {
+        switch (node) {
+            case FunctionLiteral ignored -> {
+            }
+            case WhileExpression we -> forEachBinding(we, name -> names.add(name.value()));
+            case ForExpression fe -> forEachBinding(fe, name -> names.add(name.value()));
+            default -> Nodes.children(node).forEach(child -> collectLoopBindings(child, names));
+        }
+    }
+
+    private static void collectAssignedNames(Node node, Set<String> names) {
+        if (node instanceof AssignStatement as) {
+            names.add(as.name().value());
+        }
+
+        Nodes.children(node).forEach(child -> collectAssignedNames(child, names));
+    }
+
+    private static final class FunctionScope {
+        private final List<String> names = new ArrayList<>();
+        private final Map<String, Integer> slots = new HashMap<>();
+        // Names bound more than once, by a parameter and a let or by several lets
+        private final Set<String> rebound = new HashSet<>();
+        // Names certain to be bound at this point of the walk: parameters, then lets as they are passed
+        private final Set<String> bound = new HashSet<>();
+        private boolean capturing;
+
+        void declare(String name) {
+            if (!slots.containsKey(name)) {
+                slots.put(name, names.size());
+                names.add(name);
+            } else {
+                rebound.add(name);
+            }
+        }
+    }
+}
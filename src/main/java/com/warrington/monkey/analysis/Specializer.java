@@ -0,0 +1,301 @@
+package com.warrington.monkey.analysis;
+
+import com.warrington.monkey.ast.*;
+import com.warrington.monkey.object.Str;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Specializes functions on the literal arguments they are called with.
+ * <p>
+ * For a function bound by a top level let, and by nothing else in the program, a later call
+ * passing a literal for a parameter the body branches or computes on is redirected to a copy
+ * of the function with that parameter replaced by the literal, which the {@link Optimizer}
+ * then folds through conditions and arithmetic. The copy is bound right after the original,
+ * under a name that says what it was specialized on, e.g. {@code format(1, _)}. Calls with the
+ * same literals share it, recursive calls inside it included.
+ * <p>
+ * A specializer {@link #forSession} leaves calls inside functions alone, as the
+ * {@link Inliner} does, since a later program of the session may bind the function again.
+ */
+public final class Specializer {
+    /**
+     * Copies made per program at most, from the {@code monkey.specialize.max} system property.
+     */
+    public static final int MAX_SPECIALIZATIONS = Integer.getInteger("monkey.specialize.max", 64);
+
+    private final Map<String, Candidate> candidates = new HashMap<>();
+    // By specialized name, in the order they were made
+    private final Map<String, Specialization> specializations = new LinkedHashMap<>();
+    private final boolean session;
+    // Function literals around the expression being rewritten
+    private int depth;
+
+    private record Candidate(LetStatement let, FunctionLiteral literal, Set<String> foldable) {
+    }
+
+    private record Specialization(Candidate original, LetStatement let) {
+    }
+
+    public Specializer() {
+        this(false);
+    }
+
+    private Specializer(boolean session) {
+        this.session = session;
+    }
+
+    /**
+     * A specializer for programs run one after another against the same globals, like REPL lines.
+     */
+    public static Specializer forSession() {
+        return new Specializer(true);
+    }
+
+    /**
+     * The names of the copies the last {@link #specialize(Program)} made.
+     */
+    public List<String> specializations() {
+        return List.copyOf(specializations.keySet());
+    }
+
+    public Program specialize(Program program) {
+        candidates.clear();
+        specializations.clear();
+
+        final Map<String, Integer> bindings = new HashMap<>();
+
+        Inliner.countBindings(program, bindings);
+
+        final var rewritten = new ArrayList<Statement>();
+
+        for (Statement statement : program.getStatements()) {
+            final Statement result = rewriteStatement(statement);
+
+            rewritten.add(result);
+
+            if (result instanceof LetStatement ls && ls.value() instanceof FunctionLiteral fl && bindings.get(ls.name().value()) == 1) {
+                final Set<String> foldable = foldableParameters(fl);
+
+                if (!foldable.isEmpty()) {
+                    candidates.put(ls.name().value(), new Candidate(ls, fl, foldable));
+                }
+            }
+        }
+
+        final var specialized = new Program();
+
+        for (Statement statement : rewritten) {
+            specialized.addStatement(statement);
+
+            for (Specialization specialization : specializations.values()) {
+                if (specialization.original().let() == statement) {
+                    specialized.addStatement(specialization.let());
+                }
+            }
+        }
+
+        return specialized;
+    }
+
+    /**
+     * Parameters worth specializing on: read in a condition or by an operator, never rebound
+     * by a let or loop in the function's own frame and never assigned to.
+     */
+    private static Set<String> foldableParameters(FunctionLiteral fl) {
+        final var rebound = new HashSet<String>();
+
+        Resolver.forEachBinding(fl.body(), name -> rebound.add(name.value()));
+        rebound.addAll(Resolver.assignedNames(fl.body()));
+
+        final var parameters = new HashSet<String>();
+
+        for (Identifier parameter : fl.parameters()) {
+            if (!parameters.add(parameter.value())) {
+                return Set.of();
+            }
+        }
+
+        final var foldable = new HashSet<String>();
+
+        collectFolded(fl.body(), parameters, false, foldable);
+        foldable.removeAll(rebound);
+
+        return foldable;
+    }
+
+    private static void collectFolded(Node node, Set<String> parameters, boolean folding, Set<String> foldable) {
+        switch (node) {
+            case Identifier i when folding && parameters.contains(i.value()) -> foldable.add(i.value());
+            case FunctionLiteral fl -> {
+            }
+            case IfExpression ifExpression -> {
+                collectFolded(ifExpression.condition(), parameters, true, foldable);
+                collectFolded(ifExpression.consequence(), parameters, false, foldable);
+
+                if (ifExpression.alternative() != null) {
+                    collectFolded(ifExpression.alternative(), parameters, false, foldable);
+                }
+            }
+            case PrefixExpression pe -> collectFolded(pe.right(), parameters, true, foldable);
+            case InfixExpression ie -> {
+                collectFolded(ie.left(), parameters, true, foldable);
+                collectFolded(ie.right(), parameters, true, foldable);
+            }
+            default -> Nodes.children(node).forEach(child -> collectFolded(child, parameters, false, foldable));
+        }
+    }
+
+    private Statement rewriteStatement(Statement statement) {
+        return switch (statement) {
+            case ExpressionStatement es -> new ExpressionStatement(es.token(), rewrite(es.getExpression()));
+            case LetStatement ls -> new LetStatement(ls.token(), ls.name(), rewrite(ls.value()));
+            case ReturnStatement rs -> new ReturnStatement(rs.token(), rewrite(rs.returnValue()));
+            case AssignStatement as -> new AssignStatement(as.token(), as.name(), rewrite(as.value()));
+            case BlockStatement bs -> rewriteBlock(bs);
+            case null, default -> statement;
+        };
+    }
+
+    private BlockStatement rewriteBlock(BlockStatement block) {
+        return new BlockStatement(block.token(), block.statements().stream().map(this::rewriteStatement).toList());
+    }
+
+    private Expression rewrite(Expression expression) {
+        return switch (expression) {
+            case PrefixExpression pe -> {
+                final var rewritten = new PrefixExpression(pe.token(), pe.operator());
+
+                rewritten.setRight(rewrite(pe.right()));
+
+                yield rewritten;
+            }
+            case InfixExpression ie -> {
+                final var rewritten = new InfixExpression(ie.token(), ie.operator(), rewrite(ie.left()));
+
+                rewritten.setRight(rewrite(ie.right()));
+
+                yield rewritten;
+            }
+            case IfExpression ifExpression -> new IfExpression(
+                ifExpression.token(),
+                rewrite(ifExpression.condition()),
+                rewriteBlock(ifExpression.consequence()),
+                ifExpression.alternative() == null ? null : rewriteBlock(ifExpression.alternative())
+            );
+            case FunctionLiteral fl -> {
+                depth++;
+
+                try {
+                    yield fl.withBody(rewriteBlock(fl.body()));
+                } finally {
+                    depth--;
+                }
+            }
+            case WhileExpression we -> new WhileExpression(we.token(), rewrite(we.condition()), rewriteBlock(we.body()));
+            case ForExpression fe -> new ForExpression(fe.token(), fe.variable(), rewrite(fe.iterable()), rewriteBlock(fe.body()));
+            case ArrayLiteral al -> new ArrayLiteral(al.token(), al.elements().stream().map(this::rewrite).toList());
+            case HashLiteral hl -> {
+                final var pairs = new LinkedHashMap<Expression, Expression>();
+
+                hl.pairs().forEach((key, value) -> pairs.put(rewrite(key), rewrite(value)));
+
+                yield new HashLiteral(hl.token(), pairs);
+            }
+            case IndexExpression ie -> new IndexExpression(ie.token(), rewrite(ie.left()), rewrite(ie.index()));
+            case CallExpression ce -> {
+                final Expression function = rewrite(ce.function());
+                final List<Expression> arguments = ce.arguments().stream().map(this::rewrite).toList();
+
+                if (function instanceof Identifier i && candidates.get(i.value()) instanceof Candidate candidate && !(session && depth > 0)) {
+                    final CallExpression specialized = specializeCall(ce, i, candidate, arguments);
+
+                    if (specialized != null) {
+                        yield specialized;
+                    }
+                }
+
+                yield new CallExpression(ce.token(), function, arguments);
+            }
+            case null, default -> expression;
+        };
+    }
+
+    private CallExpression specializeCall(CallExpression call, Identifier callee, Candidate candidate, List<Expression> arguments) {
+        final List<Identifier> parameters = candidate.literal().parameters();
+
+        // A different number of arguments is an error on some engines and not on others, left as it is
+        if (arguments.size() != parameters.size()) {
+            return null;
+        }
+
+        final var replacements = new HashMap<String, Expression>();
+        final var signature = new ArrayList<String>();
+        final var remainingParameters = new ArrayList<Identifier>();
+        final var remainingArguments = new ArrayList<Expression>();
+
+        for (int i = 0; i < arguments.size(); i++) {
+            final Expression argument = arguments.get(i);
+            final String literal = candidate.foldable().contains(parameters.get(i).value()) ? literal(argument) : null;
+
+            if (literal != null) {
+                replacements.put(parameters.get(i).value(), argument);
+                signature.add(literal);
+            } else {
+                remainingParameters.add(parameters.get(i));
+                remainingArguments.add(argument);
+                signature.add("_");
+            }
+        }
+
+        if (replacements.isEmpty()) {
+            return null;
+        }
+
+        final String name = "%s(%s)".formatted(callee.value(), String.join(", ", signature));
+
+        if (!specializations.containsKey(name)) {
+            if (specializations.size() >= MAX_SPECIALIZATIONS) {
+                return null;
+            }
+
+            define(name, candidate, remainingParameters, replacements);
+        }
+
+        return new CallExpression(call.token(), new Identifier(callee.token(), name), remainingArguments);
+    }
+
+    private void define(String name, Candidate candidate, List<Identifier> parameters, Map<String, Expression> replacements) {
+        final FunctionLiteral original = candidate.literal();
+        final LetStatement let = candidate.let();
+        final var copy = new FunctionLiteral(
+            original.token(),
+            parameters.stream().map(p -> new Identifier(p.token(), p.value())).toList(),
+            Substitution.copyBlock(original.body(), replacements)
+        );
+
+        // Registered before its body is rewritten, so recursive calls with the same literals find it
+        specializations.put(name, null);
+        specializations.put(name, new Specialization(candidate, new LetStatement(let.token(), new Identifier(let.name().token(), name), rewrite(copy))));
+    }
+
+    /**
+     * A readable rendering of a literal argument, or null if the argument is not one.
+     */
+    private static String literal(Expression argument) {
+        return switch (argument) {
+            case IntegerLiteral il -> Long.toString(il.value());
+            case FloatLiteral fl -> Double.toString(fl.value());
+            case StringLiteral sl -> "\"%s\"".formatted(sl.value());
+            case MonkeyBoolean mb -> Boolean.toString(mb.value());
+            case Constant c -> c.value() instanceof Str s ? "\"%s\"".formatted(s.value()) : c.value().inspect();
+            default -> null;
+        };
+    }
+}
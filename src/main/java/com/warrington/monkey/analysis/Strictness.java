@@ -0,0 +1,310 @@
+package com.warrington.monkey.analysis;
+
+import com.warrington.monkey.ast.*;
+import com.warrington.monkey.evaluator.Builtins;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Works out which arguments can be passed by need, for {@code Evaluator#evalLazily}. Runs
+ * after the {@link Resolver}, whose slots it uses.
+ * <p>
+ * A parameter is strict when every call that returns normally reads it. Function literals
+ * get the parameters that are not strict marked lazy; a parameter rebound by a let or loop in
+ * its function, assigned to, or sharing its name with another, is never lazy. The strict parameters are found
+ * by following the body in evaluation order, with what is certain to run after each part:
+ * an if reads what both of its branches read, a loop only what it reads before its body first
+ * runs, a return ends the function, a function literal reads nothing when it is made. A call reads its strict arguments, where the callee is known:
+ * a builtin, which is strict in all of them, or a function bound once at the top level. How
+ * strict those are is a greatest fixpoint, so a recursive function that passes a parameter on
+ * to itself is strict in it if nothing else says otherwise.
+ * <p>
+ * A call of a function bound once at the top level that is lazy in some of its parameters also
+ * gets, per argument for one of those, whether a thunk may be made for it and which slots of
+ * the calling frame the thunk keeps. Other calls pass every argument evaluated. The argument has to mean the same whenever it is forced:
+ * it may only read parameters of the calling function that nothing rebinds or assigns, and
+ * names the program binds at most once. Literals and names are cheaper to evaluate than to delay and
+ * are never put off.
+ */
+public final class Strictness {
+    private final Map<String, Integer> bindings = new HashMap<>();
+    private final Map<String, FunctionLiteral> functions = new HashMap<>();
+    private final Map<FunctionLiteral, Long> masks = new IdentityHashMap<>();
+    private final Deque<Function> enclosing = new ArrayDeque<>();
+
+    // A function being analyzed: the slot of each parameter that keeps its value, and the names whose value can change
+    private record Function(Map<String, Integer> parameters, Set<String> unsettled) {
+    }
+
+    private Strictness() {
+    }
+
+    public static void analyze(Program program) {
+        final var strictness = new Strictness();
+
+        Inliner.countBindings(program, strictness.bindings);
+
+        for (Statement statement : program.getStatements()) {
+            if (statement instanceof LetStatement ls && ls.value() instanceof FunctionLiteral fl && strictness.bindings.get(ls.name().value()) == 1) {
+                strictness.functions.put(ls.name().value(), fl);
+                strictness.masks.put(fl, -1L);
+            }
+        }
+
+        strictness.solve();
+        strictness.annotate(program);
+    }
+
+    // Narrows the top level functions down from strict in everything until nothing changes
+    private void solve() {
+        boolean changed = true;
+
+        while (changed) {
+            changed = false;
+
+            for (FunctionLiteral fl : functions.values()) {
+                final long mask = strictParameters(fl);
+
+                if (mask != masks.get(fl)) {
+                    masks.put(fl, mask);
+                    changed = true;
+                }
+            }
+        }
+    }
+
+    private long strictParameters(FunctionLiteral fl) {
+        final Set<String> strict = block(fl.body(), Set.of());
+        final Set<String> unsettled = unsettled(fl);
+        final List<Identifier> parameters = fl.parameters();
+        long mask = 0;
+
+        for (int i = 0; i < parameters.size() && i < Long.SIZE; i++) {
+            final String name = parameters.get(i).value();
+
+            if (strict.contains(name) || unsettled.contains(name) || parameters.stream().filter(p -> p.value().equals(name)).count() > 1) {
+                mask |= 1L << i;
+            }
+        }
+
+        return mask;
+    }
+
+    // The names read on every way through the statements that completes normally, given that after them comes what reads after
+    private Set<String> block(BlockStatement block, Set<String> after) {
+        final List<Statement> statements = block.statements();
+        Set<String> strict = after;
+
+        for (int i = statements.size() - 1; i >= 0; i--) {
+            strict = switch (statements.get(i)) {
+                case ReturnStatement rs -> expression(rs.returnValue(), Set.of());
+                case LetStatement ls -> expression(ls.value(), strict);
+                case AssignStatement as -> expression(as.value(), strict);
+                case ExpressionStatement es -> expression(es.getExpression(), strict);
+                default -> strict;
+            };
+        }
+
+        return strict;
+    }
+
+    private Set<String> expression(Expression expression, Set<String> after) {
+        if (expression == null) {
+            return after;
+        }
+
+        return switch (expression) {
+            case Identifier i -> {
+                final Set<String> strict = new HashSet<>(after);
+
+                strict.add(i.value());
+
+                yield strict;
+            }
+            case FunctionLiteral ignored -> after;
+            // The body may not run at all
+            case WhileExpression we -> expression(we.condition(), after);
+            case ForExpression fe -> expression(fe.iterable(), after);
+            case IfExpression ie -> {
+                final Set<String> consequence = block(ie.consequence(), after);
+                final Set<String> alternative = ie.alternative() == null ? after : block(ie.alternative(), after);
+                final Set<String> both = new HashSet<>(consequence);
+
+                both.retainAll(alternative);
+
+                yield expression(ie.condition(), both);
+            }
+            case CallExpression ce -> {
+                final long mask = calleeMask(ce.function());
+                Set<String> strict = after;
+
+                for (int i = ce.arguments().size() - 1; i >= 0; i--) {
+                    if (i < Long.SIZE && (mask & 1L << i) != 0) {
+                        strict = expression(ce.arguments().get(i), strict);
+                    }
+                }
+
+                yield expression(ce.function(), strict);
+            }
+            default -> {
+                final List<Node> children = Nodes.children(expression);
+                Set<String> strict = after;
+
+                for (int i = children.size() - 1; i >= 0; i--) {
+                    strict = expression((Expression) children.get(i), strict);
+                }
+
+                yield strict;
+            }
+        };
+    }
+
+    // Which arguments a call certainly evaluates, as far as is known before it runs
+    private long calleeMask(Expression function) {
+        if (!(function instanceof Identifier i)) {
+            return 0;
+        }
+
+        if (functions.containsKey(i.value())) {
+            return masks.get(functions.get(i.value()));
+        }
+
+        return !bindings.containsKey(i.value()) && Builtins.get(i.value()) != null ? -1L : 0;
+    }
+
+    // Which parameters a call's callee is known to be lazy in
+    private long lazyArguments(Expression function) {
+        if (!(function instanceof Identifier i) || !functions.containsKey(i.value())) {
+            return 0;
+        }
+
+        final int arity = functions.get(i.value()).parameters().size();
+
+        return ~masks.get(functions.get(i.value())) & (arity < Long.SIZE ? (1L << arity) - 1 : -1L);
+    }
+
+    private void annotate(Node node) {
+        switch (node) {
+            case FunctionLiteral fl -> {
+                fl.setLazyParameters(~masks.computeIfAbsent(fl, this::strictParameters));
+
+                final var parameters = new HashMap<String, Integer>();
+                final Set<String> unsettled = unsettled(fl);
+
+                // A repeated name keeps only one of its values, so neither is settled
+                fl.parameters().forEach(p -> parameters.merge(p.value(), p.slot(), (a, b) -> -1));
+                parameters.keySet().removeAll(unsettled);
+                parameters.values().removeIf(slot -> slot == -1);
+
+                enclosing.push(new Function(parameters, unsettled));
+                annotate(fl.body());
+                enclosing.pop();
+
+                return;
+            }
+            case CallExpression ce when lazyArguments(ce.function()) != 0 -> {
+                final long lazy = lazyArguments(ce.function());
+                final List<Expression> arguments = ce.arguments();
+                final var delayed = new int[arguments.size()][];
+
+                for (int i = 0; i < arguments.size() && i < Long.SIZE; i++) {
+                    if ((lazy & 1L << i) != 0) {
+                        delayed[i] = delayable(arguments.get(i));
+                    }
+                }
+
+                ce.setDelayedArguments(delayed);
+            }
+            default -> {
+            }
+        }
+
+        Nodes.children(node).forEach(this::annotate);
+    }
+
+    // The slots of the calling frame a thunk for the argument keeps, or null if it has to be evaluated before the call
+    private int[] delayable(Expression argument) {
+        switch (argument) {
+            case IntegerLiteral ignored -> {
+                return null;
+            }
+            case FloatLiteral ignored -> {
+                return null;
+            }
+            case StringLiteral ignored -> {
+                return null;
+            }
+            case MonkeyBoolean ignored -> {
+                return null;
+            }
+            case Constant ignored -> {
+                return null;
+            }
+            case Identifier ignored -> {
+                return null;
+            }
+            case FunctionLiteral ignored -> {
+                return null;
+            }
+            default -> {
+            }
+        }
+
+        final Set<String> names = new HashSet<>();
+
+        freeNames(argument, Set.of(), names);
+
+        final Function function = enclosing.peek();
+        final var slots = new HashSet<Integer>();
+
+        for (String name : names) {
+            if (function != null && function.parameters().containsKey(name)) {
+                slots.add(function.parameters().get(name));
+            } else if (function != null && function.unsettled().contains(name) || bindings.getOrDefault(name, 0) > 1) {
+                return null;
+            }
+        }
+
+        return slots.stream().mapToInt(Integer::intValue).sorted().toArray();
+    }
+
+    // The names read in the node that nothing within it binds
+    private static void freeNames(Node node, Set<String> bound, Set<String> names) {
+        switch (node) {
+            case Identifier i when !bound.contains(i.value()) -> names.add(i.value());
+            case FunctionLiteral fl -> {
+                final Set<String> inner = new HashSet<>(bound);
+
+                fl.parameters().forEach(p -> inner.add(p.value()));
+                inner.addAll(lets(fl.body()));
+                freeNames(fl.body(), inner, names);
+            }
+            default -> Nodes.children(node).forEach(child -> freeNames(child, bound, names));
+        }
+    }
+
+    // The names bound by lets and loops of the function whose body this is, not counting functions within it
+    private static Set<String> lets(Node node) {
+        final Set<String> lets = new HashSet<>();
+
+        Resolver.forEachBinding(node, name -> lets.add(name.value()));
+
+        return lets;
+    }
+
+    // The names of a function whose value can change during a call: its lets and loop variables, and whatever is assigned to
+    private static Set<String> unsettled(FunctionLiteral fl) {
+        final Set<String> unsettled = lets(fl.body());
+
+        unsettled.addAll(Resolver.assignedNames(fl.body()));
+
+        return unsettled;
+    }
+}
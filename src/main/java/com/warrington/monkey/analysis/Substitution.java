@@ -0,0 +1,99 @@
+package com.warrington.monkey.analysis;
+
+import com.warrington.monkey.ast.*;
+
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Copies AST subtrees, replacing reads of some names with given expressions.
+ * <p>
+ * Every identifier in the copy is a new object, since the resolver stores its address in the
+ * identifier and the copy is resolved where it ends up. Replacements are inserted as they are.
+ * A name is left alone inside a nested function that binds it itself.
+ */
+final class Substitution {
+
+    private Substitution() {
+    }
+
+    static Expression copy(Expression expression, Map<String, Expression> replacements) {
+        return switch (expression) {
+            case Identifier i -> {
+                final Expression replacement = replacements.get(i.value());
+
+                yield replacement != null ? replacement : new Identifier(i.token(), i.value());
+            }
+            case PrefixExpression pe -> {
+                final var copy = new PrefixExpression(pe.token(), pe.operator());
+
+                copy.setRight(copy(pe.right(), replacements));
+
+                yield copy;
+            }
+            case InfixExpression ie -> {
+                final var copy = new InfixExpression(ie.token(), ie.operator(), copy(ie.left(), replacements));
+
+                copy.setRight(copy(ie.right(), replacements));
+
+                yield copy;
+            }
+            case IfExpression ifExpression -> new IfExpression(
+                ifExpression.token(),
+                copy(ifExpression.condition(), replacements),
+                copyBlock(ifExpression.consequence(), replacements),
+                ifExpression.alternative() == null ? null : copyBlock(ifExpression.alternative(), replacements)
+            );
+            case FunctionLiteral fl -> {
+                final var inner = new HashMap<>(replacements);
+
+                fl.parameters().forEach(p -> inner.remove(p.value()));
+                Resolver.forEachBinding(fl.body(), name -> inner.remove(name.value()));
+
+                yield new FunctionLiteral(
+                    fl.token(),
+                    fl.parameters().stream().map(p -> new Identifier(p.token(), p.value())).toList(),
+                    copyBlock(fl.body(), inner)
+                );
+            }
+            case WhileExpression we -> new WhileExpression(we.token(), copy(we.condition(), replacements), copyBlock(we.body(), replacements));
+            case ForExpression fe -> new ForExpression(
+                fe.token(),
+                new Identifier(fe.variable().token(), fe.variable().value()),
+                copy(fe.iterable(), replacements),
+                copyBlock(fe.body(), replacements)
+            );
+            case ArrayLiteral al -> new ArrayLiteral(al.token(), al.elements().stream().map(e -> copy(e, replacements)).toList());
+            case HashLiteral hl -> {
+                final var pairs = new LinkedHashMap<Expression, Expression>();
+
+                hl.pairs().forEach((key, value) -> pairs.put(copy(key, replacements), copy(value, replacements)));
+
+                yield new HashLiteral(hl.token(), pairs);
+            }
+            case IndexExpression ie -> new IndexExpression(ie.token(), copy(ie.left(), replacements), copy(ie.index(), replacements));
+            case CallExpression ce -> new CallExpression(
+                ce.token(),
+                copy(ce.function(), replacements),
+                ce.arguments().stream().map(e -> copy(e, replacements)).toList()
+            );
+            case null, default -> expression;
+        };
+    }
+
+    static Statement copy(Statement statement, Map<String, Expression> replacements) {
+        return switch (statement) {
+            case ExpressionStatement es -> new ExpressionStatement(es.token(), copy(es.getExpression(), replacements));
+            case LetStatement ls -> new LetStatement(ls.token(), new Identifier(ls.name().token(), ls.name().value()), copy(ls.value(), replacements));
+            case ReturnStatement rs -> new ReturnStatement(rs.token(), copy(rs.returnValue(), replacements));
+            case AssignStatement as -> new AssignStatement(as.token(), new Identifier(as.name().token(), as.name().value()), copy(as.value(), replacements));
+            case BlockStatement bs -> copyBlock(bs, replacements);
+            case null, default -> statement;
+        };
+    }
+
+    static BlockStatement copyBlock(BlockStatement block, Map<String, Expression> replacements) {
+        return new BlockStatement(block.token(), block.statements().stream().map(s -> copy(s, replacements)).toList());
+    }
+}
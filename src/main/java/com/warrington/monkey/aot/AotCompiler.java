@@ -0,0 +1,163 @@
+package com.warrington.monkey.aot;
+
+import com.warrington.monkey.analysis.Inliner;
+import com.warrington.monkey.analysis.Optimizer;
+import com.warrington.monkey.analysis.Resolver;
+import com.warrington.monkey.analysis.Specializer;
+import com.warrington.monkey.ast.Program;
+import com.warrington.monkey.jit.JitCompiler;
+import com.warrington.monkey.lexer.Lexer;
+import com.warrington.monkey.object.Environment;
+import com.warrington.monkey.parser.Parser;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URISyntaxException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.jar.Attributes;
+import java.util.jar.JarEntry;
+import java.util.jar.JarFile;
+import java.util.jar.JarOutputStream;
+import java.util.jar.Manifest;
+import java.util.stream.Stream;
+
+/**
+ * Compiles a Monkey script ahead of time into a runnable jar.
+ * <p>
+ * The jar holds the script as a single class, {@value #MAIN_CLASS}, next to the parts of
+ * the interpreter its generated code calls into: the object model, operators, builtins
+ * and JIT runtime. The lexer, parser and REPL are left out; the script is never parsed again.
+ */
+public final class AotCompiler {
+    public static final String MAIN_CLASS = "MonkeyScript";
+
+    // Packages the generated code links against, directly or through the runtime helpers
+    private static final List<String> RUNTIME_PACKAGES = List.of(
+        "com/warrington/monkey/analysis/",
+        "com/warrington/monkey/ast/",
+        "com/warrington/monkey/evaluator/",
+        "com/warrington/monkey/jit/",
+        "com/warrington/monkey/object/",
+        "com/warrington/monkey/token/"
+    );
+
+    private final List<String> errors = new ArrayList<>();
+    private final Inliner inliner = new Inliner();
+
+    public List<String> errors() {
+        return errors;
+    }
+
+    /**
+     * The helper functions inlined into the last script compiled.
+     */
+    public List<Inliner.Inlining> inlined() {
+        return inliner.inlined();
+    }
+
+    /**
+     * Returns the class file for the script, or null when it does not parse; see {@link #errors()}.
+     */
+    public byte[] compile(String source) {
+        final var parser = new Parser(new Lexer(source));
+        final Program parsed = parser.parseProgram();
+
+        if (!parser.errors().isEmpty()) {
+            errors.addAll(parser.errors());
+            return null;
+        }
+
+        final Program program = Optimizer.optimize(new Specializer().specialize(inliner.inline(parsed)));
+
+        final var globals = new Environment();
+
+        Resolver.resolve(program, globals);
+
+        try {
+            return JitCompiler.compileProgram(MAIN_CLASS, program, globals.names());
+        } catch (RuntimeException e) {
+            errors.add("unable to compile script: %s".formatted(e.getMessage()));
+            return null;
+        }
+    }
+
+    /**
+     * Compiles the script and writes it, with the runtime it needs, to {@code jar}.
+     *
+     * @return false if the script could not be compiled, in which case nothing is written
+     */
+    public boolean writeJar(String source, Path jar) throws IOException {
+        final byte[] classFile = compile(source);
+
+        if (classFile == null) {
+            return false;
+        }
+
+        final var manifest = new Manifest();
+
+        manifest.getMainAttributes().put(Attributes.Name.MANIFEST_VERSION, "1.0");
+        manifest.getMainAttributes().put(Attributes.Name.MAIN_CLASS, MAIN_CLASS);
+
+        try (var out = new JarOutputStream(Files.newOutputStream(jar), manifest)) {
+            out.putNextEntry(new JarEntry(MAIN_CLASS + ".class"));
+            out.write(classFile);
+            out.closeEntry();
+
+            copyRuntime(out);
+        }
+
+        return true;
+    }
+
+    /**
+     * Copies the runtime classes from wherever this interpreter was loaded from, a directory or a jar.
+     */
+    private static void copyRuntime(JarOutputStream out) throws IOException {
+        final Path location;
+
+        try {
+            location = Path.of(AotCompiler.class.getProtectionDomain().getCodeSource().getLocation().toURI());
+        } catch (URISyntaxException e) {
+            throw new IOException("cannot locate the interpreter's classes", e);
+        }
+
+        if (Files.isDirectory(location)) {
+            try (Stream<Path> files = Files.walk(location)) {
+                for (Path file : files.filter(Files::isRegularFile).toList()) {
+                    final String name = location.relativize(file).toString().replace('\\', '/');
+
+                    if (isRuntimeClass(name)) {
+                        try (InputStream in = Files.newInputStream(file)) {
+                            copyEntry(name, in, out);
+                        }
+                    }
+                }
+            }
+
+            return;
+        }
+
+        try (var jar = new JarFile(location.toFile())) {
+            for (JarEntry entry : jar.stream().toList()) {
+                if (isRuntimeClass(entry.getName())) {
+                    try (InputStream in = jar.getInputStream(entry)) {
+                        copyEntry(entry.getName(), in, out);
+                    }
+                }
+            }
+        }
+    }
+
+    private static boolean isRuntimeClass(String name) {
+        return name.endsWith(".class") && RUNTIME_PACKAGES.stream().anyMatch(name::startsWith);
+    }
+
+    private static void copyEntry(String name, InputStream in, JarOutputStream out) throws IOException {
+        out.putNextEntry(new JarEntry(name));
+        in.transferTo(out);
+        out.closeEntry();
+    }
+}
@@ -0,0 +1,34 @@
+package com.warrington.monkey.ast;
+
+import com.warrington.monkey.token.Token;
+
+/**
+ * {@code name = value;}, giving a name that is already bound a new value where it is bound.
+ */
+public record AssignStatement(
+    Token token,
+    Identifier name,
+    Expression value
+) implements Statement {
+
+    @Override
+    public String tokenLiteral() {
+        return token.literal();
+    }
+
+    @Override
+    public String toString() {
+        final var builder = new StringBuilder();
+
+        builder.append(name.toString());
+        builder.append(" = ");
+
+        if (value != null) {
+            builder.append(value);
+        }
+
+        builder.append(";");
+
+        return builder.toString();
+    }
+}
@@ -1,15 +1,52 @@
 package com.warrington.monkey.ast;
 
+import com.warrington.monkey.evaluator.CallSite;
 import com.warrington.monkey.token.Token;
 
 import java.util.ArrayList;
 import java.util.List;
 
-public record CallExpression(
-    Token token,
-    Expression function,
-    List<Expression> arguments
-) implements Expression {
+public class CallExpression implements Expression {
+    private final Token token;
+    private final Expression function;
+    private final List<Expression> arguments;
+
+    // Maintained by the evaluator: the functions called from here and how to call them
+    private final CallSite callSite = new CallSite();
+    // Filled in by the strictness analysis for a call of a function known to be lazy in some
+    // parameter: per argument, the slots of the calling frame a thunk for it keeps, or null
+    // where it has to be evaluated before the call. Null for every other call.
+    private int[][] delayedArguments;
+
+    public CallExpression(Token token, Expression function, List<Expression> arguments) {
+        this.token = token;
+        this.function = function;
+        this.arguments = arguments;
+    }
+
+    public Token token() {
+        return token;
+    }
+
+    public Expression function() {
+        return function;
+    }
+
+    public List<Expression> arguments() {
+        return arguments;
+    }
+
+    public CallSite callSite() {
+        return callSite;
+    }
+
+    public int[][] delayedArguments() {
+        return delayedArguments;
+    }
+
+    public void setDelayedArguments(int[][] delayedArguments) {
+        this.delayedArguments = delayedArguments;
+    }
 
     @Override
     public String tokenLiteral() {
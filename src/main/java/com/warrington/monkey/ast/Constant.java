@@ -0,0 +1,22 @@
+package com.warrington.monkey.ast;
+
+import com.warrington.monkey.object.MonkeyObject;
+
+/**
+ * An expression the optimizer already evaluated, standing in for its {@code source}.
+ * The value is created once and shared by every evaluation, so it must be immutable.
+ */
+public record Constant(
+    Expression source,
+    MonkeyObject value
+) implements Expression {
+    @Override
+    public String tokenLiteral() {
+        return source.tokenLiteral();
+    }
+
+    @Override
+    public String toString() {
+        return source.toString();
+    }
+}
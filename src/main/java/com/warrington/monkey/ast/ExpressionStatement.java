@@ -11,6 +11,10 @@ public class ExpressionStatement implements Statement {
         this.expression = expression;
     }
 
+    public Token token() {
+        return token;
+    }
+
     @Override
     public String tokenLiteral() {
         return token.literal();
@@ -0,0 +1,18 @@
+package com.warrington.monkey.ast;
+
+import com.warrington.monkey.token.Token;
+
+public record FloatLiteral(
+    Token token,
+    double value
+) implements Expression {
+    @Override
+    public String tokenLiteral() {
+        return token.literal();
+    }
+
+    @Override
+    public String toString() {
+        return token.literal();
+    }
+}
@@ -0,0 +1,25 @@
+package com.warrington.monkey.ast;
+
+import com.warrington.monkey.token.Token;
+
+/**
+ * {@code for (variable in iterable) { body }}. The variable is bound in the enclosing frame,
+ * like a let, and set again for every element.
+ */
+public record ForExpression(
+    Token token,
+    Identifier variable,
+    Expression iterable,
+    BlockStatement body
+) implements Expression {
+
+    @Override
+    public String tokenLiteral() {
+        return token.literal();
+    }
+
+    @Override
+    public String toString() {
+        return "for(%s in %s) %s".formatted(variable, iterable, body);
+    }
+}
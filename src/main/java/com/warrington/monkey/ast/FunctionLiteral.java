@@ -1,15 +1,42 @@
 package com.warrington.monkey.ast;
 
+import com.warrington.monkey.jit.FunctionInfo;
 import com.warrington.monkey.token.Token;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
 
-public record FunctionLiteral(
-    Token token,
-    List<Identifier> parameters,
-    BlockStatement body
-) implements Expression {
+public class FunctionLiteral implements Expression {
+    private final Token token;
+    private final List<Identifier> parameters;
+    private final BlockStatement body;
+    // The literal as the program wrote it, which functions made of a rewritten copy print as
+    private FunctionLiteral written = this;
+
+    // Filled in by the resolver: the name bound to each slot of this function's frame
+    private List<String> slotNames = List.of();
+    // Also by the resolver: whether a frame can outlive its call, held by a closure made in the body
+    private boolean framesEscape = true;
+    // And which slots of the frame a closure of this literal is made in it keeps, null for the whole frame
+    private int[] capturedSlots;
+    // And whether it reads no name an enclosing function binds; if so engines keep its one closure
+    // with the globals, see Environment#hoist
+    private boolean closed;
+    // Filled in by the strictness analysis: a bit per parameter the body may not need, which
+    // callers can then pass as a thunk
+    private long lazyParameters;
+
+    // Maintained by the JIT: how often the evaluator called this function and, once hot, its compiled
+    // code. Calls made on several threads at once count each, so exactly one of them reaches the threshold.
+    private final AtomicInteger invocations = new AtomicInteger();
+    private volatile FunctionInfo compiled;
+
+    public FunctionLiteral(Token token, List<Identifier> parameters, BlockStatement body) {
+        this.token = token;
+        this.parameters = parameters;
+        this.body = body;
+    }
 
     @Override
     public String tokenLiteral() {
@@ -31,4 +58,91 @@ public record FunctionLiteral(
 
         return b.toString();
     }
+
+    public Token token() {
+        return token;
+    }
+
+    public List<Identifier> parameters() {
+        return parameters;
+    }
+
+    public BlockStatement body() {
+        return body;
+    }
+
+    public FunctionLiteral written() {
+        return written;
+    }
+
+    /**
+     * A copy with another body, for passes that rewrite it, which still prints as this literal was written.
+     */
+    public FunctionLiteral withBody(BlockStatement body) {
+        final var copy = new FunctionLiteral(token, parameters, body);
+        copy.written = written;
+        return copy;
+    }
+
+    public List<String> slotNames() {
+        return slotNames;
+    }
+
+    public void setSlotNames(List<String> slotNames) {
+        this.slotNames = List.copyOf(slotNames);
+    }
+
+    public boolean framesEscape() {
+        return framesEscape;
+    }
+
+    public void setFramesEscape(boolean framesEscape) {
+        this.framesEscape = framesEscape;
+    }
+
+    public int[] capturedSlots() {
+        return capturedSlots;
+    }
+
+    public void setCapturedSlots(int[] capturedSlots) {
+        this.capturedSlots = capturedSlots;
+    }
+
+    public boolean isClosed() {
+        return closed;
+    }
+
+    public void setClosed(boolean closed) {
+        this.closed = closed;
+    }
+
+    public boolean isLazy(int parameter) {
+        return parameter < Long.SIZE && (lazyParameters & 1L << parameter) != 0;
+    }
+
+    public boolean hasLazyParameters() {
+        for (int i = 0; i < parameters.size(); i++) {
+            if (isLazy(i)) {
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    public void setLazyParameters(long lazyParameters) {
+        this.lazyParameters = lazyParameters;
+    }
+
+    public int countInvocation() {
+        return invocations.incrementAndGet();
+    }
+
+    public FunctionInfo compiled() {
+        return compiled;
+    }
+
+    public void setCompiled(FunctionInfo compiled) {
+        this.compiled = compiled;
+    }
 }
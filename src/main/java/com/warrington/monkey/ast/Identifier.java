@@ -1,15 +1,64 @@
 package com.warrington.monkey.ast;
 
+import com.warrington.monkey.object.MonkeyObject;
 import com.warrington.monkey.token.Token;
 
 public class Identifier implements Expression {
     private Token token;
     private String value;
 
+    // Static address assigned by the resolver: how many frames to walk out, then which slot
+    private int depth = -1;
+    private int slot = -1;
+    // Set by the resolver when no enclosing function binds the name: an empty slot then means a builtin
+    private boolean global;
+    // Inline cache of the builtin such an empty global slot was last found to stand for
+    private MonkeyObject builtin;
+
+    public Token token() {
+        return token;
+    }
+
     public String value() {
         return value;
     }
 
+    public int depth() {
+        return depth;
+    }
+
+    public int slot() {
+        return slot;
+    }
+
+    public boolean isResolved() {
+        return slot >= 0;
+    }
+
+    public boolean isGlobal() {
+        return global;
+    }
+
+    public void resolve(int depth, int slot) {
+        this.depth = depth;
+        this.slot = slot;
+        this.global = false;
+    }
+
+    public void resolveGlobal(int depth, int slot) {
+        this.depth = depth;
+        this.slot = slot;
+        this.global = true;
+    }
+
+    public MonkeyObject cachedBuiltin() {
+        return builtin;
+    }
+
+    public void cacheBuiltin(MonkeyObject builtin) {
+        this.builtin = builtin;
+    }
+
     @Override
     public String tokenLiteral() {
         return token.literal();
@@ -8,12 +8,23 @@ public class InfixExpression implements Expression {
     private Expression left;
     private Expression right;
 
+    // Maintained by the evaluator: whether this has only ever done arithmetic on integers,
+    // so it can keep computing on primitive longs
+    private boolean integral = true;
+    // And once it no longer is, whether it has since only done arithmetic on floats, so it
+    // can keep computing on primitive doubles
+    private boolean floating;
+
     public InfixExpression(Token token, String operator, Expression left) {
         this.token = token;
         this.operator = operator;
         this.left = left;
     }
 
+    public Token token() {
+        return token;
+    }
+
     @Override
     public String tokenLiteral() {
         return token.literal();
@@ -38,5 +49,21 @@ public class InfixExpression implements Expression {
 
     public void setRight(Expression right) {
         this.right = right;
-    } 
+    }
+
+    public boolean isIntegral() {
+        return integral;
+    }
+
+    public void setIntegral(boolean integral) {
+        this.integral = integral;
+    }
+
+    public boolean isFloating() {
+        return floating;
+    }
+
+    public void setFloating(boolean floating) {
+        this.floating = floating;
+    }
 }
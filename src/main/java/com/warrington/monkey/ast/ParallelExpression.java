@@ -0,0 +1,24 @@
+package com.warrington.monkey.ast;
+
+/**
+ * An expression the purity analysis found can be evaluated on another thread, standing in for it.
+ * Evaluators that do not fork evaluate {@code expression} as usual.
+ * <p>
+ * It is evaluated together with the other parallel expressions next to it: the arguments of one
+ * call, the elements of one array literal or the values of one hash literal, or the values of
+ * consecutive top level lets of the same {@code group}.
+ */
+public record ParallelExpression(
+    Expression expression,
+    int group
+) implements Expression {
+    @Override
+    public String tokenLiteral() {
+        return expression.tokenLiteral();
+    }
+
+    @Override
+    public String toString() {
+        return expression.toString();
+    }
+}
@@ -12,6 +12,10 @@ public class PrefixExpression implements Expression {
         this.operator = operator;
     }
 
+    public Token token() {
+        return token;
+    }
+
     @Override
     public String tokenLiteral() {
         return token.literal();
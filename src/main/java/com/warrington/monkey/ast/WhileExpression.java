@@ -0,0 +1,20 @@
+package com.warrington.monkey.ast;
+
+import com.warrington.monkey.token.Token;
+
+public record WhileExpression(
+    Token token,
+    Expression condition,
+    BlockStatement body
+) implements Expression {
+
+    @Override
+    public String tokenLiteral() {
+        return token.literal();
+    }
+
+    @Override
+    public String toString() {
+        return "while" + condition + " " + body;
+    }
+}
@@ -0,0 +1,11 @@
+package com.warrington.monkey.compiler;
+
+import com.warrington.monkey.object.MonkeyObject;
+
+import java.util.List;
+
+public record Bytecode(
+    byte[] instructions,
+    List<MonkeyObject> constants
+) {
+}
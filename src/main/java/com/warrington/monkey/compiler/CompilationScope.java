@@ -0,0 +1,66 @@
+package com.warrington.monkey.compiler;
+
+import java.util.Arrays;
+
+/**
+ * Instructions being emitted for a single function body (or the main program),
+ * along with the last two emitted instructions so they can be patched.
+ */
+class CompilationScope {
+    private byte[] instructions = new byte[64];
+    private int size;
+
+    private Opcode lastOpcode;
+    private int lastPosition = -1;
+    private Opcode previousOpcode;
+    private int previousPosition = -1;
+
+    int add(byte[] instruction) {
+        if (size + instruction.length > instructions.length) {
+            instructions = Arrays.copyOf(instructions, Math.max(instructions.length * 2, size + instruction.length));
+        }
+
+        final int position = size;
+
+        System.arraycopy(instruction, 0, instructions, position, instruction.length);
+        size += instruction.length;
+
+        previousOpcode = lastOpcode;
+        previousPosition = lastPosition;
+        lastOpcode = Opcode.lookup(instruction[0]);
+        lastPosition = position;
+
+        return position;
+    }
+
+    int size() {
+        return size;
+    }
+
+    boolean lastInstructionIs(Opcode op) {
+        return size != 0 && lastOpcode == op;
+    }
+
+    void removeLastInstruction() {
+        size = lastPosition;
+        lastOpcode = previousOpcode;
+        lastPosition = previousPosition;
+    }
+
+    void replaceInstruction(int position, byte[] instruction) {
+        System.arraycopy(instruction, 0, instructions, position, instruction.length);
+    }
+
+    void replaceLastPopWithReturn() {
+        replaceInstruction(lastPosition, Instructions.make(Opcode.RETURN_VALUE));
+        lastOpcode = Opcode.RETURN_VALUE;
+    }
+
+    Opcode opcodeAt(int position) {
+        return Opcode.lookup(instructions[position]);
+    }
+
+    byte[] instructions() {
+        return Arrays.copyOf(instructions, size);
+    }
+}
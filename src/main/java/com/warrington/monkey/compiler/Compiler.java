@@ -0,0 +1,485 @@
+package com.warrington.monkey.compiler;
+
+import com.warrington.monkey.analysis.Nodes;
+import com.warrington.monkey.analysis.Resolver;
+import com.warrington.monkey.ast.*;
+import com.warrington.monkey.evaluator.Builtins;
+import com.warrington.monkey.object.*;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Translates a parsed {@link Program} into {@link Bytecode} for the
+ * {@link com.warrington.monkey.vm.Vm}. Like the parser, problems are collected
+ * in {@link #errors()} instead of being thrown.
+ * <p>
+ * Returns follow the evaluator: one in a statement of the function body, or in an if that is
+ * such a statement, leaves the function; one inside an expression only ends the blocks up to
+ * there, the expression getting the wrapped value, and leaves the function if that value makes
+ * it to a statement.
+ */
+public class Compiler {
+    private static final int PLACEHOLDER = 9999;
+
+    private static final Map<String, Opcode> infixOperators = Map.of(
+        "+", Opcode.ADD,
+        "-", Opcode.SUB,
+        "*", Opcode.MUL,
+        "/", Opcode.DIV,
+        ">", Opcode.GREATER_THAN,
+        "<", Opcode.LESS_THAN,
+        "==", Opcode.EQUAL,
+        "!=", Opcode.NOT_EQUAL
+    );
+
+    private final List<MonkeyObject> constants;
+    private final List<String> errors = new ArrayList<>();
+    private final Deque<CompilationScope> scopes = new ArrayDeque<>();
+
+    private SymbolTable symbolTable;
+    // Whether what is being compiled is part of an expression, and the jumps out of the block it is in
+    private boolean inExpression;
+    private List<Integer> blockExits = new ArrayList<>();
+
+    public Compiler() {
+        this(newGlobalSymbolTable(), new ArrayList<>());
+    }
+
+    /**
+     * Continues compiling against existing state, so that a REPL session keeps
+     * its globals and constant pool between lines.
+     */
+    public Compiler(SymbolTable symbolTable, List<MonkeyObject> constants) {
+        this.symbolTable = symbolTable;
+        this.constants = constants;
+
+        scopes.push(new CompilationScope());
+    }
+
+    public static SymbolTable newGlobalSymbolTable() {
+        final var table = new SymbolTable();
+        final List<String> names = Builtins.names();
+
+        for (int i = 0; i < names.size(); i++) {
+            table.defineBuiltin(i, names.get(i));
+        }
+
+        return table;
+    }
+
+    public List<String> errors() {
+        return List.copyOf(errors);
+    }
+
+    public Bytecode bytecode() {
+        return new Bytecode(scopes.peek().instructions(), constants);
+    }
+
+    public void compile(Node node) {
+        switch (node) {
+            case Program p -> {
+                // Top-level bindings live in numbered global slots, so they can be
+                // declared up front and referenced before their let has executed
+                for (Statement stmt : p.getStatements()) {
+                    if (stmt instanceof LetStatement ls) {
+                        defineBinding(ls.name().value());
+                    }
+                }
+
+                p.getStatements().forEach(this::compile);
+            }
+            case ExpressionStatement es -> {
+                if (es.getExpression() == null) {
+                    return;
+                }
+
+                if (!inExpression && es.getExpression() instanceof IfExpression ie) {
+                    compileIfExpression(ie);
+                } else {
+                    compileExpression(es.getExpression());
+                    exitIfReturned(es.getExpression());
+                }
+
+                emit(Opcode.POP);
+            }
+            case BlockStatement bs -> {
+                for (Statement stmt : bs.statements()) {
+                    compile(stmt);
+
+                    // Nothing after a return can run
+                    if (stmt instanceof ReturnStatement) {
+                        break;
+                    }
+                }
+            }
+            case ReturnStatement rs -> {
+                compileExpression(rs.returnValue());
+                emit(inExpression ? Opcode.WRAP_RETURN : Opcode.RETURN_VALUE);
+            }
+            case LetStatement ls -> {
+                final String name = ls.name().value();
+
+                if (ls.value() instanceof FunctionLiteral fl) {
+                    compileFunctionLiteral(fl, name);
+                } else {
+                    compileExpression(ls.value());
+                    exitIfReturned(ls.value());
+                }
+
+                final Symbol symbol = defineBinding(name);
+
+                if (symbol.scope() == SymbolScope.GLOBAL) {
+                    emit(Opcode.SET_GLOBAL, symbol.index());
+                } else if (symbolTable.isCell(symbol)) {
+                    emit(Opcode.SET_CELL, symbol.index());
+                } else {
+                    emit(Opcode.SET_LOCAL, symbol.index());
+                }
+            }
+
+            // Expressions
+            case Constant c -> {
+                switch (c.value()) {
+                    case Bool(boolean value) -> emit(value ? Opcode.TRUE : Opcode.FALSE);
+                    case Null n -> emit(Opcode.NULL);
+                    default -> emit(Opcode.CONSTANT, addConstant(c.value()));
+                }
+            }
+            case IntegerLiteral il -> emit(Opcode.CONSTANT, addConstant(Int.of(il.value())));
+            case FloatLiteral fl -> emit(Opcode.CONSTANT, addConstant(new MonkeyFloat(fl.value())));
+            case StringLiteral sl -> emit(Opcode.CONSTANT, addConstant(new Str(sl.value())));
+            case MonkeyBoolean mb -> emit(mb.value() ? Opcode.TRUE : Opcode.FALSE);
+            case PrefixExpression pe -> {
+                compile(pe.right());
+
+                switch (pe.operator()) {
+                    case "!" -> emit(Opcode.BANG);
+                    case "-" -> emit(Opcode.MINUS);
+                    default -> errors.add("unknown operator %s".formatted(pe.operator()));
+                }
+            }
+            case InfixExpression ie -> {
+                compile(ie.left());
+                compile(ie.right());
+
+                final Opcode op = infixOperators.get(ie.operator());
+
+                if (op == null) {
+                    errors.add("unknown operator %s".formatted(ie.operator()));
+                    return;
+                }
+
+                emit(op);
+            }
+            case IfExpression ifExpression -> compileIfExpression(ifExpression);
+            case Identifier i -> {
+                final Symbol symbol = symbolTable.resolve(i.value());
+
+                if (symbol == null) {
+                    errors.add("identifier not found: %s".formatted(i.value()));
+                    return;
+                }
+
+                loadSymbol(symbol);
+            }
+            case ArrayLiteral al -> {
+                al.elements().forEach(this::compile);
+                emit(Opcode.ARRAY, al.elements().size());
+            }
+            case HashLiteral hl -> {
+                hl.pairs().forEach((key, value) -> {
+                    compile(key);
+                    compile(value);
+                });
+
+                emit(Opcode.HASH, hl.pairs().size() * 2);
+            }
+            case IndexExpression ie -> {
+                compile(ie.left());
+                compile(ie.index());
+                emit(Opcode.INDEX);
+            }
+            case FunctionLiteral fl -> compileFunctionLiteral(fl, null);
+            case CallExpression ce -> {
+                compile(ce.function());
+                ce.arguments().forEach(this::compile);
+                emit(Opcode.CALL, ce.arguments().size());
+            }
+            default -> errors.add("unable to compile node: %s".formatted(node));
+        }
+    }
+
+    private void compileExpression(Expression expression) {
+        final boolean outer = inExpression;
+
+        inExpression = true;
+        compile(expression);
+        inExpression = outer;
+    }
+
+    /**
+     * After a value that may come from a return inside it: a statement of the function returns
+     * it, a statement of a block within an expression ends the block with it.
+     */
+    private void exitIfReturned(Expression value) {
+        if (!containsReturn(value)) {
+            return;
+        }
+
+        if (inExpression) {
+            blockExits.add(emit(Opcode.JUMP_IF_RETURNED, PLACEHOLDER));
+        } else {
+            emit(Opcode.RETURN_IF_WRAPPED);
+        }
+    }
+
+    // Whether evaluating the node can produce a return value, not counting nested functions
+    private static boolean containsReturn(Node node) {
+        if (node instanceof ReturnStatement) {
+            return true;
+        }
+
+        if (node instanceof FunctionLiteral) {
+            return false;
+        }
+
+        return Nodes.children(node).stream().anyMatch(Compiler::containsReturn);
+    }
+
+    private void compileIfExpression(IfExpression ifExpression) {
+        compileExpression(ifExpression.condition());
+
+        final int jumpNotTruthyPosition = emit(Opcode.JUMP_NOT_TRUTHY, PLACEHOLDER);
+
+        compileBranch(ifExpression.consequence());
+
+        final int jumpPosition = emit(Opcode.JUMP, PLACEHOLDER);
+
+        changeOperand(jumpNotTruthyPosition, currentScope().size());
+
+        if (ifExpression.alternative() == null) {
+            emit(Opcode.NULL);
+        } else {
+            compileBranch(ifExpression.alternative());
+        }
+
+        changeOperand(jumpPosition, currentScope().size());
+    }
+
+    /**
+     * Compiles one arm of an if expression so that it leaves exactly one value on the stack.
+     */
+    private void compileBranch(BlockStatement block) {
+        final List<Integer> outerExits = blockExits;
+
+        blockExits = new ArrayList<>();
+        compile(block);
+
+        if (currentScope().lastInstructionIs(Opcode.POP)) {
+            currentScope().removeLastInstruction();
+        } else if (!currentScope().lastInstructionIs(Opcode.RETURN_VALUE) && !currentScope().lastInstructionIs(Opcode.WRAP_RETURN)) {
+            emit(Opcode.NULL);
+        }
+
+        blockExits.forEach(position -> changeOperand(position, currentScope().size()));
+        blockExits = outerExits;
+    }
+
+    /**
+     * Compiles a function the way the evaluator runs it: one frame for the parameters and every
+     * let in the body, wherever it is, so that a closure made before a let runs still sees the
+     * value it binds. Locals that closures may keep are therefore held in cells the closures
+     * share. A let read before it ran stands for the name outside the function instead.
+     */
+    private void compileFunctionLiteral(FunctionLiteral fl, String name) {
+        final boolean outerInExpression = inExpression;
+        final List<Integer> outerExits = blockExits;
+
+        inExpression = false;
+        blockExits = new ArrayList<>();
+        enterScope();
+
+        if (name != null) {
+            symbolTable.defineFunctionName(name);
+        }
+
+        fl.parameters().forEach(param -> symbolTable.define(param.value()));
+        symbolTable.markParameters();
+        Resolver.forEachBinding(fl.body(), let -> defineBinding(let.value()));
+
+        final Set<String> captured = new HashSet<>();
+
+        collectCaptured(fl.body(), captured);
+
+        for (String local : captured) {
+            final Symbol symbol = symbolTable.isDefinedLocally(local) ? symbolTable.resolve(local) : null;
+
+            if (symbol != null && symbol.scope() == SymbolScope.LOCAL) {
+                symbolTable.markCell(symbol);
+                emit(Opcode.CELL, symbol.index());
+            }
+        }
+
+        compile(fl.body());
+
+        if (currentScope().lastInstructionIs(Opcode.POP)) {
+            currentScope().replaceLastPopWithReturn();
+        }
+
+        if (!currentScope().lastInstructionIs(Opcode.RETURN_VALUE)) {
+            emit(Opcode.RETURN);
+        }
+
+        final List<Symbol> freeSymbols = symbolTable.freeSymbols();
+        final int numLocals = symbolTable.numDefinitions();
+        final byte[] instructions = leaveScope();
+
+        inExpression = outerInExpression;
+        blockExits = outerExits;
+        freeSymbols.forEach(this::captureSymbol);
+
+        final var fn = new CompiledFunction(instructions, numLocals, fl.parameters().size());
+
+        emit(Opcode.CLOSURE, addConstant(fn), freeSymbols.size());
+    }
+
+    private Symbol defineBinding(String name) {
+        final Symbol existing = symbolTable.isDefinedLocally(name) ? symbolTable.resolve(name) : null;
+
+        if (existing != null && (existing.scope() == SymbolScope.GLOBAL || existing.scope() == SymbolScope.LOCAL)) {
+            return existing;
+        }
+
+        return symbolTable.define(name);
+    }
+
+    // The names that functions nested in node read, other than their parameters and their own name
+    private static void collectCaptured(Node node, Set<String> captured) {
+        switch (node) {
+            case LetStatement ls when ls.value() instanceof FunctionLiteral fl -> collectRead(fl, ls.name().value(), captured);
+            case FunctionLiteral fl -> collectRead(fl, null, captured);
+            default -> Nodes.children(node).forEach(child -> collectCaptured(child, captured));
+        }
+    }
+
+    private static void collectRead(FunctionLiteral fl, String name, Set<String> captured) {
+        final Set<String> read = new HashSet<>();
+
+        collectNames(fl.body(), read);
+        fl.parameters().forEach(param -> read.remove(param.value()));
+        read.remove(name);
+        captured.addAll(read);
+    }
+
+    private static void collectNames(Node node, Set<String> names) {
+        if (node instanceof Identifier i) {
+            names.add(i.value());
+        }
+
+        Nodes.children(node).forEach(child -> collectNames(child, names));
+    }
+
+    private void loadSymbol(Symbol symbol) {
+        switch (symbol.scope()) {
+            case GLOBAL -> emit(Opcode.GET_GLOBAL, symbol.index());
+            case LOCAL -> emit(symbolTable.isCell(symbol) ? Opcode.GET_CELL : Opcode.GET_LOCAL, symbol.index());
+            case BUILTIN -> emit(Opcode.GET_BUILTIN, symbol.index());
+            case FREE -> emit(Opcode.GET_FREE, symbol.index());
+            case FUNCTION -> emit(Opcode.CURRENT_CLOSURE);
+        }
+
+        if (!symbolTable.mayBeUnbound(symbol)) {
+            return;
+        }
+
+        // Without a value yet, the name is looked up outside the function binding it
+        final int jumpIfBoundPosition = emit(Opcode.JUMP_IF_BOUND, PLACEHOLDER);
+        final Symbol fallback = symbolTable.fallback(symbol);
+
+        if (fallback == null) {
+            emit(Opcode.UNBOUND, addConstant(new Str(symbol.name())));
+        } else {
+            loadSymbol(fallback);
+        }
+
+        changeOperand(jumpIfBoundPosition, currentScope().size());
+    }
+
+    // Pushes what a closure made here keeps of the symbol: the cell itself for a local held in one
+    private void captureSymbol(Symbol symbol) {
+        switch (symbol.scope()) {
+            case LOCAL -> emit(Opcode.GET_LOCAL, symbol.index());
+            case FREE -> emit(Opcode.GET_FREE_CELL, symbol.index());
+            default -> loadSymbol(symbol);
+        }
+    }
+
+    private int addConstant(MonkeyObject obj) {
+        constants.add(obj);
+
+        return constants.size() - 1;
+    }
+
+    private int emit(Opcode op, int... operands) {
+        return currentScope().add(make(op, operands));
+    }
+
+    // Encoded as it is, an operand too large for its width would refer to something else
+    private byte[] make(Opcode op, int... operands) {
+        final int[] widths = op.operandWidths();
+
+        for (int i = 0; i < widths.length; i++) {
+            final int max = Instructions.maxOperand(widths[i]);
+
+            if (operands[i] > max) {
+                errors.add("too many %s: %d, at most %d fit in %s".formatted(limited(op, i), operands[i], max, op));
+
+                return Instructions.make(op, new int[widths.length]);
+            }
+        }
+
+        return Instructions.make(op, operands);
+    }
+
+    private static String limited(Opcode op, int operand) {
+        return switch (op) {
+            case CONSTANT, UNBOUND -> "constants";
+            case CLOSURE -> operand == 0 ? "constants" : "free variables";
+            case GET_GLOBAL, SET_GLOBAL -> "globals";
+            case GET_LOCAL, SET_LOCAL, CELL, GET_CELL, SET_CELL -> "locals";
+            case GET_FREE, GET_FREE_CELL -> "free variables";
+            case ARRAY, HASH -> "elements";
+            case CALL -> "arguments";
+            default -> "bytes of instructions";
+        };
+    }
+
+    private void changeOperand(int position, int operand) {
+        final Opcode op = currentScope().opcodeAt(position);
+
+        currentScope().replaceInstruction(position, make(op, operand));
+    }
+
+    private CompilationScope currentScope() {
+        return scopes.peek();
+    }
+
+    private void enterScope() {
+        scopes.push(new CompilationScope());
+        symbolTable = symbolTable.newEnclosed();
+    }
+
+    private byte[] leaveScope() {
+        final byte[] instructions = scopes.pop().instructions();
+
+        symbolTable = symbolTable.outer();
+
+        return instructions;
+    }
+}
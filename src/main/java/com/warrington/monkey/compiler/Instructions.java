@@ -0,0 +1,101 @@
+package com.warrington.monkey.compiler;
+
+import java.util.Arrays;
+
+/**
+ * Helpers for encoding, decoding and printing raw instruction byte arrays.
+ */
+public final class Instructions {
+
+    private Instructions() {
+    }
+
+    /**
+     * Encodes an instruction.
+     *
+     * @throws IllegalArgumentException if an operand does not fit its width
+     */
+    public static byte[] make(Opcode op, int... operands) {
+        final int[] widths = op.operandWidths();
+        final var instruction = new byte[op.width()];
+
+        for (int i = 0; i < widths.length; i++) {
+            if (operands[i] < 0 || operands[i] > maxOperand(widths[i])) {
+                throw new IllegalArgumentException("operand %d of %s does not fit in %d byte(s)".formatted(operands[i], op, widths[i]));
+            }
+        }
+
+        instruction[0] = (byte) op.ordinal();
+
+        int offset = 1;
+
+        for (int i = 0; i < widths.length; i++) {
+            switch (widths[i]) {
+                case 2 -> {
+                    instruction[offset] = (byte) (operands[i] >>> 8);
+                    instruction[offset + 1] = (byte) operands[i];
+                }
+                case 1 -> instruction[offset] = (byte) operands[i];
+                default -> throw new IllegalStateException("unsupported operand width %d".formatted(widths[i]));
+            }
+
+            offset += widths[i];
+        }
+
+        return instruction;
+    }
+
+    public static int maxOperand(int width) {
+        return (1 << (8 * width)) - 1;
+    }
+
+    public static int readUint16(byte[] ins, int offset) {
+        return ((ins[offset] & 0xFF) << 8) | (ins[offset + 1] & 0xFF);
+    }
+
+    public static int readUint8(byte[] ins, int offset) {
+        return ins[offset] & 0xFF;
+    }
+
+    public static byte[] concat(byte[]... instructions) {
+        final int length = Arrays.stream(instructions).mapToInt(ins -> ins.length).sum();
+        final var out = new byte[length];
+
+        int offset = 0;
+
+        for (byte[] ins : instructions) {
+            System.arraycopy(ins, 0, out, offset, ins.length);
+            offset += ins.length;
+        }
+
+        return out;
+    }
+
+    public static String disassemble(byte[] ins) {
+        final var b = new StringBuilder();
+
+        int i = 0;
+
+        while (i < ins.length) {
+            final Opcode op = Opcode.lookup(ins[i]);
+            final int[] widths = op.operandWidths();
+
+            b.append("%04d %s".formatted(i, op));
+
+            int offset = i + 1;
+
+            for (int width : widths) {
+                final int operand = width == 2 ? readUint16(ins, offset) : readUint8(ins, offset);
+
+                b.append(" ").append(operand);
+                offset += width;
+            }
+
+            b.append("\n");
+
+            i = offset;
+        }
+
+        return b.toString();
+    }
+}
@@ -0,0 +1,80 @@
+package com.warrington.monkey.compiler;
+
+/**
+ * Instruction set of the Monkey virtual machine. An opcode is encoded as its
+ * ordinal in a single byte, followed by big-endian operands of the listed widths.
+ */
+public enum Opcode {
+    CONSTANT(2),
+    POP,
+    ADD,
+    SUB,
+    MUL,
+    DIV,
+    TRUE,
+    FALSE,
+    NULL,
+    EQUAL,
+    NOT_EQUAL,
+    GREATER_THAN,
+    LESS_THAN,
+    MINUS,
+    BANG,
+    JUMP_NOT_TRUTHY(2),
+    JUMP(2),
+    // Jumps if the value on top of the stack is bound, and drops it otherwise
+    JUMP_IF_BOUND(2),
+    // Jumps if the value on top of the stack is a return from inside an expression, keeping it
+    JUMP_IF_RETURNED(2),
+    GET_GLOBAL(2),
+    SET_GLOBAL(2),
+    GET_LOCAL(1),
+    SET_LOCAL(1),
+    GET_BUILTIN(1),
+    GET_FREE(1),
+    GET_FREE_CELL(1),
+    // Puts a local in a cell, for closures to share
+    CELL(1),
+    GET_CELL(1),
+    SET_CELL(1),
+    // Fails with the name in the constant pool not being bound anywhere
+    UNBOUND(2),
+    ARRAY(2),
+    HASH(2),
+    INDEX,
+    CALL(1),
+    RETURN_VALUE,
+    RETURN,
+    // A return inside an expression, which only wraps the value for the blocks around it to stop at
+    WRAP_RETURN,
+    // Returns the value wrapped by such a return if that is what is on top of the stack
+    RETURN_IF_WRAPPED,
+    CLOSURE(2, 1),
+    CURRENT_CLOSURE;
+
+    private static final Opcode[] values = values();
+
+    private final int[] operandWidths;
+
+    Opcode(int... operandWidths) {
+        this.operandWidths = operandWidths;
+    }
+
+    public int[] operandWidths() {
+        return operandWidths.clone();
+    }
+
+    public int width() {
+        int width = 1;
+
+        for (int w : operandWidths) {
+            width += w;
+        }
+
+        return width;
+    }
+
+    public static Opcode lookup(byte op) {
+        return values[op & 0xFF];
+    }
+}
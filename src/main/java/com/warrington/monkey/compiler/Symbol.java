@@ -0,0 +1,8 @@
+package com.warrington.monkey.compiler;
+
+public record Symbol(
+    String name,
+    SymbolScope scope,
+    int index
+) {
+}
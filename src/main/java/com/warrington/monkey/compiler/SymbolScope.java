@@ -0,0 +1,9 @@
+package com.warrington.monkey.compiler;
+
+public enum SymbolScope {
+    GLOBAL,
+    LOCAL,
+    BUILTIN,
+    FREE,
+    FUNCTION
+}
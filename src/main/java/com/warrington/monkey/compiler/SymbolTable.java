@@ -0,0 +1,151 @@
+package com.warrington.monkey.compiler;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+public class SymbolTable {
+    private final Map<String, Symbol> store = new HashMap<>();
+    private final List<Symbol> freeSymbols = new ArrayList<>();
+    // Free symbols for what the names bound here stand for outside, by the symbol they stand for
+    private final Map<Symbol, Symbol> outside = new HashMap<>();
+    // Locals that closures made here keep, held in cells so the closures see later lets
+    private final Set<Integer> cells = new HashSet<>();
+    private final SymbolTable outer;
+    private int numDefinitions;
+    private int numParameters;
+
+    public SymbolTable() {
+        this(null);
+    }
+
+    private SymbolTable(SymbolTable outer) {
+        this.outer = outer;
+    }
+
+    public SymbolTable newEnclosed() {
+        return new SymbolTable(this);
+    }
+
+    public SymbolTable outer() {
+        return outer;
+    }
+
+    public Symbol define(String name) {
+        final var scope = outer == null ? SymbolScope.GLOBAL : SymbolScope.LOCAL;
+        final var symbol = new Symbol(name, scope, numDefinitions);
+
+        store.put(name, symbol);
+        numDefinitions++;
+
+        return symbol;
+    }
+
+    /**
+     * Marks the locals defined so far as the parameters, which always have a value.
+     */
+    public void markParameters() {
+        numParameters = numDefinitions;
+    }
+
+    public void markCell(Symbol symbol) {
+        cells.add(symbol.index());
+    }
+
+    public boolean isCell(Symbol symbol) {
+        return symbol.scope() == SymbolScope.LOCAL && cells.contains(symbol.index());
+    }
+
+    public Symbol defineBuiltin(int index, String name) {
+        final var symbol = new Symbol(name, SymbolScope.BUILTIN, index);
+
+        store.put(name, symbol);
+
+        return symbol;
+    }
+
+    public Symbol defineFunctionName(String name) {
+        final var symbol = new Symbol(name, SymbolScope.FUNCTION, 0);
+
+        store.put(name, symbol);
+
+        return symbol;
+    }
+
+    public Symbol resolve(String name) {
+        final Symbol symbol = store.get(name);
+
+        if (symbol != null || outer == null) {
+            return symbol;
+        }
+
+        final Symbol outerSymbol = outer.resolve(name);
+
+        if (outerSymbol == null || outerSymbol.scope() == SymbolScope.GLOBAL || outerSymbol.scope() == SymbolScope.BUILTIN) {
+            return outerSymbol;
+        }
+
+        return defineFree(outerSymbol);
+    }
+
+    /**
+     * Whether the symbol, resolved in this table, can be read before a let has given it a
+     * value: a let of this function, or a free variable standing for one of an enclosing one.
+     */
+    public boolean mayBeUnbound(Symbol symbol) {
+        return switch (symbol.scope()) {
+            case LOCAL -> symbol.index() >= numParameters;
+            case FREE -> outer.mayBeUnbound(freeSymbols.get(symbol.index()));
+            default -> false;
+        };
+    }
+
+    /**
+     * What the name of a symbol that {@link #mayBeUnbound} stands for while it has no value:
+     * the same name resolved outside the function that binds it, as the evaluator looks it up
+     * in the enclosing frames. Null if it is bound nowhere there.
+     */
+    public Symbol fallback(Symbol symbol) {
+        final Symbol outerSymbol = symbol.scope() == SymbolScope.LOCAL
+            ? outer.resolve(symbol.name())
+            : outer.fallback(freeSymbols.get(symbol.index()));
+
+        if (outerSymbol == null || outerSymbol.scope() == SymbolScope.GLOBAL || outerSymbol.scope() == SymbolScope.BUILTIN) {
+            return outerSymbol;
+        }
+
+        return outside.computeIfAbsent(outerSymbol, this::addFree);
+    }
+
+    /**
+     * Whether {@code name} is already bound in this table itself, ignoring enclosing tables.
+     */
+    public boolean isDefinedLocally(String name) {
+        return store.containsKey(name);
+    }
+
+    public List<Symbol> freeSymbols() {
+        return List.copyOf(freeSymbols);
+    }
+
+    public int numDefinitions() {
+        return numDefinitions;
+    }
+
+    private Symbol defineFree(Symbol original) {
+        final Symbol symbol = addFree(original);
+
+        store.put(original.name(), symbol);
+
+        return symbol;
+    }
+
+    private Symbol addFree(Symbol original) {
+        freeSymbols.add(original);
+
+        return new Symbol(original.name(), SymbolScope.FREE, freeSymbols.size() - 1);
+    }
+}
@@ -1,5 +1,6 @@
 package com.warrington.monkey.evaluator;
 
+import com.warrington.monkey.jit.JvmFunction;
 import com.warrington.monkey.object.*;
 
 import java.util.*;
@@ -8,61 +9,147 @@ import static com.warrington.monkey.evaluator.Evaluator.NULL;
 
 public class Builtins {
     private static final Map<String, Builtin> builtins = Map.of(
-        "len", new Builtin(Builtins::len),
-        "first", new Builtin(Builtins::first),
-        "last", new Builtin(Builtins::last),
-        "rest", new Builtin(Builtins::rest),
-        "push", new Builtin(Builtins::push),
-        "puts", new Builtin(Builtins::puts)
+        "len", new Builtin((BuiltinFunction.Unary) Builtins::len),
+        "first", new Builtin((BuiltinFunction.Unary) Builtins::first),
+        "last", new Builtin((BuiltinFunction.Unary) Builtins::last),
+        "rest", new Builtin((BuiltinFunction.Unary) Builtins::rest),
+        "push", new Builtin((BuiltinFunction.Binary) Builtins::push),
+        "puts", new Builtin(Builtins::puts),
+        "range", new Builtin(Builtins::range),
+        "memoize", new Builtin(Builtins::memoize),
+        "memoStats", new Builtin((BuiltinFunction.Unary) Builtins::memoStats)
     );
 
+    // The compiler refers to builtins by their position in this list, so only ever append to it
+    private static final List<String> names = List.of("len", "first", "last", "rest", "push", "puts", "range", "memoize", "memoStats");
+
     private static MonkeyObject puts(MonkeyObject... args) {
         Arrays.stream(args).forEach(arg -> System.out.println(arg.inspect()));
 
         return NULL;
     }
 
-    private static MonkeyObject len(MonkeyObject... args) {
-        if (args.length != 1) {
-            return Evaluator.newError("wrong number of arguments. got=%d, want=1", args.length);
+    /**
+     * {@code range(end)} or {@code range(start, end)}: the integers from start, or 0, up to but not including end.
+     */
+    private static MonkeyObject range(MonkeyObject... args) {
+        if (args.length != 1 && args.length != 2) {
+            return Evaluator.newError("wrong number of arguments to 'range'. got=%d, want=1 or 2", args.length);
         }
 
-        return switch (args[0]) {
-            case Str s -> new Int(s.value().length());
-            case Array a -> new Int(a.elements().size());
-            default -> Evaluator.newError("argument to 'len' not supported, got %s", args[0].type());
-        };
+        for (MonkeyObject arg : args) {
+            if (!(arg instanceof Int)) {
+                return Evaluator.newError("arguments to 'range' must be INTEGER, got %s", arg.type());
+            }
+        }
+
+        final long start = args.length == 1 ? 0 : ((Int) args[0]).value();
+        final long end = ((Int) args[args.length - 1]).value();
+        final var elements = new ArrayList<MonkeyObject>();
+
+        for (long i = start; i < end; i++) {
+            elements.add(Int.of(i));
+        }
+
+        return new Array(Collections.unmodifiableList(elements));
     }
 
-    private static MonkeyObject first(MonkeyObject... args) {
-        if (args.length != 1) {
-            return Evaluator.newError("wrong number of arguments. got=%d, want=1", args.length);
+    /**
+     * {@code memoize(fn)} or {@code memoize(fn, options)}: a function that calls {@code fn} and
+     * keeps what it returns, see {@link Memoized}. The options are a hash that can set
+     * {@code "size"}, the number of results kept, and {@code "policy"}, which results make
+     * way for new ones: {@code "lru"}, the default, or {@code "lfu"}.
+     */
+    private static MonkeyObject memoize(MonkeyObject... args) {
+        if (args.length != 1 && args.length != 2) {
+            return Evaluator.newError("wrong number of arguments to 'memoize'. got=%d, want=1 or 2", args.length);
         }
 
-        return switch (args[0]) {
-            case Array a -> a.elements().isEmpty() ? NULL : a.elements().getFirst();
-            default -> Evaluator.newError("argument to 'first' not supported, got %s", args[0].type());
-        };
+        final MonkeyObject function = args[0];
+
+        if (!(function instanceof MonkeyFunction || function instanceof JvmFunction || function instanceof Builtin)) {
+            return switch (function.type()) {
+                // Functions of the other engines, which the evaluator cannot call
+                case FUNCTION, COMPILED_FUNCTION -> Evaluator.newError("memoize is not supported by this engine");
+                default -> Evaluator.newError("first argument to 'memoize' must be FUNCTION, got %s", function.type());
+            };
+        }
+
+        int capacity = Memoized.DEFAULT_CAPACITY;
+        Memoized.Policy policy = Memoized.Policy.LRU;
+
+        if (args.length == 2) {
+            if (!(args[1] instanceof Hash(Map<HashKey, HashPair> options))) {
+                return Evaluator.newError("second argument to 'memoize' must be HASH, got %s", args[1].type());
+            }
+
+            for (HashPair option : options.values()) {
+                switch (option.key()) {
+                    case Str(String name) when name.equals("size") -> {
+                        if (!(option.value() instanceof Int(long size)) || size < 1 || size > Integer.MAX_VALUE) {
+                            return Evaluator.newError("memoize size must be a positive INTEGER, got %s", option.value().inspect());
+                        }
+
+                        capacity = (int) size;
+                    }
+                    case Str(String name) when name.equals("policy") -> {
+                        if (!(option.value() instanceof Str(String value)) || !value.equals("lru") && !value.equals("lfu")) {
+                            return Evaluator.newError("memoize policy must be \"lru\" or \"lfu\", got %s", option.value().inspect());
+                        }
+
+                        policy = value.equals("lfu") ? Memoized.Policy.LFU : Memoized.Policy.LRU;
+                    }
+                    default -> {
+                        return Evaluator.newError("unknown memoize option: %s", option.key().inspect());
+                    }
+                }
+            }
+        }
+
+        // Only the option was checked above, the default comes from a system property
+        if (capacity < 1) {
+            return Evaluator.newError("monkey.memoize.size must be a positive integer, got %d", capacity);
+        }
+
+        return new Builtin(new Memoized(function, capacity, policy));
     }
 
-    private static MonkeyObject last(MonkeyObject... args) {
-        if (args.length != 1) {
-            return Evaluator.newError("wrong number of arguments. got=%d, want=1", args.length);
+    /**
+     * {@code memoStats(fn)}: how the cache of a function {@code memoize} returned has done so far.
+     */
+    private static MonkeyObject memoStats(MonkeyObject arg) {
+        if (!(arg instanceof Builtin(BuiltinFunction func) && func instanceof Memoized memoized)) {
+            return Evaluator.newError("argument to 'memoStats' must be a memoized function, got %s", arg.type());
         }
 
-        return switch (args[0]) {
-            case Array a -> a.elements().isEmpty() ? NULL : a.elements().getLast();
-            default -> Evaluator.newError("argument to 'last' not supported, got %s", args[0].type());
+        return memoized.stats();
+    }
+
+    private static MonkeyObject len(MonkeyObject arg) {
+        return switch (arg) {
+            case Str s -> Int.of(s.value().length());
+            case Array a -> Int.of(a.elements().size());
+            default -> Evaluator.newError("argument to 'len' not supported, got %s", arg.type());
         };
     }
 
-    private static MonkeyObject rest(MonkeyObject... args) {
-        if (args.length != 1) {
-            return Evaluator.newError("wrong number of arguments. got=%d, want=1", args.length);
-        }
+    private static MonkeyObject first(MonkeyObject arg) {
+        return switch (arg) {
+            case Array a -> a.elements().isEmpty() ? NULL : a.elements().getFirst();
+            default -> Evaluator.newError("argument to 'first' not supported, got %s", arg.type());
+        };
+    }
 
-        if (!(args[0] instanceof Array(List<MonkeyObject> elements))) {
-            return Evaluator.newError("argument to 'rest' not supported, got %s", args[0].type());
+    private static MonkeyObject last(MonkeyObject arg) {
+        return switch (arg) {
+            case Array a -> a.elements().isEmpty() ? NULL : a.elements().getLast();
+            default -> Evaluator.newError("argument to 'last' not supported, got %s", arg.type());
+        };
+    }
+
+    private static MonkeyObject rest(MonkeyObject arg) {
+        if (!(arg instanceof Array(List<MonkeyObject> elements))) {
+            return Evaluator.newError("argument to 'rest' not supported, got %s", arg.type());
         }
 
         if (elements.isEmpty()) {
@@ -72,18 +159,14 @@ public class Builtins {
         return new Array(elements.subList(1, elements.size()));
     }
 
-    private static MonkeyObject push(MonkeyObject... args) {
-        if (args.length != 2) {
-            return Evaluator.newError("wrong number of arguments. got=%d, want=2", args.length);
-        }
-
-        if (!(args[0] instanceof Array(List<MonkeyObject> elements))) {
-            return Evaluator.newError("first argument to 'push' must be ARRAY, got %s", args[0].type());
+    private static MonkeyObject push(MonkeyObject array, MonkeyObject element) {
+        if (!(array instanceof Array(List<MonkeyObject> elements))) {
+            return Evaluator.newError("first argument to 'push' must be ARRAY, got %s", array.type());
         }
 
         var newList = new ArrayList<>(elements);
 
-        newList.add(args[1]);
+        newList.add(element);
 
         return new Array(Collections.unmodifiableList(newList));
     }
@@ -91,4 +174,8 @@ public class Builtins {
     public static Builtin get(String name) {
         return builtins.get(name);
     }
+
+    public static List<String> names() {
+        return names;
+    }
 }
@@ -0,0 +1,164 @@
+package com.warrington.monkey.evaluator;
+
+import com.warrington.monkey.ast.FunctionLiteral;
+import com.warrington.monkey.ast.Identifier;
+import com.warrington.monkey.jit.FunctionInfo;
+import com.warrington.monkey.jit.JvmFunction;
+import com.warrington.monkey.object.Builtin;
+import com.warrington.monkey.object.MonkeyFunction;
+import com.warrington.monkey.object.MonkeyObject;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Inline cache of one call expression: the functions called from it so far, each with a
+ * {@link Plan} saying how to call it.
+ * <p>
+ * Functions are told apart by what their code is, so closures made from one function
+ * literal share a plan. A site starts out empty, is monomorphic after its first call and
+ * polymorphic once it has seen a second function. When more than {@link #MAX_TARGETS}
+ * different functions have been called from it the site is megamorphic: it stops caching
+ * and every call goes through the generic dispatch.
+ * <p>
+ * Hits and misses are counted per site. The counts are not synchronized, they are meant
+ * for a report, not for decisions. A site called from several threads at once may lose a
+ * plan one of them added, which only costs another miss.
+ */
+public final class CallSite {
+    /**
+     * Functions cached per site at most, from the {@code monkey.callsite.targets} system property.
+     */
+    public static final int MAX_TARGETS = Integer.getInteger("monkey.callsite.targets", 4);
+
+    private static final Plan[] EMPTY = new Plan[0];
+
+    // Only ever replaced by a new array, filled before it is, so other threads see whole plans
+    private volatile Plan[] plans = EMPTY;
+    private boolean megamorphic;
+    private long hits;
+    private long misses;
+
+    /**
+     * How to call one function, worked out when it is first called from a site.
+     */
+    public sealed interface Plan {
+        boolean calls(MonkeyObject function);
+    }
+
+    /**
+     * A function the evaluator runs itself. Its parameters are the first {@code arity} slots of its frame.
+     */
+    public record Interpreted(FunctionLiteral literal, int arity) implements Plan {
+        @Override
+        public boolean calls(MonkeyObject function) {
+            return function instanceof MonkeyFunction mf && mf.literal() == literal;
+        }
+    }
+
+    public record Compiled(FunctionInfo info) implements Plan {
+        @Override
+        public boolean calls(MonkeyObject function) {
+            return function instanceof JvmFunction jf && jf.info() == info;
+        }
+    }
+
+    public record Native(Builtin builtin) implements Plan {
+        @Override
+        public boolean calls(MonkeyObject function) {
+            return function == builtin;
+        }
+    }
+
+    /**
+     * The plan for calling {@code function} from this site, or null if the call has to take the
+     * generic path: the site is megamorphic, {@code function} is not a function, or one whose
+     * parameters share a slot because a name is repeated.
+     */
+    public Plan lookup(MonkeyObject function) {
+        for (Plan plan : plans) {
+            if (plan.calls(function)) {
+                hits++;
+
+                return plan;
+            }
+        }
+
+        misses++;
+
+        if (megamorphic) {
+            return null;
+        }
+
+        final Plan plan = plan(function);
+
+        if (plan == null) {
+            return null;
+        }
+
+        if (plans.length == MAX_TARGETS) {
+            megamorphic = true;
+            plans = EMPTY;
+
+            return null;
+        }
+
+        final Plan[] grown = Arrays.copyOf(plans, plans.length + 1);
+
+        grown[grown.length - 1] = plan;
+        plans = grown;
+
+        return plan;
+    }
+
+    private static Plan plan(MonkeyObject function) {
+        return switch (function) {
+            case MonkeyFunction mf -> {
+                final FunctionLiteral literal = mf.literal();
+                final List<Identifier> parameters = literal.parameters();
+
+                for (int i = 0; i < parameters.size(); i++) {
+                    if (parameters.get(i).slot() != i) {
+                        yield null;
+                    }
+                }
+
+                yield new Interpreted(literal, parameters.size());
+            }
+            case JvmFunction jf -> new Compiled(jf.info());
+            case Builtin b -> new Native(b);
+            default -> null;
+        };
+    }
+
+    public long hits() {
+        return hits;
+    }
+
+    public long misses() {
+        return misses;
+    }
+
+    /**
+     * How many functions the site has cached, zero once it is megamorphic.
+     */
+    public int targets() {
+        return plans.length;
+    }
+
+    public boolean isMegamorphic() {
+        return megamorphic;
+    }
+
+    @Override
+    public String toString() {
+        final long calls = hits + misses;
+        final String state = megamorphic ? "megamorphic" : switch (plans.length) {
+            case 0 -> "uninitialized";
+            case 1 -> "monomorphic";
+            default -> "polymorphic (%d targets)".formatted(plans.length);
+        };
+
+        return "%d calls, %d hits (%.1f%%), %s".formatted(calls, hits, calls == 0 ? 0.0 : 100.0 * hits / calls, state);
+    }
+}
@@ -1,25 +1,82 @@
 package com.warrington.monkey.evaluator;
 
+import com.warrington.monkey.analysis.Purity;
+import com.warrington.monkey.analysis.Resolver;
+import com.warrington.monkey.analysis.Strictness;
 import com.warrington.monkey.ast.*;
+import com.warrington.monkey.jit.FunctionInfo;
+import com.warrington.monkey.jit.Jit;
+import com.warrington.monkey.jit.JitRuntime;
+import com.warrington.monkey.jit.JvmFunction;
 import com.warrington.monkey.object.*;
 
+import java.io.Serial;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
+import java.util.concurrent.ForkJoinTask;
 
 public class Evaluator {
 
     public static final Null NULL = new Null();
+    /**
+     * Whether programs run with {@link #evalLazily}, from the {@code monkey.lazy} system property.
+     */
+    public static final boolean LAZY_ARGUMENTS = Boolean.getBoolean("monkey.lazy");
+    /**
+     * Whether programs run with {@link #evalInParallel}, from the {@code monkey.parallel} system property.
+     */
+    public static final boolean PARALLEL = Boolean.getBoolean("monkey.parallel");
+    // Tasks a worker may have queued already before it evaluates what it would fork itself instead
+    private static final int MAX_SURPLUS_TASKS = 3;
+    private static final MonkeyObject[] NO_ARGUMENTS = new MonkeyObject[0];
     // No need to allocate new objects for true/false whenever it is encountered
     // Can simply reference these constants
     static final Bool TRUE = new Bool(true);
     static final Bool FALSE = new Bool(false);
 
+    /**
+     * Runs a program passing arguments by need: an argument for a parameter the callee may not
+     * read is handed over as a {@link Thunk} and evaluated when, and if, the parameter is read.
+     * {@link Strictness} decides which parameters and arguments that applies to. Effects and
+     * errors of an argument that is never needed do not happen.
+     */
+    public static MonkeyObject evalLazily(Program program, Environment env) {
+        Resolver.resolve(program, env);
+        Strictness.analyze(program);
+
+        return evalProgram(program.getStatements(), env);
+    }
+
+    /**
+     * Runs a program evaluating independent parts of it at the same time, on the common
+     * fork-join pool: the arguments of a call, the elements of an array, the values of a hash
+     * and the values of consecutive top level lets, wherever {@link Purity} found them pure and
+     * expensive enough. What the program does is the same as when it runs on one thread.
+     */
+    public static MonkeyObject evalInParallel(Program program, Environment env) {
+        final Program parallel = Purity.parallelize(program, env.names().stream().filter(name -> env.get(name) != null).toList());
+
+        Resolver.resolve(parallel, env);
+
+        if (LAZY_ARGUMENTS) {
+            Strictness.analyze(parallel);
+        }
+
+        return evalProgram(parallel.getStatements(), env);
+    }
+
     public static MonkeyObject eval(Node node, Environment env) {
         return switch (node) {
             // Statements
-            case Program p -> evalProgram(p.getStatements(), env);
+            case Program p when PARALLEL -> evalInParallel(p, env);
+            case Program p when LAZY_ARGUMENTS -> evalLazily(p, env);
+            case Program p -> {
+                Resolver.resolve(p, env);
+
+                yield evalProgram(p.getStatements(), env);
+            }
             case ExpressionStatement es -> eval(es.getExpression(), env);
             case BlockStatement bs -> evalBlockStatement(bs, env);
             case ReturnStatement rs -> {
@@ -39,15 +96,18 @@ public class Evaluator {
                     yield value;
                 }
 
-                env.set(ls.name().value(), value);
+                env.set(ls.name().slot(), value);
 
                 yield value;
             }
+            case AssignStatement as -> evalAssignment(as, env);
 
             // Expressions
-            case IntegerLiteral il -> new Int(il.value());
+            case Constant c -> c.value();
+            case IntegerLiteral il -> Int.of(il.value());
+            case FloatLiteral fl -> new MonkeyFloat(fl.value());
             case StringLiteral sl -> new Str(sl.value());
-            case MonkeyBoolean mb -> nativeBoolToBooleanObject(mb.value());
+            case MonkeyBoolean mb -> Operators.nativeBoolToBooleanObject(mb.value());
             case HashLiteral hl -> evalHashLiteral(hl, env);
             case PrefixExpression pe -> {
                 MonkeyObject right = eval(pe.right(), env);
@@ -56,9 +116,11 @@ public class Evaluator {
                     yield right;
                 }
 
-                yield evalPrefixExpression(pe.operator(), right);
+                yield Operators.evalPrefixExpression(pe.operator(), right);
             }
 
+            case InfixExpression ie when ie.isIntegral() -> evalIntegral(ie, env);
+            case InfixExpression ie when ie.isFloating() -> evalFloating(ie, env);
             case InfixExpression ie -> {
                 MonkeyObject left = eval(ie.left(), env);
 
@@ -66,19 +128,15 @@ public class Evaluator {
                     yield left;
                 }
 
-                MonkeyObject right = eval(ie.right(), env);
-
-                if (isError(right)) {
-                    yield right;
-                }
-
-                yield evalInfixExpression(ie.operator(), left, right);
+                yield evalInfixRight(ie, left, env);
             }
 
             case IfExpression ifExpression -> evalIfExpression(ifExpression, env);
+            case WhileExpression we -> evalWhileExpression(we, env);
+            case ForExpression fe -> evalForExpression(fe, env);
 
             case Identifier i -> evalIdentifier(i, env);
-            case FunctionLiteral fl -> new MonkeyFunction(fl.parameters(), fl.body(), env);
+            case FunctionLiteral fl -> closure(fl, env);
             case ArrayLiteral al -> {
                 List<MonkeyObject> elements = evalExpressions(al.elements(), env);
 
@@ -88,22 +146,10 @@ public class Evaluator {
 
                 yield new Array(elements);
             }
-            case CallExpression ce -> {
-                MonkeyObject function = eval(ce.function(), env);
-
-                if (isError(function)) {
-                    yield function;
-                }
-
-                List<MonkeyObject> args = evalExpressions(ce.arguments(), env);
-
-                if (args.size() == 1 && isError(args.getFirst())) {
-                    yield args.getFirst();
-                }
-
-                yield applyFunction(function, args);
-            }
+            case CallExpression ce -> evalCall(ce, env, false);
             case IndexExpression ie -> evalIndexExpression(ie, env);
+            // On its own, without the expressions next to it, there is nothing to evaluate it alongside
+            case ParallelExpression pe -> eval(pe.expression(), env);
             default -> null;
         };
     }
@@ -128,45 +174,260 @@ public class Evaluator {
             return index;
         }
 
-        if (left instanceof Array(List<MonkeyObject> elements) && index instanceof Int(long value)) {
-           if (value >= elements.size() || value < 0) {
-               return NULL;
-           }
+        return Operators.evalIndexExpression(left, index);
+    }
+
+    /**
+     * Evaluates a call, putting the arguments straight where the callee takes them: into the
+     * slots of its frame for a function the evaluator runs, into an array for compiled code,
+     * and into locals for a builtin of one or two arguments. In tail position a call of a
+     * function is handed back as a {@link TailCall} with its arguments laid out the same way.
+     */
+    private static MonkeyObject evalCall(CallExpression ce, Environment env, boolean tail) {
+        final MonkeyObject function = eval(ce.function(), env);
+
+        if (isError(function)) {
+            return function;
+        }
+
+        final List<Expression> arguments = ce.arguments();
+        final CallSite.Plan plan = ce.callSite().lookup(function);
 
-            return elements.get((int) value);
+        if (plan instanceof CallSite.Native(Builtin builtin) && arguments.size() <= 2) {
+            return callBuiltin(builtin.func(), arguments, env);
         }
 
-        if (left instanceof Hash(var pairs)) {
-            if (!(index instanceof Hashable key)) {
-                return newError("unusable as hash key: %s", index.type());
+        if (plan instanceof CallSite.Interpreted(FunctionLiteral literal, int arity)) {
+            final Environment frame = newFrame(literal, ((MonkeyFunction) function).env());
+            final int[][] delayed = ce.delayedArguments();
+            // Passed by need, an argument is evaluated only if it is read
+            final List<ForkJoinTask<MonkeyObject>> forked = delayed == null ? fork(arguments, env) : null;
+
+            for (int i = 0; i < arguments.size(); i++) {
+                final MonkeyObject argument = delayed != null && i < arity && literal.isLazy(i)
+                    ? delay(arguments.get(i), delayed[i], env)
+                    : join(forked, i, arguments.get(i), env);
+
+                if (isError(argument)) {
+                    cancel(forked);
+                    releaseFrame(literal, frame);
+
+                    return argument;
+                }
+
+                // Arguments past the parameters are still evaluated, their values go nowhere
+                if (i < arity) {
+                    frame.set(i, argument);
+                }
             }
 
-            var pair = pairs.get(key.hashKey());
+            if (arguments.size() < arity) {
+                releaseFrame(literal, frame);
 
-            if (pair == null) {
-                return NULL;
+                return newError("wrong number of arguments. got=%d, want=%d", arguments.size(), arity);
+            }
+
+            if (tail) {
+                return new TailCall(function, null, frame);
             }
 
-            return pair.value();
+            return trampoline(callInterpreted(literal, frame));
         }
 
-        return newError("index operator not supported: %s", left.type());
+        final var args = new MonkeyObject[arguments.size()];
+        final List<ForkJoinTask<MonkeyObject>> forked = fork(arguments, env);
+
+        for (int i = 0; i < args.length; i++) {
+            args[i] = join(forked, i, arguments.get(i), env);
+
+            if (isError(args[i])) {
+                cancel(forked);
+
+                return args[i];
+            }
+        }
+
+        if (tail && (function instanceof MonkeyFunction || function instanceof JvmFunction)) {
+            return new TailCall(function, args);
+        }
+
+        return switch (plan) {
+            case CallSite.Compiled(FunctionInfo info) -> trampoline(JitRuntime.invoke(info, ((JvmFunction) function).env(), args));
+            case CallSite.Native(Builtin builtin) -> builtin.func().apply(args);
+            case null, default -> applyFunction(function, args);
+        };
     }
 
-    private static MonkeyObject applyFunction(MonkeyObject fn, List<MonkeyObject> args) {
+    /**
+     * An argument for a parameter the callee may not read: the thunk already standing for it
+     * if it is a parameter passed on, a new thunk if it can be put off, else its value.
+     */
+    private static MonkeyObject delay(Expression argument, int[] captured, Environment env) {
+        if (argument instanceof Identifier i && !i.isGlobal() && env.get(i.depth(), i.slot()) instanceof Thunk thunk) {
+            return thunk;
+        }
+
+        if (captured == null) {
+            return eval(argument, env);
+        }
+
+        return new Thunk(argument, env.capture(captured));
+    }
+
+    private static MonkeyObject callBuiltin(BuiltinFunction builtin, List<Expression> arguments, Environment env) {
+        if (arguments.isEmpty()) {
+            return builtin.apply(NO_ARGUMENTS);
+        }
+
+        final List<ForkJoinTask<MonkeyObject>> forked = fork(arguments, env);
+        final MonkeyObject first = join(forked, 0, arguments.getFirst(), env);
+
+        if (isError(first) || arguments.size() == 1) {
+            cancel(forked);
+
+            return isError(first) ? first : builtin.apply(first);
+        }
+
+        final MonkeyObject second = join(forked, 1, arguments.get(1), env);
+
+        return isError(second) ? second : builtin.apply(first, second);
+    }
+
+    /**
+     * Calls a function, running any tail calls it ends in one after another rather than nested.
+     */
+    public static MonkeyObject applyFunction(MonkeyObject fn, MonkeyObject... args) {
+        return trampoline(callOnce(fn, args));
+    }
+
+    private static MonkeyObject trampoline(MonkeyObject result) {
+        while (result instanceof TailCall(MonkeyObject next, MonkeyObject[] nextArgs, Environment frame)) {
+            result = frame != null ? callInterpreted(((MonkeyFunction) next).literal(), frame) : callOnce(next, nextArgs);
+        }
+
+        return result;
+    }
+
+    private static MonkeyObject callOnce(MonkeyObject fn, MonkeyObject[] args) {
         return switch (fn) {
             case MonkeyFunction mf -> {
-                final Environment extendedEnv = extendFunctionEnv(mf, args);
+                final List<Identifier> parameters = mf.parameters();
 
-                MonkeyObject evaluated = eval(mf.body(), extendedEnv);
+                if (args.length < parameters.size()) {
+                    yield newError("wrong number of arguments. got=%d, want=%d", args.length, parameters.size());
+                }
+
+                final Environment frame = newFrame(mf.literal(), mf.env());
+
+                for (int i = 0; i < parameters.size(); i++) {
+                    frame.set(parameters.get(i).slot(), args[i]);
+                }
 
-                yield unwrapReturnValue(evaluated);
+                yield callInterpreted(mf.literal(), frame);
             }
-            case Builtin b -> b.func().apply(args.toArray(new MonkeyObject[0]));
+            case JvmFunction jf -> JitRuntime.invoke(jf.info(), jf.env(), args);
+            case Builtin b -> b.func().apply(args);
             default -> newError("not a function: %s", fn.type());
         };
     }
 
+    /**
+     * Runs a function in a frame that already holds its arguments. A frame the function cannot
+     * have let escape goes back to the pool afterwards.
+     */
+    private static MonkeyObject callInterpreted(FunctionLiteral literal, Environment frame) {
+        try {
+            final FunctionInfo compiled = Jit.tierUp(literal);
+
+            if (compiled != null) {
+                return JitRuntime.run(compiled, frame);
+            }
+
+            final MonkeyObject result = evalStatements(literal.body().statements(), frame, true);
+
+            // A return statement leaves its value as it is, only returns inside expressions wrap theirs
+            return frame.returned() ? result : unwrapReturnValue(result);
+        } finally {
+            releaseFrame(literal, frame);
+        }
+    }
+
+    private static Environment newFrame(FunctionLiteral literal, Environment outer) {
+        return literal.framesEscape() ? new Environment(outer, literal.slotNames()) : FramePool.acquire(outer, literal.slotNames());
+    }
+
+    private static void releaseFrame(FunctionLiteral literal, Environment frame) {
+        if (!literal.framesEscape()) {
+            FramePool.release(frame);
+        }
+    }
+
+    /**
+     * Evaluates statements of a function body, or of an if branch that is a statement of
+     * its own there. A return is in tail position, and so is the last statement when
+     * {@code tail} says the value of these statements is what the function returns.
+     * <p>
+     * A return marks the frame as returned rather than wrapping its value in a
+     * {@link ReturnValue}, so the statements around it stop without an allocation.
+     */
+    private static MonkeyObject evalStatements(List<Statement> statements, Environment env, boolean tail) {
+        MonkeyObject result = null;
+
+        for (int i = 0; i < statements.size(); i++) {
+            final boolean last = i == statements.size() - 1;
+
+            result = switch (statements.get(i)) {
+                case ReturnStatement rs -> {
+                    MonkeyObject value = evalTail(rs.returnValue(), env);
+
+                    if (isError(value)) {
+                        yield value;
+                    }
+
+                    // A return inside the returned expression already ended the call, its value stays wrapped as it always was
+                    yield env.markReturned(env.returned() ? new ReturnValue(value) : value);
+                }
+                case ExpressionStatement es when es.getExpression() instanceof IfExpression ie -> evalIfStatement(ie, env, tail && last);
+                case ExpressionStatement es when tail && last -> evalTail(es.getExpression(), env);
+                case Statement stmt -> eval(stmt, env);
+            };
+
+            if (env.returned() || result instanceof ReturnValue || result instanceof MonkeyError) {
+                return result;
+            }
+        }
+
+        return result;
+    }
+
+    private static MonkeyObject evalIfStatement(IfExpression ifExp, Environment env, boolean tail) {
+        MonkeyObject condition = eval(ifExp.condition(), env);
+
+        if (isError(condition)) {
+            return condition;
+        }
+
+        if (Operators.isTruthy(condition)) {
+            return evalStatements(ifExp.consequence().statements(), env, tail);
+        } else if (ifExp.alternative() != null) {
+            return evalStatements(ifExp.alternative().statements(), env, tail);
+        } else {
+            return NULL;
+        }
+    }
+
+    /**
+     * Evaluates an expression whose value the enclosing function returns as is. A call
+     * to another Monkey function is handed back as a {@link TailCall} instead of made.
+     */
+    private static MonkeyObject evalTail(Expression expression, Environment env) {
+        return switch (expression) {
+            case CallExpression ce -> evalCall(ce, env, true);
+            case IfExpression ie -> evalIfStatement(ie, env, true);
+            default -> eval(expression, env);
+        };
+    }
+
     private static MonkeyObject unwrapReturnValue(MonkeyObject object) {
         if (object instanceof ReturnValue(MonkeyObject value)) {
             return value;
@@ -175,23 +436,211 @@ public class Evaluator {
         return object;
     }
 
-    private static Environment extendFunctionEnv(MonkeyFunction fn, List<MonkeyObject> args) {
-        Environment functionScope = fn.env().newEnclosed();
+    private static MonkeyObject evalInfixRight(InfixExpression ie, MonkeyObject left, Environment env) {
+        MonkeyObject right = eval(ie.right(), env);
+
+        if (isError(right)) {
+            return right;
+        }
+
+        return Operators.evalInfixExpression(ie.operator(), left, right);
+    }
 
-        for (int i = 0; i < fn.parameters().size(); i++) {
-            functionScope.set(fn.parameters().get(i).value(), args.get(i));
+    /**
+     * Evaluates arithmetic on integers, nested arithmetic included, on primitive longs and
+     * boxes only the outcome. An expression that turns out to work on anything else is
+     * finished as usual and marked to take the usual path from then on, or the path for
+     * floats if it met one.
+     */
+    private static MonkeyObject evalIntegral(InfixExpression ie, Environment env) {
+        if (!isArithmetic(ie.operator())) {
+            ie.setIntegral(false);
+
+            return eval(ie, env);
         }
 
-        return functionScope;
+        try {
+            return Int.of(evalArithmetic(ie, env));
+        } catch (Boxed e) {
+            return e.value;
+        }
+    }
+
+    private static long evalArithmetic(InfixExpression ie, Environment env) {
+        final long left;
+
+        try {
+            left = evalLong(ie.left(), env);
+        } catch (Boxed e) {
+            leaveIntegral(ie, e.value);
+
+            return unbox(isError(e.value) ? e.value : evalInfixRight(ie, e.value, env));
+        }
+
+        final long right;
+
+        try {
+            right = evalLong(ie.right(), env);
+        } catch (Boxed e) {
+            leaveIntegral(ie, e.value);
+
+            return unbox(isError(e.value) ? e.value : Operators.evalInfixExpression(ie.operator(), Int.of(left), e.value));
+        }
+
+        return switch (ie.operator()) {
+            case "+" -> left + right;
+            case "-" -> left - right;
+            case "*" -> left * right;
+            default -> left / right;
+        };
+    }
+
+    private static void leaveIntegral(InfixExpression ie, MonkeyObject operand) {
+        ie.setIntegral(false);
+        ie.setFloating(operand instanceof MonkeyFloat);
+    }
+
+    private static long evalLong(Expression expression, Environment env) {
+        return switch (expression) {
+            case IntegerLiteral il -> il.value();
+            case Constant c when c.value() instanceof Int(long value) -> value;
+            case InfixExpression ie when ie.isIntegral() && isArithmetic(ie.operator()) -> evalArithmetic(ie, env);
+            default -> unbox(eval(expression, env));
+        };
+    }
+
+    private static long unbox(MonkeyObject value) {
+        if (value instanceof Int(long v)) {
+            return v;
+        }
+
+        throw new Boxed(value);
+    }
+
+    /**
+     * Evaluates arithmetic that went over to floats the way {@link #evalIntegral} does on
+     * longs, on primitive doubles. An integer operand of it is promoted. An expression that
+     * turns out to work on two integers, or on anything else, is finished as usual and takes
+     * the usual path from then on.
+     */
+    private static MonkeyObject evalFloating(InfixExpression ie, Environment env) {
+        try {
+            return new MonkeyFloat(evalFloatArithmetic(ie, env, false));
+        } catch (Boxed e) {
+            return e.value;
+        }
+    }
+
+    // With promote, an integer outcome is taken as a float rather than handed back boxed
+    private static double evalFloatArithmetic(InfixExpression ie, Environment env, boolean promote) {
+        // An integer literal on the left is only promoted if the right is a float
+        final boolean integralLeft = isIntegerConstant(ie.left());
+        final double left;
+
+        try {
+            left = evalDouble(ie.left(), env, integralLeft);
+        } catch (Boxed e) {
+            if (!(e.value instanceof Int)) {
+                ie.setFloating(false);
+
+                return unboxDouble(isError(e.value) ? e.value : evalInfixRight(ie, e.value, env), promote);
+            }
+
+            final MonkeyObject right = eval(ie.right(), env);
+
+            if (e.value instanceof Int(long l) && right instanceof MonkeyFloat(double r)) {
+                return arithmetic(ie.operator(), l, r);
+            }
+
+            ie.setFloating(false);
+
+            return unboxDouble(isError(right) ? right : Operators.evalInfixExpression(ie.operator(), e.value, right), promote);
+        }
+
+        final double right;
+
+        try {
+            right = evalDouble(ie.right(), env, !integralLeft);
+        } catch (Boxed e) {
+            ie.setFloating(false);
+
+            final MonkeyObject boxedLeft = integralLeft ? eval(ie.left(), env) : new MonkeyFloat(left);
+
+            return unboxDouble(isError(e.value) ? e.value : Operators.evalInfixExpression(ie.operator(), boxedLeft, e.value), promote);
+        }
+
+        return arithmetic(ie.operator(), left, right);
+    }
+
+    private static double evalDouble(Expression expression, Environment env, boolean promote) {
+        return switch (expression) {
+            case FloatLiteral fl -> fl.value();
+            case Constant c when c.value() instanceof MonkeyFloat(double value) -> value;
+            case IntegerLiteral il when promote -> il.value();
+            case Constant c when promote && c.value() instanceof Int(long value) -> value;
+            case InfixExpression ie when ie.isFloating() -> evalFloatArithmetic(ie, env, promote);
+            default -> unboxDouble(eval(expression, env), promote);
+        };
+    }
+
+    private static double unboxDouble(MonkeyObject value, boolean promote) {
+        if (value instanceof MonkeyFloat(double v)) {
+            return v;
+        }
+
+        if (promote && value instanceof Int(long v)) {
+            return v;
+        }
+
+        throw new Boxed(value);
+    }
+
+    private static double arithmetic(String operator, double left, double right) {
+        return switch (operator) {
+            case "+" -> left + right;
+            case "-" -> left - right;
+            case "*" -> left * right;
+            default -> left / right;
+        };
+    }
+
+    private static boolean isIntegerConstant(Expression expression) {
+        return expression instanceof IntegerLiteral || expression instanceof Constant c && c.value() instanceof Int;
+    }
+
+    private static boolean isArithmetic(String operator) {
+        return switch (operator) {
+            case "+", "-", "*", "/" -> true;
+            default -> false;
+        };
+    }
+
+    /**
+     * Carries what an expression evaluated on primitive longs or doubles turned out to be
+     * instead, past the arithmetic around it that has nothing to compute on any more.
+     */
+    private static final class Boxed extends RuntimeException {
+        @Serial
+        private static final long serialVersionUID = 1L;
+
+        private final transient MonkeyObject value;
+
+        Boxed(MonkeyObject value) {
+            super(null, null, false, false);
+            this.value = value;
+        }
     }
 
     private static List<MonkeyObject> evalExpressions(List<Expression> exps, Environment env) {
         final var result = new ArrayList<MonkeyObject>();
+        final List<ForkJoinTask<MonkeyObject>> forked = fork(exps, env);
 
-        for (Expression exp : exps) {
-            MonkeyObject evaluated = eval(exp, env);
+        for (int i = 0; i < exps.size(); i++) {
+            MonkeyObject evaluated = join(forked, i, exps.get(i), env);
 
             if (isError(evaluated)) {
+                cancel(forked);
+
                 return List.of(evaluated);
             }
 
@@ -202,15 +651,36 @@ public class Evaluator {
     }
 
     private static boolean isError(MonkeyObject object) {
-        if (object != null) {
-            return object.type() == ObjectType.ERROR;
+        return object instanceof MonkeyError;
+    }
+
+    /**
+     * A closure of {@code literal} made in {@code env}, the same one every time for a closed literal.
+     */
+    public static MonkeyFunction closure(FunctionLiteral literal, Environment env) {
+        if (!literal.isClosed()) {
+            return new MonkeyFunction(literal, env.capture(literal.capturedSlots()));
+        }
+
+        if (env.hoisted(literal) instanceof MonkeyFunction hoisted) {
+            return hoisted;
         }
 
-        return false;
+        return (MonkeyFunction) env.hoist(literal, new MonkeyFunction(literal, env.capture(literal.capturedSlots())));
     }
 
-    private static MonkeyObject evalIdentifier(Identifier node, Environment env) {
-        MonkeyObject value = env.get(node.value());
+    public static MonkeyObject evalIdentifier(Identifier node, Environment env) {
+        MonkeyObject value = env.get(node.depth(), node.slot());
+
+        if (value == null && node.isGlobal()) {
+            return evalUnboundGlobal(node);
+        }
+
+        // The resolved slot can still be empty, e.g. when a function reads a name before
+        // its own let for it has run. The value then comes from an enclosing frame instead.
+        if (value == null) {
+            value = env.get(node.value());
+        }
 
         if (value == null) {
             MonkeyObject builtin = Builtins.get(node.value());
@@ -222,30 +692,67 @@ public class Evaluator {
             return newError("identifier not found: %s", node.value());
         }
 
+        if (value instanceof Thunk thunk) {
+            return thunk.force();
+        }
+
         return value;
     }
 
+    /**
+     * No frame between the identifier and the globals binds its name, so with the global slot
+     * empty only a builtin is left. Builtins never change, so the first one found is kept;
+     * the check that it still applies is the read of the empty global slot done before.
+     */
+    private static MonkeyObject evalUnboundGlobal(Identifier node) {
+        final MonkeyObject cached = node.cachedBuiltin();
+
+        if (cached != null) {
+            return cached;
+        }
+
+        final MonkeyObject builtin = Builtins.get(node.value());
+
+        if (builtin == null) {
+            return newError("identifier not found: %s", node.value());
+        }
+
+        node.cacheBuiltin(builtin);
+
+        return builtin;
+    }
+
     private static MonkeyObject evalHashLiteral(HashLiteral hash, Environment env) {
         var pairs = new HashMap<HashKey, HashPair>();
+        final List<ForkJoinTask<MonkeyObject>> forked = fork(List.copyOf(hash.pairs().values()), env);
+        int i = 0;
 
         for (var entry : hash.pairs().entrySet()) {
            var key = eval(entry.getKey(), env);
 
            if (key == null) {
+               cancel(forked);
+
                return newError("cannot parse object: %s", entry.getKey().toString());
            }
 
            if (isError(key)) {
+               cancel(forked);
+
                return key;
            }
 
            if (!(key instanceof Hashable hashable)) {
+               cancel(forked);
+
                return newError("unusable as hash key: %s", key.type());
            }
 
-           var value = eval(entry.getValue(), env);
+           var value = join(forked, i++, entry.getValue(), env);
 
            if (isError(value)) {
+               cancel(forked);
+
                return value;
            }
 
@@ -261,7 +768,7 @@ public class Evaluator {
         for (Statement stmt : block.statements()) {
             result = eval(stmt, env);
 
-            if (result != null && (result.type() == ObjectType.RETURN_VALUE || result.type() == ObjectType.ERROR)) {
+            if (result instanceof ReturnValue || result instanceof MonkeyError) {
                 return result;
             }
         }
@@ -276,7 +783,7 @@ public class Evaluator {
             return condition;
         }
 
-        if (isTruthy(condition)) {
+        if (Operators.isTruthy(condition)) {
             return eval(ifExp.consequence(), env);
         } else if (ifExp.alternative() != null) {
             return eval(ifExp.alternative(), env);
@@ -285,67 +792,135 @@ public class Evaluator {
         }
     }
 
-    private static boolean isTruthy(MonkeyObject object) {
-        return object != NULL && object != FALSE;
+    /**
+     * Sets a name where it is bound, the binding a read of it would find. A name nothing binds,
+     * a builtin included, cannot be assigned to.
+     */
+    private static MonkeyObject evalAssignment(AssignStatement as, Environment env) {
+        final MonkeyObject value = eval(as.value(), env);
+
+        if (isError(value)) {
+            return value;
+        }
+
+        final Identifier name = as.name();
+
+        if (env.get(name.depth(), name.slot()) != null) {
+            env.set(name.depth(), name.slot(), value);
+        } else if (name.isGlobal() || !env.assign(name.value(), value)) {
+            return newError("identifier not found: %s", name.value());
+        }
+
+        return value;
+    }
+
+    /**
+     * Loops run their body in the frame they are in, like the branch of an if, so an iteration
+     * allocates no scope. A loop is worth NULL unless a return or an error ends it.
+     */
+    private static MonkeyObject evalWhileExpression(WhileExpression we, Environment env) {
+        while (true) {
+            final MonkeyObject condition = eval(we.condition(), env);
+
+            if (isError(condition)) {
+                return condition;
+            }
+
+            if (!Operators.isTruthy(condition)) {
+                return NULL;
+            }
+
+            final MonkeyObject result = evalBlockStatement(we.body(), env);
+
+            if (result instanceof ReturnValue || result instanceof MonkeyError) {
+                return result;
+            }
+        }
     }
 
-    private static MonkeyObject evalInfixExpression(String operator, MonkeyObject left, MonkeyObject right) {
-        if (left.type() == ObjectType.INTEGER && right.type() == ObjectType.INTEGER) {
-            return evalIntegerInfixExpression(operator, (Int) left, (Int) right);
+    /**
+     * Runs the body for every element of an array, with the variable's slot set to it. Over a
+     * call of the {@code range} builtin it counts through the integers instead of making the
+     * array first.
+     */
+    private static MonkeyObject evalForExpression(ForExpression fe, Environment env) {
+        final MonkeyObject iterable;
+
+        if (fe.iterable() instanceof CallExpression ce && ce.function() instanceof Identifier callee && evalIdentifier(callee, env) == Builtins.get("range")) {
+            final List<MonkeyObject> args = evalExpressions(ce.arguments(), env);
+
+            if (args.size() == 1 && isError(args.getFirst())) {
+                return args.getFirst();
+            }
+
+            if (args.size() == 1 && args.getFirst() instanceof Int(long end)) {
+                return evalRange(fe, 0, end, env);
+            }
+
+            if (args.size() == 2 && args.get(0) instanceof Int(long start) && args.get(1) instanceof Int(long end)) {
+                return evalRange(fe, start, end, env);
+            }
+
+            // Left to the builtin to say what is wrong with the arguments
+            iterable = Builtins.get("range").func().apply(args.toArray(new MonkeyObject[0]));
+        } else {
+            iterable = eval(fe.iterable(), env);
         }
 
-        if (left.type() == ObjectType.BOOLEAN && right.type() == ObjectType.BOOLEAN) {
-            return evalBooleanInfixExpression(operator, (Bool) left, (Bool) right);
+        if (isError(iterable)) {
+            return iterable;
         }
 
-        if (left.type() == ObjectType.STRING && right.type() == ObjectType.STRING) {
-            return evalStringInfixExpression(operator, (Str) left, (Str) right);
+        if (!(iterable instanceof Array(List<MonkeyObject> elements))) {
+            return newError("cannot iterate over %s", iterable.type());
         }
 
-        if (left.type() != right.type()) {
-            return newError("type mismatch: %s %s %s", left.type(), operator, right.type());
+        for (MonkeyObject element : elements) {
+            env.set(fe.variable().slot(), element);
+
+            final MonkeyObject result = evalBlockStatement(fe.body(), env);
+
+            if (result instanceof ReturnValue || result instanceof MonkeyError) {
+                return result;
+            }
         }
 
-        return newError("unknown operator: %s %s %s", left.type(), operator, right.type());
+        return NULL;
     }
 
-    private static MonkeyObject evalStringInfixExpression(String operator, Str left, Str right) {
-        return switch (operator) {
-            case "+" -> new Str(left.value() + right.value());
-            default -> newError("unknown operator: %s %s %s", left.type(), operator, right.type());
-        };
-    }
+    private static MonkeyObject evalRange(ForExpression fe, long start, long end, Environment env) {
+        for (long i = start; i < end; i++) {
+            env.set(fe.variable().slot(), Int.of(i));
 
-    private static MonkeyObject evalBooleanInfixExpression(String operator, Bool left, Bool right) {
-        return switch (operator) {
-            case "==" -> nativeBoolToBooleanObject(left == right);
-            case "!=" -> nativeBoolToBooleanObject(left != right);
-            default -> newError("unknown operator: %s %s %s", left.type(), operator, right.type());
-        };
-    }
+            final MonkeyObject result = evalBlockStatement(fe.body(), env);
 
-    private static MonkeyObject evalIntegerInfixExpression(String operator, Int left, Int right) {
-        final long leftVal = left.value();
-        final long rightVal = right.value();
+            if (result instanceof ReturnValue || result instanceof MonkeyError) {
+                return result;
+            }
+        }
 
-        return switch (operator) {
-            case "+" -> new Int(leftVal + rightVal);
-            case "-" -> new Int(leftVal - rightVal);
-            case "/" -> new Int(leftVal / rightVal);
-            case "*" -> new Int(leftVal * rightVal);
-            case "<" -> nativeBoolToBooleanObject(leftVal < rightVal);
-            case ">" -> nativeBoolToBooleanObject(leftVal > rightVal);
-            case "==" -> nativeBoolToBooleanObject(leftVal == rightVal);
-            case "!=" -> nativeBoolToBooleanObject(leftVal != rightVal);
-            default -> newError("unknown operator: %s %s %s", left.type(), operator, right.type());
-        };
+        return NULL;
     }
 
     private static MonkeyObject evalProgram(List<Statement> statements, Environment env) {
         MonkeyObject result = null;
 
-        for (Statement stmt : statements) {
-            result = eval(stmt, env);
+        for (int i = 0; i < statements.size(); i++) {
+            final Statement stmt = statements.get(i);
+
+            if (stmt instanceof LetStatement ls && ls.value() instanceof ParallelExpression pe) {
+                int end = i + 1;
+
+                while (end < statements.size() && statements.get(end) instanceof LetStatement next
+                    && next.value() instanceof ParallelExpression npe && npe.group() == pe.group()) {
+                    end++;
+                }
+
+                result = evalLets(statements.subList(i, end), env);
+                i = end - 1;
+            } else {
+                result = eval(stmt, env);
+            }
 
             if (result instanceof ReturnValue(MonkeyObject value)) {
                 return value;
@@ -359,42 +934,81 @@ public class Evaluator {
         return result;
     }
 
-    private static MonkeyObject nativeBoolToBooleanObject(boolean input) {
-        if (input) {
-            return TRUE;
+    /**
+     * Evaluates a group of top level lets whose values are evaluated at the same time. Each
+     * name is bound once its value is in, in order, and the first error stops the rest.
+     */
+    private static MonkeyObject evalLets(List<Statement> lets, Environment env) {
+        final List<Expression> values = lets.stream().map(let -> ((LetStatement) let).value()).toList();
+        final List<ForkJoinTask<MonkeyObject>> forked = fork(values, env);
+        MonkeyObject value = null;
+
+        for (int i = 0; i < lets.size(); i++) {
+            value = join(forked, i, values.get(i), env);
+
+            if (isError(value)) {
+                cancel(forked);
+
+                return value;
+            }
+
+            env.set(((LetStatement) lets.get(i)).name().slot(), value);
         }
 
-        return FALSE;
+        return value;
     }
 
-    private static MonkeyObject evalPrefixExpression(String operator, MonkeyObject right) {
-        return switch (operator) {
-            case "!" -> evalBangOperatorExpression(right);
-            case "-" -> evalMinusPrefixOperatorExpression(right);
-            default -> newError("unknown operator: %s%s", operator, right.type());
-        };
+    /**
+     * Starts evaluating the parallel expressions among {@code expressions} on the pool, all but
+     * the first, which the caller gets to itself. Returns the tasks by position, or null if
+     * there is nothing to fork: fewer than two parallel expressions, or a worker that has tasks
+     * of its own enough left to keep the pool busy.
+     */
+    private static List<ForkJoinTask<MonkeyObject>> fork(List<Expression> expressions, Environment env) {
+        int parallel = 0;
+
+        for (Expression expression : expressions) {
+            if (expression instanceof ParallelExpression) {
+                parallel++;
+            }
+        }
+
+        if (parallel < 2 || ForkJoinTask.getSurplusQueuedTaskCount() > MAX_SURPLUS_TASKS) {
+            return null;
+        }
+
+        final var forked = new ArrayList<ForkJoinTask<MonkeyObject>>(Collections.nCopies(expressions.size(), null));
+        boolean first = true;
+
+        for (int i = 0; i < forked.size(); i++) {
+            if (expressions.get(i) instanceof ParallelExpression pe) {
+                if (!first) {
+                    forked.set(i, ForkJoinTask.adapt(() -> eval(pe.expression(), env)).fork());
+                }
+
+                first = false;
+            }
+        }
+
+        return forked;
     }
 
-    private static MonkeyObject evalMinusPrefixOperatorExpression(MonkeyObject right) {
-        return switch (right) {
-            case Int i -> new Int(-i.value());
-            default -> newError("unknown operator: -%s", right.type());
-        };
+    private static MonkeyObject join(List<ForkJoinTask<MonkeyObject>> forked, int i, Expression expression, Environment env) {
+        return forked != null && forked.get(i) != null ? forked.get(i).join() : eval(expression, env);
     }
 
-    private static MonkeyObject evalBangOperatorExpression(MonkeyObject right) {
-        if (right == TRUE) {
-            return FALSE;
-        } else if (right == FALSE) {
-            return TRUE;
-        } else if (right == NULL) {
-            return TRUE;
-        } else {
-            return FALSE;
+    // Once the outcome is known the values still being evaluated are not needed, nor could they have done anything
+    private static void cancel(List<ForkJoinTask<MonkeyObject>> forked) {
+        if (forked != null) {
+            for (ForkJoinTask<MonkeyObject> task : forked) {
+                if (task != null) {
+                    task.cancel(false);
+                }
+            }
         }
     }
 
-    static MonkeyError newError(String format, Object... a) {
-        return new MonkeyError(format.formatted(a));
+    public static MonkeyError newError(String format, Object... a) {
+        return new MonkeyError(format, a);
     }
 }
@@ -0,0 +1,64 @@
+package com.warrington.monkey.evaluator;
+
+import com.warrington.monkey.object.Environment;
+
+import java.util.List;
+
+/**
+ * Frames of functions whose frames never outlive a call, as the resolver marks them,
+ * handed out again once the call they were made for has returned.
+ * <p>
+ * Every thread has a pool of its own. It keeps up to {@link #MAX_FREE} free frames of each
+ * size up to {@link #MAX_SLOTS} slots, enough to cover deep recursion without holding on to
+ * all of it afterwards. Bigger frames are allocated and dropped as usual.
+ */
+final class FramePool {
+    static final int MAX_SLOTS = 16;
+    static final int MAX_FREE = 256;
+
+    private static final ThreadLocal<FramePool> POOLS = ThreadLocal.withInitial(FramePool::new);
+
+    // Free frames by number of slots, each a stack filled up to counts[size]
+    private final Environment[][] free = new Environment[MAX_SLOTS + 1][MAX_FREE];
+    private final int[] counts = new int[MAX_SLOTS + 1];
+
+    private FramePool() {
+    }
+
+    static Environment acquire(Environment outer, List<String> slotNames) {
+        final int size = slotNames.size();
+
+        if (size > MAX_SLOTS) {
+            return new Environment(outer, slotNames);
+        }
+
+        final FramePool pool = POOLS.get();
+
+        if (pool.counts[size] == 0) {
+            return new Environment(outer, slotNames);
+        }
+
+        final Environment frame = pool.free[size][--pool.counts[size]];
+
+        pool.free[size][pool.counts[size]] = null;
+        frame.reuse(outer, slotNames);
+
+        return frame;
+    }
+
+    static void release(Environment frame) {
+        final int size = frame.size();
+
+        if (size > MAX_SLOTS) {
+            return;
+        }
+
+        final FramePool pool = POOLS.get();
+
+        if (pool.counts[size] < MAX_FREE) {
+            frame.clear();
+            frame.reuse(null, List.of());
+            pool.free[size][pool.counts[size]++] = frame;
+        }
+    }
+}
@@ -0,0 +1,179 @@
+package com.warrington.monkey.evaluator;
+
+import com.warrington.monkey.object.*;
+
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A function wrapped by the {@code memoize} builtin. A call with arguments it was called with
+ * before gets the value that call returned, without the function running again.
+ * <p>
+ * Arguments are told apart by value, so only calls whose arguments are all numbers, strings
+ * or booleans are cached; other calls, and calls that return an error, always go through. At
+ * most {@code capacity} results are kept, none if it is below one. Once that many are, a new
+ * one evicts the least recently used result, or with {@link Policy#LFU} the least frequently
+ * used, the least recently used of those first.
+ * <p>
+ * Calls may come from several threads at once. The cache is locked only while a result is
+ * looked up or stored, not while the function runs, so a recursive function can call itself
+ * through the cache. Threads calling with the same arguments at the same time may each run it.
+ */
+final class Memoized implements BuiltinFunction {
+    /**
+     * Results kept by a memoized function at most, unless the call to memoize says otherwise,
+     * from the {@code monkey.memoize.size} system property.
+     */
+    static final int DEFAULT_CAPACITY = Integer.getInteger("monkey.memoize.size", 1024);
+
+    enum Policy {
+        LRU,
+        LFU
+    }
+
+    private final MonkeyObject function;
+    private final int capacity;
+    private final Policy policy;
+
+    // Guarded by this: results by arguments in order of use, least recent first
+    private final LinkedHashMap<List<MonkeyObject>, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+    // And for LFU, the arguments of the results by how often they were used, each set least recent first
+    private final Map<Long, LinkedHashSet<List<MonkeyObject>>> byUses = new HashMap<>();
+    private long minUses;
+    private long hits;
+    private long misses;
+    private long evictions;
+
+    private static final class Entry {
+        private final MonkeyObject value;
+        private long uses = 1;
+
+        Entry(MonkeyObject value) {
+            this.value = value;
+        }
+    }
+
+    Memoized(MonkeyObject function, int capacity, Policy policy) {
+        this.function = function;
+        this.capacity = capacity;
+        this.policy = policy;
+    }
+
+    @Override
+    public MonkeyObject apply(MonkeyObject... args) {
+        for (MonkeyObject arg : args) {
+            if (!(arg instanceof Hashable)) {
+                countMiss();
+
+                return Evaluator.applyFunction(function, args);
+            }
+        }
+
+        final List<MonkeyObject> key = List.of(args);
+        final MonkeyObject cached = lookup(key);
+
+        if (cached != null) {
+            return cached;
+        }
+
+        final MonkeyObject value = Evaluator.applyFunction(function, args);
+
+        if (!(value instanceof MonkeyError)) {
+            store(key, value);
+        }
+
+        return value;
+    }
+
+    private synchronized void countMiss() {
+        misses++;
+    }
+
+    private synchronized MonkeyObject lookup(List<MonkeyObject> key) {
+        final Entry entry = entries.get(key);
+
+        if (entry == null) {
+            misses++;
+
+            return null;
+        }
+
+        hits++;
+
+        if (policy == Policy.LFU) {
+            final LinkedHashSet<List<MonkeyObject>> keys = byUses.get(entry.uses);
+
+            keys.remove(key);
+
+            if (keys.isEmpty()) {
+                byUses.remove(entry.uses);
+
+                if (minUses == entry.uses) {
+                    minUses++;
+                }
+            }
+
+            entry.uses++;
+            byUses.computeIfAbsent(entry.uses, uses -> new LinkedHashSet<>()).add(key);
+        }
+
+        return entry.value;
+    }
+
+    private synchronized void store(List<MonkeyObject> key, MonkeyObject value) {
+        // Another thread may have got there first
+        if (entries.containsKey(key) || capacity < 1) {
+            return;
+        }
+
+        if (entries.size() == capacity) {
+            evict();
+        }
+
+        entries.put(key, new Entry(value));
+
+        if (policy == Policy.LFU) {
+            byUses.computeIfAbsent(1L, uses -> new LinkedHashSet<>()).add(key);
+            minUses = 1;
+        }
+    }
+
+    private void evict() {
+        final List<MonkeyObject> victim;
+
+        if (policy == Policy.LFU) {
+            final LinkedHashSet<List<MonkeyObject>> keys = byUses.get(minUses);
+
+            victim = keys.iterator().next();
+            keys.remove(victim);
+
+            if (keys.isEmpty()) {
+                byUses.remove(minUses);
+            }
+        } else {
+            victim = entries.keySet().iterator().next();
+        }
+
+        entries.remove(victim);
+        evictions++;
+    }
+
+    /**
+     * The counts so far as a hash of {@code hits}, {@code misses}, {@code evictions}, and
+     * {@code size}, the number of results kept now.
+     */
+    synchronized Hash stats() {
+        final var pairs = new LinkedHashMap<HashKey, HashPair>();
+
+        for (var stat : List.of(Map.entry("hits", hits), Map.entry("misses", misses), Map.entry("evictions", evictions), Map.entry("size", (long) entries.size()))) {
+            final var key = new Str(stat.getKey());
+
+            pairs.put(key.hashKey(), new HashPair(key, Int.of(stat.getValue())));
+        }
+
+        return new Hash(pairs);
+    }
+}
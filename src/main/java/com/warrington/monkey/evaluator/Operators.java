@@ -0,0 +1,168 @@
+package com.warrington.monkey.evaluator;
+
+import com.warrington.monkey.object.*;
+
+import java.util.List;
+
+import static com.warrington.monkey.evaluator.Evaluator.FALSE;
+import static com.warrington.monkey.evaluator.Evaluator.NULL;
+import static com.warrington.monkey.evaluator.Evaluator.TRUE;
+import static com.warrington.monkey.evaluator.Evaluator.newError;
+
+/**
+ * Operator semantics shared by every execution engine, so the tree-walking
+ * evaluator and the virtual machine agree on results and error messages.
+ */
+public final class Operators {
+
+    private Operators() {
+    }
+
+    public static MonkeyObject evalInfixExpression(String operator, MonkeyObject left, MonkeyObject right) {
+        if (left.type() == ObjectType.INTEGER && right.type() == ObjectType.INTEGER) {
+            return evalIntegerInfixExpression(operator, (Int) left, (Int) right);
+        }
+
+        // An integer meeting a float is promoted to one
+        if (isNumber(left) && isNumber(right)) {
+            return evalFloatInfixExpression(operator, left, right);
+        }
+
+        if (left.type() == ObjectType.BOOLEAN && right.type() == ObjectType.BOOLEAN) {
+            return evalBooleanInfixExpression(operator, (Bool) left, (Bool) right);
+        }
+
+        if (left.type() == ObjectType.STRING && right.type() == ObjectType.STRING) {
+            return evalStringInfixExpression(operator, (Str) left, (Str) right);
+        }
+
+        if (left.type() != right.type()) {
+            return newError("type mismatch: %s %s %s", left.type(), operator, right.type());
+        }
+
+        return newError("unknown operator: %s %s %s", left.type(), operator, right.type());
+    }
+
+    private static MonkeyObject evalStringInfixExpression(String operator, Str left, Str right) {
+        return switch (operator) {
+            case "+" -> new Str(left.value() + right.value());
+            default -> newError("unknown operator: %s %s %s", left.type(), operator, right.type());
+        };
+    }
+
+    private static MonkeyObject evalBooleanInfixExpression(String operator, Bool left, Bool right) {
+        return switch (operator) {
+            case "==" -> nativeBoolToBooleanObject(left == right);
+            case "!=" -> nativeBoolToBooleanObject(left != right);
+            default -> newError("unknown operator: %s %s %s", left.type(), operator, right.type());
+        };
+    }
+
+    private static MonkeyObject evalIntegerInfixExpression(String operator, Int left, Int right) {
+        final long leftVal = left.value();
+        final long rightVal = right.value();
+
+        return switch (operator) {
+            case "+" -> Int.of(leftVal + rightVal);
+            case "-" -> Int.of(leftVal - rightVal);
+            case "/" -> Int.of(leftVal / rightVal);
+            case "*" -> Int.of(leftVal * rightVal);
+            case "<" -> nativeBoolToBooleanObject(leftVal < rightVal);
+            case ">" -> nativeBoolToBooleanObject(leftVal > rightVal);
+            case "==" -> nativeBoolToBooleanObject(leftVal == rightVal);
+            case "!=" -> nativeBoolToBooleanObject(leftVal != rightVal);
+            default -> newError("unknown operator: %s %s %s", left.type(), operator, right.type());
+        };
+    }
+
+    private static MonkeyObject evalFloatInfixExpression(String operator, MonkeyObject left, MonkeyObject right) {
+        final double leftVal = toDouble(left);
+        final double rightVal = toDouble(right);
+
+        return switch (operator) {
+            case "+" -> new MonkeyFloat(leftVal + rightVal);
+            case "-" -> new MonkeyFloat(leftVal - rightVal);
+            case "/" -> new MonkeyFloat(leftVal / rightVal);
+            case "*" -> new MonkeyFloat(leftVal * rightVal);
+            case "<" -> nativeBoolToBooleanObject(leftVal < rightVal);
+            case ">" -> nativeBoolToBooleanObject(leftVal > rightVal);
+            case "==" -> nativeBoolToBooleanObject(leftVal == rightVal);
+            case "!=" -> nativeBoolToBooleanObject(leftVal != rightVal);
+            default -> newError("unknown operator: %s %s %s", left.type(), operator, right.type());
+        };
+    }
+
+    private static boolean isNumber(MonkeyObject object) {
+        return object.type() == ObjectType.INTEGER || object.type() == ObjectType.FLOAT;
+    }
+
+    private static double toDouble(MonkeyObject number) {
+        return number instanceof Int(long value) ? value : ((MonkeyFloat) number).value();
+    }
+
+    public static MonkeyObject evalPrefixExpression(String operator, MonkeyObject right) {
+        return switch (operator) {
+            case "!" -> evalBangOperatorExpression(right);
+            case "-" -> evalMinusPrefixOperatorExpression(right);
+            default -> newError("unknown operator: %s%s", operator, right.type());
+        };
+    }
+
+    private static MonkeyObject evalMinusPrefixOperatorExpression(MonkeyObject right) {
+        return switch (right) {
+            case Int i -> Int.of(-i.value());
+            case MonkeyFloat f -> new MonkeyFloat(-f.value());
+            default -> newError("unknown operator: -%s", right.type());
+        };
+    }
+
+    private static MonkeyObject evalBangOperatorExpression(MonkeyObject right) {
+        if (right == TRUE) {
+            return FALSE;
+        } else if (right == FALSE) {
+            return TRUE;
+        } else if (right == NULL) {
+            return TRUE;
+        } else {
+            return FALSE;
+        }
+    }
+
+    public static MonkeyObject evalIndexExpression(MonkeyObject left, MonkeyObject index) {
+        if (left instanceof Array(List<MonkeyObject> elements) && index instanceof Int(long value)) {
+            if (value >= elements.size() || value < 0) {
+                return NULL;
+            }
+
+            return elements.get((int) value);
+        }
+
+        if (left instanceof Hash(var pairs)) {
+            if (!(index instanceof Hashable key)) {
+                return newError("unusable as hash key: %s", index.type());
+            }
+
+            var pair = pairs.get(key.hashKey());
+
+            if (pair == null) {
+                return NULL;
+            }
+
+            return pair.value();
+        }
+
+        return newError("index operator not supported: %s", left.type());
+    }
+
+    public static boolean isTruthy(MonkeyObject object) {
+        return object != NULL && object != FALSE;
+    }
+
+    public static MonkeyObject nativeBoolToBooleanObject(boolean input) {
+        if (input) {
+            return TRUE;
+        }
+
+        return FALSE;
+    }
+}
@@ -0,0 +1,46 @@
+package com.warrington.monkey.evaluator;
+
+import com.warrington.monkey.ast.Expression;
+import com.warrington.monkey.object.Environment;
+import com.warrington.monkey.object.MonkeyObject;
+import com.warrington.monkey.object.ObjectType;
+
+/**
+ * An argument passed without being evaluated, for a parameter the callee may not need.
+ * It is evaluated the first time the parameter is read, and only then; later reads get
+ * the same value, whichever thread reads it.
+ */
+public final class Thunk implements MonkeyObject {
+    private Expression expression;
+    private Environment env;
+    private MonkeyObject value;
+    private boolean forced;
+
+    Thunk(Expression expression, Environment env) {
+        this.expression = expression;
+        this.env = env;
+    }
+
+    // Arguments evaluated at the same time can read the same parameter
+    public synchronized MonkeyObject force() {
+        if (!forced) {
+            value = Evaluator.eval(expression, env);
+            forced = true;
+            // Nothing else needs them once the value is known
+            expression = null;
+            env = null;
+        }
+
+        return value;
+    }
+
+    @Override
+    public ObjectType type() {
+        return force().type();
+    }
+
+    @Override
+    public String inspect() {
+        return force().inspect();
+    }
+}
@@ -0,0 +1,371 @@
+package com.warrington.monkey.heap;
+
+import com.warrington.monkey.analysis.Resolver;
+import com.warrington.monkey.ast.*;
+import com.warrington.monkey.evaluator.Evaluator;
+import com.warrington.monkey.evaluator.Operators;
+import com.warrington.monkey.jit.JvmFunction;
+import com.warrington.monkey.object.*;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Evaluates programs without recursing in Java. What is left to do is kept as
+ * {@link Continuation}s on a heap allocated control stack, intermediate results on
+ * a value stack next to it, so the depth of Monkey recursion no longer depends on
+ * the size of the thread's stack but only on {@link #maxStack}.
+ * <p>
+ * Results match the tree-walking {@link Evaluator}. Since any error value ends the
+ * whole program there, the first error simply halts the machine. A call that is the
+ * last thing its caller does reuses the caller's frame, so tail recursion runs in
+ * constant space.
+ */
+public final class HeapEvaluator {
+    /**
+     * Stack entries allowed by default, from the {@code monkey.heap.maxStack} system property.
+     * An entry is a reference plus, on the control stack, a small continuation object.
+     */
+    public static final int DEFAULT_MAX_STACK = Integer.getInteger("monkey.heap.maxStack", 1 << 24);
+
+    private final int maxStack;
+
+    private Continuation[] control = new Continuation[64];
+    private int controlTop;
+    private MonkeyObject[] values = new MonkeyObject[64];
+    private int valueTop;
+    private MonkeyError halted;
+
+    public HeapEvaluator() {
+        this(DEFAULT_MAX_STACK);
+    }
+
+    public HeapEvaluator(int maxStack) {
+        this.maxStack = maxStack;
+    }
+
+    private sealed interface Continuation {
+    }
+
+    // Evaluate a node and push its value
+    private record Eval(Node node, Environment env) implements Continuation {
+    }
+
+    // Statement `next - 1` produced the value on top; run the rest unless it was a return
+    private record Statements(List<Statement> statements, int next, Environment env) implements Continuation {
+    }
+
+    private record Bind(int slot, Environment env) implements Continuation {
+    }
+
+    private record WrapReturn() implements Continuation {
+    }
+
+    private record Prefix(String operator) implements Continuation {
+    }
+
+    private record Infix(String operator) implements Continuation {
+    }
+
+    private record Branch(IfExpression ifExpression, Environment env) implements Continuation {
+    }
+
+    private record MakeArray(int size) implements Continuation {
+    }
+
+    private record CheckKey() implements Continuation {
+    }
+
+    private record MakeHash(int pairs) implements Continuation {
+    }
+
+    private record Index() implements Continuation {
+    }
+
+    private record Call(int arguments) implements Continuation {
+    }
+
+    // End of a Monkey function call: unwrap the return value the body produced
+    private record Unwrap() implements Continuation {
+    }
+
+    public MonkeyObject eval(Program program, Environment env) {
+        Resolver.resolve(program, env);
+
+        controlTop = 0;
+        valueTop = 0;
+        halted = null;
+
+        evalStatements(program.getStatements(), env);
+        run();
+
+        if (halted != null) {
+            return halted;
+        }
+
+        final MonkeyObject result = values[0];
+
+        values[0] = null;
+
+        if (result instanceof ReturnValue(MonkeyObject value)) {
+            return value;
+        }
+
+        return result;
+    }
+
+    private void run() {
+        while (controlTop > 0) {
+            final Continuation next = control[--controlTop];
+
+            control[controlTop] = null;
+
+            switch (next) {
+                case Eval(Node node, Environment env) -> evalNode(node, env);
+                case Statements(List<Statement> statements, int index, Environment env) -> {
+                    if (!(values[valueTop - 1] instanceof ReturnValue)) {
+                        pop();
+
+                        if (index + 1 < statements.size()) {
+                            schedule(new Statements(statements, index + 1, env));
+                        }
+
+                        schedule(new Eval(statements.get(index), env));
+                    }
+                }
+                case Bind(int slot, Environment env) -> env.set(slot, values[valueTop - 1]);
+                case WrapReturn() -> produce(new ReturnValue(pop()));
+                case Prefix(String operator) -> produce(Operators.evalPrefixExpression(operator, pop()));
+                case Infix(String operator) -> {
+                    final MonkeyObject right = pop();
+                    final MonkeyObject left = pop();
+
+                    produce(Operators.evalInfixExpression(operator, left, right));
+                }
+                case Branch(IfExpression ifExpression, Environment env) -> {
+                    if (Operators.isTruthy(pop())) {
+                        evalStatements(ifExpression.consequence().statements(), env);
+                    } else if (ifExpression.alternative() != null) {
+                        evalStatements(ifExpression.alternative().statements(), env);
+                    } else {
+                        produce(Evaluator.NULL);
+                    }
+                }
+                case MakeArray(int size) -> produce(new Array(Collections.unmodifiableList(Arrays.asList(popAll(size)))));
+                case CheckKey() -> {
+                    final MonkeyObject key = values[valueTop - 1];
+
+                    if (!(key instanceof Hashable)) {
+                        halt(Evaluator.newError("unusable as hash key: %s", key.type()));
+                    }
+                }
+                case MakeHash(int size) -> {
+                    final MonkeyObject[] keysAndValues = popAll(2 * size);
+                    final var pairs = new HashMap<HashKey, HashPair>();
+
+                    for (int i = 0; i < keysAndValues.length; i += 2) {
+                        pairs.put(((Hashable) keysAndValues[i]).hashKey(), new HashPair(keysAndValues[i], keysAndValues[i + 1]));
+                    }
+
+                    produce(new Hash(pairs));
+                }
+                case Index() -> {
+                    final MonkeyObject index = pop();
+                    final MonkeyObject left = pop();
+
+                    produce(Operators.evalIndexExpression(left, index));
+                }
+                case Call(int arguments) -> {
+                    final MonkeyObject[] args = popAll(arguments);
+
+                    call(pop(), args);
+                }
+                case Unwrap() -> {
+                    if (values[valueTop - 1] instanceof ReturnValue(MonkeyObject value)) {
+                        values[valueTop - 1] = value;
+                    }
+                }
+            }
+        }
+    }
+
+    private void evalNode(Node node, Environment env) {
+        switch (node) {
+            case ExpressionStatement es -> evalNode(es.getExpression(), env);
+            case BlockStatement bs -> evalStatements(bs.statements(), env);
+            case ReturnStatement rs -> {
+                schedule(new WrapReturn());
+                schedule(new Eval(rs.returnValue(), env));
+            }
+            case LetStatement ls -> {
+                schedule(new Bind(ls.name().slot(), env));
+                schedule(new Eval(ls.value(), env));
+            }
+
+            case Constant c -> produce(c.value());
+            case IntegerLiteral il -> produce(Int.of(il.value()));
+            case FloatLiteral fl -> produce(new MonkeyFloat(fl.value()));
+            case StringLiteral sl -> produce(new Str(sl.value()));
+            case MonkeyBoolean mb -> produce(Operators.nativeBoolToBooleanObject(mb.value()));
+            case PrefixExpression pe -> {
+                schedule(new Prefix(pe.operator()));
+                schedule(new Eval(pe.right(), env));
+            }
+            case InfixExpression ie -> {
+                schedule(new Infix(ie.operator()));
+                schedule(new Eval(ie.right(), env));
+                schedule(new Eval(ie.left(), env));
+            }
+            case IfExpression ifExpression -> {
+                schedule(new Branch(ifExpression, env));
+                schedule(new Eval(ifExpression.condition(), env));
+            }
+            case Identifier i -> produce(Evaluator.evalIdentifier(i, env));
+            case FunctionLiteral fl -> produce(Evaluator.closure(fl, env));
+            case ArrayLiteral al -> {
+                schedule(new MakeArray(al.elements().size()));
+                scheduleInOrder(al.elements(), env);
+            }
+            case HashLiteral hl -> {
+                final List<Map.Entry<Expression, Expression>> entries = List.copyOf(hl.pairs().entrySet());
+
+                schedule(new MakeHash(entries.size()));
+
+                for (int i = entries.size() - 1; i >= 0; i--) {
+                    final Map.Entry<Expression, Expression> entry = entries.get(i);
+
+                    schedule(new Eval(entry.getValue(), env));
+                    schedule(new CheckKey());
+                    schedule(new Eval(entry.getKey(), env));
+                }
+            }
+            case IndexExpression ie -> {
+                schedule(new Index());
+                schedule(new Eval(ie.index(), env));
+                schedule(new Eval(ie.left(), env));
+            }
+            case CallExpression ce -> {
+                schedule(new Call(ce.arguments().size()));
+                scheduleInOrder(ce.arguments(), env);
+                schedule(new Eval(ce.function(), env));
+            }
+            case WhileExpression we -> produce(Evaluator.newError("loops are not supported by this engine"));
+            case ForExpression fe -> produce(Evaluator.newError("loops are not supported by this engine"));
+            case AssignStatement as -> produce(Evaluator.newError("assignment is not supported by this engine"));
+            case null, default -> produce(null);
+        }
+    }
+
+    private void evalStatements(List<Statement> statements, Environment env) {
+        if (statements.isEmpty()) {
+            produce(null);
+            return;
+        }
+
+        if (statements.size() > 1) {
+            schedule(new Statements(statements, 1, env));
+        }
+
+        schedule(new Eval(statements.getFirst(), env));
+    }
+
+    private void call(MonkeyObject function, MonkeyObject[] args) {
+        switch (function) {
+            case MonkeyFunction fn -> {
+                final List<Identifier> parameters = fn.parameters();
+
+                if (args.length < parameters.size()) {
+                    halt(Evaluator.newError("wrong number of arguments. got=%d, want=%d", args.length, parameters.size()));
+                    return;
+                }
+
+                final var frame = new Environment(fn.env(), fn.literal().slotNames());
+
+                for (int i = 0; i < parameters.size(); i++) {
+                    frame.set(parameters.get(i).slot(), args[i]);
+                }
+
+                // Nothing is left to do in the caller after this call, so its Unwrap serves both
+                if (controlTop == 0 || !(control[controlTop - 1] instanceof Unwrap)) {
+                    schedule(new Unwrap());
+                }
+
+                evalStatements(fn.body().statements(), frame);
+            }
+            // Compiled code runs on the Java stack like it does everywhere else
+            case JvmFunction jf -> produce(Evaluator.applyFunction(jf, args));
+            case Builtin b -> produce(b.func().apply(args));
+            default -> halt(Evaluator.newError("not a function: %s", function.type()));
+        }
+    }
+
+    private void scheduleInOrder(List<? extends Node> nodes, Environment env) {
+        for (int i = nodes.size() - 1; i >= 0; i--) {
+            schedule(new Eval(nodes.get(i), env));
+        }
+    }
+
+    private void schedule(Continuation continuation) {
+        if (controlTop == control.length) {
+            if (controlTop >= maxStack) {
+                halt(Evaluator.newError("stack overflow: more than %d stack entries", maxStack));
+                return;
+            }
+
+            control = Arrays.copyOf(control, Math.min(control.length * 2, maxStack));
+        }
+
+        control[controlTop++] = continuation;
+    }
+
+    private void produce(MonkeyObject value) {
+        if (value instanceof MonkeyError error) {
+            halt(error);
+            return;
+        }
+
+        if (valueTop == values.length) {
+            if (valueTop >= maxStack) {
+                halt(Evaluator.newError("stack overflow: more than %d stack entries", maxStack));
+                return;
+            }
+
+            values = Arrays.copyOf(values, Math.min(values.length * 2, maxStack));
+        }
+
+        values[valueTop++] = value;
+    }
+
+    private MonkeyObject pop() {
+        final MonkeyObject value = values[--valueTop];
+
+        values[valueTop] = null;
+
+        return value;
+    }
+
+    private MonkeyObject[] popAll(int count) {
+        valueTop -= count;
+
+        final MonkeyObject[] popped = Arrays.copyOfRange(values, valueTop, valueTop + count);
+
+        Arrays.fill(values, valueTop, valueTop + count, null);
+
+        return popped;
+    }
+
+    /**
+     * Stops the machine: an error ends the whole program in the evaluator too.
+     */
+    private void halt(MonkeyError error) {
+        halted = error;
+
+        Arrays.fill(control, 0, controlTop, null);
+        Arrays.fill(values, 0, valueTop, null);
+        controlTop = 0;
+        valueTop = 0;
+    }
+}
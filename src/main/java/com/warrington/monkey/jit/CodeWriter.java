@@ -0,0 +1,404 @@
+package com.warrington.monkey.jit;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Assembles the body of a single method. The operand stack depth is tracked as
+ * instructions are emitted so the writer can fill in max_stack itself; branch
+ * targets are {@link Label}s that get patched once they are bound.
+ */
+final class CodeWriter {
+    private static final int ACONST_NULL = 0x01;
+    private static final int ICONST_0 = 0x03;
+    private static final int BIPUSH = 0x10;
+    private static final int SIPUSH = 0x11;
+    private static final int LDC = 0x12;
+    private static final int LDC_W = 0x13;
+    private static final int LDC2_W = 0x14;
+    private static final int ILOAD = 0x15;
+    private static final int ALOAD = 0x19;
+    private static final int AALOAD = 0x32;
+    private static final int ASTORE = 0x3a;
+    private static final int IASTORE = 0x4f;
+    private static final int AASTORE = 0x53;
+    private static final int POP = 0x57;
+    private static final int DUP = 0x59;
+    private static final int IFEQ = 0x99;
+    private static final int IFNE = 0x9a;
+    private static final int GOTO = 0xa7;
+    private static final int TABLESWITCH = 0xaa;
+    private static final int ARETURN = 0xb0;
+    private static final int RETURN = 0xb1;
+    private static final int GETSTATIC = 0xb2;
+    private static final int GETFIELD = 0xb4;
+    private static final int PUTFIELD = 0xb5;
+    private static final int INVOKEVIRTUAL = 0xb6;
+    private static final int INVOKESPECIAL = 0xb7;
+    private static final int INVOKESTATIC = 0xb8;
+    private static final int NEW = 0xbb;
+    private static final int NEWARRAY = 0xbc;
+    private static final int ANEWARRAY = 0xbd;
+    private static final int CHECKCAST = 0xc0;
+    private static final int T_INT = 10;
+    private static final int INSTANCEOF = 0xc1;
+
+    private final ClassFileWriter owner;
+    private final int access;
+    private final String name;
+    private final String descriptor;
+    private final int maxLocals;
+
+    private final ByteArrayOutputStream code = new ByteArrayOutputStream();
+    private final List<Label> labels = new ArrayList<>();
+    private int stack;
+    private int maxStack;
+
+    CodeWriter(ClassFileWriter owner, int access, String name, String descriptor, int maxLocals) {
+        this.owner = owner;
+        this.access = access;
+        this.name = name;
+        this.descriptor = descriptor;
+        this.maxLocals = maxLocals;
+    }
+
+    /**
+     * A position in the code. Every jump to it must arrive with the same stack depth.
+     */
+    static final class Label {
+        private int position = -1;
+        private int stack = -1;
+        private final List<int[]> fixups = new ArrayList<>();
+    }
+
+    Label newLabel() {
+        final var label = new Label();
+
+        labels.add(label);
+
+        return label;
+    }
+
+    void bind(Label label) {
+        label.position = code.size();
+
+        // Code after an unconditional jump is only reachable through the label
+        if (label.stack >= 0) {
+            stack = label.stack;
+        } else {
+            label.stack = stack;
+        }
+    }
+
+    void aconstNull() {
+        op(ACONST_NULL, 1);
+    }
+
+    void pushInt(int value) {
+        if (value >= -1 && value <= 5) {
+            op(ICONST_0 + value, 1);
+        } else if (value >= Byte.MIN_VALUE && value <= Byte.MAX_VALUE) {
+            op(BIPUSH, 1);
+            u1(value);
+        } else if (value >= Short.MIN_VALUE && value <= Short.MAX_VALUE) {
+            op(SIPUSH, 1);
+            u2(value);
+        } else {
+            ldc(owner.integer(value));
+        }
+    }
+
+    void pushLong(long value) {
+        op(LDC2_W, 2);
+        u2(owner.longConstant(value));
+    }
+
+    void pushString(String value) {
+        ldc(owner.string(value));
+    }
+
+    private void ldc(int index) {
+        if (index <= 0xFF) {
+            op(LDC, 1);
+            u1(index);
+        } else {
+            op(LDC_W, 1);
+            u2(index);
+        }
+    }
+
+    void iload(int local) {
+        op(ILOAD, 1);
+        u1(local);
+    }
+
+    void aload(int local) {
+        op(ALOAD, 1);
+        u1(local);
+    }
+
+    void astore(int local) {
+        op(ASTORE, -1);
+        u1(local);
+    }
+
+    void aaload() {
+        op(AALOAD, -1);
+    }
+
+    void aastore() {
+        op(AASTORE, -3);
+    }
+
+    void iastore() {
+        op(IASTORE, -3);
+    }
+
+    void pop() {
+        op(POP, -1);
+    }
+
+    void dup() {
+        op(DUP, 1);
+    }
+
+    void areturn() {
+        op(ARETURN, -1);
+    }
+
+    void returnVoid() {
+        op(RETURN, 0);
+    }
+
+    void newObject(String type) {
+        op(NEW, 1);
+        u2(owner.classRef(type));
+    }
+
+    void newArray(String elementType) {
+        op(ANEWARRAY, 0);
+        u2(owner.classRef(elementType));
+    }
+
+    void newIntArray() {
+        op(NEWARRAY, 0);
+        u1(T_INT);
+    }
+
+    void checkcast(String type) {
+        op(CHECKCAST, 0);
+        u2(owner.classRef(type));
+    }
+
+    void instanceOf(String type) {
+        op(INSTANCEOF, 0);
+        u2(owner.classRef(type));
+    }
+
+    void getstatic(String type, String field, String fieldDescriptor) {
+        op(GETSTATIC, slots(fieldDescriptor));
+        u2(owner.fieldRef(type, field, fieldDescriptor));
+    }
+
+    void getfield(String type, String field, String fieldDescriptor) {
+        op(GETFIELD, slots(fieldDescriptor) - 1);
+        u2(owner.fieldRef(type, field, fieldDescriptor));
+    }
+
+    void putfield(String type, String field, String fieldDescriptor) {
+        op(PUTFIELD, -slots(fieldDescriptor) - 1);
+        u2(owner.fieldRef(type, field, fieldDescriptor));
+    }
+
+    void invokestatic(String type, String method, String methodDescriptor) {
+        op(INVOKESTATIC, stackEffect(methodDescriptor));
+        u2(owner.methodRef(type, method, methodDescriptor));
+    }
+
+    void invokevirtual(String type, String method, String methodDescriptor) {
+        op(INVOKEVIRTUAL, stackEffect(methodDescriptor) - 1);
+        u2(owner.methodRef(type, method, methodDescriptor));
+    }
+
+    void invokespecial(String type, String method, String methodDescriptor) {
+        op(INVOKESPECIAL, stackEffect(methodDescriptor) - 1);
+        u2(owner.methodRef(type, method, methodDescriptor));
+    }
+
+    void ifeq(Label target) {
+        jump(IFEQ, -1, target);
+    }
+
+    void ifne(Label target) {
+        jump(IFNE, -1, target);
+    }
+
+    void goTo(Label target) {
+        jump(GOTO, 0, target);
+    }
+
+    /**
+     * Jumps to {@code targets[i]} for the int on top of the stack being i, otherwise to {@code otherwise}.
+     */
+    void tableswitch(Label otherwise, Label[] targets) {
+        final int start = code.size();
+
+        op(TABLESWITCH, -1);
+
+        while (code.size() % 4 != 0) {
+            u1(0);
+        }
+
+        fixup(otherwise, start, 4);
+        u4(0);
+        u4(targets.length - 1);
+
+        for (Label target : targets) {
+            fixup(target, start, 4);
+        }
+    }
+
+    private void jump(int opcode, int stackDelta, Label target) {
+        final int start = code.size();
+
+        op(opcode, stackDelta);
+        fixup(target, start, 2);
+    }
+
+    private void fixup(Label target, int instruction, int width) {
+        if (target.stack < 0) {
+            target.stack = stack;
+        }
+
+        target.fixups.add(new int[]{instruction, code.size(), width});
+
+        if (width == 2) {
+            u2(0);
+        } else {
+            u4(0);
+        }
+    }
+
+    /**
+     * Resolves the jumps and appends the finished method to its class.
+     */
+    void finish() {
+        final byte[] bytes = code.toByteArray();
+
+        if (bytes.length > 0xFFFF) {
+            throw new IllegalStateException("method %s is too large".formatted(name));
+        }
+
+        for (Label label : labels) {
+            for (int[] fixup : label.fixups) {
+                if (label.position < 0) {
+                    throw new IllegalStateException("unbound label in %s".formatted(name));
+                }
+
+                final int offset = label.position - fixup[0];
+                final int at = fixup[1];
+
+                if (fixup[2] == 2) {
+                    if (offset < Short.MIN_VALUE || offset > Short.MAX_VALUE) {
+                        throw new IllegalStateException("jump too far in %s".formatted(name));
+                    }
+
+                    bytes[at] = (byte) (offset >> 8);
+                    bytes[at + 1] = (byte) offset;
+                } else {
+                    bytes[at] = (byte) (offset >> 24);
+                    bytes[at + 1] = (byte) (offset >> 16);
+                    bytes[at + 2] = (byte) (offset >> 8);
+                    bytes[at + 3] = (byte) offset;
+                }
+            }
+        }
+
+        final var method = new ByteArrayOutputStream();
+        final var out = new DataOutputStream(method);
+
+        try {
+            out.writeShort(access);
+            out.writeShort(owner.utf8(name));
+            out.writeShort(owner.utf8(descriptor));
+            out.writeShort(1);
+            out.writeShort(owner.utf8("Code"));
+            out.writeInt(12 + bytes.length);
+            out.writeShort(maxStack);
+            out.writeShort(maxLocals);
+            out.writeInt(bytes.length);
+            out.write(bytes);
+            out.writeShort(0); // exception table
+            out.writeShort(0); // attributes
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+
+        owner.addMethod(method.toByteArray());
+    }
+
+    private void op(int opcode, int stackDelta) {
+        u1(opcode);
+        stack += stackDelta;
+        maxStack = Math.max(maxStack, stack);
+    }
+
+    private void u1(int value) {
+        code.write(value);
+    }
+
+    private void u2(int value) {
+        code.write(value >> 8);
+        code.write(value);
+    }
+
+    private void u4(int value) {
+        u2(value >> 16);
+        u2(value);
+    }
+
+    /**
+     * Net change in stack depth of invoking a static method with this descriptor.
+     */
+    private static int stackEffect(String methodDescriptor) {
+        final int close = methodDescriptor.indexOf(')');
+        int arguments = 0;
+
+        for (int i = 1; i < close; i++) {
+            final char c = methodDescriptor.charAt(i);
+
+            if (c == 'L') {
+                i = methodDescriptor.indexOf(';', i);
+            } else if (c == '[') {
+                while (methodDescriptor.charAt(i + 1) == '[') {
+                    i++;
+                }
+
+                if (methodDescriptor.charAt(i + 1) == 'L') {
+                    i = methodDescriptor.indexOf(';', i);
+                } else {
+                    i++;
+                }
+
+                arguments++;
+                continue;
+            }
+
+            arguments += c == 'J' || c == 'D' ? 2 : 1;
+        }
+
+        return slots(methodDescriptor.substring(close + 1)) - arguments;
+    }
+
+    private static int slots(String typeDescriptor) {
+        return switch (typeDescriptor.charAt(0)) {
+            case 'V' -> 0;
+            case 'J', 'D' -> 2;
+            default -> 1;
+        };
+    }
+}
@@ -0,0 +1,19 @@
+package com.warrington.monkey.jit;
+
+import java.util.List;
+
+/**
+ * Static description of one compiled function: where its code lives and what its frame looks like.
+ *
+ * @param source what the function prints as, the same text a {@code MonkeyFunction} would show
+ * @param capturedSlots what a closure keeps of the frame it is made in, see {@code FunctionLiteral#capturedSlots()}
+ */
+public record FunctionInfo(
+    JvmCode code,
+    int index,
+    List<String> slotNames,
+    int numParameters,
+    String source,
+    int[] capturedSlots
+) {
+}
@@ -0,0 +1,65 @@
+package com.warrington.monkey.jit;
+
+import com.warrington.monkey.ast.FunctionLiteral;
+
+import java.lang.invoke.MethodHandles;
+
+/**
+ * Second execution tier of the evaluator. Every call of a function literal is
+ * counted; once one reaches {@link #THRESHOLD} calls it is compiled to a hidden
+ * JVM class and from then on runs as bytecode HotSpot can optimize.
+ * <p>
+ * The threshold comes from the {@code monkey.jit.threshold} system property;
+ * zero or less turns the JIT off.
+ */
+public final class Jit {
+    public static final int THRESHOLD = Integer.getInteger("monkey.jit.threshold", 1000);
+
+    private static final String CLASS_NAME = "com/warrington/monkey/jit/CompiledFunction";
+
+    private Jit() {
+    }
+
+    /**
+     * Counts a call of {@code literal} and returns its compiled code if there is any by now.
+     * Of calls on several threads, the one that reaches the threshold compiles it, once.
+     */
+    public static FunctionInfo tierUp(FunctionLiteral literal) {
+        final FunctionInfo compiled = literal.compiled();
+
+        if (compiled != null || THRESHOLD <= 0) {
+            return compiled;
+        }
+
+        if (literal.countInvocation() != THRESHOLD) {
+            return null;
+        }
+
+        try {
+            final FunctionInfo info = define(JitCompiler.compileFunction(CLASS_NAME, literal)).function(0);
+
+            literal.setCompiled(info);
+
+            return info;
+        } catch (RuntimeException | LinkageError e) {
+            // Whatever the JIT cannot handle simply stays in the evaluator
+            return null;
+        }
+    }
+
+    static JvmCode define(JitCompiler.CompiledClass compiled) {
+        try {
+            final var code = (JvmCode) MethodHandles.lookup()
+                .defineHiddenClass(compiled.classFile(), true)
+                .lookupClass()
+                .getDeclaredConstructor()
+                .newInstance();
+
+            code.constants = compiled.constants();
+
+            return code;
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException("could not load compiled code", e);
+        }
+    }
+}
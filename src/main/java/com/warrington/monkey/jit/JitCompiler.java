@@ -0,0 +1,616 @@
+package com.warrington.monkey.jit;
+
+import com.warrington.monkey.analysis.Nodes;
+import com.warrington.monkey.ast.*;
+import com.warrington.monkey.object.*;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+
+import static com.warrington.monkey.jit.ClassFileWriter.ACC_PRIVATE;
+import static com.warrington.monkey.jit.ClassFileWriter.ACC_PUBLIC;
+import static com.warrington.monkey.jit.ClassFileWriter.ACC_STATIC;
+
+/**
+ * Translates resolved function bodies into a {@link JvmCode} subclass.
+ * <p>
+ * The root function and every function literal nested in it become one method each,
+ * taking the function's frame and returning its result. Values stay on the JVM operand
+ * stack; anything beyond that is a call into {@link JitRuntime}. An error value ends
+ * the whole function in the evaluator, so every intermediate result is checked and
+ * returned on the spot when it is a {@code MonkeyError}. Return statements follow the
+ * evaluator's rules exactly, see {@link #compileStatements}.
+ */
+public final class JitCompiler {
+    private static final String OBJECT = "com/warrington/monkey/object/MonkeyObject";
+    private static final String ERROR = "com/warrington/monkey/object/MonkeyError";
+    private static final String RETURN_VALUE = "com/warrington/monkey/object/ReturnValue";
+    private static final String ENVIRONMENT = "com/warrington/monkey/object/Environment";
+    private static final String RUNTIME = "com/warrington/monkey/jit/JitRuntime";
+    private static final String JVM_CODE = "com/warrington/monkey/jit/JvmCode";
+    private static final String FUNCTION_INFO = "com/warrington/monkey/jit/FunctionInfo";
+    private static final String STRING = "java/lang/String";
+
+    private static final String OBJECT_DESC = "L" + OBJECT + ";";
+    private static final String UNARY_DESC = "(" + OBJECT_DESC + ")" + OBJECT_DESC;
+    private static final String BINARY_DESC = "(" + OBJECT_DESC + OBJECT_DESC + ")" + OBJECT_DESC;
+    private static final String FUNCTION_DESC = "(L" + ENVIRONMENT + ";)" + OBJECT_DESC;
+
+    // Locals of every function method
+    private static final int THIS = 0;
+    private static final int FRAME = 1;
+    private static final int TEMP = 2;
+
+    private static final Map<String, String> INFIX_METHODS = Map.of(
+        "+", "add",
+        "-", "sub",
+        "*", "mul",
+        "/", "div",
+        "<", "lessThan",
+        ">", "greaterThan",
+        "==", "equal",
+        "!=", "notEqual"
+    );
+
+    private final ClassFileWriter classFile;
+    private final List<Function> functions = new ArrayList<>();
+    // The optimizer's constants the code loads, null when it has to create them itself, see compileConstant
+    private final List<MonkeyObject> constants;
+
+    // Whether the function being generated is a real function, whose tail calls can be deferred
+    private boolean tailCalls;
+
+    private record Function(List<Statement> body, List<String> slotNames, int numParameters, String source, int[] capturedSlots, boolean isFunction) {
+    }
+
+    /**
+     * A generated class and the values its instances must be given in {@link JvmCode#constants}.
+     */
+    public record CompiledClass(byte[] classFile, MonkeyObject[] constants) {
+    }
+
+    private JitCompiler(String className, List<MonkeyObject> constants) {
+        this.classFile = new ClassFileWriter(className, JVM_CODE);
+        this.constants = constants;
+    }
+
+    /**
+     * Compiles a resolved function literal; it becomes function 0 of the generated class.
+     */
+    public static CompiledClass compileFunction(String className, FunctionLiteral literal) {
+        final var compiler = new JitCompiler(className, new ArrayList<>());
+
+        compiler.register(literal);
+
+        final byte[] classFile = compiler.generate();
+
+        return new CompiledClass(classFile, compiler.constants.toArray(MonkeyObject[]::new));
+    }
+
+    /**
+     * Compiles a resolved program into a class that can be run on its own. Function 0
+     * runs the program's statements with the globals as its frame, and a static main
+     * method sets those globals up again from {@code globalNames}, the names the program
+     * was resolved against in slot order.
+     */
+    public static byte[] compileProgram(String className, Program program, List<String> globalNames) {
+        // Nothing hands a class run on its own any values, so it creates its constants
+        final var compiler = new JitCompiler(className, null);
+
+        if (loops(program)) {
+            throw new IllegalArgumentException("loops and assignments are not compiled");
+        }
+
+        compiler.functions.add(new Function(program.getStatements(), List.of(), 0, "", null, false));
+        compiler.generateMain(globalNames);
+
+        return compiler.generate();
+    }
+
+    private int register(FunctionLiteral literal) {
+        final var names = new HashSet<String>();
+
+        for (Identifier param : literal.parameters()) {
+            // Parameters are bound to slots 0..n-1 positionally, which a repeated name would break
+            if (!names.add(param.value())) {
+                throw new IllegalArgumentException("duplicate parameter %s".formatted(param.value()));
+            }
+        }
+
+        // Calls of compiled code evaluate every argument up front, which would make the lazy ones strict
+        if (literal.hasLazyParameters()) {
+            throw new IllegalArgumentException("parameters passed by need");
+        }
+
+        // And so do the calls compiled code makes
+        if (passesByNeed(literal.body())) {
+            throw new IllegalArgumentException("arguments passed by need");
+        }
+
+        if (loops(literal.body())) {
+            throw new IllegalArgumentException("loops and assignments are not compiled");
+        }
+
+        // Compiled code evaluates one argument after the other, the ones marked to be evaluated together included
+        if (forks(literal.body())) {
+            throw new IllegalArgumentException("parallel evaluation is not compiled");
+        }
+
+        functions.add(new Function(
+            literal.body().statements(),
+            literal.slotNames(),
+            literal.parameters().size(),
+            new MonkeyFunction(literal, null).inspect(),
+            literal.capturedSlots(),
+            true
+        ));
+
+        return functions.size() - 1;
+    }
+
+    private byte[] generate() {
+        // Compiling a body can register further nested functions, hence no for-each
+        for (int i = 0; i < functions.size(); i++) {
+            generateFunction(i);
+        }
+
+        generateConstructor();
+        generateInvoke();
+
+        return classFile.toByteArray();
+    }
+
+    private void generateConstructor() {
+        final CodeWriter code = classFile.newMethod(ACC_PUBLIC, "<init>", "()V", 1);
+
+        code.aload(THIS);
+        code.invokespecial(JVM_CODE, "<init>", "()V");
+
+        code.aload(THIS);
+        code.pushInt(functions.size());
+        code.newArray(FUNCTION_INFO);
+
+        for (int i = 0; i < functions.size(); i++) {
+            final Function function = functions.get(i);
+
+            code.dup();
+            code.pushInt(i);
+            code.aload(THIS);
+            code.pushInt(i);
+            pushStrings(code, function.slotNames());
+            code.pushInt(function.numParameters());
+            code.pushString(function.source());
+            pushInts(code, function.capturedSlots());
+            code.invokestatic(RUNTIME, "function", "(L" + JVM_CODE + ";I[L" + STRING + ";IL" + STRING + ";[I)L" + FUNCTION_INFO + ";");
+            code.aastore();
+        }
+
+        code.putfield(JVM_CODE, "functions", "[L" + FUNCTION_INFO + ";");
+        code.returnVoid();
+        code.finish();
+    }
+
+    private void generateMain(List<String> globalNames) {
+        final CodeWriter code = classFile.newMethod(ACC_PUBLIC | ACC_STATIC, "main", "([L" + STRING + ";)V", 1);
+
+        code.newObject(classFile.name());
+        code.dup();
+        code.invokespecial(classFile.name(), "<init>", "()V");
+        pushStrings(code, globalNames);
+        code.invokestatic(RUNTIME, "runScript", "(L" + JVM_CODE + ";[L" + STRING + ";)V");
+        code.returnVoid();
+        code.finish();
+    }
+
+    private void generateInvoke() {
+        final CodeWriter code = classFile.newMethod(ACC_PUBLIC, "invoke", "(IL" + ENVIRONMENT + ";)" + OBJECT_DESC, 3);
+        final var targets = new CodeWriter.Label[functions.size()];
+        final CodeWriter.Label otherwise = code.newLabel();
+
+        for (int i = 0; i < targets.length; i++) {
+            targets[i] = code.newLabel();
+        }
+
+        code.iload(1);
+        code.tableswitch(otherwise, targets);
+
+        for (int i = 0; i < targets.length; i++) {
+            code.bind(targets[i]);
+            code.aload(THIS);
+            code.aload(2);
+            code.invokespecial(classFile.name(), functionName(i), FUNCTION_DESC);
+            code.areturn();
+        }
+
+        code.bind(otherwise);
+        code.aconstNull();
+        code.areturn();
+        code.finish();
+    }
+
+    private void generateFunction(int index) {
+        final CodeWriter code = classFile.newMethod(ACC_PRIVATE, functionName(index), FUNCTION_DESC, 3);
+        final Function function = functions.get(index);
+
+        tailCalls = function.isFunction();
+        compileStatements(code, function.body(), tailCalls ? Position.TAIL : Position.STATEMENT);
+        code.areturn();
+        code.finish();
+    }
+
+    private static String functionName(int index) {
+        return "function" + index;
+    }
+
+    /**
+     * Where a block of statements sits, which decides what a return in it does.
+     */
+    private enum Position {
+        // Part of a larger expression: a return only ends the block, handing on the wrapped value
+        EXPRESSION,
+        // The body, or an if branch that is a statement of the body: a return leaves the function
+        STATEMENT,
+        // Like STATEMENT, and the value of the last statement is what the function returns
+        TAIL
+    }
+
+    /**
+     * Leaves the value of the last statement on the stack, like a block evaluates to,
+     * following the evaluator's rules for returns exactly. Inside a function, returns
+     * and the last statement in {@link Position#TAIL} are tail calls.
+     */
+    private void compileStatements(CodeWriter code, List<Statement> statements, Position position) {
+        if (statements.isEmpty()) {
+            code.aconstNull();
+            return;
+        }
+
+        final CodeWriter.Label end = code.newLabel();
+
+        for (int i = 0; i < statements.size(); i++) {
+            final Statement statement = statements.get(i);
+            final boolean last = i == statements.size() - 1;
+
+            if (statement instanceof ReturnStatement rs) {
+                if (position == Position.EXPRESSION) {
+                    compileChecked(code, rs.returnValue());
+                    code.invokestatic(RUNTIME, "returnValue", UNARY_DESC);
+                } else {
+                    compileTail(code, rs.returnValue());
+                    code.areturn();
+                    // Unreachable, but keeps the stack depth the enclosing code expects
+                    code.aconstNull();
+                }
+
+                // Nothing after a return can run
+                break;
+            }
+
+            if (position != Position.EXPRESSION && statement instanceof ExpressionStatement es && es.getExpression() instanceof IfExpression ie) {
+                compileIf(code, ie, last && position == Position.TAIL ? Position.TAIL : Position.STATEMENT);
+            } else if (position == Position.TAIL && last && statement instanceof ExpressionStatement es) {
+                compileTail(code, es.getExpression());
+            } else {
+                compile(code, statement);
+            }
+
+            returnIfError(code);
+
+            if (containsReturn(statement)) {
+                final CodeWriter.Label carryOn = code.newLabel();
+
+                code.dup();
+                code.instanceOf(RETURN_VALUE);
+                code.ifeq(carryOn);
+
+                if (position != Position.EXPRESSION) {
+                    code.invokestatic(RUNTIME, "unwrap", UNARY_DESC);
+                    code.areturn();
+                } else {
+                    code.goTo(end);
+                }
+
+                code.bind(carryOn);
+            }
+
+            if (!last) {
+                code.pop();
+            }
+        }
+
+        code.bind(end);
+    }
+
+    /**
+     * Compiles an expression whose value the function returns as is, so a call in it
+     * can be left to the caller's trampoline.
+     */
+    private void compileTail(CodeWriter code, Expression expression) {
+        switch (expression) {
+            case CallExpression ce when tailCalls -> {
+                compileChecked(code, ce.function());
+                compileArray(code, ce.arguments());
+                code.invokestatic(RUNTIME, "tailCall", "(" + OBJECT_DESC + "[" + OBJECT_DESC + ")" + OBJECT_DESC);
+            }
+            case IfExpression ie when tailCalls -> compileIf(code, ie, Position.TAIL);
+            case null, default -> compile(code, expression);
+        }
+
+        returnIfError(code);
+    }
+
+    /**
+     * Whether evaluating the node can produce a return value, not counting nested functions.
+     */
+    private static boolean containsReturn(Node node) {
+        if (node instanceof ReturnStatement) {
+            return true;
+        }
+
+        if (node instanceof FunctionLiteral) {
+            return false;
+        }
+
+        return Nodes.children(node).stream().anyMatch(JitCompiler::containsReturn);
+    }
+
+    // Calls of a function lazy in some parameter, as the strictness analysis marked them
+    private static boolean passesByNeed(Node node) {
+        if (node instanceof CallExpression ce && ce.delayedArguments() != null) {
+            return true;
+        }
+
+        return Nodes.children(node).stream().anyMatch(JitCompiler::passesByNeed);
+    }
+
+    private static boolean loops(Node node) {
+        if (node instanceof WhileExpression || node instanceof ForExpression || node instanceof AssignStatement) {
+            return true;
+        }
+
+        return Nodes.children(node).stream().anyMatch(JitCompiler::loops);
+    }
+
+    private static boolean forks(Node node) {
+        if (node instanceof ParallelExpression) {
+            return true;
+        }
+
+        return Nodes.children(node).stream().anyMatch(JitCompiler::forks);
+    }
+
+    private void compileChecked(CodeWriter code, Node node) {
+        compile(code, node);
+        returnIfError(code);
+    }
+
+    private void compile(CodeWriter code, Node node) {
+        switch (node) {
+            case ExpressionStatement es -> compile(code, es.getExpression());
+            case BlockStatement bs -> compileStatements(code, bs.statements(), Position.EXPRESSION);
+            case ReturnStatement rs -> compileStatements(code, List.of(rs), Position.EXPRESSION);
+            case LetStatement ls -> {
+                compileChecked(code, ls.value());
+                code.astore(TEMP);
+                code.aload(FRAME);
+                code.pushInt(ls.name().slot());
+                code.aload(TEMP);
+                code.invokevirtual(ENVIRONMENT, "set", "(I" + OBJECT_DESC + ")V");
+                code.aload(TEMP);
+            }
+
+            case Constant c -> loadConstant(code, c.value());
+            case IntegerLiteral il -> {
+                code.pushLong(il.value());
+                code.invokestatic(RUNTIME, "integer", "(J)" + OBJECT_DESC);
+            }
+            case FloatLiteral fl -> compileConstant(code, new MonkeyFloat(fl.value()));
+            case StringLiteral sl -> {
+                code.pushString(sl.value());
+                code.invokestatic(RUNTIME, "string", "(L" + STRING + ";)" + OBJECT_DESC);
+            }
+            case MonkeyBoolean mb -> {
+                code.pushInt(mb.value() ? 1 : 0);
+                code.invokestatic(RUNTIME, "bool", "(Z)" + OBJECT_DESC);
+            }
+            case PrefixExpression pe -> {
+                code.pushString(pe.operator());
+                compileChecked(code, pe.right());
+                code.invokestatic(RUNTIME, "prefix", "(L" + STRING + ";" + OBJECT_DESC + ")" + OBJECT_DESC);
+            }
+            case InfixExpression ie -> compileInfix(code, ie);
+            case IfExpression ifExpression -> compileIf(code, ifExpression, Position.EXPRESSION);
+            case Identifier i -> {
+                code.aload(FRAME);
+                code.pushInt(i.depth());
+                code.pushInt(i.slot());
+                code.pushString(i.value());
+                code.invokestatic(RUNTIME, i.isGlobal() ? "readGlobal" : "read", "(L" + ENVIRONMENT + ";IIL" + STRING + ";)" + OBJECT_DESC);
+            }
+            case FunctionLiteral fl -> {
+                final int index = register(fl);
+
+                code.aload(THIS);
+                code.getfield(JVM_CODE, "functions", "[L" + FUNCTION_INFO + ";");
+                code.pushInt(index);
+                code.aaload();
+                code.aload(FRAME);
+                code.invokestatic(RUNTIME, fl.isClosed() ? "hoistedClosure" : "closure", "(L" + FUNCTION_INFO + ";L" + ENVIRONMENT + ";)" + OBJECT_DESC);
+            }
+            case ArrayLiteral al -> {
+                compileArray(code, al.elements());
+                code.invokestatic(RUNTIME, "array", "([" + OBJECT_DESC + ")" + OBJECT_DESC);
+            }
+            case HashLiteral hl -> compileHash(code, hl);
+            case IndexExpression ie -> {
+                compileChecked(code, ie.left());
+                compileChecked(code, ie.index());
+                code.invokestatic(RUNTIME, "index", BINARY_DESC);
+            }
+            case CallExpression ce -> {
+                compileChecked(code, ce.function());
+                compileArray(code, ce.arguments());
+                code.invokestatic(RUNTIME, "call", "(" + OBJECT_DESC + "[" + OBJECT_DESC + ")" + OBJECT_DESC);
+            }
+            case null, default -> code.aconstNull();
+        }
+    }
+
+    private void compileIf(CodeWriter code, IfExpression ifExpression, Position position) {
+        final CodeWriter.Label otherwise = code.newLabel();
+        final CodeWriter.Label end = code.newLabel();
+
+        compileChecked(code, ifExpression.condition());
+        code.invokestatic(RUNTIME, "isTruthy", "(" + OBJECT_DESC + ")Z");
+        code.ifeq(otherwise);
+        compileStatements(code, ifExpression.consequence().statements(), position);
+        code.goTo(end);
+        code.bind(otherwise);
+
+        if (ifExpression.alternative() != null) {
+            compileStatements(code, ifExpression.alternative().statements(), position);
+        } else {
+            code.invokestatic(RUNTIME, "nil", "()" + OBJECT_DESC);
+        }
+
+        code.bind(end);
+    }
+
+    /**
+     * Loads the very value the optimizer made, which the evaluator shares too, if the code is given it.
+     */
+    private void loadConstant(CodeWriter code, MonkeyObject value) {
+        if (constants == null) {
+            compileConstant(code, value);
+            return;
+        }
+
+        code.aload(THIS);
+        code.getfield(JVM_CODE, "constants", "[" + OBJECT_DESC);
+        code.pushInt(constants.size());
+        code.aaload();
+        constants.add(value);
+    }
+
+    /**
+     * Recreates a folded constant; only the kinds the optimizer produces can appear here.
+     */
+    private static void compileConstant(CodeWriter code, MonkeyObject value) {
+        switch (value) {
+            case Int(long l) -> {
+                code.pushLong(l);
+                code.invokestatic(RUNTIME, "integer", "(J)" + OBJECT_DESC);
+            }
+            case MonkeyFloat(double d) -> {
+                code.pushLong(Double.doubleToRawLongBits(d));
+                code.invokestatic(RUNTIME, "floatBits", "(J)" + OBJECT_DESC);
+            }
+            case Str(String s) -> {
+                code.pushString(s);
+                code.invokestatic(RUNTIME, "string", "(L" + STRING + ";)" + OBJECT_DESC);
+            }
+            case Bool(boolean b) -> {
+                code.pushInt(b ? 1 : 0);
+                code.invokestatic(RUNTIME, "bool", "(Z)" + OBJECT_DESC);
+            }
+            case Null n -> code.invokestatic(RUNTIME, "nil", "()" + OBJECT_DESC);
+            default -> throw new IllegalArgumentException("cannot compile constant " + value.inspect());
+        }
+    }
+
+    private void compileInfix(CodeWriter code, InfixExpression ie) {
+        final String method = INFIX_METHODS.get(ie.operator());
+
+        if (method == null) {
+            code.pushString(ie.operator());
+        }
+
+        compileChecked(code, ie.left());
+        compileChecked(code, ie.right());
+
+        if (method != null) {
+            code.invokestatic(RUNTIME, method, BINARY_DESC);
+        } else {
+            code.invokestatic(RUNTIME, "infix", "(L" + STRING + ";" + OBJECT_DESC + OBJECT_DESC + ")" + OBJECT_DESC);
+        }
+    }
+
+    private void compileArray(CodeWriter code, List<? extends Expression> elements) {
+        code.pushInt(elements.size());
+        code.newArray(OBJECT);
+
+        for (int i = 0; i < elements.size(); i++) {
+            code.dup();
+            code.pushInt(i);
+            compileChecked(code, elements.get(i));
+            code.aastore();
+        }
+    }
+
+    private void compileHash(CodeWriter code, HashLiteral hl) {
+        final var entries = List.copyOf(hl.pairs().entrySet());
+
+        code.pushInt(entries.size() * 2);
+        code.newArray(OBJECT);
+
+        for (int i = 0; i < entries.size(); i++) {
+            code.dup();
+            code.pushInt(2 * i);
+            compileChecked(code, entries.get(i).getKey());
+            code.invokestatic(RUNTIME, "hashKey", UNARY_DESC);
+            returnIfError(code);
+            code.aastore();
+
+            code.dup();
+            code.pushInt(2 * i + 1);
+            compileChecked(code, entries.get(i).getValue());
+            code.aastore();
+        }
+
+        code.invokestatic(RUNTIME, "hash", "([" + OBJECT_DESC + ")" + OBJECT_DESC);
+    }
+
+    /**
+     * Returns the value on top of the stack from the function if it is an error, leaving it in place otherwise.
+     */
+    private static void returnIfError(CodeWriter code) {
+        final CodeWriter.Label ok = code.newLabel();
+
+        code.dup();
+        code.instanceOf(ERROR);
+        code.ifeq(ok);
+        code.areturn();
+        code.bind(ok);
+    }
+
+    private static void pushInts(CodeWriter code, int[] values) {
+        if (values == null) {
+            code.aconstNull();
+            return;
+        }
+
+        code.pushInt(values.length);
+        code.newIntArray();
+
+        for (int i = 0; i < values.length; i++) {
+            code.dup();
+            code.pushInt(i);
+            code.pushInt(values[i]);
+            code.iastore();
+        }
+    }
+
+    private static void pushStrings(CodeWriter code, List<String> values) {
+        code.pushInt(values.size());
+        code.newArray(STRING);
+
+        for (int i = 0; i < values.size(); i++) {
+            code.dup();
+            code.pushInt(i);
+            code.pushString(values.get(i));
+            code.aastore();
+        }
+    }
+}
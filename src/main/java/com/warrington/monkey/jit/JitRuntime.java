@@ -0,0 +1,278 @@
+package com.warrington.monkey.jit;
+
+import com.warrington.monkey.evaluator.Builtins;
+import com.warrington.monkey.evaluator.Evaluator;
+import com.warrington.monkey.evaluator.Operators;
+import com.warrington.monkey.evaluator.Thunk;
+import com.warrington.monkey.object.*;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+
+/**
+ * Entry points called from generated code. Keeping the logic here, in plain Java,
+ * keeps the generated methods small and lets HotSpot inline these like any other call.
+ */
+public final class JitRuntime {
+
+    private JitRuntime() {
+    }
+
+    /**
+     * Entry point of an ahead-of-time compiled script: sets up its globals and runs it,
+     * exiting with a non-zero status should the script end in an error.
+     */
+    public static void runScript(JvmCode code, String[] globalNames) {
+        final MonkeyObject result = runProgram(code, globalNames);
+
+        if (result instanceof MonkeyError error) {
+            System.err.println(error.inspect());
+            System.exit(1);
+        }
+    }
+
+    public static MonkeyObject runProgram(JvmCode code, String[] globalNames) {
+        final var globals = new Environment();
+
+        for (String name : globalNames) {
+            globals.declare(name);
+        }
+
+        return code.invoke(0, globals);
+    }
+
+    public static FunctionInfo function(JvmCode code, int index, String[] slotNames, int numParameters, String source, int[] capturedSlots) {
+        return new FunctionInfo(code, index, List.of(slotNames), numParameters, source, capturedSlots);
+    }
+
+    public static MonkeyObject integer(long value) {
+        return Int.of(value);
+    }
+
+    // The double is passed as its bits, since the class writer has no double constants
+    public static MonkeyObject floatBits(long bits) {
+        return new MonkeyFloat(Double.longBitsToDouble(bits));
+    }
+
+    public static MonkeyObject string(String value) {
+        return new Str(value);
+    }
+
+    public static MonkeyObject bool(boolean value) {
+        return Operators.nativeBoolToBooleanObject(value);
+    }
+
+    public static MonkeyObject nil() {
+        return Evaluator.NULL;
+    }
+
+    public static boolean isTruthy(MonkeyObject value) {
+        return Operators.isTruthy(value);
+    }
+
+    public static MonkeyObject read(Environment frame, int depth, int slot, String name) {
+        MonkeyObject value = frame.get(depth, slot);
+
+        if (value == null) {
+            value = frame.get(name);
+        }
+
+        if (value == null) {
+            final MonkeyObject builtin = Builtins.get(name);
+
+            if (builtin != null) {
+                return builtin;
+            }
+
+            return Evaluator.newError("identifier not found: %s", name);
+        }
+
+        // A parameter of an interpreted call passed by need, see Evaluator#evalLazily
+        if (value instanceof Thunk thunk) {
+            return thunk.force();
+        }
+
+        return value;
+    }
+
+    /**
+     * Reads a global no frame in between binds, so an empty slot can only stand for a builtin.
+     */
+    public static MonkeyObject readGlobal(Environment frame, int depth, int slot, String name) {
+        final MonkeyObject value = frame.get(depth, slot);
+
+        if (value != null) {
+            return value;
+        }
+
+        final MonkeyObject builtin = Builtins.get(name);
+
+        return builtin != null ? builtin : Evaluator.newError("identifier not found: %s", name);
+    }
+
+    public static MonkeyObject add(MonkeyObject left, MonkeyObject right) {
+        if (left instanceof Int(long l) && right instanceof Int(long r)) {
+            return Int.of(l + r);
+        }
+
+        return Operators.evalInfixExpression("+", left, right);
+    }
+
+    public static MonkeyObject sub(MonkeyObject left, MonkeyObject right) {
+        if (left instanceof Int(long l) && right instanceof Int(long r)) {
+            return Int.of(l - r);
+        }
+
+        return Operators.evalInfixExpression("-", left, right);
+    }
+
+    public static MonkeyObject mul(MonkeyObject left, MonkeyObject right) {
+        if (left instanceof Int(long l) && right instanceof Int(long r)) {
+            return Int.of(l * r);
+        }
+
+        return Operators.evalInfixExpression("*", left, right);
+    }
+
+    public static MonkeyObject div(MonkeyObject left, MonkeyObject right) {
+        if (left instanceof Int(long l) && right instanceof Int(long r)) {
+            return Int.of(l / r);
+        }
+
+        return Operators.evalInfixExpression("/", left, right);
+    }
+
+    public static MonkeyObject lessThan(MonkeyObject left, MonkeyObject right) {
+        if (left instanceof Int(long l) && right instanceof Int(long r)) {
+            return Operators.nativeBoolToBooleanObject(l < r);
+        }
+
+        return Operators.evalInfixExpression("<", left, right);
+    }
+
+    public static MonkeyObject greaterThan(MonkeyObject left, MonkeyObject right) {
+        if (left instanceof Int(long l) && right instanceof Int(long r)) {
+            return Operators.nativeBoolToBooleanObject(l > r);
+        }
+
+        return Operators.evalInfixExpression(">", left, right);
+    }
+
+    public static MonkeyObject equal(MonkeyObject left, MonkeyObject right) {
+        if (left instanceof Int(long l) && right instanceof Int(long r)) {
+            return Operators.nativeBoolToBooleanObject(l == r);
+        }
+
+        return Operators.evalInfixExpression("==", left, right);
+    }
+
+    public static MonkeyObject notEqual(MonkeyObject left, MonkeyObject right) {
+        if (left instanceof Int(long l) && right instanceof Int(long r)) {
+            return Operators.nativeBoolToBooleanObject(l != r);
+        }
+
+        return Operators.evalInfixExpression("!=", left, right);
+    }
+
+    public static MonkeyObject infix(String operator, MonkeyObject left, MonkeyObject right) {
+        return Operators.evalInfixExpression(operator, left, right);
+    }
+
+    public static MonkeyObject prefix(String operator, MonkeyObject right) {
+        return Operators.evalPrefixExpression(operator, right);
+    }
+
+    public static MonkeyObject index(MonkeyObject left, MonkeyObject index) {
+        return Operators.evalIndexExpression(left, index);
+    }
+
+    public static MonkeyObject array(MonkeyObject[] elements) {
+        return new Array(Collections.unmodifiableList(Arrays.asList(elements)));
+    }
+
+    /**
+     * Checks a hash key before its value is evaluated, the same order the evaluator reports problems in.
+     */
+    public static MonkeyObject hashKey(MonkeyObject key) {
+        if (!(key instanceof Hashable)) {
+            return Evaluator.newError("unusable as hash key: %s", key.type());
+        }
+
+        return key;
+    }
+
+    /**
+     * Builds a hash from alternating keys and values.
+     */
+    public static MonkeyObject hash(MonkeyObject[] keysAndValues) {
+        final var pairs = new HashMap<HashKey, HashPair>();
+
+        for (int i = 0; i < keysAndValues.length; i += 2) {
+            final MonkeyObject key = keysAndValues[i];
+
+            pairs.put(((Hashable) key).hashKey(), new HashPair(key, keysAndValues[i + 1]));
+        }
+
+        return new Hash(pairs);
+    }
+
+    public static MonkeyObject returnValue(MonkeyObject value) {
+        return new ReturnValue(value);
+    }
+
+    public static MonkeyObject unwrap(MonkeyObject returnValue) {
+        return ((ReturnValue) returnValue).value();
+    }
+
+    public static MonkeyObject closure(FunctionInfo info, Environment frame) {
+        return new JvmFunction(info, frame.capture(info.capturedSlots()));
+    }
+
+    public static MonkeyObject hoistedClosure(FunctionInfo info, Environment frame) {
+        final MonkeyObject hoisted = frame.hoisted(info);
+
+        return hoisted != null ? hoisted : frame.hoist(info, closure(info, frame));
+    }
+
+    public static MonkeyObject call(MonkeyObject callee, MonkeyObject[] args) {
+        return Evaluator.applyFunction(callee, args);
+    }
+
+    /**
+     * A call in tail position: functions are left to the trampoline in {@link Evaluator#applyFunction}.
+     */
+    public static MonkeyObject tailCall(MonkeyObject callee, MonkeyObject[] args) {
+        if (callee instanceof MonkeyFunction || callee instanceof JvmFunction) {
+            return new TailCall(callee, args);
+        }
+
+        return call(callee, args);
+    }
+
+    /**
+     * Runs one activation of compiled code in a new frame, laid out as the resolver assigned it.
+     * The result can be a {@link TailCall} still to be made.
+     */
+    public static MonkeyObject invoke(FunctionInfo info, Environment closureEnv, MonkeyObject[] args) {
+        if (args.length < info.numParameters()) {
+            return Evaluator.newError("wrong number of arguments. got=%d, want=%d", args.length, info.numParameters());
+        }
+
+        final var frame = new Environment(closureEnv, info.slotNames());
+
+        for (int i = 0; i < info.numParameters(); i++) {
+            frame.set(i, args[i]);
+        }
+
+        return run(info, frame);
+    }
+
+    /**
+     * Runs one activation of compiled code in a frame already holding its arguments.
+     */
+    public static MonkeyObject run(FunctionInfo info, Environment frame) {
+        return info.code().invoke(info.index(), frame);
+    }
+}
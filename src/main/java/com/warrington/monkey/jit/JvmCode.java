@@ -0,0 +1,21 @@
+package com.warrington.monkey.jit;
+
+import com.warrington.monkey.object.Environment;
+import com.warrington.monkey.object.MonkeyObject;
+
+/**
+ * Superclass of every generated class. A generated class holds one method per
+ * function literal it was compiled from; {@link #invoke} dispatches to them by index.
+ */
+public abstract class JvmCode {
+    // Filled in by the generated constructor, indexed like the functions themselves
+    protected FunctionInfo[] functions;
+    // Set by Jit#define: the values of the optimizer's constants in the order the code loads them
+    protected MonkeyObject[] constants;
+
+    public abstract MonkeyObject invoke(int function, Environment frame);
+
+    public FunctionInfo function(int index) {
+        return functions[index];
+    }
+}
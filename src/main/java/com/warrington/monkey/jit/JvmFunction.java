@@ -0,0 +1,24 @@
+package com.warrington.monkey.jit;
+
+import com.warrington.monkey.object.Environment;
+import com.warrington.monkey.object.MonkeyObject;
+import com.warrington.monkey.object.ObjectType;
+
+/**
+ * Runtime value of a function whose body is JVM bytecode, closed over the frame it was created in.
+ */
+public record JvmFunction(
+    FunctionInfo info,
+    Environment env
+) implements MonkeyObject {
+
+    @Override
+    public ObjectType type() {
+        return ObjectType.FUNCTION;
+    }
+
+    @Override
+    public String inspect() {
+        return info.source();
+    }
+}
@@ -0,0 +1,13 @@
+package com.warrington.monkey.lambda;
+
+import com.warrington.monkey.object.Environment;
+import com.warrington.monkey.object.MonkeyObject;
+
+/**
+ * A compiled piece of a program. Everything that can be decided statically has
+ * already been captured by the lambda, so running it only touches the frame.
+ */
+@FunctionalInterface
+public interface Code {
+    MonkeyObject execute(Environment frame);
+}
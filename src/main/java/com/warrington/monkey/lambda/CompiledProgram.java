@@ -0,0 +1,42 @@
+package com.warrington.monkey.lambda;
+
+import com.warrington.monkey.object.Environment;
+import com.warrington.monkey.object.MonkeyObject;
+
+import java.util.List;
+
+/**
+ * A program compiled once by {@link LambdaCompiler} that can be run any number of times.
+ * <p>
+ * Global identifiers were bound to slots of the environment the program was compiled
+ * against, so it must run either in that environment or in one from {@link #newGlobals()},
+ * which lays the same names out in the same slots.
+ */
+public final class CompiledProgram {
+    private final Code code;
+    private final List<String> globalNames;
+
+    CompiledProgram(Code code, List<String> globalNames) {
+        this.code = code;
+        this.globalNames = globalNames;
+    }
+
+    public MonkeyObject run(Environment globals) {
+        return code.execute(globals);
+    }
+
+    /**
+     * Runs the program with a fresh set of globals, so no state leaks between runs.
+     */
+    public MonkeyObject run() {
+        return run(newGlobals());
+    }
+
+    public Environment newGlobals() {
+        final var globals = new Environment();
+
+        globalNames.forEach(globals::declare);
+
+        return globals;
+    }
+}
@@ -0,0 +1,37 @@
+package com.warrington.monkey.lambda;
+
+import com.warrington.monkey.ast.FunctionLiteral;
+import com.warrington.monkey.evaluator.Evaluator;
+import com.warrington.monkey.object.Environment;
+import com.warrington.monkey.object.MonkeyObject;
+import com.warrington.monkey.object.ReturnValue;
+
+/**
+ * The compiled body of a function literal, shared by every closure created from it.
+ */
+public record FunctionCode(
+    FunctionLiteral literal,
+    int[] parameterSlots,
+    Code body
+) {
+
+    MonkeyObject call(Environment closureEnv, MonkeyObject[] args) {
+        if (args.length < parameterSlots.length) {
+            return Evaluator.newError("wrong number of arguments. got=%d, want=%d", args.length, parameterSlots.length);
+        }
+
+        final var frame = new Environment(closureEnv, literal.slotNames());
+
+        for (int i = 0; i < parameterSlots.length; i++) {
+            frame.set(parameterSlots[i], args[i]);
+        }
+
+        final MonkeyObject result = body.execute(frame);
+
+        if (result instanceof ReturnValue(MonkeyObject value)) {
+            return value;
+        }
+
+        return result;
+    }
+}
@@ -0,0 +1,380 @@
+package com.warrington.monkey.lambda;
+
+import com.warrington.monkey.analysis.Resolver;
+import com.warrington.monkey.ast.*;
+import com.warrington.monkey.evaluator.Builtins;
+import com.warrington.monkey.evaluator.Evaluator;
+import com.warrington.monkey.evaluator.Operators;
+import com.warrington.monkey.object.*;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.BinaryOperator;
+import java.util.function.LongBinaryOperator;
+import java.util.function.UnaryOperator;
+
+/**
+ * Compiles a program into a tree of nested {@link Code} lambdas.
+ * <p>
+ * All the decisions the evaluator makes on every visit of a node are made here
+ * exactly once: which kind of node it is, which operator it applies, where an
+ * identifier lives and which builtin it falls back to. Only the values remain
+ * to be looked at when the code runs.
+ */
+public final class LambdaCompiler {
+
+    private LambdaCompiler() {
+    }
+
+    public static CompiledProgram compile(Program program, Environment globals) {
+        Resolver.resolve(program, globals);
+
+        return new CompiledProgram(compileProgram(compileAll(program.getStatements())), globals.names());
+    }
+
+    private static Code compile(Node node) {
+        return switch (node) {
+            case ExpressionStatement es -> compile(es.getExpression());
+            case BlockStatement bs -> compileBlock(compileAll(bs.statements()));
+            case ReturnStatement rs -> compileReturn(compile(rs.returnValue()));
+            case LetStatement ls -> compileLet(ls.name().slot(), compile(ls.value()));
+
+            case Constant c -> constant(c.value());
+            case IntegerLiteral il -> constant(Int.of(il.value()));
+            case FloatLiteral fl -> constant(new MonkeyFloat(fl.value()));
+            case StringLiteral sl -> constant(new Str(sl.value()));
+            case MonkeyBoolean mb -> constant(Operators.nativeBoolToBooleanObject(mb.value()));
+            case PrefixExpression pe -> compilePrefix(prefixOperator(pe.operator()), compile(pe.right()));
+            case InfixExpression ie -> compileInfix(infixOperator(ie.operator()), compile(ie.left()), compile(ie.right()));
+            case IfExpression ifExpression -> compileIf(
+                compile(ifExpression.condition()),
+                compile(ifExpression.consequence()),
+                ifExpression.alternative() == null ? null : compile(ifExpression.alternative())
+            );
+            case Identifier i -> compileIdentifier(i.value(), i.depth(), i.slot(), i.isGlobal());
+            case FunctionLiteral fl -> compileFunction(new FunctionCode(
+                fl,
+                fl.parameters().stream().mapToInt(Identifier::slot).toArray(),
+                compile(fl.body())
+            ));
+            case ArrayLiteral al -> compileArray(compileAll(al.elements()));
+            case HashLiteral hl -> {
+                final var entries = List.copyOf(hl.pairs().entrySet());
+
+                yield compileHash(
+                    compileAll(entries.stream().map(Map.Entry::getKey).toList()),
+                    compileAll(entries.stream().map(Map.Entry::getValue).toList())
+                );
+            }
+            case IndexExpression ie -> compileIndex(compile(ie.left()), compile(ie.index()));
+            case CallExpression ce -> compileCall(compile(ce.function()), compileAll(ce.arguments()));
+            case WhileExpression we -> constant(Evaluator.newError("loops are not supported by this engine"));
+            case ForExpression fe -> constant(Evaluator.newError("loops are not supported by this engine"));
+            case AssignStatement as -> constant(Evaluator.newError("assignment is not supported by this engine"));
+            default -> constant(null);
+        };
+    }
+
+    private static Code[] compileAll(List<? extends Node> nodes) {
+        return nodes.stream()
+            .map(LambdaCompiler::compile)
+            .toArray(Code[]::new);
+    }
+
+    private static Code compileProgram(Code[] statements) {
+        return frame -> {
+            MonkeyObject result = null;
+
+            for (Code stmt : statements) {
+                result = stmt.execute(frame);
+
+                if (result instanceof ReturnValue(MonkeyObject value)) {
+                    return value;
+                }
+
+                if (isError(result)) {
+                    return result;
+                }
+            }
+
+            return result;
+        };
+    }
+
+    private static Code compileBlock(Code[] statements) {
+        return frame -> {
+            MonkeyObject result = null;
+
+            for (Code stmt : statements) {
+                result = stmt.execute(frame);
+
+                if (result instanceof ReturnValue || result instanceof MonkeyError) {
+                    return result;
+                }
+            }
+
+            return result;
+        };
+    }
+
+    private static Code compileReturn(Code value) {
+        return frame -> {
+            final MonkeyObject result = value.execute(frame);
+
+            if (isError(result)) {
+                return result;
+            }
+
+            return new ReturnValue(result);
+        };
+    }
+
+    private static Code compileLet(int slot, Code value) {
+        return frame -> {
+            final MonkeyObject result = value.execute(frame);
+
+            if (isError(result)) {
+                return result;
+            }
+
+            frame.set(slot, result);
+
+            return result;
+        };
+    }
+
+    private static Code constant(MonkeyObject value) {
+        return frame -> value;
+    }
+
+    private static Code compilePrefix(UnaryOperator<MonkeyObject> operator, Code right) {
+        return frame -> {
+            final MonkeyObject value = right.execute(frame);
+
+            if (isError(value)) {
+                return value;
+            }
+
+            return operator.apply(value);
+        };
+    }
+
+    private static Code compileInfix(BinaryOperator<MonkeyObject> operator, Code left, Code right) {
+        return frame -> {
+            final MonkeyObject leftValue = left.execute(frame);
+
+            if (isError(leftValue)) {
+                return leftValue;
+            }
+
+            final MonkeyObject rightValue = right.execute(frame);
+
+            if (isError(rightValue)) {
+                return rightValue;
+            }
+
+            return operator.apply(leftValue, rightValue);
+        };
+    }
+
+    private static UnaryOperator<MonkeyObject> prefixOperator(String operator) {
+        return switch (operator) {
+            case "-" -> value -> value instanceof Int(long v)
+                ? Int.of(-v)
+                : Operators.evalPrefixExpression("-", value);
+            case "!" -> value -> Operators.nativeBoolToBooleanObject(!Operators.isTruthy(value));
+            default -> value -> Operators.evalPrefixExpression(operator, value);
+        };
+    }
+
+    /**
+     * Picks the implementation of an infix operator. Integer operands take the
+     * specialized path; everything else, including type errors, is left to {@link Operators}.
+     */
+    private static BinaryOperator<MonkeyObject> infixOperator(String operator) {
+        return switch (operator) {
+            case "+" -> arithmetic(operator, (l, r) -> l + r);
+            case "-" -> arithmetic(operator, (l, r) -> l - r);
+            case "*" -> arithmetic(operator, (l, r) -> l * r);
+            case "/" -> arithmetic(operator, (l, r) -> l / r);
+            case "<" -> (left, right) -> left instanceof Int(long l) && right instanceof Int(long r)
+                ? Operators.nativeBoolToBooleanObject(l < r)
+                : Operators.evalInfixExpression(operator, left, right);
+            case ">" -> (left, right) -> left instanceof Int(long l) && right instanceof Int(long r)
+                ? Operators.nativeBoolToBooleanObject(l > r)
+                : Operators.evalInfixExpression(operator, left, right);
+            case "==" -> (left, right) -> left instanceof Int(long l) && right instanceof Int(long r)
+                ? Operators.nativeBoolToBooleanObject(l == r)
+                : Operators.evalInfixExpression(operator, left, right);
+            case "!=" -> (left, right) -> left instanceof Int(long l) && right instanceof Int(long r)
+                ? Operators.nativeBoolToBooleanObject(l != r)
+                : Operators.evalInfixExpression(operator, left, right);
+            default -> (left, right) -> Operators.evalInfixExpression(operator, left, right);
+        };
+    }
+
+    private static BinaryOperator<MonkeyObject> arithmetic(String operator, LongBinaryOperator op) {
+        return (left, right) -> left instanceof Int(long l) && right instanceof Int(long r)
+            ? Int.of(op.applyAsLong(l, r))
+            : Operators.evalInfixExpression(operator, left, right);
+    }
+
+    private static Code compileIf(Code condition, Code consequence, Code alternative) {
+        return frame -> {
+            final MonkeyObject result = condition.execute(frame);
+
+            if (isError(result)) {
+                return result;
+            }
+
+            if (Operators.isTruthy(result)) {
+                return consequence.execute(frame);
+            } else if (alternative != null) {
+                return alternative.execute(frame);
+            } else {
+                return Evaluator.NULL;
+            }
+        };
+    }
+
+    /**
+     * Reads the resolved slot. Should it still be empty the name is looked up the
+     * slow way, and failing that the builtin of that name, picked here, is used.
+     * For a global no frame in between binds the name, so the slow way is skipped.
+     */
+    private static Code compileIdentifier(String name, int depth, int slot, boolean global) {
+        final MonkeyObject builtin = Builtins.get(name);
+        final MonkeyObject fallback = builtin != null
+            ? builtin
+            : Evaluator.newError("identifier not found: %s", name);
+
+        if (global) {
+            return frame -> {
+                final MonkeyObject value = frame.get(depth, slot);
+
+                return value != null ? value : fallback;
+            };
+        }
+
+        return frame -> {
+            MonkeyObject value = frame.get(depth, slot);
+
+            if (value == null) {
+                value = frame.get(name);
+            }
+
+            return value != null ? value : fallback;
+        };
+    }
+
+    private static Code compileFunction(FunctionCode function) {
+        final FunctionLiteral literal = function.literal();
+        final int[] captured = literal.capturedSlots();
+
+        if (literal.isClosed()) {
+            return frame -> {
+                final MonkeyObject hoisted = frame.hoisted(function);
+
+                return hoisted != null ? hoisted : frame.hoist(function, new LambdaFunction(function, frame.capture(captured)));
+            };
+        }
+
+        return frame -> new LambdaFunction(function, frame.capture(captured));
+    }
+
+    private static Code compileArray(Code[] elements) {
+        return frame -> {
+            final var result = new ArrayList<MonkeyObject>(elements.length);
+
+            for (Code element : elements) {
+                final MonkeyObject value = element.execute(frame);
+
+                if (isError(value)) {
+                    return value;
+                }
+
+                result.add(value);
+            }
+
+            return new Array(Collections.unmodifiableList(result));
+        };
+    }
+
+    private static Code compileHash(Code[] keys, Code[] values) {
+        return frame -> {
+            final var pairs = new HashMap<HashKey, HashPair>();
+
+            for (int i = 0; i < keys.length; i++) {
+                final MonkeyObject key = keys[i].execute(frame);
+
+                if (isError(key)) {
+                    return key;
+                }
+
+                if (!(key instanceof Hashable hashable)) {
+                    return Evaluator.newError("unusable as hash key: %s", key.type());
+                }
+
+                final MonkeyObject value = values[i].execute(frame);
+
+                if (isError(value)) {
+                    return value;
+                }
+
+                pairs.put(hashable.hashKey(), new HashPair(key, value));
+            }
+
+            return new Hash(pairs);
+        };
+    }
+
+    private static Code compileIndex(Code left, Code index) {
+        return frame -> {
+            final MonkeyObject leftValue = left.execute(frame);
+            final MonkeyObject indexValue = index.execute(frame);
+
+            if (isError(leftValue)) {
+                return leftValue;
+            }
+
+            if (isError(indexValue)) {
+                return indexValue;
+            }
+
+            return Operators.evalIndexExpression(leftValue, indexValue);
+        };
+    }
+
+    private static Code compileCall(Code function, Code[] arguments) {
+        return frame -> {
+            final MonkeyObject callee = function.execute(frame);
+
+            if (isError(callee)) {
+                return callee;
+            }
+
+            final var args = new MonkeyObject[arguments.length];
+
+            for (int i = 0; i < arguments.length; i++) {
+                args[i] = arguments[i].execute(frame);
+
+                if (isError(args[i])) {
+                    return args[i];
+                }
+            }
+
+            return switch (callee) {
+                case LambdaFunction fn -> fn.code().call(fn.env(), args);
+                case Builtin b -> b.func().apply(args);
+                default -> Evaluator.newError("not a function: %s", callee.type());
+            };
+        };
+    }
+
+    private static boolean isError(MonkeyObject object) {
+        return object instanceof MonkeyError;
+    }
+}
@@ -0,0 +1,25 @@
+package com.warrington.monkey.lambda;
+
+import com.warrington.monkey.object.Environment;
+import com.warrington.monkey.object.MonkeyFunction;
+import com.warrington.monkey.object.MonkeyObject;
+import com.warrington.monkey.object.ObjectType;
+
+/**
+ * Runtime value of a function in compiled lambda code: its compiled body plus the frame it closed over.
+ */
+public record LambdaFunction(
+    FunctionCode code,
+    Environment env
+) implements MonkeyObject {
+
+    @Override
+    public ObjectType type() {
+        return ObjectType.FUNCTION;
+    }
+
+    @Override
+    public String inspect() {
+        return new MonkeyFunction(code.literal(), env).inspect();
+    }
+}
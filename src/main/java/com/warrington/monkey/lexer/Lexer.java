@@ -112,7 +112,16 @@ public class Lexer {
 
                     return new Token(TokenType.lookupIdent(identifier), identifier);
                 } else if (isDigit(ch)) {
-                    return new Token(INT, readNumber());
+                    final String number = readNumber();
+
+                    // A point only makes a float when digits follow it
+                    if (ch == '.' && isDigit(peekChar())) {
+                        readChar();
+
+                        return new Token(FLOAT, number + "." + readNumber());
+                    }
+
+                    return new Token(INT, number);
                 } else {
                     token = new Token(ILLEGAL, ch);
                     break;
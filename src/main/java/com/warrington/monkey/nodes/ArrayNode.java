@@ -0,0 +1,40 @@
+package com.warrington.monkey.nodes;
+
+import com.warrington.monkey.object.Array;
+import com.warrington.monkey.object.Environment;
+import com.warrington.monkey.object.MonkeyObject;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+public final class ArrayNode extends MonkeyNode {
+    private final MonkeyNode[] elements;
+
+    public ArrayNode(MonkeyNode[] elements) {
+        this.elements = elements;
+
+        for (MonkeyNode element : elements) {
+            adopt(element);
+        }
+    }
+
+    @Override
+    public MonkeyObject execute(Environment frame) {
+        final var values = new MonkeyObject[elements.length];
+
+        for (int i = 0; i < elements.length; i++) {
+            values[i] = elements[i].execute(frame);
+
+            if (isError(values[i])) {
+                return values[i];
+            }
+        }
+
+        return new Array(Collections.unmodifiableList(Arrays.asList(values)));
+    }
+
+    @Override
+    protected void replaceChild(MonkeyNode oldChild, MonkeyNode newChild) {
+        replaceIn(elements, oldChild, newChild);
+    }
+}
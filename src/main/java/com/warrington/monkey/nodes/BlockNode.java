@@ -0,0 +1,38 @@
+package com.warrington.monkey.nodes;
+
+import com.warrington.monkey.object.Environment;
+import com.warrington.monkey.object.MonkeyError;
+import com.warrington.monkey.object.MonkeyObject;
+import com.warrington.monkey.object.ReturnValue;
+
+public final class BlockNode extends MonkeyNode {
+    private final MonkeyNode[] statements;
+
+    public BlockNode(MonkeyNode[] statements) {
+        this.statements = statements;
+
+        for (MonkeyNode stmt : statements) {
+            adopt(stmt);
+        }
+    }
+
+    @Override
+    public MonkeyObject execute(Environment frame) {
+        MonkeyObject result = null;
+
+        for (MonkeyNode stmt : statements) {
+            result = stmt.execute(frame);
+
+            if (result instanceof ReturnValue || result instanceof MonkeyError) {
+                return result;
+            }
+        }
+
+        return result;
+    }
+
+    @Override
+    protected void replaceChild(MonkeyNode oldChild, MonkeyNode newChild) {
+        replaceIn(statements, oldChild, newChild);
+    }
+}
@@ -0,0 +1,54 @@
+package com.warrington.monkey.nodes;
+
+import com.warrington.monkey.evaluator.Evaluator;
+import com.warrington.monkey.object.Builtin;
+import com.warrington.monkey.object.Environment;
+import com.warrington.monkey.object.MonkeyObject;
+
+public final class CallNode extends MonkeyNode {
+    private MonkeyNode function;
+    private final MonkeyNode[] arguments;
+
+    public CallNode(MonkeyNode function, MonkeyNode[] arguments) {
+        this.function = adopt(function);
+        this.arguments = arguments;
+
+        for (MonkeyNode arg : arguments) {
+            adopt(arg);
+        }
+    }
+
+    @Override
+    public MonkeyObject execute(Environment frame) {
+        final MonkeyObject callee = function.execute(frame);
+
+        if (isError(callee)) {
+            return callee;
+        }
+
+        final var args = new MonkeyObject[arguments.length];
+
+        for (int i = 0; i < arguments.length; i++) {
+            args[i] = arguments[i].execute(frame);
+
+            if (isError(args[i])) {
+                return args[i];
+            }
+        }
+
+        return switch (callee) {
+            case NodeFunction fn -> fn.node().call(fn.env(), args);
+            case Builtin b -> b.func().apply(args);
+            default -> Evaluator.newError("not a function: %s", callee.type());
+        };
+    }
+
+    @Override
+    protected void replaceChild(MonkeyNode oldChild, MonkeyNode newChild) {
+        if (function == oldChild) {
+            function = newChild;
+        } else {
+            replaceIn(arguments, oldChild, newChild);
+        }
+    }
+}
@@ -0,0 +1,20 @@
+package com.warrington.monkey.nodes;
+
+import com.warrington.monkey.object.Environment;
+import com.warrington.monkey.object.MonkeyObject;
+
+/**
+ * A literal whose value object is created once when the tree is built and shared by every execution.
+ */
+public final class ConstantNode extends MonkeyNode {
+    private final MonkeyObject value;
+
+    public ConstantNode(MonkeyObject value) {
+        this.value = value;
+    }
+
+    @Override
+    public MonkeyObject execute(Environment frame) {
+        return value;
+    }
+}
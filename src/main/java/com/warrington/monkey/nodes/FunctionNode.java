@@ -0,0 +1,63 @@
+package com.warrington.monkey.nodes;
+
+import com.warrington.monkey.ast.FunctionLiteral;
+import com.warrington.monkey.evaluator.Evaluator;
+import com.warrington.monkey.object.Environment;
+import com.warrington.monkey.object.MonkeyObject;
+import com.warrington.monkey.object.ReturnValue;
+
+/**
+ * A function literal. Its body tree is built once and shared by every closure
+ * created from it, so specializations learned in one call carry over to the next.
+ */
+public final class FunctionNode extends MonkeyNode {
+    private final FunctionLiteral literal;
+    private final int[] parameterSlots;
+    private MonkeyNode body;
+
+    public FunctionNode(FunctionLiteral literal, int[] parameterSlots, MonkeyNode body) {
+        this.literal = literal;
+        this.parameterSlots = parameterSlots;
+        this.body = adopt(body);
+    }
+
+    public FunctionLiteral literal() {
+        return literal;
+    }
+
+    @Override
+    public MonkeyObject execute(Environment frame) {
+        if (!literal.isClosed()) {
+            return new NodeFunction(this, frame.capture(literal.capturedSlots()));
+        }
+
+        final MonkeyObject hoisted = frame.hoisted(this);
+
+        return hoisted != null ? hoisted : frame.hoist(this, new NodeFunction(this, frame.capture(literal.capturedSlots())));
+    }
+
+    MonkeyObject call(Environment closureEnv, MonkeyObject[] args) {
+        if (args.length < parameterSlots.length) {
+            return Evaluator.newError("wrong number of arguments. got=%d, want=%d", args.length, parameterSlots.length);
+        }
+
+        final var frame = new Environment(closureEnv, literal.slotNames());
+
+        for (int i = 0; i < parameterSlots.length; i++) {
+            frame.set(parameterSlots[i], args[i]);
+        }
+
+        final MonkeyObject result = body.execute(frame);
+
+        if (result instanceof ReturnValue(MonkeyObject value)) {
+            return value;
+        }
+
+        return result;
+    }
+
+    @Override
+    protected void replaceChild(MonkeyNode oldChild, MonkeyNode newChild) {
+        body = newChild;
+    }
+}
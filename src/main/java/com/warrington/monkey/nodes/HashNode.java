@@ -0,0 +1,60 @@
+package com.warrington.monkey.nodes;
+
+import com.warrington.monkey.evaluator.Evaluator;
+import com.warrington.monkey.object.*;
+
+import java.util.HashMap;
+
+public final class HashNode extends MonkeyNode {
+    private final MonkeyNode[] keys;
+    private final MonkeyNode[] values;
+
+    public HashNode(MonkeyNode[] keys, MonkeyNode[] values) {
+        this.keys = keys;
+        this.values = values;
+
+        for (int i = 0; i < keys.length; i++) {
+            adopt(keys[i]);
+            adopt(values[i]);
+        }
+    }
+
+    @Override
+    public MonkeyObject execute(Environment frame) {
+        final var pairs = new HashMap<HashKey, HashPair>();
+
+        for (int i = 0; i < keys.length; i++) {
+            final MonkeyObject key = keys[i].execute(frame);
+
+            if (isError(key)) {
+                return key;
+            }
+
+            if (!(key instanceof Hashable hashable)) {
+                return Evaluator.newError("unusable as hash key: %s", key.type());
+            }
+
+            final MonkeyObject value = values[i].execute(frame);
+
+            if (isError(value)) {
+                return value;
+            }
+
+            pairs.put(hashable.hashKey(), new HashPair(key, value));
+        }
+
+        return new Hash(pairs);
+    }
+
+    @Override
+    protected void replaceChild(MonkeyNode oldChild, MonkeyNode newChild) {
+        for (int i = 0; i < keys.length; i++) {
+            if (keys[i] == oldChild) {
+                keys[i] = newChild;
+                return;
+            }
+        }
+
+        replaceIn(values, oldChild, newChild);
+    }
+}
@@ -0,0 +1,46 @@
+package com.warrington.monkey.nodes;
+
+import com.warrington.monkey.evaluator.Evaluator;
+import com.warrington.monkey.evaluator.Operators;
+import com.warrington.monkey.object.Environment;
+import com.warrington.monkey.object.MonkeyObject;
+
+public final class IfNode extends MonkeyNode {
+    private MonkeyNode condition;
+    private MonkeyNode consequence;
+    private MonkeyNode alternative;
+
+    public IfNode(MonkeyNode condition, MonkeyNode consequence, MonkeyNode alternative) {
+        this.condition = adopt(condition);
+        this.consequence = adopt(consequence);
+        this.alternative = adopt(alternative);
+    }
+
+    @Override
+    public MonkeyObject execute(Environment frame) {
+        final MonkeyObject result = condition.execute(frame);
+
+        if (isError(result)) {
+            return result;
+        }
+
+        if (Operators.isTruthy(result)) {
+            return consequence.execute(frame);
+        } else if (alternative != null) {
+            return alternative.execute(frame);
+        } else {
+            return Evaluator.NULL;
+        }
+    }
+
+    @Override
+    protected void replaceChild(MonkeyNode oldChild, MonkeyNode newChild) {
+        if (condition == oldChild) {
+            condition = newChild;
+        } else if (consequence == oldChild) {
+            consequence = newChild;
+        } else {
+            alternative = newChild;
+        }
+    }
+}
@@ -0,0 +1,40 @@
+package com.warrington.monkey.nodes;
+
+import com.warrington.monkey.evaluator.Operators;
+import com.warrington.monkey.object.Environment;
+import com.warrington.monkey.object.MonkeyObject;
+
+public final class IndexNode extends MonkeyNode {
+    private MonkeyNode left;
+    private MonkeyNode index;
+
+    public IndexNode(MonkeyNode left, MonkeyNode index) {
+        this.left = adopt(left);
+        this.index = adopt(index);
+    }
+
+    @Override
+    public MonkeyObject execute(Environment frame) {
+        final MonkeyObject leftValue = left.execute(frame);
+        final MonkeyObject indexValue = index.execute(frame);
+
+        if (isError(leftValue)) {
+            return leftValue;
+        }
+
+        if (isError(indexValue)) {
+            return indexValue;
+        }
+
+        return Operators.evalIndexExpression(leftValue, indexValue);
+    }
+
+    @Override
+    protected void replaceChild(MonkeyNode oldChild, MonkeyNode newChild) {
+        if (left == oldChild) {
+            left = newChild;
+        } else {
+            index = newChild;
+        }
+    }
+}
@@ -0,0 +1,248 @@
+package com.warrington.monkey.nodes;
+
+import com.warrington.monkey.evaluator.Operators;
+import com.warrington.monkey.object.Environment;
+import com.warrington.monkey.object.Int;
+import com.warrington.monkey.object.MonkeyObject;
+import com.warrington.monkey.object.Str;
+
+/**
+ * Binary operator node. It starts out {@link Uninitialized}; the first execution
+ * looks at the operand types and rewrites the node into a variant that handles
+ * exactly that combination, e.g. {@link IntAdd}. Should a specialized node later
+ * see operands it does not handle, it gives up and becomes {@link Generic} for good.
+ */
+public abstract class InfixNode extends MonkeyNode {
+    protected final String operator;
+    protected MonkeyNode left;
+    protected MonkeyNode right;
+
+    private InfixNode(String operator, MonkeyNode left, MonkeyNode right) {
+        this.operator = operator;
+        this.left = adopt(left);
+        this.right = adopt(right);
+    }
+
+    public static InfixNode create(String operator, MonkeyNode left, MonkeyNode right) {
+        return new Uninitialized(operator, left, right);
+    }
+
+    @Override
+    public final MonkeyObject execute(Environment frame) {
+        final MonkeyObject leftValue = left.execute(frame);
+
+        if (isError(leftValue)) {
+            return leftValue;
+        }
+
+        final MonkeyObject rightValue = right.execute(frame);
+
+        if (isError(rightValue)) {
+            return rightValue;
+        }
+
+        return executeWith(leftValue, rightValue);
+    }
+
+    protected abstract MonkeyObject executeWith(MonkeyObject leftValue, MonkeyObject rightValue);
+
+    @Override
+    protected void replaceChild(MonkeyNode oldChild, MonkeyNode newChild) {
+        if (left == oldChild) {
+            left = newChild;
+        } else {
+            right = newChild;
+        }
+    }
+
+    protected MonkeyObject generalize(MonkeyObject leftValue, MonkeyObject rightValue) {
+        if (isReplaced()) {
+            return Operators.evalInfixExpression(operator, leftValue, rightValue);
+        }
+
+        return replace(new Generic(operator, left, right)).executeWith(leftValue, rightValue);
+    }
+
+    static final class Uninitialized extends InfixNode {
+        Uninitialized(String operator, MonkeyNode left, MonkeyNode right) {
+            super(operator, left, right);
+        }
+
+        @Override
+        protected MonkeyObject executeWith(MonkeyObject leftValue, MonkeyObject rightValue) {
+            if (isReplaced()) {
+                return Operators.evalInfixExpression(operator, leftValue, rightValue);
+            }
+
+            return replace(specialize(leftValue, rightValue)).executeWith(leftValue, rightValue);
+        }
+
+        private InfixNode specialize(MonkeyObject leftValue, MonkeyObject rightValue) {
+            if (leftValue instanceof Int && rightValue instanceof Int) {
+                return switch (operator) {
+                    case "+" -> new IntAdd(left, right);
+                    case "-" -> new IntSub(left, right);
+                    case "*" -> new IntMul(left, right);
+                    case "/" -> new IntDiv(left, right);
+                    case "<" -> new IntLessThan(left, right);
+                    case ">" -> new IntGreaterThan(left, right);
+                    case "==" -> new IntEqual(left, right);
+                    case "!=" -> new IntNotEqual(left, right);
+                    default -> new Generic(operator, left, right);
+                };
+            }
+
+            if (leftValue instanceof Str && rightValue instanceof Str && operator.equals("+")) {
+                return new StringConcat(left, right);
+            }
+
+            return new Generic(operator, left, right);
+        }
+    }
+
+    static final class Generic extends InfixNode {
+        Generic(String operator, MonkeyNode left, MonkeyNode right) {
+            super(operator, left, right);
+        }
+
+        @Override
+        protected MonkeyObject executeWith(MonkeyObject leftValue, MonkeyObject rightValue) {
+            return Operators.evalInfixExpression(operator, leftValue, rightValue);
+        }
+    }
+
+    static final class IntAdd extends InfixNode {
+        IntAdd(MonkeyNode left, MonkeyNode right) {
+            super("+", left, right);
+        }
+
+        @Override
+        protected MonkeyObject executeWith(MonkeyObject leftValue, MonkeyObject rightValue) {
+            if (leftValue instanceof Int(long l) && rightValue instanceof Int(long r)) {
+                return Int.of(l + r);
+            }
+
+            return generalize(leftValue, rightValue);
+        }
+    }
+
+    static final class IntSub extends InfixNode {
+        IntSub(MonkeyNode left, MonkeyNode right) {
+            super("-", left, right);
+        }
+
+        @Override
+        protected MonkeyObject executeWith(MonkeyObject leftValue, MonkeyObject rightValue) {
+            if (leftValue instanceof Int(long l) && rightValue instanceof Int(long r)) {
+                return Int.of(l - r);
+            }
+
+            return generalize(leftValue, rightValue);
+        }
+    }
+
+    static final class IntMul extends InfixNode {
+        IntMul(MonkeyNode left, MonkeyNode right) {
+            super("*", left, right);
+        }
+
+        @Override
+        protected MonkeyObject executeWith(MonkeyObject leftValue, MonkeyObject rightValue) {
+            if (leftValue instanceof Int(long l) && rightValue instanceof Int(long r)) {
+                return Int.of(l * r);
+            }
+
+            return generalize(leftValue, rightValue);
+        }
+    }
+
+    static final class IntDiv extends InfixNode {
+        IntDiv(MonkeyNode left, MonkeyNode right) {
+            super("/", left, right);
+        }
+
+        @Override
+        protected MonkeyObject executeWith(MonkeyObject leftValue, MonkeyObject rightValue) {
+            if (leftValue instanceof Int(long l) && rightValue instanceof Int(long r)) {
+                return Int.of(l / r);
+            }
+
+            return generalize(leftValue, rightValue);
+        }
+    }
+
+    static final class IntLessThan extends InfixNode {
+        IntLessThan(MonkeyNode left, MonkeyNode right) {
+            super("<", left, right);
+        }
+
+        @Override
+        protected MonkeyObject executeWith(MonkeyObject leftValue, MonkeyObject rightValue) {
+            if (leftValue instanceof Int(long l) && rightValue instanceof Int(long r)) {
+                return Operators.nativeBoolToBooleanObject(l < r);
+            }
+
+            return generalize(leftValue, rightValue);
+        }
+    }
+
+    static final class IntGreaterThan extends InfixNode {
+        IntGreaterThan(MonkeyNode left, MonkeyNode right) {
+            super(">", left, right);
+        }
+
+        @Override
+        protected MonkeyObject executeWith(MonkeyObject leftValue, MonkeyObject rightValue) {
+            if (leftValue instanceof Int(long l) && rightValue instanceof Int(long r)) {
+                return Operators.nativeBoolToBooleanObject(l > r);
+            }
+
+            return generalize(leftValue, rightValue);
+        }
+    }
+
+    static final class IntEqual extends InfixNode {
+        IntEqual(MonkeyNode left, MonkeyNode right) {
+            super("==", left, right);
+        }
+
+        @Override
+        protected MonkeyObject executeWith(MonkeyObject leftValue, MonkeyObject rightValue) {
+            if (leftValue instanceof Int(long l) && rightValue instanceof Int(long r)) {
+                return Operators.nativeBoolToBooleanObject(l == r);
+            }
+
+            return generalize(leftValue, rightValue);
+        }
+    }
+
+    static final class IntNotEqual extends InfixNode {
+        IntNotEqual(MonkeyNode left, MonkeyNode right) {
+            super("!=", left, right);
+        }
+
+        @Override
+        protected MonkeyObject executeWith(MonkeyObject leftValue, MonkeyObject rightValue) {
+            if (leftValue instanceof Int(long l) && rightValue instanceof Int(long r)) {
+                return Operators.nativeBoolToBooleanObject(l != r);
+            }
+
+            return generalize(leftValue, rightValue);
+        }
+    }
+
+    static final class StringConcat extends InfixNode {
+        StringConcat(MonkeyNode left, MonkeyNode right) {
+            super("+", left, right);
+        }
+
+        @Override
+        protected MonkeyObject executeWith(MonkeyObject leftValue, MonkeyObject rightValue) {
+            if (leftValue instanceof Str(String l) && rightValue instanceof Str(String r)) {
+                return new Str(l + r);
+            }
+
+            return generalize(leftValue, rightValue);
+        }
+    }
+}
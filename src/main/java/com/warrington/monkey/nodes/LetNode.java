@@ -0,0 +1,32 @@
+package com.warrington.monkey.nodes;
+
+import com.warrington.monkey.object.Environment;
+import com.warrington.monkey.object.MonkeyObject;
+
+public final class LetNode extends MonkeyNode {
+    private final int slot;
+    private MonkeyNode value;
+
+    public LetNode(int slot, MonkeyNode value) {
+        this.slot = slot;
+        this.value = adopt(value);
+    }
+
+    @Override
+    public MonkeyObject execute(Environment frame) {
+        final MonkeyObject result = value.execute(frame);
+
+        if (isError(result)) {
+            return result;
+        }
+
+        frame.set(slot, result);
+
+        return result;
+    }
+
+    @Override
+    protected void replaceChild(MonkeyNode oldChild, MonkeyNode newChild) {
+        value = newChild;
+    }
+}
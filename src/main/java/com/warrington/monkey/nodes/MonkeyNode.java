@@ -0,0 +1,68 @@
+package com.warrington.monkey.nodes;
+
+import com.warrington.monkey.object.Environment;
+import com.warrington.monkey.object.MonkeyError;
+import com.warrington.monkey.object.MonkeyObject;
+
+/**
+ * Executable counterpart of an AST node. A node may {@link #replace} itself in
+ * its parent with a variant specialized for the values it has actually seen, so
+ * the tree gradually adapts to the program running on it.
+ */
+public abstract class MonkeyNode {
+    private MonkeyNode parent;
+    private boolean replaced;
+
+    public abstract MonkeyObject execute(Environment frame);
+
+    public MonkeyNode parent() {
+        return parent;
+    }
+
+    protected final <T extends MonkeyNode> T adopt(T child) {
+        if (child != null) {
+            ((MonkeyNode) child).parent = this;
+        }
+
+        return child;
+    }
+
+    /**
+     * Swaps {@code oldChild} for {@code newChild} in whichever field of this node holds it.
+     */
+    protected void replaceChild(MonkeyNode oldChild, MonkeyNode newChild) {
+        throw new IllegalStateException("%s has no replaceable children".formatted(getClass().getSimpleName()));
+    }
+
+    protected <T extends MonkeyNode> T replace(T replacement) {
+        parent.replaceChild(this, replacement);
+        ((MonkeyNode) replacement).parent = parent;
+        replaced = true;
+
+        return replacement;
+    }
+
+    /**
+     * True once this node has been swapped out of the tree. A recursive call can
+     * specialize a node while an outer activation is still executing the old one;
+     * that activation must then finish without rewriting anything.
+     */
+    protected boolean isReplaced() {
+        return replaced;
+    }
+
+    protected static boolean isError(MonkeyObject object) {
+        return object instanceof MonkeyError;
+    }
+
+    protected static MonkeyNode[] replaceIn(MonkeyNode[] children, MonkeyNode oldChild, MonkeyNode newChild) {
+        for (int i = 0; i < children.length; i++) {
+            if (children[i] == oldChild) {
+                children[i] = newChild;
+                return children;
+            }
+        }
+
+        throw new IllegalArgumentException("not a child of this node: %s".formatted(oldChild));
+    }
+}
@@ -0,0 +1,77 @@
+package com.warrington.monkey.nodes;
+
+import com.warrington.monkey.analysis.Resolver;
+import com.warrington.monkey.ast.*;
+import com.warrington.monkey.evaluator.Evaluator;
+import com.warrington.monkey.evaluator.Operators;
+import com.warrington.monkey.object.Environment;
+import com.warrington.monkey.object.Int;
+import com.warrington.monkey.object.MonkeyFloat;
+import com.warrington.monkey.object.Str;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Turns a parsed program into an executable node tree.
+ */
+public final class NodeBuilder {
+
+    private NodeBuilder() {
+    }
+
+    public static ProgramNode build(Program program, Environment globals) {
+        Resolver.resolve(program, globals);
+
+        return new ProgramNode(buildAll(program.getStatements()));
+    }
+
+    private static MonkeyNode build(Node node) {
+        return switch (node) {
+            case ExpressionStatement es -> build(es.getExpression());
+            case BlockStatement bs -> new BlockNode(buildAll(bs.statements()));
+            case ReturnStatement rs -> new ReturnNode(build(rs.returnValue()));
+            case LetStatement ls -> new LetNode(ls.name().slot(), build(ls.value()));
+
+            case Constant c -> new ConstantNode(c.value());
+            case IntegerLiteral il -> new ConstantNode(Int.of(il.value()));
+            case FloatLiteral fl -> new ConstantNode(new MonkeyFloat(fl.value()));
+            case StringLiteral sl -> new ConstantNode(new Str(sl.value()));
+            case MonkeyBoolean mb -> new ConstantNode(Operators.nativeBoolToBooleanObject(mb.value()));
+            case PrefixExpression pe -> PrefixNode.create(pe.operator(), build(pe.right()));
+            case InfixExpression ie -> InfixNode.create(ie.operator(), build(ie.left()), build(ie.right()));
+            case IfExpression ifExpression -> new IfNode(
+                build(ifExpression.condition()),
+                build(ifExpression.consequence()),
+                ifExpression.alternative() == null ? null : build(ifExpression.alternative())
+            );
+            case Identifier i -> new ReadNode(i.value(), i.depth(), i.slot(), i.isGlobal());
+            case FunctionLiteral fl -> new FunctionNode(
+                fl,
+                fl.parameters().stream().mapToInt(Identifier::slot).toArray(),
+                build(fl.body())
+            );
+            case ArrayLiteral al -> new ArrayNode(buildAll(al.elements()));
+            case HashLiteral hl -> {
+                final var entries = List.copyOf(hl.pairs().entrySet());
+
+                yield new HashNode(
+                    buildAll(entries.stream().map(Map.Entry::getKey).toList()),
+                    buildAll(entries.stream().map(Map.Entry::getValue).toList())
+                );
+            }
+            case IndexExpression ie -> new IndexNode(build(ie.left()), build(ie.index()));
+            case CallExpression ce -> new CallNode(build(ce.function()), buildAll(ce.arguments()));
+            case WhileExpression we -> new ConstantNode(Evaluator.newError("loops are not supported by this engine"));
+            case ForExpression fe -> new ConstantNode(Evaluator.newError("loops are not supported by this engine"));
+            case AssignStatement as -> new ConstantNode(Evaluator.newError("assignment is not supported by this engine"));
+            default -> new ConstantNode(null);
+        };
+    }
+
+    private static MonkeyNode[] buildAll(List<? extends Node> nodes) {
+        return nodes.stream()
+            .map(NodeBuilder::build)
+            .toArray(MonkeyNode[]::new);
+    }
+}
@@ -0,0 +1,25 @@
+package com.warrington.monkey.nodes;
+
+import com.warrington.monkey.object.Environment;
+import com.warrington.monkey.object.MonkeyFunction;
+import com.warrington.monkey.object.MonkeyObject;
+import com.warrington.monkey.object.ObjectType;
+
+/**
+ * Runtime value of a function in the node interpreter: its executable tree plus the frame it closed over.
+ */
+public record NodeFunction(
+    FunctionNode node,
+    Environment env
+) implements MonkeyObject {
+
+    @Override
+    public ObjectType type() {
+        return ObjectType.FUNCTION;
+    }
+
+    @Override
+    public String inspect() {
+        return new MonkeyFunction(node.literal(), env).inspect();
+    }
+}
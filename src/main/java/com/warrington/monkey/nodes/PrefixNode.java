@@ -0,0 +1,90 @@
+package com.warrington.monkey.nodes;
+
+import com.warrington.monkey.evaluator.Operators;
+import com.warrington.monkey.object.Environment;
+import com.warrington.monkey.object.Int;
+import com.warrington.monkey.object.MonkeyObject;
+
+/**
+ * Unary operator node, specializing the same way as {@link InfixNode}.
+ */
+public abstract class PrefixNode extends MonkeyNode {
+    protected final String operator;
+    protected MonkeyNode right;
+
+    private PrefixNode(String operator, MonkeyNode right) {
+        this.operator = operator;
+        this.right = adopt(right);
+    }
+
+    public static PrefixNode create(String operator, MonkeyNode right) {
+        return new Uninitialized(operator, right);
+    }
+
+    @Override
+    public final MonkeyObject execute(Environment frame) {
+        final MonkeyObject value = right.execute(frame);
+
+        if (isError(value)) {
+            return value;
+        }
+
+        return executeWith(value);
+    }
+
+    protected abstract MonkeyObject executeWith(MonkeyObject value);
+
+    @Override
+    protected void replaceChild(MonkeyNode oldChild, MonkeyNode newChild) {
+        right = newChild;
+    }
+
+    static final class Uninitialized extends PrefixNode {
+        Uninitialized(String operator, MonkeyNode right) {
+            super(operator, right);
+        }
+
+        @Override
+        protected MonkeyObject executeWith(MonkeyObject value) {
+            if (isReplaced()) {
+                return Operators.evalPrefixExpression(operator, value);
+            }
+
+            final PrefixNode specialized = value instanceof Int && operator.equals("-")
+                ? new IntNegate(right)
+                : new Generic(operator, right);
+
+            return replace(specialized).executeWith(value);
+        }
+    }
+
+    static final class Generic extends PrefixNode {
+        Generic(String operator, MonkeyNode right) {
+            super(operator, right);
+        }
+
+        @Override
+        protected MonkeyObject executeWith(MonkeyObject value) {
+            return Operators.evalPrefixExpression(operator, value);
+        }
+    }
+
+    static final class IntNegate extends PrefixNode {
+        IntNegate(MonkeyNode right) {
+            super("-", right);
+        }
+
+        @Override
+        protected MonkeyObject executeWith(MonkeyObject value) {
+            if (value instanceof Int(long v)) {
+                return Int.of(-v);
+            }
+
+            if (isReplaced()) {
+                return Operators.evalPrefixExpression(operator, value);
+            }
+
+            return replace(new Generic(operator, right)).executeWith(value);
+        }
+    }
+}
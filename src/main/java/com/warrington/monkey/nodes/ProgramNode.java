@@ -0,0 +1,48 @@
+package com.warrington.monkey.nodes;
+
+import com.warrington.monkey.object.Environment;
+import com.warrington.monkey.object.MonkeyError;
+import com.warrington.monkey.object.MonkeyObject;
+import com.warrington.monkey.object.ReturnValue;
+
+import java.util.List;
+
+public final class ProgramNode extends MonkeyNode {
+    private final MonkeyNode[] statements;
+
+    public ProgramNode(MonkeyNode[] statements) {
+        this.statements = statements;
+
+        for (MonkeyNode stmt : statements) {
+            adopt(stmt);
+        }
+    }
+
+    public List<MonkeyNode> statements() {
+        return List.of(statements);
+    }
+
+    @Override
+    public MonkeyObject execute(Environment frame) {
+        MonkeyObject result = null;
+
+        for (MonkeyNode stmt : statements) {
+            result = stmt.execute(frame);
+
+            if (result instanceof ReturnValue(MonkeyObject value)) {
+                return value;
+            }
+
+            if (result instanceof MonkeyError err) {
+                return err;
+            }
+        }
+
+        return result;
+    }
+
+    @Override
+    protected void replaceChild(MonkeyNode oldChild, MonkeyNode newChild) {
+        replaceIn(statements, oldChild, newChild);
+    }
+}
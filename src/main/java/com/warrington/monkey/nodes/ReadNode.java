@@ -0,0 +1,55 @@
+package com.warrington.monkey.nodes;
+
+import com.warrington.monkey.evaluator.Builtins;
+import com.warrington.monkey.evaluator.Evaluator;
+import com.warrington.monkey.object.Environment;
+import com.warrington.monkey.object.MonkeyObject;
+
+public final class ReadNode extends MonkeyNode {
+    private final String name;
+    private final int depth;
+    private final int slot;
+    private final boolean global;
+    // What an empty global slot stands for, once looked up: a builtin or the error for an unknown name
+    private MonkeyObject unbound;
+
+    public ReadNode(String name, int depth, int slot, boolean global) {
+        this.name = name;
+        this.depth = depth;
+        this.slot = slot;
+        this.global = global;
+    }
+
+    @Override
+    public MonkeyObject execute(Environment frame) {
+        MonkeyObject value = frame.get(depth, slot);
+
+        if (value != null) {
+            return value;
+        }
+
+        if (global) {
+            if (unbound == null) {
+                final MonkeyObject builtin = Builtins.get(name);
+
+                unbound = builtin != null ? builtin : Evaluator.newError("identifier not found: %s", name);
+            }
+
+            return unbound;
+        }
+
+        value = frame.get(name);
+
+        if (value != null) {
+            return value;
+        }
+
+        final MonkeyObject builtin = Builtins.get(name);
+
+        if (builtin != null) {
+            return builtin;
+        }
+
+        return Evaluator.newError("identifier not found: %s", name);
+    }
+}
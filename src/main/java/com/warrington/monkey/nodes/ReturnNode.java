@@ -0,0 +1,29 @@
+package com.warrington.monkey.nodes;
+
+import com.warrington.monkey.object.Environment;
+import com.warrington.monkey.object.MonkeyObject;
+import com.warrington.monkey.object.ReturnValue;
+
+public final class ReturnNode extends MonkeyNode {
+    private MonkeyNode value;
+
+    public ReturnNode(MonkeyNode value) {
+        this.value = adopt(value);
+    }
+
+    @Override
+    public MonkeyObject execute(Environment frame) {
+        final MonkeyObject result = value.execute(frame);
+
+        if (isError(result)) {
+            return result;
+        }
+
+        return new ReturnValue(result);
+    }
+
+    @Override
+    protected void replaceChild(MonkeyNode oldChild, MonkeyNode newChild) {
+        value = newChild;
+    }
+}
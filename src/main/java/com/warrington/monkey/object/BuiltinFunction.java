@@ -1,8 +1,67 @@
 package com.warrington.monkey.object;
 
+import com.warrington.monkey.evaluator.Evaluator;
+
 import java.util.function.Function;
 
 public interface BuiltinFunction extends Function<MonkeyObject[], MonkeyObject> {
     @Override
     MonkeyObject apply(MonkeyObject... args);
+
+    /**
+     * Calls with a single argument, which builtins taking exactly one get without an array around it.
+     */
+    default MonkeyObject apply(MonkeyObject arg) {
+        return apply(new MonkeyObject[] {arg});
+    }
+
+    default MonkeyObject apply(MonkeyObject first, MonkeyObject second) {
+        return apply(new MonkeyObject[] {first, second});
+    }
+
+    /**
+     * A builtin of exactly one argument.
+     */
+    @FunctionalInterface
+    interface Unary extends BuiltinFunction {
+        @Override
+        MonkeyObject apply(MonkeyObject arg);
+
+        @Override
+        default MonkeyObject apply(MonkeyObject... args) {
+            if (args.length != 1) {
+                return Evaluator.newError("wrong number of arguments. got=%d, want=1", args.length);
+            }
+
+            return apply(args[0]);
+        }
+
+        @Override
+        default MonkeyObject apply(MonkeyObject first, MonkeyObject second) {
+            return Evaluator.newError("wrong number of arguments. got=2, want=1");
+        }
+    }
+
+    /**
+     * A builtin of exactly two arguments.
+     */
+    @FunctionalInterface
+    interface Binary extends BuiltinFunction {
+        @Override
+        MonkeyObject apply(MonkeyObject first, MonkeyObject second);
+
+        @Override
+        default MonkeyObject apply(MonkeyObject... args) {
+            if (args.length != 2) {
+                return Evaluator.newError("wrong number of arguments. got=%d, want=2", args.length);
+            }
+
+            return apply(args[0], args[1]);
+        }
+
+        @Override
+        default MonkeyObject apply(MonkeyObject arg) {
+            return Evaluator.newError("wrong number of arguments. got=1, want=2");
+        }
+    }
 }
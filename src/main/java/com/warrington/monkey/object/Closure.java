@@ -0,0 +1,21 @@
+package com.warrington.monkey.object;
+
+/**
+ * A compiled function together with the values of the free variables it
+ * closed over at the time it was created.
+ */
+public record Closure(
+    CompiledFunction fn,
+    MonkeyObject[] free
+) implements MonkeyObject {
+
+    @Override
+    public ObjectType type() {
+        return ObjectType.FUNCTION;
+    }
+
+    @Override
+    public String inspect() {
+        return "closure";
+    }
+}
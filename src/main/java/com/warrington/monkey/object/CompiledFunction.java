@@ -0,0 +1,26 @@
+package com.warrington.monkey.object;
+
+/**
+ * Function body produced by the compiler. Only ever lives in the constant pool;
+ * the virtual machine wraps it in a {@link Closure} before it can be called.
+ *
+ * @param instructions  bytecode of the function body
+ * @param numLocals     number of local bindings, parameters included
+ * @param numParameters number of parameters the function expects
+ */
+public record CompiledFunction(
+    byte[] instructions,
+    int numLocals,
+    int numParameters
+) implements MonkeyObject {
+
+    @Override
+    public ObjectType type() {
+        return ObjectType.COMPILED_FUNCTION;
+    }
+
+    @Override
+    public String inspect() {
+        return "compiled function";
+    }
+}
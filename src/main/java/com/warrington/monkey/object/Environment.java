@@ -1,14 +1,159 @@
 package com.warrington.monkey.object;
 
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
+/**
+ * A frame of bindings stored in a plain array indexed by slot. Slots are assigned
+ * ahead of time by the resolver, so lookups are array loads rather than hash lookups.
+ * <p>
+ * The outermost environment holds the globals and can keep growing, e.g. as a
+ * REPL session defines new names. Function frames have a fixed set of slots.
+ */
 public class Environment {
-    private final Map<String, MonkeyObject> store = new HashMap<>();
-    private Environment outer = null;
+    private Environment outer;
+    private List<String> slotNames;
+    private final Map<String, Integer> globalSlots;
+    // Also only in the global environment: the one closure made against it of each function
+    // literal that captures nothing, by what the engine made it from
+    private final Map<Object, MonkeyObject> hoisted;
+    private MonkeyObject[] slots;
+    // Whether a return statement of the call running in this frame has run, set by the evaluator
+    private boolean returned;
 
+    public Environment() {
+        this.outer = null;
+        this.slotNames = new ArrayList<>();
+        this.globalSlots = new HashMap<>();
+        this.hoisted = new ConcurrentHashMap<>();
+        this.slots = new MonkeyObject[16];
+    }
+
+    public Environment(Environment outer, List<String> slotNames) {
+        this.outer = outer;
+        this.slotNames = slotNames;
+        this.globalSlots = null;
+        this.hoisted = null;
+        this.slots = new MonkeyObject[slotNames.size()];
+    }
+
+    /**
+     * The closure of {@code function} kept by {@link #hoist} against the globals this frame
+     * runs in, or null.
+     */
+    public MonkeyObject hoisted(Object function) {
+        return globals().hoisted.get(function);
+    }
+
+    /**
+     * Keeps {@code closure} as the one closure of {@code function} for as long as the globals this
+     * frame runs in, so programs run against other globals make their own.
+     */
+    public MonkeyObject hoist(Object function, MonkeyObject closure) {
+        globals().hoisted.put(function, closure);
+
+        return closure;
+    }
+
+    private Environment globals() {
+        Environment env = this;
+
+        while (env.outer != null) {
+            env = env.outer;
+        }
+
+        return env;
+    }
+
+    /**
+     * What a closure made in this frame keeps of it: a copy holding only the {@code captured}
+     * slots, with the same outer frame, or this frame itself if {@code captured} is null or
+     * this is the global environment. The copy keeps the slot layout, so resolved addresses
+     * stay valid.
+     */
+    public Environment capture(int[] captured) {
+        if (captured == null || outer == null) {
+            return this;
+        }
+
+        final var copy = new Environment(outer, slotNames);
+
+        for (int slot : captured) {
+            copy.slots[slot] = slots[slot];
+        }
+
+        return copy;
+    }
+
+    /**
+     * Makes a function frame given back after an earlier call the frame of a new one, with the
+     * same number of slots. The slots have to be empty already.
+     */
+    public void reuse(Environment outer, List<String> slotNames) {
+        this.outer = outer;
+        this.slotNames = slotNames;
+    }
+
+    /**
+     * Empties every slot, so a frame kept for reuse holds on to no values.
+     */
+    public void clear() {
+        Arrays.fill(slots, null);
+        returned = false;
+    }
+
+    public boolean returned() {
+        return returned;
+    }
+
+    /**
+     * Records that the call running in this frame has returned, and with what.
+     */
+    public MonkeyObject markReturned(MonkeyObject value) {
+        returned = true;
+
+        return value;
+    }
+
+    public int size() {
+        return slots.length;
+    }
+
+    public MonkeyObject get(int depth, int slot) {
+        Environment env = this;
+
+        for (int i = 0; i < depth; i++) {
+            env = env.outer;
+        }
+
+        return env.slots[slot];
+    }
+
+    public void set(int slot, MonkeyObject object) {
+        slots[slot] = object;
+    }
+
+    public void set(int depth, int slot, MonkeyObject object) {
+        Environment env = this;
+
+        for (int i = 0; i < depth; i++) {
+            env = env.outer;
+        }
+
+        env.slots[slot] = object;
+    }
+
+    /**
+     * Looks a name up without a resolved address, walking outwards until a frame has a value for it.
+     */
     public MonkeyObject get(String name) {
-        MonkeyObject candidate = store.get(name);
+        final int slot = slotOf(name);
+
+        MonkeyObject candidate = slot >= 0 ? slots[slot] : null;
 
         if (candidate == null && outer != null) {
             candidate = outer.get(name);
@@ -17,17 +162,74 @@ public class Environment {
         return candidate;
     }
 
+    /**
+     * Gives a name without a resolved address a new value in the innermost frame that has a
+     * value for it, the one {@link #get(String)} would find. Returns false if there is none.
+     */
+    public boolean assign(String name, MonkeyObject object) {
+        for (Environment env = this; env != null; env = env.outer) {
+            final int slot = env.slotOf(name);
+
+            if (slot >= 0 && env.slots[slot] != null) {
+                env.slots[slot] = object;
+
+                return true;
+            }
+        }
+
+        return false;
+    }
+
     public MonkeyObject set(String key, MonkeyObject object) {
-        store.put(key, object);
+        final int slot = outer == null ? declare(key) : slotOf(key);
+
+        if (slot < 0) {
+            throw new IllegalArgumentException("no slot for '%s' in this frame".formatted(key));
+        }
+
+        slots[slot] = object;
 
         return object;
     }
 
-    public Environment newEnclosed() {
-        final var inner = new Environment();
+    /**
+     * Names bound in this frame, in slot order.
+     */
+    public List<String> names() {
+        return List.copyOf(slotNames);
+    }
+
+    /**
+     * Returns the slot of a global binding, allocating an empty one if the name is new.
+     */
+    public int declare(String name) {
+        if (outer != null) {
+            throw new IllegalStateException("only the global environment can declare new names");
+        }
+
+        final Integer existing = globalSlots.get(name);
+
+        if (existing != null) {
+            return existing;
+        }
+
+        final int slot = slotNames.size();
+
+        slotNames.add(name);
+        globalSlots.put(name, slot);
+
+        if (slot == slots.length) {
+            slots = Arrays.copyOf(slots, slots.length * 2);
+        }
+
+        return slot;
+    }
 
-        inner.outer = this;
+    private int slotOf(String name) {
+        if (globalSlots != null) {
+            return globalSlots.getOrDefault(name, -1);
+        }
 
-        return inner;
+        return slotNames.indexOf(name);
     }
 }
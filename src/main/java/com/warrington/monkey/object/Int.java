@@ -6,6 +6,31 @@ package com.warrington.monkey.object;
  * @param value this is a long since it is intended to be 64 bit
  */
 public record Int(long value) implements MonkeyObject, Hashable {
+    /**
+     * Smallest and largest value {@link #of(long)} hands out a shared instance for, from the
+     * {@code monkey.intcache.min} and {@code monkey.intcache.max} system properties.
+     */
+    public static final int CACHE_MIN = Integer.getInteger("monkey.intcache.min", -128);
+    public static final int CACHE_MAX = Integer.getInteger("monkey.intcache.max", 1024);
+
+    private static final Int[] CACHE = new Int[Math.max(0, CACHE_MAX - CACHE_MIN + 1)];
+
+    static {
+        for (int i = 0; i < CACHE.length; i++) {
+            CACHE[i] = new Int(CACHE_MIN + i);
+        }
+    }
+
+    /**
+     * An Int for {@code value}, the shared one if it is within the cached range.
+     */
+    public static Int of(long value) {
+        if (value >= CACHE_MIN && value <= CACHE_MAX) {
+            return CACHE[(int) (value - CACHE_MIN)];
+        }
+
+        return new Int(value);
+    }
 
     @Override
     public ObjectType type() {
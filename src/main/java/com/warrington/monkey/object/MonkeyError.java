@@ -1,6 +1,33 @@
 package com.warrington.monkey.object;
 
-public record MonkeyError(String message) implements MonkeyObject {
+/**
+ * An error value. It keeps the format and arguments it was made from and renders the
+ * message only once something asks for it, since a program that tests for failure and
+ * carries on never looks at most of its errors.
+ */
+public final class MonkeyError implements MonkeyObject {
+    private final String format;
+    private final Object[] arguments;
+    private String message;
+
+    public MonkeyError(String message) {
+        this.format = message;
+        this.arguments = null;
+        this.message = message;
+    }
+
+    public MonkeyError(String format, Object... arguments) {
+        this.format = format;
+        this.arguments = arguments;
+    }
+
+    public String message() {
+        if (message == null) {
+            message = format.formatted(arguments);
+        }
+
+        return message;
+    }
 
     @Override
     public ObjectType type() {
@@ -9,6 +36,21 @@ public record MonkeyError(String message) implements MonkeyObject {
 
     @Override
     public String inspect() {
-        return "ERROR: %s".formatted(message);
+        return "ERROR: %s".formatted(message());
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        return o instanceof MonkeyError other && message().equals(other.message());
+    }
+
+    @Override
+    public int hashCode() {
+        return message().hashCode();
+    }
+
+    @Override
+    public String toString() {
+        return "MonkeyError[message=%s]".formatted(message());
     }
 }
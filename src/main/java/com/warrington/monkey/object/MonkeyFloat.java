@@ -0,0 +1,20 @@
+package com.warrington.monkey.object;
+
+/**
+ * Representation of a double precision floating point number in Monkey
+ */
+public record MonkeyFloat(double value) implements MonkeyObject, Hashable {
+    @Override
+    public ObjectType type() {
+        return ObjectType.FLOAT;
+    }
+
+    @Override
+    public String inspect() {
+        return Double.toString(value);
+    }
+
+    public HashKey hashKey() {
+        return new HashKey(ObjectType.FLOAT, Double.hashCode(this.value));
+    }
+}
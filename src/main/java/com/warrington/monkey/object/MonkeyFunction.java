@@ -1,17 +1,25 @@
 package com.warrington.monkey.object;
 
 import com.warrington.monkey.ast.BlockStatement;
+import com.warrington.monkey.ast.FunctionLiteral;
 import com.warrington.monkey.ast.Identifier;
 
 import java.util.ArrayList;
 import java.util.List;
 
 public record MonkeyFunction(
-    List<Identifier> parameters,
-    BlockStatement body,
+    FunctionLiteral literal,
     Environment env
 ) implements MonkeyObject {
 
+    public List<Identifier> parameters() {
+        return literal.parameters();
+    }
+
+    public BlockStatement body() {
+        return literal.body();
+    }
+
     @Override
     public ObjectType type() {
         return ObjectType.FUNCTION;
@@ -22,7 +30,9 @@ public record MonkeyFunction(
         final var b = new StringBuilder();
         final var params = new ArrayList<String>();
 
-        for (Identifier ident : parameters) {
+        final FunctionLiteral written = literal.written();
+
+        for (Identifier ident : written.parameters()) {
             params.add(ident.toString());
         }
 
@@ -30,7 +40,7 @@ public record MonkeyFunction(
         b.append("(");
         b.append(String.join(", ", params));
         b.append(") {\n");
-        b.append(body.toString());
+        b.append(written.body().toString());
         b.append("\n}");
 
         return b.toString();
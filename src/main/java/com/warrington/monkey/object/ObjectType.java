@@ -2,6 +2,7 @@ package com.warrington.monkey.object;
 
 public enum ObjectType {
     INTEGER,
+    FLOAT,
     BOOLEAN,
     NULL,
     RETURN_VALUE,
@@ -10,5 +11,7 @@ public enum ObjectType {
     STRING,
     BUILTIN,
     ARRAY,
-    HASH
+    HASH,
+    COMPILED_FUNCTION,
+    TAIL_CALL
 }
@@ -0,0 +1,30 @@
+package com.warrington.monkey.object;
+
+/**
+ * A call in tail position that has not been made yet. The function that produced it
+ * returns this instead, and the caller's trampoline makes the call without its frame
+ * still on the stack.
+ *
+ * @param frame the callee's frame with the arguments already in place, in which case
+ *              {@code arguments} is null, or null to make the call with {@code arguments}
+ */
+public record TailCall(
+    MonkeyObject function,
+    MonkeyObject[] arguments,
+    Environment frame
+) implements MonkeyObject {
+
+    public TailCall(MonkeyObject function, MonkeyObject[] arguments) {
+        this(function, arguments, null);
+    }
+
+    @Override
+    public ObjectType type() {
+        return ObjectType.TAIL_CALL;
+    }
+
+    @Override
+    public String inspect() {
+        return "tail call";
+    }
+}
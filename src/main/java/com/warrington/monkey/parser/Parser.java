@@ -32,12 +32,15 @@ public class Parser {
 
         registerPrefix(IDENT, this::parseIdentifier);
         registerPrefix(INT, this::parseIntegerLiteral);
+        registerPrefix(FLOAT, this::parseFloatLiteral);
         registerPrefix(BANG, this::parsePrefixExpression);
         registerPrefix(MINUS, this::parsePrefixExpression);
         registerPrefix(TRUE, this::parseBoolean);
         registerPrefix(FALSE, this::parseBoolean);
         registerPrefix(LPAREN, this::parseGroupedExpression);
         registerPrefix(IF, this::parseIfExpression);
+        registerPrefix(WHILE, this::parseWhileExpression);
+        registerPrefix(FOR, this::parseForExpression);
         registerPrefix(FUNCTION, this::parseFunctionLiteral);
         registerPrefix(STRING, this::parseStringLiteral);
         registerPrefix(LBRACKET, this::parseArrayLiteral);
@@ -102,6 +105,7 @@ public class Parser {
         return switch (curToken.type()) {
             case LET -> parseLetStatement();
             case RETURN -> parseReturnStatement();
+            case IDENT -> peekTokenIs(ASSIGN) ? parseAssignStatement() : parseExpressionStatement();
             default -> parseExpressionStatement();
         };
     }
@@ -133,6 +137,24 @@ public class Parser {
         return new LetStatement(startToken, name, value);
     }
 
+    private Statement parseAssignStatement() {
+        final var name = new Identifier(curToken);
+
+        nextToken();
+
+        final Token assignToken = curToken;
+
+        nextToken();
+
+        final Expression value = parseExpression(Precedence.LOWEST);
+
+        if (peekTokenIs(SEMICOLON)) {
+            nextToken();
+        }
+
+        return new AssignStatement(assignToken, name, value);
+    }
+
     private Expression parseGroupedExpression() {
         nextToken();
 
@@ -248,6 +270,20 @@ public class Parser {
         return new IntegerLiteral(curToken, value);
     }
 
+    private Expression parseFloatLiteral() {
+        double value;
+
+        try {
+            value = Double.parseDouble(curToken.literal());
+        } catch (NumberFormatException ex) {
+            errors.add("could not parse %s as float (double)".formatted(curToken.literal()));
+
+            return null;
+        }
+
+        return new FloatLiteral(curToken, value);
+    }
+
     private void noPrefixParseFnError(TokenType tokenType) {
         var message = "no prefix parse function for %s found".formatted(tokenType);
 
@@ -415,6 +451,60 @@ public class Parser {
         return new IfExpression(ifToken, condition, consequence, alternative);
     }
 
+    private Expression parseWhileExpression() {
+        assert curTokenIs(WHILE) : "While expressions should start with 'while'. got='%s'".formatted(curToken.literal());
+
+        final var whileToken = curToken;
+
+        if (!expectPeek(LPAREN)) {
+            return null;
+        }
+
+        nextToken();
+
+        Expression condition = parseExpression(Precedence.LOWEST);
+
+        if (!expectPeek(RPAREN)) {
+            return null;
+        }
+
+        if (!expectPeek(LSQUIRLY)) {
+            return null;
+        }
+
+        return new WhileExpression(whileToken, condition, parseBlockStatement());
+    }
+
+    private Expression parseForExpression() {
+        assert curTokenIs(FOR) : "For expressions should start with 'for'. got='%s'".formatted(curToken.literal());
+
+        final var forToken = curToken;
+
+        if (!expectPeek(LPAREN) || !expectPeek(IDENT)) {
+            return null;
+        }
+
+        final var variable = new Identifier(curToken);
+
+        if (!expectPeek(IN)) {
+            return null;
+        }
+
+        nextToken();
+
+        Expression iterable = parseExpression(Precedence.LOWEST);
+
+        if (!expectPeek(RPAREN)) {
+            return null;
+        }
+
+        if (!expectPeek(LSQUIRLY)) {
+            return null;
+        }
+
+        return new ForExpression(forToken, variable, iterable, parseBlockStatement());
+    }
+
     private BlockStatement parseBlockStatement() {
         assert curTokenIs(LSQUIRLY) : "Block statements should start with '{'. got='%s'".formatted(curToken.literal());
         final var startToken = curToken;
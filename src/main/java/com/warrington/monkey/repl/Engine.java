@@ -0,0 +1,104 @@
+package com.warrington.monkey.repl;
+
+import com.warrington.monkey.ast.Program;
+import com.warrington.monkey.compiler.Compiler;
+import com.warrington.monkey.compiler.SymbolTable;
+import com.warrington.monkey.evaluator.Evaluator;
+import com.warrington.monkey.heap.HeapEvaluator;
+import com.warrington.monkey.lambda.LambdaCompiler;
+import com.warrington.monkey.nodes.NodeBuilder;
+import com.warrington.monkey.object.Environment;
+import com.warrington.monkey.object.MonkeyError;
+import com.warrington.monkey.object.MonkeyObject;
+import com.warrington.monkey.vm.Vm;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The available ways of executing a parsed program.
+ */
+public enum Engine {
+    /**
+     * Tree-walking interpreter working directly on the AST.
+     */
+    EVALUATOR {
+        @Override
+        public Session newSession() {
+            final var env = new Environment();
+
+            return program -> Evaluator.eval(program, env);
+        }
+    },
+
+    /**
+     * Walks the AST like {@link #EVALUATOR} but keeps its stack on the heap, so recursion depth is not bound by the thread's stack.
+     */
+    HEAP {
+        @Override
+        public Session newSession() {
+            final var env = new Environment();
+            final var evaluator = new HeapEvaluator();
+
+            return program -> evaluator.eval(program, env);
+        }
+    },
+
+    /**
+     * Builds a tree of executable nodes that specialize themselves on the operand types they observe.
+     */
+    NODES {
+        @Override
+        public Session newSession() {
+            final var env = new Environment();
+
+            return program -> NodeBuilder.build(program, env).execute(env);
+        }
+    },
+
+    /**
+     * Compiles each program once into nested Java lambdas with operators and builtins already bound.
+     */
+    LAMBDA {
+        @Override
+        public Session newSession() {
+            final var env = new Environment();
+
+            return program -> LambdaCompiler.compile(program, env).run(env);
+        }
+    },
+
+    /**
+     * Compiles to bytecode first and runs it on the stack based virtual machine.
+     */
+    VM {
+        @Override
+        public Session newSession() {
+            final SymbolTable symbolTable = Compiler.newGlobalSymbolTable();
+            final List<MonkeyObject> constants = new ArrayList<>();
+            final var globals = new MonkeyObject[Vm.GLOBALS_SIZE];
+
+            return program -> {
+                final var compiler = new Compiler(symbolTable, constants);
+
+                compiler.compile(program);
+
+                if (!compiler.errors().isEmpty()) {
+                    return new MonkeyError(String.join("; ", compiler.errors()));
+                }
+
+                return new Vm(compiler.bytecode(), globals).run();
+            };
+        }
+    };
+
+    /**
+     * Starts a fresh set of global bindings that is shared by every program run in it.
+     */
+    public abstract Session newSession();
+
+    @FunctionalInterface
+    public interface Session {
+        MonkeyObject run(Program program);
+    }
+}
@@ -3,10 +3,14 @@ package com.warrington.monkey.repl;
 import java.util.List;
 import java.util.Scanner;
 
+import com.warrington.monkey.analysis.Inliner;
+import com.warrington.monkey.analysis.Nodes;
+import com.warrington.monkey.analysis.Optimizer;
+import com.warrington.monkey.analysis.Specializer;
+import com.warrington.monkey.ast.CallExpression;
+import com.warrington.monkey.ast.Node;
 import com.warrington.monkey.ast.Program;
-import com.warrington.monkey.evaluator.Evaluator;
 import com.warrington.monkey.lexer.Lexer;
-import com.warrington.monkey.object.Environment;
 import com.warrington.monkey.object.MonkeyObject;
 import com.warrington.monkey.parser.Parser;
 import com.warrington.monkey.token.Token;
@@ -14,13 +18,19 @@ import com.warrington.monkey.token.TokenType;
 
 public class Repl {
     private static final String PROMPT = ">> ";
+    private static final boolean INLINE_REPORT = Boolean.getBoolean("monkey.inline.report");
+    private static final boolean CALLSITE_REPORT = Boolean.getBoolean("monkey.callsite.report");
 
     private Repl() {
     }
 
     public static void start() {
+        start(Engine.EVALUATOR);
+    }
+
+    public static void start(Engine engine) {
         try (Scanner scanner = new Scanner(System.in)) {
-            Environment env = new Environment();
+            final Engine.Session session = engine.newSession();
 
             while (true) {
                 System.out.print(PROMPT);
@@ -41,7 +51,17 @@ public class Repl {
                     continue;
                 }
 
-                final MonkeyObject evaluated = Evaluator.eval(program, env);
+                final var inliner = Inliner.forSession();
+                final Program optimized = Optimizer.optimize(Specializer.forSession().specialize(inliner.inline(program)));
+                final MonkeyObject evaluated = session.run(optimized);
+
+                if (INLINE_REPORT) {
+                    inliner.inlined().forEach(System.err::println);
+                }
+
+                if (CALLSITE_REPORT) {
+                    printCallSites(optimized);
+                }
 
                 if (evaluated != null) {
                     System.out.println(evaluated.inspect());
@@ -50,6 +70,17 @@ public class Repl {
         }
     }
 
+    /**
+     * Prints the cache statistics of every call site in {@code node} the evaluator has called through.
+     */
+    private static void printCallSites(Node node) {
+        if (node instanceof CallExpression ce && ce.callSite().hits() + ce.callSite().misses() > 0) {
+            System.err.printf("%s: %s%n", ce, ce.callSite());
+        }
+
+        Nodes.children(node).forEach(Repl::printCallSites);
+    }
+
     public static void startParser() {
         try (Scanner scanner = new Scanner(System.in)) {
             while (true) {
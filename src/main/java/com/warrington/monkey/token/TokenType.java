@@ -7,6 +7,7 @@ public enum TokenType {
     EOF("EOF"),
     IDENT("IDENT"),
     INT("INT"),
+    FLOAT("FLOAT"),
     STRING("STRING"),
     ASSIGN("="),
     PLUS("+"),
@@ -35,7 +36,10 @@ public enum TokenType {
     FALSE("FALSE"),
     IF("IF"),
     ELSE("ELSE"),
-    RETURN("RETURN");
+    RETURN("RETURN"),
+    WHILE("WHILE"),
+    FOR("FOR"),
+    IN("IN");
 
     public final String literalValue;
 
@@ -54,5 +58,8 @@ public enum TokenType {
             "false", FALSE,
             "if", IF,
             "else", ELSE,
-            "return", RETURN);
+            "return", RETURN,
+            "while", WHILE,
+            "for", FOR,
+            "in", IN);
 }
@@ -0,0 +1,28 @@
+package com.warrington.monkey.vm;
+
+import com.warrington.monkey.object.MonkeyObject;
+import com.warrington.monkey.object.ObjectType;
+
+/**
+ * A local of a function that closures made in it keep, shared between the frame and the
+ * closures so each sees what the others bind. Only ever sits in a frame's local slot or a
+ * closure's free variables; Monkey code only sees what it holds.
+ */
+final class Cell implements MonkeyObject {
+    // Null until a let binds it
+    MonkeyObject value;
+
+    Cell(MonkeyObject value) {
+        this.value = value;
+    }
+
+    @Override
+    public ObjectType type() {
+        return value.type();
+    }
+
+    @Override
+    public String inspect() {
+        return value.inspect();
+    }
+}
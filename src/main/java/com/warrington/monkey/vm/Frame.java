@@ -0,0 +1,22 @@
+package com.warrington.monkey.vm;
+
+import com.warrington.monkey.object.Closure;
+
+/**
+ * Activation record of a single closure call. Locals live on the VM stack,
+ * starting at {@code basePointer}.
+ */
+class Frame {
+    final Closure closure;
+    final int basePointer;
+    int ip;
+
+    Frame(Closure closure, int basePointer) {
+        this.closure = closure;
+        this.basePointer = basePointer;
+    }
+
+    byte[] instructions() {
+        return closure.fn().instructions();
+    }
+}
@@ -0,0 +1,406 @@
+package com.warrington.monkey.vm;
+
+import com.warrington.monkey.compiler.Bytecode;
+import com.warrington.monkey.compiler.Opcode;
+import com.warrington.monkey.evaluator.Builtins;
+import com.warrington.monkey.evaluator.Operators;
+import com.warrington.monkey.object.*;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+
+import static com.warrington.monkey.compiler.Instructions.readUint16;
+import static com.warrington.monkey.compiler.Instructions.readUint8;
+import static com.warrington.monkey.evaluator.Evaluator.NULL;
+import static com.warrington.monkey.evaluator.Evaluator.newError;
+
+/**
+ * Stack based virtual machine executing {@link Bytecode} produced by the
+ * {@link com.warrington.monkey.compiler.Compiler}.
+ */
+public class Vm {
+    public static final int GLOBALS_SIZE = 65536;
+    public static final int MAX_FRAMES = 65536;
+
+    private static final int INITIAL_STACK_SIZE = 2048;
+    private static final int INITIAL_FRAMES = 256;
+
+    private static final MonkeyObject TRUE = Operators.nativeBoolToBooleanObject(true);
+    private static final MonkeyObject FALSE = Operators.nativeBoolToBooleanObject(false);
+
+    private static final Builtin[] builtins = Builtins.names().stream()
+        .map(Builtins::get)
+        .toArray(Builtin[]::new);
+
+    private final MonkeyObject[] constants;
+    private final MonkeyObject[] globals;
+
+    private MonkeyObject[] stack = new MonkeyObject[INITIAL_STACK_SIZE];
+    // Always points to the next free slot. Top of stack is stack[sp - 1]
+    private int sp = 0;
+
+    private Frame[] frames = new Frame[INITIAL_FRAMES];
+    private int framesIndex = 0;
+
+    private MonkeyObject lastPopped;
+
+    public Vm(Bytecode bytecode) {
+        this(bytecode, new MonkeyObject[GLOBALS_SIZE]);
+    }
+
+    /**
+     * Runs against an existing globals store, so that a REPL session keeps its bindings between lines.
+     */
+    public Vm(Bytecode bytecode, MonkeyObject[] globals) {
+        this.constants = bytecode.constants().toArray(new MonkeyObject[0]);
+        this.globals = globals;
+
+        final var mainFn = new CompiledFunction(bytecode.instructions(), 0, 0);
+
+        pushFrame(new Frame(new Closure(mainFn, new MonkeyObject[0]), 0));
+    }
+
+    public MonkeyObject lastPoppedStackElem() {
+        return lastPopped;
+    }
+
+    /**
+     * Executes the program until it finishes or fails.
+     *
+     * @return the value of the last expression statement, or the {@link MonkeyError} that halted the machine
+     */
+    public MonkeyObject run() {
+        Frame frame = frames[framesIndex - 1];
+        byte[] ins = frame.instructions();
+        int ip = frame.ip;
+
+        while (ip < ins.length) {
+            final Opcode op = Opcode.lookup(ins[ip]);
+
+            switch (op) {
+                case CONSTANT -> {
+                    push(constants[readUint16(ins, ip + 1)]);
+                    ip += 3;
+                }
+                case POP -> {
+                    lastPopped = stack[--sp];
+                    ip += 1;
+                }
+                case ADD, SUB, MUL, DIV, EQUAL, NOT_EQUAL, GREATER_THAN, LESS_THAN -> {
+                    final MonkeyObject right = stack[--sp];
+                    final MonkeyObject left = stack[--sp];
+                    final MonkeyObject result = executeBinaryOperation(op, left, right);
+
+                    if (result instanceof MonkeyError) {
+                        return result;
+                    }
+
+                    push(result);
+                    ip += 1;
+                }
+                case MINUS, BANG -> {
+                    final MonkeyObject result = Operators.evalPrefixExpression(op == Opcode.MINUS ? "-" : "!", stack[--sp]);
+
+                    if (result instanceof MonkeyError) {
+                        return result;
+                    }
+
+                    push(result);
+                    ip += 1;
+                }
+                case TRUE -> {
+                    push(TRUE);
+                    ip += 1;
+                }
+                case FALSE -> {
+                    push(FALSE);
+                    ip += 1;
+                }
+                case NULL -> {
+                    push(NULL);
+                    ip += 1;
+                }
+                case JUMP -> ip = readUint16(ins, ip + 1);
+                case JUMP_IF_BOUND -> {
+                    if (stack[sp - 1] != null) {
+                        ip = readUint16(ins, ip + 1);
+                    } else {
+                        sp--;
+                        ip += 3;
+                    }
+                }
+                case JUMP_IF_RETURNED -> ip = stack[sp - 1] instanceof ReturnValue ? readUint16(ins, ip + 1) : ip + 3;
+                case JUMP_NOT_TRUTHY -> {
+                    final MonkeyObject condition = stack[--sp];
+
+                    if (Operators.isTruthy(condition)) {
+                        ip += 3;
+                    } else {
+                        ip = readUint16(ins, ip + 1);
+                    }
+                }
+                case GET_GLOBAL -> {
+                    final MonkeyObject value = globals[readUint16(ins, ip + 1)];
+
+                    push(value == null ? NULL : value);
+                    ip += 3;
+                }
+                case SET_GLOBAL -> {
+                    globals[readUint16(ins, ip + 1)] = stack[--sp];
+                    ip += 3;
+                }
+                case GET_LOCAL -> {
+                    push(stack[frame.basePointer + readUint8(ins, ip + 1)]);
+                    ip += 2;
+                }
+                case SET_LOCAL -> {
+                    stack[frame.basePointer + readUint8(ins, ip + 1)] = stack[--sp];
+                    ip += 2;
+                }
+                case GET_BUILTIN -> {
+                    push(builtins[readUint8(ins, ip + 1)]);
+                    ip += 2;
+                }
+                case GET_FREE -> {
+                    final MonkeyObject free = frame.closure.free()[readUint8(ins, ip + 1)];
+
+                    push(free instanceof Cell cell ? cell.value : free);
+                    ip += 2;
+                }
+                case GET_FREE_CELL -> {
+                    push(frame.closure.free()[readUint8(ins, ip + 1)]);
+                    ip += 2;
+                }
+                case CELL -> {
+                    final int local = frame.basePointer + readUint8(ins, ip + 1);
+
+                    stack[local] = new Cell(stack[local]);
+                    ip += 2;
+                }
+                case GET_CELL -> {
+                    push(((Cell) stack[frame.basePointer + readUint8(ins, ip + 1)]).value);
+                    ip += 2;
+                }
+                case SET_CELL -> {
+                    ((Cell) stack[frame.basePointer + readUint8(ins, ip + 1)]).value = stack[--sp];
+                    ip += 2;
+                }
+                case UNBOUND -> {
+                    return newError("identifier not found: %s", constants[readUint16(ins, ip + 1)].inspect());
+                }
+                case CURRENT_CLOSURE -> {
+                    push(frame.closure);
+                    ip += 1;
+                }
+                case ARRAY -> {
+                    final int numElements = readUint16(ins, ip + 1);
+                    final MonkeyObject[] elements = Arrays.copyOfRange(stack, sp - numElements, sp);
+
+                    sp -= numElements;
+                    push(new Array(Collections.unmodifiableList(Arrays.asList(elements))));
+                    ip += 3;
+                }
+                case HASH -> {
+                    final int numElements = readUint16(ins, ip + 1);
+                    final MonkeyObject hash = buildHash(sp - numElements, sp);
+
+                    if (hash instanceof MonkeyError) {
+                        return hash;
+                    }
+
+                    sp -= numElements;
+                    push(hash);
+                    ip += 3;
+                }
+                case INDEX -> {
+                    final MonkeyObject index = stack[--sp];
+                    final MonkeyObject left = stack[--sp];
+                    final MonkeyObject result = Operators.evalIndexExpression(left, index);
+
+                    if (result instanceof MonkeyError) {
+                        return result;
+                    }
+
+                    push(result);
+                    ip += 1;
+                }
+                case CALL -> {
+                    final int numArgs = readUint8(ins, ip + 1);
+
+                    frame.ip = ip + 2;
+
+                    final MonkeyObject error = executeCall(numArgs);
+
+                    if (error != null) {
+                        return error;
+                    }
+
+                    frame = frames[framesIndex - 1];
+                    ins = frame.instructions();
+                    ip = frame.ip;
+                }
+                case WRAP_RETURN -> {
+                    stack[sp - 1] = new ReturnValue(stack[sp - 1]);
+                    ip += 1;
+                }
+                case RETURN_VALUE, RETURN, RETURN_IF_WRAPPED -> {
+                    if (op == Opcode.RETURN_IF_WRAPPED && !(stack[sp - 1] instanceof ReturnValue)) {
+                        ip += 1;
+                        continue;
+                    }
+
+                    final MonkeyObject returnValue = switch (op) {
+                        case RETURN -> NULL;
+                        case RETURN_IF_WRAPPED -> ((ReturnValue) stack[--sp]).value();
+                        default -> stack[--sp];
+                    };
+
+                    // A return statement outside of any function ends the whole program
+                    if (framesIndex == 1) {
+                        lastPopped = returnValue;
+                        return returnValue;
+                    }
+
+                    framesIndex--;
+                    sp = frame.basePointer - 1;
+                    push(returnValue);
+
+                    frame = frames[framesIndex - 1];
+                    ins = frame.instructions();
+                    ip = frame.ip;
+                }
+                case CLOSURE -> {
+                    final var fn = (CompiledFunction) constants[readUint16(ins, ip + 1)];
+                    final int numFree = readUint8(ins, ip + 3);
+                    final MonkeyObject[] free = Arrays.copyOfRange(stack, sp - numFree, sp);
+
+                    sp -= numFree;
+                    push(new Closure(fn, free));
+                    ip += 4;
+                }
+            }
+        }
+
+        frame.ip = ip;
+
+        return lastPopped;
+    }
+
+    private MonkeyObject executeCall(int numArgs) {
+        final MonkeyObject callee = stack[sp - 1 - numArgs];
+
+        return switch (callee) {
+            case Closure cl -> callClosure(cl, numArgs);
+            case Builtin b -> callBuiltin(b, numArgs);
+            default -> newError("not a function: %s", callee.type());
+        };
+    }
+
+    private MonkeyObject callClosure(Closure cl, int numArgs) {
+        final CompiledFunction fn = cl.fn();
+
+        if (numArgs < fn.numParameters()) {
+            return newError("wrong number of arguments. got=%d, want=%d", numArgs, fn.numParameters());
+        }
+
+        if (framesIndex == MAX_FRAMES) {
+            return newError("stack overflow: more than %d nested calls", MAX_FRAMES);
+        }
+
+        final int basePointer = sp - numArgs;
+
+        ensureStackCapacity(basePointer + fn.numLocals());
+        // Lets without a value yet (e.g. in an if branch that never ran) are null, which reading them
+        // checks for. Arguments past the parameters were evaluated like the others, their values go nowhere.
+        Arrays.fill(stack, basePointer + fn.numParameters(), basePointer + fn.numLocals(), null);
+
+        pushFrame(new Frame(cl, basePointer));
+        sp = basePointer + fn.numLocals();
+
+        return null;
+    }
+
+    private MonkeyObject callBuiltin(Builtin builtin, int numArgs) {
+        final MonkeyObject[] args = Arrays.copyOfRange(stack, sp - numArgs, sp);
+        final MonkeyObject result = builtin.func().apply(args);
+
+        if (result instanceof MonkeyError) {
+            return result;
+        }
+
+        sp = sp - numArgs - 1;
+        push(result);
+
+        return null;
+    }
+
+    private MonkeyObject executeBinaryOperation(Opcode op, MonkeyObject left, MonkeyObject right) {
+        if (left instanceof Int(long l) && right instanceof Int(long r)) {
+            return switch (op) {
+                case ADD -> Int.of(l + r);
+                case SUB -> Int.of(l - r);
+                case MUL -> Int.of(l * r);
+                case DIV -> Int.of(l / r);
+                case EQUAL -> Operators.nativeBoolToBooleanObject(l == r);
+                case NOT_EQUAL -> Operators.nativeBoolToBooleanObject(l != r);
+                case GREATER_THAN -> Operators.nativeBoolToBooleanObject(l > r);
+                case LESS_THAN -> Operators.nativeBoolToBooleanObject(l < r);
+                default -> newError("unknown operator: %s", op);
+            };
+        }
+
+        final String operator = switch (op) {
+            case ADD -> "+";
+            case SUB -> "-";
+            case MUL -> "*";
+            case DIV -> "/";
+            case EQUAL -> "==";
+            case NOT_EQUAL -> "!=";
+            case GREATER_THAN -> ">";
+            case LESS_THAN -> "<";
+            default -> op.name();
+        };
+
+        return Operators.evalInfixExpression(operator, left, right);
+    }
+
+    private MonkeyObject buildHash(int startIndex, int endIndex) {
+        final var pairs = new HashMap<HashKey, HashPair>();
+
+        for (int i = startIndex; i < endIndex; i += 2) {
+            final MonkeyObject key = stack[i];
+            final MonkeyObject value = stack[i + 1];
+
+            if (!(key instanceof Hashable hashable)) {
+                return newError("unusable as hash key: %s", key.type());
+            }
+
+            pairs.put(hashable.hashKey(), new HashPair(key, value));
+        }
+
+        return new Hash(pairs);
+    }
+
+    private void push(MonkeyObject obj) {
+        if (sp == stack.length) {
+            ensureStackCapacity(sp + 1);
+        }
+
+        stack[sp++] = obj;
+    }
+
+    private void ensureStackCapacity(int capacity) {
+        if (capacity > stack.length) {
+            stack = Arrays.copyOf(stack, Math.max(stack.length * 2, capacity));
+        }
+    }
+
+    private void pushFrame(Frame frame) {
+        if (framesIndex == frames.length) {
+            frames = Arrays.copyOf(frames, frames.length * 2);
+        }
+
+        frames[framesIndex++] = frame;
+    }
+}
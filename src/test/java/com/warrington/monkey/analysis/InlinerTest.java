@@ -0,0 +1,150 @@
+package com.warrington.monkey.analysis;
+
+import com.warrington.monkey.ast.Program;
+import com.warrington.monkey.lexer.Lexer;
+import com.warrington.monkey.object.MonkeyObject;
+import com.warrington.monkey.parser.Parser;
+import com.warrington.monkey.repl.Engine;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.Arguments;
+import org.junit.jupiter.params.provider.MethodSource;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class InlinerTest {
+
+    private static Stream<Arguments> provideInlinedCalls() {
+        return Stream.of(
+            Arguments.of("let add = fn(a, b) { a + b }; add(1, 2) + add(3, 4)", "let add = fn(a, b) { a + b }; ((1 + 2) + (3 + 4))"),
+            Arguments.of("let add = fn(a, b) { a + b }; let f = fn(x) { add(x * 2, len(\"ab\")) }; f(3)",
+                "let add = fn(a, b) { a + b }; let f = fn(x) { ((x * 2) + len(ab)) }; ((3 * 2) + len(ab))"),
+            Arguments.of("let square = fn(x) { x * x }; let f = fn(y) { square(y) }; f(4)",
+                "let square = fn(x) { x * x }; let f = fn(y) { (y * y) }; (4 * 4)"),
+            Arguments.of("let inc = fn(x) { x + 1 }; let twice = fn(x) { inc(inc(x)) }; twice(1)",
+                "let inc = fn(x) { x + 1 }; let twice = fn(x) { ((x + 1) + 1) }; ((1 + 1) + 1)"),
+            Arguments.of("let limit = 10; let clamp = fn(x) { if (x > limit) { limit } else { x } }; let f = fn(n) { clamp(n) }; f(12)",
+                "let limit = 10; let clamp = fn(x) { if (x > limit) { limit } else { x } }; let f = fn(n) { if (n > limit) { limit } else { n } }; if (12 > limit) { limit } else { 12 }")
+        );
+    }
+
+    @ParameterizedTest
+    @MethodSource("provideInlinedCalls")
+    void testSmallHelpersAreInlined(String input, String expected) {
+        final Program inlined = new Inliner().inline(parse(input));
+
+        assertThat(inlined.toString())
+            .withFailMessage("%s was inlined to %s", input, inlined)
+            .isEqualTo(parse(expected).toString());
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {
+        // Recursive
+        "let down = fn(n) { if (n == 0) { 0 } else { down(n - 1) } }; down(3)",
+        // Bound twice, or shadowed by a parameter
+        "let f = fn(x) { x }; let f = fn(x) { x + 1 }; f(1)",
+        "let f = fn(x) { x }; let g = fn(f) { f(1) }; g",
+        // Reads a name the caller binds itself
+        "let g = 1; let f = fn(x) { x + g }; let h = fn(g) { f(g) }; h",
+        "let g = 1; let f = fn(x) { x + g }; let h = fn(x) { let g = 2; f(x) }; h",
+        // Wrong number of arguments, or called before it is bound
+        "let f = fn(x, y) { x }; f(1, 2, 3)",
+        "let h = fn(y) { f(y) }; let f = fn(x) { x }; h",
+        // Arguments would be evaluated out of order, twice or not at all
+        "let sub = fn(a, b) { b - a }; sub(len(\"a\"), len(\"bc\"))",
+        "let square = fn(x) { x * x }; square(len(\"ab\"))",
+        "let first = fn(a, b) { a }; first(1, len(\"ab\"))",
+        "let pick = fn(c, x) { if (c) { x } else { 0 } }; pick(true, len(\"ab\"))",
+        // Bodies with statements or closures
+        "let f = fn(x) { let y = x; y }; f(1)",
+        "let f = fn(x) { if (x) { return 1; } 2 }; f(true)",
+        "let f = fn(x) { fn() { x } }; f(1)()"
+    })
+    void testUnsafeCallsAreKept(String input) {
+        final var inliner = new Inliner();
+
+        inliner.inline(parse(input));
+
+        assertThat(inliner.inlined())
+            .withFailMessage("%s should not have been inlined, got %s", input, inliner.inlined())
+            .isEmpty();
+    }
+
+    @Test
+    void testSizeThreshold() {
+        final var input = "let poly = fn(x) { x * x * x + x * x + x + 1 }; poly(2)";
+
+        final var small = new Inliner(8);
+        final var large = new Inliner(20);
+
+        small.inline(parse(input));
+        large.inline(parse(input));
+
+        assertThat(small.inlined()).isEmpty();
+        assertThat(large.inlined()).containsExactly(new Inliner.Inlining("poly", 13, 1));
+    }
+
+    @Test
+    void testReport() {
+        final var inliner = new Inliner();
+
+        inliner.inline(parse("let add = fn(a, b) { a + b }; let neg = fn(x) { -x }; add(1, 2); add(neg(3), 4);"));
+
+        assertThat(inliner.inlined()).containsExactly(
+            new Inliner.Inlining("add", 3, 2),
+            new Inliner.Inlining("neg", 2, 1)
+        );
+        assertThat(inliner.inlined().getFirst()).hasToString("inlined add (3 nodes) at 2 call sites");
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {
+        "let add = fn(a, b) { a + b }; let sum = fn(n, acc) { if (n == 0) { acc } else { sum(n - 1, add(acc, n)) } }; sum(100, 0)",
+        "let limit = 10; let clamp = fn(x) { if (x > limit) { limit } else { x } }; [clamp(3), clamp(30)]",
+        "let g = 1; let f = fn(x) { x + g }; let h = fn(g) { f(g) }; h(5)",
+        "let wrap = fn(x) { [x, {\"v\": x}] }; let f = fn(y) { wrap(y + 1) }; f(1)",
+        "let get = fn(h, k) { h[k] }; get({\"a\": 1}, \"a\")",
+        "let bad = fn(x) { x + true }; bad(1)",
+        "let add = fn(a, b) { a + b }; add(missing, 1)"
+    })
+    void testInlinedProgramsAgreeOnEveryEngine(String input) {
+        final String expected = Engine.EVALUATOR.newSession().run(parse(input)).inspect();
+
+        for (Engine engine : Engine.values()) {
+            final MonkeyObject actual = engine.newSession().run(Optimizer.optimize(new Inliner().inline(parse(input))));
+
+            assertThat(actual.inspect())
+                .withFailMessage("%s disagrees on inlined %s. expected=%s, got=%s", engine, input, expected, actual.inspect())
+                .isEqualTo(expected);
+        }
+    }
+
+    @Test
+    void testSessionLeavesCallsInFunctionsToLaterBindings() {
+        final var first = "let add = fn(a, b) { a + b }; let g = fn(x) { add(x, 1) }; g(5)";
+        final var second = "let add = fn(a, b) { a * b }; g(5)";
+
+        assertThat(Inliner.forSession().inline(parse(first)))
+            .hasToString(parse("let add = fn(a, b) { a + b }; let g = fn(x) { add(x, 1) }; add(5, 1)").toString());
+
+        for (Engine engine : Engine.values()) {
+            final var session = engine.newSession();
+
+            session.run(Optimizer.optimize(Inliner.forSession().inline(parse(first))));
+
+            final MonkeyObject actual = session.run(Optimizer.optimize(Inliner.forSession().inline(parse(second))));
+
+            assertThat(actual.inspect())
+                .withFailMessage("%s kept the first add. expected=5, got=%s", engine, actual.inspect())
+                .isEqualTo("5");
+        }
+    }
+
+    private Program parse(String input) {
+        return new Parser(new Lexer(input)).parseProgram();
+    }
+}
@@ -0,0 +1,127 @@
+package com.warrington.monkey.analysis;
+
+import com.warrington.monkey.ast.*;
+import com.warrington.monkey.jit.Jit;
+import com.warrington.monkey.lexer.Lexer;
+import com.warrington.monkey.object.*;
+import com.warrington.monkey.parser.Parser;
+import com.warrington.monkey.repl.Engine;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.Arguments;
+import org.junit.jupiter.params.provider.MethodSource;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class OptimizerTest {
+
+    private static Stream<Arguments> provideFoldedExpressions() {
+        return Stream.of(
+            Arguments.of("2 * 60 * 60", new Int(7200)),
+            Arguments.of("-(1 + 2)", new Int(-3)),
+            Arguments.of("\"a\" + \"b\"", new Str("ab")),
+            Arguments.of("1 < 2 == true", new Bool(true)),
+            Arguments.of("!5", new Bool(false)),
+            Arguments.of("if (1 > 2) { 10 }", new Null()),
+            Arguments.of("if (1 < 2) { 10 } else { 20 }", new Int(10)),
+            Arguments.of("if (false) { 10 } else { 4 * 5 }", new Int(20))
+        );
+    }
+
+    @ParameterizedTest
+    @MethodSource("provideFoldedExpressions")
+    void testConstantExpressionsAreFolded(String input, MonkeyObject expected) {
+        final Expression optimized = firstExpression(Optimizer.optimize(parse(input)));
+
+        assertThat(optimized)
+            .withFailMessage("%s was not folded, got %s", input, optimized.getClass().getSimpleName())
+            .isInstanceOf(Constant.class);
+        assertThat(((Constant) optimized).value()).isEqualTo(expected);
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {"5 / 0", "5 + true", "-\"a\"", "\"a\" - \"b\"", "x * 2"})
+    void testErrorsAndUnknownsAreLeftForRuntime(String input) {
+        assertThat(firstExpression(Optimizer.optimize(parse(input)))).isNotInstanceOf(Constant.class);
+    }
+
+    @Test
+    void testLiteralValuesAreShared() {
+        final Program program = Optimizer.optimize(parse("let f = fn() { 60 * 60 }; f()"));
+        final var session = Engine.EVALUATOR.newSession();
+
+        assertThat(session.run(program)).isSameAs(session.run(program));
+    }
+
+    @Test
+    void testLiteralValuesAreSharedOnceCompiled() {
+        final Program program = Optimizer.optimize(parse("let f = fn() { 60 * 60 }; f()"));
+        final var session = Engine.EVALUATOR.newSession();
+        final MonkeyObject interpreted = session.run(program);
+
+        // Each run binds f to a closure of the same literal, whose calls the JIT counts together
+        for (int i = 0; i < Jit.THRESHOLD; i++) {
+            session.run(program);
+        }
+
+        assertThat(session.run(program)).isSameAs(interpreted);
+    }
+
+    @Test
+    void testFunctionsPrintAsWritten() {
+        final String input = "let f = fn(x) { if (true) { 2 * 3 + x } else { 0 } }; f";
+
+        for (Engine engine : Engine.values()) {
+            final String expected = engine.newSession().run(parse(input)).inspect();
+            final String actual = engine.newSession().run(Optimizer.optimize(parse(input))).inspect();
+
+            assertThat(actual)
+                .withFailMessage("%s prints the optimized function differently. expected=%s, got=%s", engine, expected, actual)
+                .isEqualTo(expected);
+        }
+    }
+
+    @Test
+    void testDeadBranchIsPruned() {
+        final Expression optimized = firstExpression(Optimizer.optimize(parse("if (true) { let a = 1; a } else { b }")));
+
+        assertThat(optimized).isInstanceOf(IfExpression.class);
+        assertThat(((IfExpression) optimized).alternative()).isNull();
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {
+        "(5 + 10 * 2 + 15 / 3) * 2 + -10",
+        "9; return 2 * 5; 9;",
+        "if (1 < 2) { if (10 > 1) { return 10; } return 1; }",
+        "let f = fn() { if (true) { return 1; } 2 }; f()",
+        "let f = fn() { if (false) { 1 } else { let a = 2; return a; } 3 }; f()",
+        "let f = fn(x) { if (2 > 1) { x * (3 * 4) } }; f(2)",
+        "{\"a\" + \"b\": 1 + 1}[\"ab\"]",
+        "[1 + 1, \"x\" + \"y\", !true][1]",
+        "let x = 10; if (x > 5) { \"big\" } else { \"small\" }",
+        "let fibonacci = fn(x) { if (x < 1 + 1) { return x; } fibonacci(x - 1) + fibonacci(x - 2); }; fibonacci(15);"
+    })
+    void testOptimizedProgramsAgreeOnEveryEngine(String input) {
+        final String expected = Engine.EVALUATOR.newSession().run(parse(input)).inspect();
+
+        for (Engine engine : Engine.values()) {
+            final MonkeyObject actual = engine.newSession().run(Optimizer.optimize(parse(input)));
+
+            assertThat(actual.inspect())
+                .withFailMessage("%s disagrees on optimized %s. expected=%s, got=%s", engine, input, expected, actual.inspect())
+                .isEqualTo(expected);
+        }
+    }
+
+    private Expression firstExpression(Program program) {
+        return ((ExpressionStatement) program.getStatements().getFirst()).getExpression();
+    }
+
+    private Program parse(String input) {
+        return new Parser(new Lexer(input)).parseProgram();
+    }
+}
@@ -0,0 +1,96 @@
+package com.warrington.monkey.analysis;
+
+import com.warrington.monkey.ast.*;
+import com.warrington.monkey.lexer.Lexer;
+import com.warrington.monkey.parser.Parser;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.Arguments;
+import org.junit.jupiter.params.provider.MethodSource;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class PurityTest {
+    private static final String COUNT = "let count = fn(n) { if (n == 0) { 0 } else { count(n - 1) } }; ";
+
+    private static Stream<Arguments> provideParallelExpressions() {
+        return Stream.of(
+            Arguments.of(COUNT + "[count(1), count(2), 3]", List.of("count(1)", "count(2)")),
+            Arguments.of(COUNT + "push([count(1)], count(2))", List.of("[count(1)]", "count(2)")),
+            Arguments.of(COUNT + "{1: count(1), 2: count(2)}", List.of("count(1)", "count(2)")),
+            // Through a pure function that calls the recursive one
+            Arguments.of(COUNT + "let f = fn(n) { count(n) + 1 }; [f(1), f(2)]", List.of("f(1)", "f(2)")),
+            // Loops take unknown time; assigning to its own names keeps a function pure
+            Arguments.of("let sum = fn(xs) { let t = 0; for (x in xs) { t = t + x }; t }; [sum([1]), sum([2])]", List.of("sum([1])", "sum([2])")),
+            // Only one expensive element is not worth it
+            Arguments.of(COUNT + "[count(1), 2]", List.of()),
+            Arguments.of("let square = fn(x) { x * x }; [square(1), square(2)]", List.of()),
+            // Effects keep everything in order
+            Arguments.of(COUNT + "[count(1), puts(1), count(2)]", List.of()),
+            Arguments.of(COUNT + "let log = fn(n) { puts(n); count(n) }; [log(1), count(2)]", List.of()),
+            Arguments.of(COUNT + "let total = 0; let add = fn(n) { total = total + n; count(n) }; [add(1), count(2)]", List.of()),
+            Arguments.of(COUNT + "{count(1): puts(1), 2: count(2)}", List.of()),
+            // Calling an unknown function is an effect
+            Arguments.of(COUNT + "fn(f) { [f(1), count(2)] }", List.of()),
+            Arguments.of(COUNT + "let count = 1; [count(1), count(2)]", List.of())
+        );
+    }
+
+    @ParameterizedTest
+    @MethodSource("provideParallelExpressions")
+    void testParallelExpressions(String input, List<String> expected) {
+        final List<String> parallel = new ArrayList<>();
+
+        collect(parallelize(input), pe -> parallel.add(pe.expression().toString()));
+
+        assertThat(parallel)
+            .withFailMessage("%s: evaluated in parallel %s, want %s", input, parallel, expected)
+            .isEqualTo(expected);
+    }
+
+    @Test
+    void testLetsReadingEarlierOnesStartAGroupOfTheirOwn() {
+        final Program program = parallelize(COUNT + "let a = count(1); let b = count(2); let c = a + b; let d = count(c); let e = count(4); puts(e); let f = count(5)");
+        final List<String> groups = new ArrayList<>();
+
+        for (Statement statement : program.getStatements()) {
+            if (statement instanceof LetStatement ls && ls.value() instanceof ParallelExpression pe) {
+                groups.add("%s:%d".formatted(ls.name().value(), pe.group()));
+            }
+        }
+
+        assertThat(groups).containsExactly("a:0", "b:0", "d:1", "e:1");
+    }
+
+    @Test
+    void testNamesBoundByEarlierProgramsAreEffects() {
+        final var input = COUNT + "[first([count(1)]), first([count(2)])]";
+        final List<String> fresh = new ArrayList<>();
+        final List<String> session = new ArrayList<>();
+
+        collect(parallelize(input), pe -> fresh.add(pe.expression().toString()));
+        collect(Purity.parallelize(new Parser(new Lexer(input)).parseProgram(), List.of("first")), pe -> session.add(pe.expression().toString()));
+
+        assertThat(fresh).hasSize(2);
+        assertThat(session)
+            .withFailMessage("first may be bound to anything by an earlier program, got %s", session)
+            .isEmpty();
+    }
+
+    private static Program parallelize(String input) {
+        return Purity.parallelize(new Parser(new Lexer(input)).parseProgram());
+    }
+
+    private static void collect(Node node, Consumer<ParallelExpression> action) {
+        if (node instanceof ParallelExpression pe) {
+            action.accept(pe);
+        }
+
+        Nodes.children(node).forEach(child -> collect(child, action));
+    }
+}
@@ -0,0 +1,161 @@
+package com.warrington.monkey.analysis;
+
+import com.warrington.monkey.ast.*;
+import com.warrington.monkey.lexer.Lexer;
+import com.warrington.monkey.object.Environment;
+import com.warrington.monkey.parser.Parser;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ResolverTest {
+
+    @Test
+    void testGlobalsGetSlotsInOrder() {
+        final Program program = parse("let a = 1; let b = 2; a + b;");
+
+        Resolver.resolve(program, new Environment());
+
+        final var sum = (InfixExpression) ((ExpressionStatement) program.getStatements().get(2)).getExpression();
+
+        assertIdentifier(sum.left(), 0, 0);
+        assertIdentifier(sum.right(), 0, 1);
+    }
+
+    @Test
+    void testFunctionFramesHoldParametersThenLets() {
+        final Program program = parse("fn(a, b) { let c = a; if (b) { let d = c; } }");
+
+        Resolver.resolve(program, new Environment());
+
+        final var fn = (FunctionLiteral) ((ExpressionStatement) program.getStatements().getFirst()).getExpression();
+
+        assertThat(fn.slotNames())
+            .containsExactly("a", "b", "c", "d");
+    }
+
+    @Test
+    void testFreeVariablesResolveToEnclosingFrames() {
+        final Program program = parse("let g = 1; fn(x) { fn(y) { x + y + g } }");
+
+        Resolver.resolve(program, new Environment());
+
+        final var outer = (FunctionLiteral) ((ExpressionStatement) program.getStatements().get(1)).getExpression();
+        final var inner = (FunctionLiteral) ((ExpressionStatement) outer.body().statements().getFirst()).getExpression();
+        final var body = (InfixExpression) ((ExpressionStatement) inner.body().statements().getFirst()).getExpression();
+        final var xPlusY = (InfixExpression) body.left();
+
+        assertIdentifier(xPlusY.left(), 1, 0);
+        assertIdentifier(xPlusY.right(), 0, 0);
+        assertIdentifier(body.right(), 2, 0);
+    }
+
+    @Test
+    void testUnknownNamesBecomeEmptyGlobals() {
+        final var env = new Environment();
+
+        Resolver.resolve(parse("fn() { later }"), env);
+
+        final int slot = env.declare("later");
+
+        assertThat(slot).isZero();
+        assertThat(env.get(0, slot)).isNull();
+    }
+
+    @Test
+    void testOnlyNamesNoFunctionBindsAreGlobal() {
+        final Program program = parse("let g = 1; fn(len) { fn(x) { len(x) + g + puts } }");
+
+        Resolver.resolve(program, new Environment());
+
+        final var outer = (FunctionLiteral) ((ExpressionStatement) program.getStatements().get(1)).getExpression();
+        final var inner = (FunctionLiteral) ((ExpressionStatement) outer.body().statements().getFirst()).getExpression();
+        final var body = (InfixExpression) ((ExpressionStatement) inner.body().statements().getFirst()).getExpression();
+        final var call = (CallExpression) ((InfixExpression) body.left()).left();
+
+        assertThat(((Identifier) call.function()).isGlobal()).isFalse();
+        assertThat(((Identifier) call.arguments().getFirst()).isGlobal()).isFalse();
+        assertThat(((Identifier) ((InfixExpression) body.left()).right()).isGlobal()).isTrue();
+        assertThat(((Identifier) body.right()).isGlobal()).isTrue();
+    }
+
+    @Test
+    void testClosuresCopyOnlySettledSlots() {
+        final Program program = parse("""
+            let leaf = fn(x) { let y = x * 2; if (y > 1) { leaf(y - 1) } else { len([y]) } };
+            let adder = fn(big, x) { let z = 1; fn(y) { x + y + z } };
+            let later = fn(x) { let f = fn() { z }; let z = x; f };
+            let loop = fn(n) { let go = fn(i) { if (i < n) { go(i + 1) } else { i } }; go(0) };
+            let branch = fn(c) { if (c) { let v = 1; fn() { v } } else { fn() { c } } };
+            """);
+
+        Resolver.resolve(program, new Environment());
+
+        final FunctionLiteral leaf = let(program, 0);
+        final FunctionLiteral adder = let(program, 1);
+        final FunctionLiteral later = let(program, 2);
+        final FunctionLiteral loop = let(program, 3);
+        final FunctionLiteral branch = let(program, 4);
+
+        assertThat(leaf.framesEscape()).isFalse();
+
+        // Parameters and lets that already ran are copied, the rest of the frame is not kept
+        assertThat(((FunctionLiteral) ((ExpressionStatement) adder.body().statements().get(1)).getExpression()).capturedSlots()).containsExactly(1, 2);
+        assertThat(adder.framesEscape()).isFalse();
+
+        // A let that has not run yet, or the closure's own name, could still change
+        assertThat(((FunctionLiteral) ((LetStatement) later.body().statements().getFirst()).value()).capturedSlots()).isNull();
+        assertThat(later.framesEscape()).isTrue();
+        assertThat(((FunctionLiteral) ((LetStatement) loop.body().statements().getFirst()).value()).capturedSlots()).isNull();
+        assertThat(loop.framesEscape()).isTrue();
+
+        // A let inside a branch counts as run for closures made later in that branch only
+        assertThat(branch.framesEscape()).isFalse();
+    }
+
+    @Test
+    void testLiteralsReadingNoEnclosingBindingAreClosed() {
+        final Program program = parse("""
+            let sort = fn(xs) { let less = fn(a, b) { a < b }; let near = fn(a) { a < len(xs) }; less };
+            let outer = fn(x) { fn() { fn(y) { y + x } } };
+            """);
+
+        Resolver.resolve(program, new Environment());
+
+        final FunctionLiteral sort = let(program, 0);
+        final FunctionLiteral outer = let(program, 1);
+        final var middle = (FunctionLiteral) ((ExpressionStatement) outer.body().statements().getFirst()).getExpression();
+        final var inner = (FunctionLiteral) ((ExpressionStatement) middle.body().statements().getFirst()).getExpression();
+
+        assertThat(sort.isClosed()).isTrue();
+        assertThat(((FunctionLiteral) ((LetStatement) sort.body().statements().getFirst()).value()).isClosed()).isTrue();
+        assertThat(((FunctionLiteral) ((LetStatement) sort.body().statements().get(1)).value()).isClosed()).isFalse();
+
+        // Reading a name two functions out still ties a closure to the frames it was made in
+        assertThat(middle.isClosed()).isFalse();
+        assertThat(inner.isClosed()).isFalse();
+        assertThat(inner.capturedSlots()).isEmpty();
+    }
+
+    private FunctionLiteral let(Program program, int index) {
+        return (FunctionLiteral) ((LetStatement) program.getStatements().get(index)).value();
+    }
+
+    private void assertIdentifier(Expression expression, int depth, int slot) {
+        assertThat(expression).isInstanceOf(Identifier.class);
+
+        final var identifier = (Identifier) expression;
+
+        assertThat(identifier.depth())
+            .withFailMessage("%s has wrong depth. want=%d, got=%d", identifier, depth, identifier.depth())
+            .isEqualTo(depth);
+
+        assertThat(identifier.slot())
+            .withFailMessage("%s has wrong slot. want=%d, got=%d", identifier, slot, identifier.slot())
+            .isEqualTo(slot);
+    }
+
+    private Program parse(String input) {
+        return new Parser(new Lexer(input)).parseProgram();
+    }
+}
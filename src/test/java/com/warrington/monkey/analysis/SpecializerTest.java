@@ -0,0 +1,129 @@
+package com.warrington.monkey.analysis;
+
+import com.warrington.monkey.ast.*;
+import com.warrington.monkey.lexer.Lexer;
+import com.warrington.monkey.object.MonkeyObject;
+import com.warrington.monkey.parser.Parser;
+import com.warrington.monkey.repl.Engine;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class SpecializerTest {
+
+    private static final String FORMAT = """
+        let format = fn(mode, x) {
+            if (mode == 1) {
+                "[" + x + "]"
+            } else {
+                if (mode == 2) { "<" + x + ">" } else { x }
+            }
+        };
+        """;
+
+    @Test
+    void testBranchesOnLiteralArgumentsAreRemoved() {
+        final var specializer = new Specializer();
+        final Program program = Optimizer.optimize(specializer.specialize(parse(FORMAT + "let s = \"a\"; format(1, s); format(2, s);")));
+
+        assertThat(specializer.specializations()).containsExactly("format(1, _)", "format(2, _)");
+
+        final var first = (LetStatement) program.getStatements().get(1);
+        final var body = (FunctionLiteral) first.value();
+
+        assertThat(first.name().value()).isEqualTo("format(1, _)");
+        assertThat(body.parameters()).extracting(Identifier::value).containsExactly("x");
+        assertThat(body.body().statements().getFirst())
+            .withFailMessage("format(1, _) still branches: %s", body.body())
+            .isInstanceOfSatisfying(ExpressionStatement.class, es -> assertThat(es.getExpression()).isInstanceOf(InfixExpression.class));
+    }
+
+    @Test
+    void testCallSitesShareSpecializations() {
+        final var specializer = new Specializer();
+
+        specializer.specialize(parse(FORMAT + "let s = \"a\"; format(1, s); format(1, s + s); let f = fn(y) { format(1, y) }; format(3, s);"));
+
+        assertThat(specializer.specializations()).containsExactly("format(1, _)", "format(3, _)");
+    }
+
+    @Test
+    void testRecursiveCallsReuseTheSpecialization() {
+        final var specializer = new Specializer();
+        final var input = "let walk = fn(step, n) { if (n < 1) { 0 } else { step + walk(step, n - step) } }; walk(2, 10)";
+
+        specializer.specialize(parse(input));
+
+        assertThat(specializer.specializations()).containsExactly("walk(2, 10)", "walk(2, _)");
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {
+        // The parameter is only passed along, there is nothing to fold
+        "let id = fn(x) { x }; id(1)",
+        "let f = fn(x) { puts(x) }; f(1)",
+        // Rebound, or bound in more than one place
+        "let f = fn(x) { let x = 2; x + 1 }; f(1)",
+        "let f = fn(x) { x + 1 }; let f = fn(x) { x - 1 }; f(1)",
+        // Too few or too many arguments, or called before it is bound
+        "let f = fn(x, y) { x + y }; f(1)",
+        "let f = fn(x, y) { x + y }; f(1, 2, 3)",
+        "let g = fn() { f(1) }; let f = fn(x) { x + 1 }; g()",
+        // No literal argument
+        "let f = fn(x) { x + 1 }; let y = 2; f(y)"
+    })
+    void testCallsAreKept(String input) {
+        final var specializer = new Specializer();
+
+        specializer.specialize(parse(input));
+
+        assertThat(specializer.specializations())
+            .withFailMessage("%s should not have been specialized, got %s", input, specializer.specializations())
+            .isEmpty();
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {
+        FORMAT + "[format(1, \"a\"), format(2, \"b\"), format(3, \"c\"), format(1, \"d\")]",
+        "let walk = fn(step, n) { if (n < 1) { 0 } else { step + walk(step, n - step) } }; walk(2, 10) + walk(3, 10)",
+        "let scale = fn(factor, xs) { if (len(xs) == 0) { [] } else { push(scale(factor, rest(xs)), first(xs) * factor) } }; scale(3, [1, 2, 3])",
+        "let f = fn(flag) { let g = fn(flag) { !flag }; g(true) == flag }; f(false)",
+        "let f = fn(mode) { fn(x) { if (mode) { x } else { -x } } }; f(false)(5)",
+        "let f = fn(n) { n / 0 }; 1"
+    })
+    void testSpecializedProgramsAgreeOnEveryEngine(String input) {
+        final String expected = Engine.EVALUATOR.newSession().run(parse(input)).inspect();
+
+        for (Engine engine : Engine.values()) {
+            final MonkeyObject actual = engine.newSession().run(Optimizer.optimize(new Specializer().specialize(parse(input))));
+
+            assertThat(actual.inspect())
+                .withFailMessage("%s disagrees on specialized %s. expected=%s, got=%s", engine, input, expected, actual.inspect())
+                .isEqualTo(expected);
+        }
+    }
+
+    @Test
+    void testSessionLeavesCallsInFunctionsToLaterBindings() {
+        final var first = FORMAT + "let g = fn(s) { format(1, s) }; g(\"a\")";
+        final var second = "let format = fn(mode, x) { if (mode == 1) { \"(\" + x + \")\" } else { x } }; g(\"a\")";
+
+        for (Engine engine : Engine.values()) {
+            final var session = engine.newSession();
+
+            session.run(Optimizer.optimize(Specializer.forSession().specialize(parse(first))));
+
+            final MonkeyObject actual = session.run(Optimizer.optimize(Specializer.forSession().specialize(parse(second))));
+
+            assertThat(actual.inspect())
+                .withFailMessage("%s kept the first format. expected=(a), got=%s", engine, actual.inspect())
+                .isEqualTo("(a)");
+        }
+    }
+
+    private Program parse(String input) {
+        return new Parser(new Lexer(input)).parseProgram();
+    }
+}
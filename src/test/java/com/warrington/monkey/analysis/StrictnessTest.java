@@ -0,0 +1,110 @@
+package com.warrington.monkey.analysis;
+
+import com.warrington.monkey.ast.*;
+import com.warrington.monkey.lexer.Lexer;
+import com.warrington.monkey.object.Environment;
+import com.warrington.monkey.parser.Parser;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.Arguments;
+import org.junit.jupiter.params.provider.MethodSource;
+
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class StrictnessTest {
+
+    private static Stream<Arguments> provideLazyParameters() {
+        return Stream.of(
+            Arguments.of("let f = fn(a, b) { a }", new boolean[]{false, true}),
+            Arguments.of("let f = fn(c, x, y) { if (c) { x } else { x + y } }", new boolean[]{false, false, true}),
+            // Whatever follows a return is not certain to run
+            Arguments.of("let f = fn(c, x, y) { if (c) { return x; } x + y }", new boolean[]{false, false, true}),
+            // Builtins evaluate all of their arguments, unknown functions maybe none
+            Arguments.of("let f = fn(x, g) { len(x) + g(x) }", new boolean[]{false, false}),
+            Arguments.of("let f = fn(x, g) { g(x) }", new boolean[]{true, false}),
+            // A function literal reads nothing until it is called
+            Arguments.of("let f = fn(x) { fn() { x } }", new boolean[]{true}),
+            // Passed on to itself, the accumulator stays strict
+            Arguments.of("let count = fn(n, acc) { if (n == 0) { acc } else { count(n - 1, acc + n) } }", new boolean[]{false, false}),
+            Arguments.of("let loop = fn(n, unused) { if (n == 0) { 0 } else { loop(n - 1, unused) } }", new boolean[]{false, true}),
+            // Strict through a function defined before
+            Arguments.of("let pick = fn(c, x) { if (c) { x } else { 0 } }; let f = fn(x) { pick(true, x) }", new boolean[]{true}),
+            Arguments.of("let first = fn(x, y) { x }; let f = fn(a, b) { first(b, a) }", new boolean[]{true, false}),
+            // A rebound or repeated parameter is never lazy
+            Arguments.of("let f = fn(c, x) { let x = 1; if (c) { x } else { 0 } }", new boolean[]{false, false}),
+            Arguments.of("let f = fn(x, x) { 1 }", new boolean[]{false, false})
+        );
+    }
+
+    @ParameterizedTest
+    @MethodSource("provideLazyParameters")
+    void testLazyParameters(String input, boolean[] expected) {
+        final Program program = analyze(input);
+        final var fl = (FunctionLiteral) ((LetStatement) program.getStatements().getLast()).value();
+
+        for (int i = 0; i < expected.length; i++) {
+            assertThat(fl.isLazy(i))
+                .withFailMessage("%s: parameter %d lazy=%s, want %s", input, i, fl.isLazy(i), expected[i])
+                .isEqualTo(expected[i]);
+        }
+    }
+
+    @Test
+    void testThunksKeepTheParametersTheyRead() {
+        final Program program = analyze("let f = fn(p, q, r, s, t, u) { 0 }; let g = 1; fn(a, b, c) { let d = 1; f(a + c, b * g, d + 1, a, 2, fn() { d }) }");
+        final var fl = (FunctionLiteral) ((ExpressionStatement) program.getStatements().getLast()).getExpression();
+        final var call = (CallExpression) ((ExpressionStatement) fl.body().statements().getLast()).getExpression();
+        final int[][] delayed = call.delayedArguments();
+
+        assertThat(delayed[0]).containsExactly(0, 2);
+        assertThat(delayed[1]).containsExactly(1);
+        // A let may not have run, or run again, by the time a thunk is forced
+        assertThat(delayed[2]).isNull();
+        // Names and literals are not worth delaying
+        assertThat(delayed[3]).isNull();
+        assertThat(delayed[4]).isNull();
+        assertThat(delayed[5]).isNull();
+    }
+
+    @Test
+    void testArgumentsReadingRebindableNamesAreNotDelayed() {
+        final Program program = analyze("let f = fn(p, q) { 0 }; let x = 1; let x = 2; let y = 3; f(x + 1, y + 1)");
+        final var call = (CallExpression) ((ExpressionStatement) program.getStatements().getLast()).getExpression();
+
+        assertThat(call.delayedArguments()[0]).isNull();
+        assertThat(call.delayedArguments()[1]).isEmpty();
+    }
+
+    @Test
+    void testOnlyArgumentsForLazyParametersAreDelayed() {
+        final Program program = analyze("let f = fn(c, x) { if (c) { x } else { 0 } }; let h = fn(n) { n }; fn(n) { [f(n + 1, n + 2), h(n + 1), len(n + 1), n(n + 1)] }");
+        final var fl = (FunctionLiteral) ((ExpressionStatement) program.getStatements().getLast()).getExpression();
+        final var array = (ArrayLiteral) ((ExpressionStatement) fl.body().statements().getLast()).getExpression();
+        final List<CallExpression> calls = array.elements().stream().map(CallExpression.class::cast).toList();
+
+        assertThat(calls.getFirst().delayedArguments()[0]).isNull();
+        assertThat(calls.getFirst().delayedArguments()[1]).containsExactly(0);
+        // Strict, unknown or builtin callees get every argument evaluated
+        assertThat(calls.subList(1, 4)).allSatisfy(call -> assertThat(call.delayedArguments()).isNull());
+    }
+
+    @Test
+    void testFunctionsBoundMoreThanOnceAreNotReliedOn() {
+        final Program program = analyze("let id = fn(x) { x }; let id = fn(x) { 0 }; let f = fn(a) { id(a) }");
+        final var fl = (FunctionLiteral) ((LetStatement) program.getStatements().getLast()).value();
+
+        assertThat(fl.isLazy(0)).isTrue();
+    }
+
+    private Program analyze(String input) {
+        final Program program = new Parser(new Lexer(input)).parseProgram();
+
+        Resolver.resolve(program, new Environment());
+        Strictness.analyze(program);
+
+        return program;
+    }
+}
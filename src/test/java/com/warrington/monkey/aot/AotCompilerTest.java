@@ -0,0 +1,99 @@
+package com.warrington.monkey.aot;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.Arguments;
+import org.junit.jupiter.params.provider.MethodSource;
+
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.file.Path;
+import java.util.jar.JarEntry;
+import java.util.jar.JarFile;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class AotCompilerTest {
+
+    @TempDir
+    Path tempDir;
+
+    private static Stream<Arguments> provideScripts() {
+        return Stream.of(
+            Arguments.of("puts(1 + 2 * 3)", "7\n"),
+            Arguments.of("let greeting = \"Hello\"; puts(greeting + \" World\")", "Hello World\n"),
+            Arguments.of("""
+                let fibonacci = fn(x) {
+                    if (x < 2) { return x; }
+                    fibonacci(x - 1) + fibonacci(x - 2);
+                };
+                puts(fibonacci(15));
+                """, "610\n"),
+            Arguments.of("""
+                let map = fn(arr, f) {
+                    let iter = fn(arr, accumulated) {
+                        if (len(arr) == 0) { accumulated } else { iter(rest(arr), push(accumulated, f(first(arr)))) }
+                    };
+                    iter(arr, []);
+                };
+                puts(map([1, 2, 3], fn(x) { x * 2 }));
+                """, "[2, 4, 6]\n"),
+            Arguments.of("let h = {\"a\": 1}; puts(h[\"a\"], h[\"b\"]); return 1; puts(2);", "1\nnull\n"),
+            Arguments.of("let f = fn(x) { fn() { x } }; puts(f(3))", "fn() {\nx\n}\n")
+        );
+    }
+
+    @ParameterizedTest
+    @MethodSource("provideScripts")
+    void testCompiledJarRunsScript(String script, String expectedOutput) throws Exception {
+        final Path jar = tempDir.resolve("script.jar");
+
+        assertThat(new AotCompiler().writeJar(script, jar)).isTrue();
+
+        assertThat(runJar(jar))
+            .withFailMessage("script %s printed something else", script)
+            .isEqualTo(expectedOutput);
+    }
+
+    @Test
+    void testJarLeavesOutFrontEnd() throws Exception {
+        final Path jar = tempDir.resolve("script.jar");
+
+        new AotCompiler().writeJar("puts(1)", jar);
+
+        try (var file = new JarFile(jar.toFile())) {
+            assertThat(file.getManifest().getMainAttributes().getValue("Main-Class")).isEqualTo(AotCompiler.MAIN_CLASS);
+            assertThat(file.stream().map(JarEntry::getName))
+                .contains("MonkeyScript.class", "com/warrington/monkey/jit/JitRuntime.class")
+                .noneMatch(name -> name.startsWith("com/warrington/monkey/parser/") || name.startsWith("com/warrington/monkey/lexer/"));
+        }
+    }
+
+    @Test
+    void testParseErrorsAreReported() throws Exception {
+        final var compiler = new AotCompiler();
+
+        assertThat(compiler.writeJar("let = 5;", tempDir.resolve("broken.jar"))).isFalse();
+        assertThat(compiler.errors()).isNotEmpty();
+        assertThat(tempDir.resolve("broken.jar")).doesNotExist();
+    }
+
+    private String runJar(Path jar) throws Exception {
+        final PrintStream original = System.out;
+        final var output = new ByteArrayOutputStream();
+
+        // Only the jar on the class path, so a class missing from it cannot come from the test's own
+        try (var loader = new URLClassLoader(new URL[]{jar.toUri().toURL()}, ClassLoader.getPlatformClassLoader())) {
+            System.setOut(new PrintStream(output, true));
+            loader.loadClass(AotCompiler.MAIN_CLASS).getMethod("main", String[].class).invoke(null, (Object) new String[0]);
+        } finally {
+            System.setOut(original);
+        }
+
+        return output.toString();
+    }
+}
@@ -0,0 +1,249 @@
+package com.warrington.monkey.compiler;
+
+import com.warrington.monkey.ast.Program;
+import com.warrington.monkey.lexer.Lexer;
+import com.warrington.monkey.object.CompiledFunction;
+import com.warrington.monkey.object.Int;
+import com.warrington.monkey.object.MonkeyObject;
+import com.warrington.monkey.parser.Parser;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.Arguments;
+import org.junit.jupiter.params.provider.MethodSource;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static com.warrington.monkey.compiler.Instructions.concat;
+import static com.warrington.monkey.compiler.Instructions.make;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class CompilerTest {
+
+    private static Stream<Arguments> provideInstructions() {
+        return Stream.of(
+            Arguments.of("1 + 2", concat(
+                make(Opcode.CONSTANT, 0),
+                make(Opcode.CONSTANT, 1),
+                make(Opcode.ADD),
+                make(Opcode.POP)
+            )),
+            Arguments.of("1 < 2", concat(
+                make(Opcode.CONSTANT, 0),
+                make(Opcode.CONSTANT, 1),
+                make(Opcode.LESS_THAN),
+                make(Opcode.POP)
+            )),
+            Arguments.of("!true", concat(
+                make(Opcode.TRUE),
+                make(Opcode.BANG),
+                make(Opcode.POP)
+            )),
+            Arguments.of("if (true) { 10 }; 3333;", concat(
+                make(Opcode.TRUE),
+                make(Opcode.JUMP_NOT_TRUTHY, 10),
+                make(Opcode.CONSTANT, 0),
+                make(Opcode.JUMP, 11),
+                make(Opcode.NULL),
+                make(Opcode.POP),
+                make(Opcode.CONSTANT, 1),
+                make(Opcode.POP)
+            )),
+            Arguments.of("let one = 1; let two = one; two;", concat(
+                make(Opcode.CONSTANT, 0),
+                make(Opcode.SET_GLOBAL, 0),
+                make(Opcode.GET_GLOBAL, 0),
+                make(Opcode.SET_GLOBAL, 1),
+                make(Opcode.GET_GLOBAL, 1),
+                make(Opcode.POP)
+            )),
+            Arguments.of("len([]); push([], 1);", concat(
+                make(Opcode.GET_BUILTIN, 0),
+                make(Opcode.ARRAY, 0),
+                make(Opcode.CALL, 1),
+                make(Opcode.POP),
+                make(Opcode.GET_BUILTIN, 4),
+                make(Opcode.ARRAY, 0),
+                make(Opcode.CONSTANT, 0),
+                make(Opcode.CALL, 2),
+                make(Opcode.POP)
+            )),
+            Arguments.of("[1, 2][1]", concat(
+                make(Opcode.CONSTANT, 0),
+                make(Opcode.CONSTANT, 1),
+                make(Opcode.ARRAY, 2),
+                make(Opcode.CONSTANT, 2),
+                make(Opcode.INDEX),
+                make(Opcode.POP)
+            ))
+        );
+    }
+
+    @ParameterizedTest
+    @MethodSource("provideInstructions")
+    void testInstructions(String input, byte[] expected) {
+        final Bytecode bytecode = compile(input);
+
+        assertThat(Instructions.disassemble(bytecode.instructions()))
+            .isEqualTo(Instructions.disassemble(expected));
+    }
+
+    @Test
+    void testFunctionsWithoutReturnValue() {
+        final Bytecode bytecode = compile("fn() { }");
+
+        final var fn = (CompiledFunction) bytecode.constants().getFirst();
+
+        assertThat(Instructions.disassemble(fn.instructions()))
+            .isEqualTo(Instructions.disassemble(make(Opcode.RETURN)));
+
+        assertThat(Instructions.disassemble(bytecode.instructions()))
+            .isEqualTo(Instructions.disassemble(concat(
+                make(Opcode.CLOSURE, 0, 0),
+                make(Opcode.POP)
+            )));
+    }
+
+    @Test
+    void testClosures() {
+        final Bytecode bytecode = compile("fn(a) { fn(b) { a + b } }");
+        final List<MonkeyObject> constants = bytecode.constants();
+
+        final var inner = (CompiledFunction) constants.get(0);
+        final var outer = (CompiledFunction) constants.get(1);
+
+        assertThat(Instructions.disassemble(inner.instructions()))
+            .isEqualTo(Instructions.disassemble(concat(
+                make(Opcode.GET_FREE, 0),
+                make(Opcode.GET_LOCAL, 0),
+                make(Opcode.ADD),
+                make(Opcode.RETURN_VALUE)
+            )));
+
+        // The closure keeps a's cell, not its value
+        assertThat(Instructions.disassemble(outer.instructions()))
+            .isEqualTo(Instructions.disassemble(concat(
+                make(Opcode.CELL, 0),
+                make(Opcode.GET_LOCAL, 0),
+                make(Opcode.CLOSURE, 0, 1),
+                make(Opcode.RETURN_VALUE)
+            )));
+    }
+
+    @Test
+    void testRecursiveFunctions() {
+        final Bytecode bytecode = compile("""
+            let wrapper = fn() {
+                let countDown = fn(x) { countDown(x - 1); };
+                countDown(1);
+            };
+            """);
+
+        final var countDown = (CompiledFunction) bytecode.constants().get(1);
+
+        assertThat(Instructions.disassemble(countDown.instructions()))
+            .isEqualTo(Instructions.disassemble(concat(
+                make(Opcode.CURRENT_CLOSURE),
+                make(Opcode.GET_LOCAL, 0),
+                make(Opcode.CONSTANT, 0),
+                make(Opcode.SUB),
+                make(Opcode.CALL, 1),
+                make(Opcode.RETURN_VALUE)
+            )));
+    }
+
+    @Test
+    void testConstantPool() {
+        final Bytecode bytecode = compile("1 + 2");
+
+        assertThat(bytecode.constants())
+            .containsExactly(new Int(1), new Int(2));
+    }
+
+    @Test
+    void testUnknownIdentifier() {
+        final var compiler = new Compiler();
+
+        compiler.compile(parse("foobar"));
+
+        assertThat(compiler.errors())
+            .containsExactly("identifier not found: foobar");
+    }
+
+    @Test
+    void testLetReadBeforeItRanFallsBackToTheNameOutside() {
+        final Bytecode bytecode = compile("let q = 1; fn() { q; let q = 2; }");
+        final var function = (CompiledFunction) bytecode.constants().get(2);
+
+        assertThat(Instructions.disassemble(function.instructions()))
+            .isEqualTo(Instructions.disassemble(concat(
+                make(Opcode.GET_LOCAL, 0),
+                make(Opcode.JUMP_IF_BOUND, 8),
+                make(Opcode.GET_GLOBAL, 0),
+                make(Opcode.POP),
+                make(Opcode.CONSTANT, 1),
+                make(Opcode.SET_LOCAL, 0),
+                make(Opcode.RETURN)
+            )));
+    }
+
+    @Test
+    void testOperandOverflowIsAnError() {
+        final var constants = new ArrayList<MonkeyObject>(Collections.nCopies(65536, new Int(0)));
+        final var compiler = new Compiler(Compiler.newGlobalSymbolTable(), constants);
+
+        compiler.compile(parse("1"));
+
+        assertThat(compiler.errors())
+            .containsExactly("too many constants: 65536, at most 65535 fit in CONSTANT");
+    }
+
+    @Test
+    void testTooManyLocalsIsAnError() {
+        final var compiler = new Compiler();
+        final var body = new StringBuilder();
+
+        for (int i = 0; i < 257; i++) {
+            body.append("let x%c%c = 1; ".formatted('a' + i / 26, 'a' + i % 26));
+        }
+
+        compiler.compile(parse("fn() { %s }".formatted(body)));
+
+        assertThat(compiler.errors())
+            .containsExactly("too many locals: 256, at most 255 fit in SET_LOCAL");
+    }
+
+    @Test
+    void testMakeRejectsOperandsThatDoNotFit() {
+        assertThatThrownBy(() -> make(Opcode.GET_LOCAL, 256))
+            .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    void testReadOperands() {
+        final byte[] instruction = make(Opcode.CLOSURE, 65534, 255);
+
+        assertThat(instruction).hasSize(Opcode.CLOSURE.width());
+        assertThat(Instructions.readUint16(instruction, 1)).isEqualTo(65534);
+        assertThat(Instructions.readUint8(instruction, 3)).isEqualTo(255);
+    }
+
+    private Bytecode compile(String input) {
+        final var compiler = new Compiler();
+
+        compiler.compile(parse(input));
+
+        assertThat(compiler.errors())
+            .withFailMessage("compiler has errors: %s", compiler.errors())
+            .isEmpty();
+
+        return compiler.bytecode();
+    }
+
+    private Program parse(String input) {
+        return new Parser(new Lexer(input)).parseProgram();
+    }
+}
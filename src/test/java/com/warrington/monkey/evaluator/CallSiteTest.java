@@ -0,0 +1,124 @@
+package com.warrington.monkey.evaluator;
+
+import com.warrington.monkey.analysis.Nodes;
+import com.warrington.monkey.ast.*;
+import com.warrington.monkey.lexer.Lexer;
+import com.warrington.monkey.object.Environment;
+import com.warrington.monkey.object.Int;
+import com.warrington.monkey.object.MonkeyObject;
+import com.warrington.monkey.parser.Parser;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.Arguments;
+import org.junit.jupiter.params.provider.MethodSource;
+
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class CallSiteTest {
+
+    @Test
+    void testMonomorphicSiteHitsAfterFirstCall() {
+        final Program program = parse("let inc = fn(x) { x + 1 }; let apply = fn(n) { inc(n) }; apply(1); apply(2); apply(3);");
+
+        Evaluator.eval(program, new Environment());
+
+        final CallSite site = callIn(program, "inc(n)");
+
+        assertThat(site.misses()).isEqualTo(1);
+        assertThat(site.hits()).isEqualTo(2);
+        assertThat(site.targets()).isEqualTo(1);
+        assertThat(site).hasToString("3 calls, 2 hits (66.7%), monomorphic");
+    }
+
+    @Test
+    void testClosuresOfOneLiteralShareAPlan() {
+        final Program program = parse("let adder = fn(x) { fn(y) { x + y } }; let call = fn(f) { f(1) }; call(adder(1)); call(adder(2)); call(adder(3));");
+
+        Evaluator.eval(program, new Environment());
+
+        final CallSite site = callIn(program, "f(1)");
+
+        assertThat(site.targets()).isEqualTo(1);
+        assertThat(site.hits()).isEqualTo(2);
+    }
+
+    @Test
+    void testPolymorphicSiteKeepsEveryTarget() {
+        final Program program = parse("""
+            let call = fn(f) { f(4) };
+            let a = fn(x) { x + 1 };
+            let b = fn(x) { x * 2 };
+            let c = fn(x) { -x };
+            [call(a), call(b), call(c), call(a), call(b), call(c)];
+            """);
+
+        Evaluator.eval(program, new Environment());
+
+        final CallSite site = callIn(program, "f(4)");
+
+        assertThat(site.targets()).isEqualTo(3);
+        assertThat(site.misses()).isEqualTo(3);
+        assertThat(site.hits()).isEqualTo(3);
+        assertThat(site.isMegamorphic()).isFalse();
+    }
+
+    @Test
+    void testMegamorphicSiteStopsCaching() {
+        final var input = new StringBuilder("let call = fn(f) { f(1) };");
+
+        for (int i = 0; i <= CallSite.MAX_TARGETS; i++) {
+            input.append("call(fn(x) { x + %d });".formatted(i));
+        }
+
+        input.append("call(fn(x) { x });");
+
+        final Program program = parse(input.toString());
+        final MonkeyObject result = Evaluator.eval(program, new Environment());
+
+        final CallSite site = callIn(program, "f(1)");
+
+        assertThat(result).isEqualTo(new Int(1));
+        assertThat(site.isMegamorphic()).isTrue();
+        assertThat(site.targets()).isZero();
+        assertThat(site.hits()).isZero();
+        assertThat(site.misses()).isEqualTo(CallSite.MAX_TARGETS + 2);
+    }
+
+    private static Stream<Arguments> provideCachedCalls() {
+        return Stream.of(
+            Arguments.of("let fs = [fn(x) { x + 1 }, fn(x) { x * 10 }, len]; let call = fn(f, x) { f(x) }; call(fs[0], 1) + call(fs[1], 2) + call(fs[2], \"abc\") + call(fs[0], 3)", 29L),
+            Arguments.of("let count = fn(n, acc) { if (n == 0) { acc } else { count(n - 1, acc + 1) } }; count(5000, 0)", 5000L),
+            Arguments.of("let f = fn(x) { x }; let g = fn(x, y) { x + y }; let call = fn(h) { h(2, 3) }; call(f) + call(g)", 7L)
+        );
+    }
+
+    @ParameterizedTest
+    @MethodSource("provideCachedCalls")
+    void testCachedCallsGiveTheSameResults(String input, long expected) {
+        assertThat(Evaluator.eval(parse(input), new Environment()))
+            .withFailMessage("%s should evaluate to %d", input, expected)
+            .isEqualTo(new Int(expected));
+    }
+
+    private static CallSite callIn(Node node, String source) {
+        if (node instanceof CallExpression ce && ce.toString().equals(source)) {
+            return ce.callSite();
+        }
+
+        for (Node child : Nodes.children(node)) {
+            final CallSite site = callIn(child, source);
+
+            if (site != null) {
+                return site;
+            }
+        }
+
+        return null;
+    }
+
+    private Program parse(String input) {
+        return new Parser(new Lexer(input)).parseProgram();
+    }
+}
@@ -1,5 +1,6 @@
 package com.warrington.monkey.evaluator;
 
+import com.warrington.monkey.ast.ExpressionStatement;
 import com.warrington.monkey.ast.Program;
 import com.warrington.monkey.lexer.Lexer;
 import com.warrington.monkey.object.*;
@@ -9,6 +10,7 @@ import org.junit.jupiter.params.ParameterizedTest;
 import org.junit.jupiter.params.provider.Arguments;
 import org.junit.jupiter.params.provider.CsvSource;
 import org.junit.jupiter.params.provider.MethodSource;
+import org.junit.jupiter.params.provider.ValueSource;
 
 import java.util.Collections;
 import java.util.List;
@@ -57,12 +59,28 @@ class EvaluatorTest {
     private static Stream<Arguments> provideErrors() {
         return Stream.of(
             Arguments.of("5 + true;", "type mismatch: INTEGER + BOOLEAN"),
+            Arguments.of("1.5 + true;", "type mismatch: FLOAT + BOOLEAN"),
+            Arguments.of("let f = fn(x) { x * 2.0 }; f(1.5); f(\"a\")", "type mismatch: STRING * FLOAT"),
+            // Only names already bound can be assigned to
+            Arguments.of("x = 1", "identifier not found: x"),
+            Arguments.of("len = 1", "identifier not found: len"),
+            Arguments.of("let f = fn() { y = 1 }; f()", "identifier not found: y"),
+            Arguments.of("for (x in 5) { x }", "cannot iterate over INTEGER"),
+            Arguments.of("for (x in range(true)) { x }", "arguments to 'range' must be INTEGER, got BOOLEAN"),
+            Arguments.of("while (-true) { 1 }", "unknown operator: -BOOLEAN"),
+            Arguments.of("let i = 0; while (i < 3) { i = i + true; }", "type mismatch: INTEGER + BOOLEAN"),
             Arguments.of("5 + true; 5;", "type mismatch: INTEGER + BOOLEAN"),
             Arguments.of("-true", "unknown operator: -BOOLEAN"),
             Arguments.of("true + false", "unknown operator: BOOLEAN + BOOLEAN"),
             Arguments.of("5; true + false; 5", "unknown operator: BOOLEAN + BOOLEAN"),
             Arguments.of("if (10 > 1) { true + false; }", "unknown operator: BOOLEAN + BOOLEAN"),
             Arguments.of("foobar", "identifier not found: foobar"),
+            Arguments.of("let f = fn(x, y) { x }; f(1)", "wrong number of arguments. got=1, want=2"),
+            Arguments.of("let f = fn(x) { x }; f(1, -true)", "unknown operator: -BOOLEAN"),
+            Arguments.of("let f = fn(x, y) { x }; let g = fn() { f(1) }; g()", "wrong number of arguments. got=1, want=2"),
+            Arguments.of("(true + 1) * missing", "type mismatch: BOOLEAN + INTEGER"),
+            Arguments.of("2 * (1 + missing) - true", "identifier not found: missing"),
+            Arguments.of("(1 + 2) * (\"a\" + \"b\")", "type mismatch: INTEGER * STRING"),
             Arguments.of(
                 """
                     if (10 > 1) {
@@ -148,6 +166,12 @@ class EvaluatorTest {
             Arguments.of("len(\"hello world\")", 11L),
             Arguments.of("len(1)", "argument to 'len' not supported, got INTEGER"),
             Arguments.of("len(\"one\", \"two\")", "wrong number of arguments. got=2, want=1"),
+            Arguments.of("len()", "wrong number of arguments. got=0, want=1"),
+            Arguments.of("len(\"a\", \"b\", \"c\")", "wrong number of arguments. got=3, want=1"),
+            Arguments.of("push([1])", "wrong number of arguments. got=1, want=2"),
+            Arguments.of("push([1], 2, 3)", "wrong number of arguments. got=3, want=2"),
+            Arguments.of("len(-true)", "unknown operator: -BOOLEAN"),
+            Arguments.of("push([], -true)", "unknown operator: -BOOLEAN"),
             Arguments.of("len([1, 2, 3])", 3L),
             Arguments.of("len([])", 0L),
             Arguments.of("let a = [1+1, 2]; len(a)", 2L),
@@ -162,6 +186,22 @@ class EvaluatorTest {
             Arguments.of("rest([10])", Collections.emptyList()),
             Arguments.of("rest([])", null),
             Arguments.of("rest(\"test\")", "argument to 'rest' not supported, got STRING"),
+            Arguments.of("range(3)", List.of(0L, 1L, 2L)),
+            Arguments.of("range(2, 4)", List.of(2L, 3L)),
+            Arguments.of("range(3, 1)", Collections.emptyList()),
+            Arguments.of("range()", "wrong number of arguments to 'range'. got=0, want=1 or 2"),
+            Arguments.of("range(\"a\")", "arguments to 'range' must be INTEGER, got STRING"),
+            Arguments.of("let fib = memoize(fn(n) { if (n < 2) { n } else { fib(n - 1) + fib(n - 2) } }); fib(80)", 23416728348467685L),
+            Arguments.of("let fib = memoize(fn(n) { if (n < 2) { n } else { fib(n - 1) + fib(n - 2) } }); fib(30); memoStats(fib)[\"hits\"]", 28L),
+            Arguments.of("let f = memoize(fn(x) { x * 2 }, {\"size\": 1}); f(1); f(2); f(1); memoStats(f)[\"evictions\"]", 2L),
+            Arguments.of("let f = memoize(fn(x) { x * 2 }, {\"policy\": \"lfu\"}); f(1); f(1); memoStats(f)[\"size\"]", 1L),
+            Arguments.of("memoize()", "wrong number of arguments to 'memoize'. got=0, want=1 or 2"),
+            Arguments.of("memoize(1)", "first argument to 'memoize' must be FUNCTION, got INTEGER"),
+            Arguments.of("memoize(len, 1)", "second argument to 'memoize' must be HASH, got INTEGER"),
+            Arguments.of("memoize(len, {\"size\": 0})", "memoize size must be a positive INTEGER, got 0"),
+            Arguments.of("memoize(len, {\"policy\": \"fifo\"})", "memoize policy must be \"lru\" or \"lfu\", got fifo"),
+            Arguments.of("memoize(len, {\"colour\": 1})", "unknown memoize option: colour"),
+            Arguments.of("memoStats(len)", "argument to 'memoStats' must be a memoized function, got BUILTIN"),
 
             // Test that rest does not modify original array
             Arguments.of(
@@ -191,6 +231,17 @@ class EvaluatorTest {
         );
     }
 
+    private static Stream<Arguments> provideScoping() {
+        return Stream.of(
+            Arguments.of("let x = 1; let f = fn() { let y = x; let x = 2; y + x }; f();", 3L),
+            Arguments.of("let f = fn() { g() }; let g = fn() { 7 }; f();", 7L),
+            Arguments.of("let x = 10; let f = fn(x) { x }; f(1) + x;", 11L),
+            Arguments.of("let f = fn(a) { if (a) { let b = 2; } b }; let b = 5; f(false);", 5L),
+            Arguments.of("let len = fn(x) { 42 }; len([1]);", 42L),
+            Arguments.of("let outer = fn(a) { fn(b) { fn(c) { a + b + c } } }; outer(1)(2)(3);", 6L)
+        );
+    }
+
     @ParameterizedTest
     @CsvSource({
         "5,5",
@@ -214,6 +265,46 @@ class EvaluatorTest {
         testIntegerObject(evaluated, expected);
     }
 
+    @Test
+    void testArithmeticKeepsWorkingOnOtherTypes() {
+        final MonkeyObject evaluated = testEval("let f = fn(a, b) { (a + b) + (a + b) }; [f(1, 2), f(\"x\", \"y\"), f(3, 4)]");
+
+        assertThat(evaluated.inspect()).isEqualTo("[6, xyxy, 14]");
+    }
+
+    @ParameterizedTest
+    @CsvSource(delimiter = '|', value = {
+        "1.5 + 2.25|3.75",
+        "-1.5|-1.5",
+        "7 / 2|3",
+        "7 / 2.0|3.5",
+        "2 * 1.5|3.0",
+        "(1.5 + 1) * (2 - 0.5)|3.75",
+        "1.0 == 1|true",
+        "0.5 < 1|true",
+        "{1.5: 2}[1.5]|2",
+        // The same arithmetic on integers, floats, and both
+        "let f = fn(a, b) { a * b + 1 }; [f(1, 2), f(1.5, 2), f(2, 3), f(0.5, 0.5), f(2, 0.25)]|[3, 4.0, 7, 1.25, 1.5]",
+        "let g = fn(x) { 2 * x - 1 }; [g(1.5), g(3), g(0.25)]|[2.0, 5, -0.5]",
+        "let h = fn(x, y) { x + y * 2 }; [h(0.5, 1), h(1, 1), h(0.5, 0.25), h(2, 1)]|[2.5, 3, 1.0, 4]",
+        "let t = 0.0; let i = 0; while (i < 4) { t = t + i * 0.5; i = i + 1 }; t|3.0"
+    })
+    void testFloatExpressions(String input, String expected) {
+        final MonkeyObject evaluated = testEval(input);
+
+        assertThat(evaluated.inspect())
+            .withFailMessage("%s: got=%s, want=%s", input, evaluated.inspect(), expected)
+            .isEqualTo(expected);
+    }
+
+    @Test
+    void testSmallIntegersAreShared() {
+        assertThat(testEval("2 * (5 + 10)")).isSameAs(testEval("(5 + 10) * 2"));
+        assertThat(testEval("(%d + 1) * 1".formatted(Int.CACHE_MAX)))
+            .isEqualTo(new Int(Int.CACHE_MAX + 1))
+            .isNotSameAs(Int.of(Int.CACHE_MAX + 1));
+    }
+
     @ParameterizedTest
     @MethodSource("provideArrayIndexExpressions")
     void testArrayIndexExpressions(String input, Long expected) {
@@ -488,6 +579,16 @@ class EvaluatorTest {
             .isEqualTo(expectedMessage);
     }
 
+    @Test
+    void testErrorMessagesAreRenderedWhenAskedFor() {
+        final MonkeyError formatted = Evaluator.newError("%d%% of %s", 50, ObjectType.INTEGER);
+
+        assertThat(formatted.message()).isEqualTo("50% of INTEGER");
+        assertThat(formatted.inspect()).isEqualTo("ERROR: 50% of INTEGER");
+        assertThat(new MonkeyError("100%").message()).isEqualTo("100%");
+        assertThat(formatted).isEqualTo(new MonkeyError("50% of INTEGER")).hasSameHashCodeAs(new MonkeyError("50% of INTEGER"));
+    }
+
     @ParameterizedTest
     @MethodSource("provideLetStatements")
     void testLetStatements(String input, long expected) {
@@ -527,6 +628,121 @@ class EvaluatorTest {
         testIntegerObject(testEval(input), expected);
     }
 
+    @ParameterizedTest
+    @MethodSource("provideScoping")
+    void testScoping(String input, long expected) {
+        testIntegerObject(testEval(input), expected);
+    }
+
+    @Test
+    void testEnvironmentKeepsGlobalsAcrossPrograms() {
+        final var env = new Environment();
+
+        Evaluator.eval(new Parser(new Lexer("let f = fn() { later };")).parseProgram(), env);
+        Evaluator.eval(new Parser(new Lexer("let later = 5;")).parseProgram(), env);
+
+        testIntegerObject(Evaluator.eval(new Parser(new Lexer("f()")).parseProgram(), env), 5L);
+    }
+
+    @Test
+    void testBuiltinCachedOnGlobalGivesWayToLaterBinding() {
+        final var env = new Environment();
+
+        Evaluator.eval(new Parser(new Lexer("let size = fn(x) { len(x) };")).parseProgram(), env);
+        testIntegerObject(Evaluator.eval(new Parser(new Lexer("size(\"abc\")")).parseProgram(), env), 3L);
+        testIntegerObject(Evaluator.eval(new Parser(new Lexer("size(\"abcd\")")).parseProgram(), env), 4L);
+
+        Evaluator.eval(new Parser(new Lexer("let len = fn(x) { 42 };")).parseProgram(), env);
+
+        testIntegerObject(Evaluator.eval(new Parser(new Lexer("size(\"abc\")")).parseProgram(), env), 42L);
+    }
+
+    private static Stream<Arguments> provideRecycledFrames() {
+        return Stream.of(
+            // A let read before it runs in this call must not see the value from the last one
+            Arguments.of("let x = 1; let f = fn() { let y = x; let x = 2; y }; f() + f() * 10", 11L),
+            Arguments.of("let fib = fn(n) { if (n < 2) { n } else { fib(n - 1) + fib(n - 2) } }; fib(15)", 610L),
+            // Nor a return that ended the last one
+            Arguments.of("let f = fn(x) { if (x) { return 1; } 2 }; f(true) + f(false) * 10", 21L),
+            Arguments.of("let fib = fn(n) { if (n < 2) { return n; } return fib(n - 1) + fib(n - 2); }; fib(15)", 610L),
+            // Frames of the same size shared between different functions
+            Arguments.of("let a = fn(x) { x + 1 }; let b = fn(y) { a(y) * 2 }; b(1) + a(b(2))", 11L),
+            // Closures keep the frame of the function making them
+            Arguments.of("let adder = fn(x) { fn(y) { x + y } }; let a = adder(1); let b = adder(2); a(10) + b(20)", 33L)
+        );
+    }
+
+    @ParameterizedTest
+    @MethodSource("provideRecycledFrames")
+    void testRecycledFrames(String input, long expected) {
+        testIntegerObject(testEval(input), expected);
+    }
+
+    @Test
+    void testFrameTakenForFailedCallIsRecycled() {
+        final var env = new Environment();
+
+        Evaluator.eval(new Parser(new Lexer("let f = fn(x, y) { x + y };")).parseProgram(), env);
+        Evaluator.eval(new Parser(new Lexer("f(1, -true)")).parseProgram(), env);
+        Evaluator.eval(new Parser(new Lexer("f(1)")).parseProgram(), env);
+
+        testIntegerObject(Evaluator.eval(new Parser(new Lexer("f(1, 2)")).parseProgram(), env), 3L);
+    }
+
+    private static Stream<Arguments> provideTailCalls() {
+        return Stream.of(
+            Arguments.of("let count = fn(n, acc) { if (n == 0) { acc } else { count(n - 1, acc + 1) } }; count(100000, 0);", 100000L),
+            Arguments.of("let count = fn(n, acc) { if (n == 0) { return acc; } return count(n - 1, acc + 1); }; count(100000, 0);", 100000L),
+            Arguments.of("""
+                let build = fn(n, arr) { if (n == 0) { arr } else { build(n - 1, push(arr, n)) } };
+                let sum = fn(arr, acc) { if (len(arr) == 0) { acc } else { sum(rest(arr), acc + first(arr)) } };
+                sum(build(5000, []), 0);
+                """, 12502500L),
+            Arguments.of("""
+                let isEven = fn(n) { if (n == 0) { true } else { isOdd(n - 1) } };
+                let isOdd = fn(n) { if (n == 0) { false } else { isEven(n - 1) } };
+                if (isEven(100000)) { 1 } else { 0 };
+                """, 1L),
+            Arguments.of("let f = fn(x) { if (x > 0) { return len([x]); } 0 }; f(3);", 1L)
+        );
+    }
+
+    @ParameterizedTest
+    @MethodSource("provideTailCalls")
+    void testTailCallsRunInConstantStack(String input, long expected) {
+        testIntegerObject(testEval(input), expected);
+    }
+
+    private static Stream<Arguments> provideLoops() {
+        return Stream.of(
+            Arguments.of("let i = 0; let s = 0; while (i < 10) { s = s + i; i = i + 1; }; s", 45L),
+            Arguments.of("let s = 0; for (i in range(1, 11)) { s = s + i; }; s", 55L),
+            Arguments.of("let s = 0; for (x in [3, 4, 5]) { s = s * 10 + x; }; s", 345L),
+            // Far more iterations than the stack could take calls
+            Arguments.of("let sum = fn(n) { let s = 0; for (i in range(n + 1)) { s = s + i; }; s }; sum(200000)", 20000100000L),
+            Arguments.of("let count = fn(n) { while (n > 0) { n = n - 1; }; n }; count(200000)", 0L),
+            // A return ends the loop and the function
+            Arguments.of("let find = fn(xs) { for (x in xs) { if (x > 2) { return x; } }; -1 }; find([1, 5, 3]) * 10 + find([1])", 49L),
+            Arguments.of("let f = fn() { let i = 0; while (true) { i = i + 1; if (i == 7) { return i; } } }; f()", 7L),
+            // A loop is worth null
+            Arguments.of("let x = while (false) { 1 }; if (x) { 1 } else { 2 }", 2L),
+            // Assignment reaches the frame that binds the name, closures see it
+            Arguments.of("let counter = fn() { let c = 0; fn() { c = c + 1; c } }; let next = counter(); next(); next(); next()", 3L),
+            Arguments.of("let total = 0; let add = fn(x) { total = total + x; }; add(2); add(3); total", 5L),
+            Arguments.of("let f = fn(x) { let read = fn() { x }; x = x + 1; read() }; f(1)", 2L),
+            // The loop variable is one binding, which closures made in the loop share
+            Arguments.of("let f = fn() { let fs = []; for (i in range(3)) { let j = i * 10; fs = push(fs, fn() { i + j }); }; fs[0]() }; f()", 22L),
+            // Hot enough to be compiled, which is left to the evaluator for functions with loops
+            Arguments.of("let f = fn(n) { let i = 0; while (i < n) { i = i + 1; }; i }; let k = 0; for (j in range(2000)) { k = k + f(3); }; k", 6000L)
+        );
+    }
+
+    @ParameterizedTest
+    @MethodSource("provideLoops")
+    void testLoops(String input, long expected) {
+        testIntegerObject(testEval(input), expected);
+    }
+
     @Test
     void testClosures() {
         var input = """
@@ -541,6 +757,97 @@ class EvaluatorTest {
         testIntegerObject(testEval(input), 4);
     }
 
+    @Test
+    void testClosureKeepsOnlyTheSlotsItReads() {
+        final MonkeyObject adder = testEval("let adder = fn(big, x) { fn(y) { x + y } }; adder([1, 2, 3], 1)");
+
+        assertThat(adder).isInstanceOfSatisfying(MonkeyFunction.class, fn -> {
+            assertThat(fn.env().get(0, 0)).withFailMessage("unread slot was kept: %s", fn.env().get(0, 0)).isNull();
+            testIntegerObject(fn.env().get(0, 1), 1);
+        });
+    }
+
+    @Test
+    void testClosedLiteralsMakeOneClosure() {
+        final var env = new Environment();
+
+        Evaluator.eval(new Parser(new Lexer("let less = fn() { fn(a, b) { a < b } }; let adder = fn(x) { fn(y) { x + y } };")).parseProgram(), env);
+
+        final MonkeyObject first = Evaluator.eval(new Parser(new Lexer("less()")).parseProgram(), env);
+
+        assertThat(Evaluator.eval(new Parser(new Lexer("less()")).parseProgram(), env)).isSameAs(first);
+        assertThat(Evaluator.eval(new Parser(new Lexer("adder(1)")).parseProgram(), env))
+            .isNotSameAs(Evaluator.eval(new Parser(new Lexer("adder(1)")).parseProgram(), env));
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {
+        "let make = fn(x) { let y = x * 2; fn(z) { x + y + z } }; make(1)(1) + make(2)(2)",
+        "let make = fn(x) { let f = fn() { y }; let y = x; f() }; make(4) + make(6) + 2",
+        "let make = fn(x) { let f = fn() { g() + x }; let g = fn() { x }; f() }; make(2) * 3"
+    })
+    void testTrimmedClosures(String input) {
+        testIntegerObject(testEval(input), 12);
+    }
+
+    private static Stream<Arguments> provideArgumentsPassedByNeed() {
+        return Stream.of(
+            // Never read, so never evaluated
+            Arguments.of("let f = fn(a, b) { a }; f(1, missing + 1)", 1L),
+            Arguments.of("let pick = fn(c, x, y) { if (c) { x } else { y } }; pick(true, 1 + 1, -true)", 2L),
+            // Forced after the frame it was made in has been given back
+            Arguments.of("let f = fn(c, x) { if (c) { x } else { 0 } }; let g = fn(n) { f(true, n * 2) + f(false, n - missing) }; g(1) + g(20)", 42L),
+            // Passed on without being forced
+            Arguments.of("let f = fn(c, x) { if (c) { x } else { 0 } }; let g = fn(c, y) { f(c, y) }; g(true, 2 + 3) + g(false, missing + 1)", 5L),
+            // Kept by a closure
+            Arguments.of("let f = fn(a, b) { fn() { b } }; f(1, 2 + 3)()", 5L),
+            // A strict accumulator does not build up a chain of thunks
+            Arguments.of("let count = fn(n, acc) { if (n == 0) { acc } else { count(n - 1, acc + n) } }; count(100000, 0)", 5000050000L)
+        );
+    }
+
+    @ParameterizedTest
+    @MethodSource("provideArgumentsPassedByNeed")
+    void testArgumentsPassedByNeed(String input, long expected) {
+        final Program program = new Parser(new Lexer(input)).parseProgram();
+
+        testIntegerObject(Evaluator.evalLazily(program, new Environment()), expected);
+    }
+
+    private static Stream<Arguments> provideParallelEvaluation() {
+        final String fib = "let fib = fn(n) { if (n < 2) { n } else { add(fib(n - 1), fib(n - 2)) } }; let add = fn(a, b) { a + b }; ";
+        final String sum = "let sum = fn(n) { let t = 0; for (i in range(n)) { t = t + i }; t }; ";
+
+        return Stream.of(
+            Arguments.of(fib + "let a = fib(15); let b = fib(16); [a, b, [fib(10), fib(11)], {\"x\": fib(12), \"y\": fib(13)}[\"y\"]]", "[610, 987, [55, 89], 233]"),
+            Arguments.of(sum + "let a = sum(100); let b = a + sum(10); let c = sum(20); [a, b, c]", "[4950, 4995, 190]"),
+            Arguments.of(sum + "len([sum(10), sum(20)]) + first([sum(5), sum(6)])", "12"),
+            // The first error in evaluation order wins, as it would on one thread
+            Arguments.of(sum + "[sum(10) + missing, sum(20) + true]", "ERROR: identifier not found: missing"),
+            Arguments.of(sum + "let a = sum(10); let b = sum(20) + true; let c = sum(missing); a", "ERROR: type mismatch: INTEGER + BOOLEAN"),
+            Arguments.of(sum + "{sum(3): sum(10), fn() { 1 }: sum(20)}", "ERROR: unusable as hash key: FUNCTION")
+        );
+    }
+
+    @ParameterizedTest
+    @MethodSource("provideParallelEvaluation")
+    void testParallelEvaluation(String input, String expected) {
+        final Program program = new Parser(new Lexer(input)).parseProgram();
+
+        assertThat(Evaluator.evalInParallel(program, new Environment()).inspect())
+            .withFailMessage("%s evaluated in parallel", input)
+            .isEqualTo(expected);
+        assertThat(testEval(input).inspect()).isEqualTo(expected);
+    }
+
+    @Test
+    void testThunksAreEvaluatedOnce() {
+        final var statement = (ExpressionStatement) new Parser(new Lexer("[1, 2]")).parseProgram().getStatements().getFirst();
+        final var thunk = new Thunk(statement.getExpression(), new Environment());
+
+        assertThat(thunk.force()).isSameAs(thunk.force());
+    }
+
     private void testNullObject(MonkeyObject evaluated) {
         assertThat(evaluated)
             .withFailMessage("object is not NULL. got=%s", evaluated)
@@ -0,0 +1,51 @@
+package com.warrington.monkey.evaluator;
+
+import com.warrington.monkey.object.Environment;
+import com.warrington.monkey.object.Int;
+import org.junit.jupiter.api.Test;
+
+import java.util.Collections;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class FramePoolTest {
+
+    @Test
+    void testReleasedFramesAreHandedOutEmpty() {
+        final var globals = new Environment();
+        final Environment frame = FramePool.acquire(globals, List.of("a", "b"));
+
+        frame.set(0, new Int(1));
+        frame.set(1, new Int(2));
+        FramePool.release(frame);
+
+        final Environment reused = FramePool.acquire(globals, List.of("x", "y"));
+
+        assertThat(reused).isSameAs(frame);
+        assertThat(reused.get(0, 0)).isNull();
+        assertThat(reused.get(0, 1)).isNull();
+        assertThat(reused.names()).containsExactly("x", "y");
+    }
+
+    @Test
+    void testFramesOnlyGoToCallsOfTheSameSize() {
+        final var globals = new Environment();
+        final Environment frame = FramePool.acquire(globals, List.of("a"));
+
+        FramePool.release(frame);
+
+        assertThat(FramePool.acquire(globals, List.of("a", "b"))).isNotSameAs(frame);
+        assertThat(FramePool.acquire(globals, List.of("a"))).isSameAs(frame);
+    }
+
+    @Test
+    void testLargeFramesAreNotKept() {
+        final List<String> names = Collections.nCopies(FramePool.MAX_SLOTS + 1, "x");
+        final Environment frame = FramePool.acquire(new Environment(), names);
+
+        FramePool.release(frame);
+
+        assertThat(FramePool.acquire(new Environment(), names)).isNotSameAs(frame);
+    }
+}
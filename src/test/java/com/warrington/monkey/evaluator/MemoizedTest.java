@@ -0,0 +1,137 @@
+package com.warrington.monkey.evaluator;
+
+import com.warrington.monkey.object.*;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class MemoizedTest {
+    private final AtomicInteger calls = new AtomicInteger();
+    // Doubles its argument, counting how often it really ran
+    private final Builtin twice = new Builtin((BuiltinFunction.Unary) arg -> {
+        calls.incrementAndGet();
+
+        return arg instanceof Int(long value) ? Int.of(value * 2) : Evaluator.newError("not an integer");
+    });
+
+    @Test
+    void testRepeatedCallsAreAnsweredFromTheCache() {
+        final var memoized = new Memoized(twice, 10, Memoized.Policy.LRU);
+
+        assertThat(memoized.apply(Int.of(21))).isEqualTo(Int.of(42));
+        assertThat(memoized.apply(Int.of(21))).isEqualTo(Int.of(42));
+        assertThat(calls.get()).isEqualTo(1);
+        assertThat(stat(memoized, "hits")).isEqualTo(1);
+        assertThat(stat(memoized, "misses")).isEqualTo(1);
+        assertThat(stat(memoized, "size")).isEqualTo(1);
+    }
+
+    @Test
+    void testErrorsAndUnhashableArgumentsAreNotCached() {
+        final var memoized = new Memoized(twice, 10, Memoized.Policy.LRU);
+        final var array = new Array(List.of());
+
+        assertThat(memoized.apply(Int.of(1), Int.of(2))).isInstanceOf(MonkeyError.class);
+        assertThat(memoized.apply(Int.of(1), Int.of(2))).isInstanceOf(MonkeyError.class);
+        assertThat(memoized.apply(array)).isInstanceOf(MonkeyError.class);
+        assertThat(stat(memoized, "misses")).isEqualTo(3);
+        assertThat(stat(memoized, "size")).isZero();
+    }
+
+    @Test
+    void testNoCapacityKeepsNothing() {
+        for (Memoized.Policy policy : Memoized.Policy.values()) {
+            final var memoized = new Memoized(twice, 0, policy);
+
+            calls.set(0);
+
+            assertThat(memoized.apply(Int.of(21))).isEqualTo(Int.of(42));
+            assertThat(memoized.apply(Int.of(21))).isEqualTo(Int.of(42));
+            assertThat(calls.get()).isEqualTo(2);
+            assertThat(stat(memoized, "size")).isZero();
+            assertThat(stat(memoized, "evictions")).isZero();
+        }
+    }
+
+    @Test
+    void testLeastRecentlyUsedResultIsEvicted() {
+        final var memoized = new Memoized(twice, 2, Memoized.Policy.LRU);
+
+        memoized.apply(Int.of(1));
+        memoized.apply(Int.of(2));
+        memoized.apply(Int.of(1));
+        memoized.apply(Int.of(3));
+        calls.set(0);
+
+        memoized.apply(Int.of(1));
+        memoized.apply(Int.of(3));
+        assertThat(calls.get()).isZero();
+
+        memoized.apply(Int.of(2));
+        assertThat(calls.get()).isEqualTo(1);
+        assertThat(stat(memoized, "evictions")).isEqualTo(2);
+    }
+
+    @Test
+    void testLeastFrequentlyUsedResultIsEvicted() {
+        final var memoized = new Memoized(twice, 2, Memoized.Policy.LFU);
+
+        memoized.apply(Int.of(1));
+        memoized.apply(Int.of(1));
+        memoized.apply(Int.of(2));
+        // 2 was used last but less often than 1
+        memoized.apply(Int.of(3));
+        calls.set(0);
+
+        memoized.apply(Int.of(1));
+        memoized.apply(Int.of(3));
+        assertThat(calls.get()).isZero();
+
+        memoized.apply(Int.of(2));
+        assertThat(calls.get()).isEqualTo(1);
+        assertThat(stat(memoized, "evictions")).isEqualTo(2);
+    }
+
+    @Test
+    void testConcurrentCallsKeepTheCacheConsistent() throws Exception {
+        final var memoized = new Memoized(twice, 50, Memoized.Policy.LFU);
+        final ExecutorService executor = Executors.newFixedThreadPool(4);
+        final var results = new ArrayList<Future<Boolean>>();
+
+        try {
+            for (int thread = 0; thread < 4; thread++) {
+                results.add(executor.submit(() -> {
+                    for (int i = 0; i < 10_000; i++) {
+                        final long n = i * 7919L % 100;
+
+                        if (!memoized.apply(Int.of(n)).equals(Int.of(n * 2))) {
+                            return false;
+                        }
+                    }
+
+                    return true;
+                }));
+            }
+
+            for (Future<Boolean> result : results) {
+                assertThat(result.get()).isTrue();
+            }
+        } finally {
+            executor.shutdown();
+        }
+
+        assertThat(stat(memoized, "hits") + stat(memoized, "misses")).isEqualTo(40_000);
+        assertThat(stat(memoized, "size")).isEqualTo(50);
+    }
+
+    private static long stat(Memoized memoized, String name) {
+        return ((Int) memoized.stats().pairs().get(new Str(name).hashKey()).value()).value();
+    }
+}
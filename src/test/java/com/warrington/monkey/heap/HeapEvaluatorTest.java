@@ -0,0 +1,104 @@
+package com.warrington.monkey.heap;
+
+import com.warrington.monkey.ast.Program;
+import com.warrington.monkey.lexer.Lexer;
+import com.warrington.monkey.object.*;
+import com.warrington.monkey.parser.Parser;
+import com.warrington.monkey.repl.Engine;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class HeapEvaluatorTest {
+
+    private static final String SUM = "let sum = fn(n) { if (n == 0) { 0 } else { n + sum(n - 1) } };";
+
+    @ParameterizedTest
+    @ValueSource(strings = {
+        "(5 + 10 * 2 + 15 / 3) * 2 + -10",
+        "1 < 2 == true",
+        "!!5",
+        "if (1 > 2) { 10 } else { 20 }",
+        "if (false) { 10 }",
+        "9; return 2 * 5; 9;",
+        "if (10 > 1) { if (10 > 1) { return 10; } return 1; }",
+        "1 + if (true) { return 3; } else { 4 }",
+        "let f = fn() { let x = if (true) { return 3; 4 }; 5 }; f()",
+        "let f = fn() { if (true) { let a = 1; if (a == 1) { return a + 1; } 3 } 4 }; f()",
+        "5 + true; 5;",
+        "-true",
+        "foobar",
+        "\"Hello\" + \" \" + \"World!\"",
+        "let myArray = [1, 2, 3]; let i = myArray[0]; myArray[i]",
+        "[1, foobar, 3]",
+        "{\"foo\": 5, \"bar\": 1 + 1}",
+        "{\"name\": \"Monkey\"}[fn(x) { x }];",
+        "{fn(x) { x }: undefined}",
+        "len(\"one\", \"two\")",
+        "rest([10, 15, 20])",
+        "5()",
+        "let add = fn(x, y) { x + y; }; add(5 + 5, add(5, 5));",
+        "let newAdder = fn(x) { fn(y) { x + y } }; let addTwo = newAdder(2); addTwo(2);",
+        "let f = fn() { g() }; let g = fn() { 7 }; f();",
+        "let x = 1; let f = fn() { let y = x; let x = 2; y + x }; f();",
+        "let fibonacci = fn(x) { if (x < 2) { return x; } fibonacci(x - 1) + fibonacci(x - 2); }; fibonacci(15);",
+        "let scale = fn(x, k) { x * k + 0.5 }; [scale(2, 3), scale(1.5, 2), scale(4, 2), -2.5 * 2, 1 == 1.0, 3.0 / 2]"
+    })
+    void testAgreesWithEvaluator(String input) {
+        final MonkeyObject expected = Engine.EVALUATOR.newSession().run(parse(input));
+        final MonkeyObject actual = Engine.HEAP.newSession().run(parse(input));
+
+        assertThat(actual.inspect())
+            .withFailMessage("heap and evaluator disagree on %s. evaluator=%s, heap=%s", input, expected.inspect(), actual.inspect())
+            .isEqualTo(expected.inspect());
+    }
+
+    @Test
+    void testDeepRecursionOnSmallThreadStack() throws InterruptedException {
+        final var result = new AtomicReference<MonkeyObject>();
+        final var thread = new Thread(null, () -> result.set(new HeapEvaluator().eval(parse(SUM + "sum(100000)"), new Environment())), "small-stack", 64 * 1024);
+
+        thread.start();
+        thread.join();
+
+        assertThat(result.get()).isEqualTo(new Int(5000050000L));
+    }
+
+    @Test
+    void testTailCallsDoNotGrowTheStack() {
+        final var input = "let count = fn(n, acc) { if (n == 0) { acc } else { count(n - 1, acc + 1) } }; count(100000, 0);";
+
+        assertThat(new HeapEvaluator(64).eval(parse(input), new Environment())).isEqualTo(new Int(100000));
+    }
+
+    @Test
+    void testExceedingBudgetIsAnError() {
+        final MonkeyObject result = new HeapEvaluator(1000).eval(parse(SUM + "sum(100000)"), new Environment());
+
+        assertThat(result).isEqualTo(new MonkeyError("stack overflow: more than 1000 stack entries"));
+    }
+
+    @Test
+    void testTooFewArgumentsIsAnError() {
+        final MonkeyObject result = new HeapEvaluator().eval(parse("let f = fn(x, y) { x }; f(1)"), new Environment());
+
+        assertThat(result).isEqualTo(new MonkeyError("wrong number of arguments. got=1, want=2"));
+    }
+
+    @Test
+    void testEvaluatorIsReusable() {
+        final var evaluator = new HeapEvaluator(1000);
+
+        evaluator.eval(parse(SUM + "sum(100000)"), new Environment());
+
+        assertThat(evaluator.eval(parse(SUM + "sum(100)"), new Environment())).isEqualTo(new Int(5050));
+    }
+
+    private Program parse(String input) {
+        return new Parser(new Lexer(input)).parseProgram();
+    }
+}
@@ -0,0 +1,187 @@
+package com.warrington.monkey.jit;
+
+import com.warrington.monkey.analysis.Resolver;
+import com.warrington.monkey.ast.ExpressionStatement;
+import com.warrington.monkey.ast.FunctionLiteral;
+import com.warrington.monkey.ast.LetStatement;
+import com.warrington.monkey.ast.Program;
+import com.warrington.monkey.evaluator.Evaluator;
+import com.warrington.monkey.lexer.Lexer;
+import com.warrington.monkey.object.*;
+import com.warrington.monkey.parser.Parser;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class JitTest {
+
+    @ParameterizedTest
+    @ValueSource(strings = {
+        "(5 + 10 * 2 + 15 / 3) * 2 + -10",
+        "1 < 2 == true",
+        "!!5",
+        "if (1 > 2) { 10 } else { 20 }",
+        "if (false) { 10 }",
+        "9; return 2 * 5; 9;",
+        "if (10 > 1) { if (10 > 1) { return 10; } return 1; }",
+        "1 + if (true) { return 3; } else { 4 }",
+        "let x = if (true) { return 3; 4 }; 5",
+        "len([if (true) { if (true) { return 1; } 2 }])",
+        "if (true) { let a = 1; if (a == 1) { return a + 1; } 3 } 4",
+        "5 + true; 5;",
+        "-true",
+        "foobar",
+        "\"Hello\" + \" \" + \"World!\"",
+        "\"Hello\" - \"World\"",
+        "let myArray = [1, 2, 3]; let i = myArray[0]; myArray[i]",
+        "[1, foobar, 3]",
+        "{\"foo\": 5, \"bar\": 1 + 1}",
+        "{\"name\": \"Monkey\"}[fn(x) { x }];",
+        "len(\"one\", \"two\")",
+        "rest([10, 15, 20])",
+        "let add = fn(x, y) { x + y; }; add(5 + 5, add(5, 5));",
+        "let newAdder = fn(x) { fn(y) { x + y } }; let addTwo = newAdder(2); addTwo(2);",
+        "let newAdder = fn(x) { fn(y) { x + y } }; newAdder(2)",
+        "let f = fn() { g() }; let g = fn() { 7 }; f();",
+        "let y = 1; let f = fn() { let z = y; let y = 2; z + y }; f();",
+        "let x = 3; x * x",
+        "let less = fn() { fn(a, b) { a < b } }; [less()(1, 2), less()(2, 1), less() == less()]",
+        "let scale = fn(x, k) { x * k + 0.5 }; [scale(2, 3), scale(1.5, 2), scale(4, 2), -2.5 * 2, 1 == 1.0, 3.0 / 2]"
+    })
+    void testCompiledCodeAgreesWithEvaluator(String input) {
+        final String wrapped = "fn() { %s }".formatted(input);
+
+        final MonkeyObject expected = Evaluator.eval(parse(wrapped + "()"), new Environment());
+        final MonkeyObject actual = compileAndCall(wrapped);
+
+        assertThat(actual.inspect())
+            .withFailMessage("compiled code and evaluator disagree on %s. evaluator=%s, compiled=%s", input, expected.inspect(), actual.inspect())
+            .isEqualTo(expected.inspect());
+    }
+
+    @Test
+    void testHotFunctionIsCompiled() {
+        final var input = """
+            let fibonacci = fn(x) {
+                if (x < 2) { return x; }
+                fibonacci(x - 1) + fibonacci(x - 2);
+            };
+            fibonacci(20);
+            """;
+
+        final Program program = parse(input);
+        final var literal = (FunctionLiteral) ((LetStatement) program.getStatements().getFirst()).value();
+
+        assertThat(Evaluator.eval(program, new Environment())).isEqualTo(new Int(6765));
+        assertThat(literal.compiled())
+            .withFailMessage("fibonacci was called %d times but never compiled", 21891)
+            .isNotNull();
+    }
+
+    @Test
+    void testHotFunctionIsCompiledWhenArgumentsArePassedByNeed() {
+        final Program program = parse("let fibonacci = fn(x) { if (x < 2) { x } else { fibonacci(x - 1) + fibonacci(x - 2) } }; fibonacci(20);");
+        final var literal = (FunctionLiteral) ((LetStatement) program.getStatements().getFirst()).value();
+
+        assertThat(Evaluator.evalLazily(program, new Environment())).isEqualTo(new Int(6765));
+        assertThat(literal.compiled())
+            .withFailMessage("fibonacci is strict in x, yet was never compiled")
+            .isNotNull();
+    }
+
+    @Test
+    void testArgumentsPassedByNeedStayUnevaluatedOnceHot() {
+        final var input = """
+            let f = fn(c, x) { if (c) { x } else { 0 } };
+            let g = fn(c, y) { f(c, y) };
+            let warm = fn(n) { if (n == 0) { 0 } else { g(true, n) + warm(n - 1) } };
+            warm(%d);
+            g(false, missing + 1)
+            """.formatted(Jit.THRESHOLD + 1);
+
+        final Program program = parse(input);
+
+        assertThat(Evaluator.evalLazily(program, new Environment()))
+            .withFailMessage("a hot function evaluated an argument it never needed")
+            .isEqualTo(Int.of(0));
+
+        for (int i = 0; i < 2; i++) {
+            assertThat(((FunctionLiteral) ((LetStatement) program.getStatements().get(i)).value()).compiled()).isNull();
+        }
+    }
+
+    @Test
+    void testColdFunctionStaysInterpreted() {
+        final Program program = parse("let double = fn(x) { x * 2 }; double(2);");
+        final var literal = (FunctionLiteral) ((LetStatement) program.getStatements().getFirst()).value();
+
+        assertThat(Evaluator.eval(program, new Environment())).isEqualTo(new Int(4));
+        assertThat(literal.compiled()).isNull();
+    }
+
+    @Test
+    void testFunctionCalledOnSeveralThreadsIsCompiledOnce() throws Exception {
+        final Program program = parse("fn(x) { x * 2 }");
+
+        Resolver.resolve(program, new Environment());
+
+        final var literal = (FunctionLiteral) ((ExpressionStatement) program.getStatements().getFirst()).getExpression();
+        final ExecutorService executor = Executors.newFixedThreadPool(4);
+        final var compilations = new ArrayList<Future<Set<FunctionInfo>>>();
+
+        try {
+            for (int thread = 0; thread < 4; thread++) {
+                compilations.add(executor.submit(() -> {
+                    final Set<FunctionInfo> seen = Collections.newSetFromMap(new IdentityHashMap<>());
+
+                    for (int i = 0; i < Jit.THRESHOLD; i++) {
+                        final FunctionInfo info = Jit.tierUp(literal);
+
+                        if (info != null) {
+                            seen.add(info);
+                        }
+                    }
+
+                    return seen;
+                }));
+            }
+
+            final Set<FunctionInfo> seen = Collections.newSetFromMap(new IdentityHashMap<>());
+
+            for (Future<Set<FunctionInfo>> compilation : compilations) {
+                seen.addAll(compilation.get());
+            }
+
+            assertThat(literal.compiled()).isNotNull();
+            assertThat(seen).containsExactly(literal.compiled());
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    private MonkeyObject compileAndCall(String functionSource) {
+        final var globals = new Environment();
+        final Program program = parse(functionSource);
+
+        Resolver.resolve(program, globals);
+
+        final var literal = (FunctionLiteral) ((ExpressionStatement) program.getStatements().getFirst()).getExpression();
+        final FunctionInfo info = Jit.define(JitCompiler.compileFunction("com/warrington/monkey/jit/Test", literal)).function(0);
+
+        return Evaluator.applyFunction(new JvmFunction(info, globals));
+    }
+
+    private Program parse(String input) {
+        return new Parser(new Lexer(input)).parseProgram();
+    }
+}
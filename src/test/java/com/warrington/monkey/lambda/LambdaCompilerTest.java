@@ -0,0 +1,104 @@
+package com.warrington.monkey.lambda;
+
+import com.warrington.monkey.ast.Program;
+import com.warrington.monkey.lexer.Lexer;
+import com.warrington.monkey.object.*;
+import com.warrington.monkey.parser.Parser;
+import com.warrington.monkey.repl.Engine;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class LambdaCompilerTest {
+
+    @ParameterizedTest
+    @ValueSource(strings = {
+        "(5 + 10 * 2 + 15 / 3) * 2 + -10",
+        "1 < 2 == true",
+        "!!5",
+        "!null",
+        "if (1 > 2) { 10 } else { 20 }",
+        "if (false) { 10 }",
+        "9; return 2 * 5; 9;",
+        "if (10 > 1) { if (10 > 1) { return 10; } return 1; }",
+        "5 + true; 5;",
+        "-true",
+        "foobar",
+        "\"Hello\" + \" \" + \"World!\"",
+        "\"Hello\" - \"World\"",
+        "let myArray = [1, 2, 3]; let i = myArray[0]; myArray[i]",
+        "[1, foobar, 3]",
+        "{\"foo\": 5}[\"foo\"]",
+        "{\"name\": \"Monkey\"}[fn(x) { x }];",
+        "len(\"one\", \"two\")",
+        "rest([10, 15, 20])",
+        "let len = fn(x) { 42 }; len([1, 2]);",
+        "let add = fn(x, y) { x + y; }; add(5 + 5, add(5, 5));",
+        "let newAdder = fn(x) { fn(y) { x + y } }; let addTwo = newAdder(2); addTwo(2);",
+        "let f = fn() { g() }; let g = fn() { 7 }; f();",
+        "let x = 1; let f = fn() { let y = x; let x = 2; y + x }; f();",
+        "let scale = fn(x, k) { x * k + 0.5 }; [scale(2, 3), scale(1.5, 2), scale(4, 2), -2.5 * 2, 1 == 1.0, 3.0 / 2]"
+    })
+    void testAgreesWithEvaluator(String input) {
+        final MonkeyObject expected = Engine.EVALUATOR.newSession().run(parse(input));
+        final MonkeyObject actual = Engine.LAMBDA.newSession().run(parse(input));
+
+        assertThat(actual.inspect())
+            .withFailMessage("lambda and evaluator disagree on %s. evaluator=%s, lambda=%s", input, expected.inspect(), actual.inspect())
+            .isEqualTo(expected.inspect());
+    }
+
+    @Test
+    void testCompiledProgramIsReusable() {
+        final var input = """
+            let fibonacci = fn(x) {
+                if (x < 2) { return x; }
+                fibonacci(x - 1) + fibonacci(x - 2);
+            };
+            let n = 15;
+            fibonacci(n);
+            """;
+
+        final CompiledProgram program = LambdaCompiler.compile(parse(input), new Environment());
+
+        for (int i = 0; i < 100; i++) {
+            assertThat(program.run())
+                .withFailMessage("run %d gave a different result", i)
+                .isEqualTo(new Int(610));
+        }
+    }
+
+    @Test
+    void testRunsDoNotShareGlobals() {
+        final CompiledProgram program = LambdaCompiler.compile(parse("let total = base * 2; total"), new Environment());
+        final Environment globals = program.newGlobals();
+
+        globals.set("base", new Int(21));
+
+        assertThat(program.run(globals)).isEqualTo(new Int(42));
+        assertThat(program.run()).isEqualTo(new MonkeyError("identifier not found: base"));
+    }
+
+    @Test
+    void testClosuresAreMadeAgainstEachRunsGlobals() {
+        final CompiledProgram program = LambdaCompiler.compile(parse("let f = fn() { base }; f()"), new Environment());
+
+        for (int base = 1; base <= 2; base++) {
+            final Environment globals = program.newGlobals();
+
+            globals.set("base", new Int(base));
+
+            assertThat(program.run(globals))
+                .withFailMessage("run with base=%d kept a closure of an earlier run", base)
+                .isEqualTo(new Int(base));
+        }
+
+        assertThat(program.run()).isEqualTo(new MonkeyError("identifier not found: base"));
+    }
+
+    private Program parse(String input) {
+        return new Parser(new Lexer(input)).parseProgram();
+    }
+}
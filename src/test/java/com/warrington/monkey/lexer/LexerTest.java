@@ -148,4 +148,33 @@ class LexerTest {
                 .isEqualTo(expectedToken.literal());
         }
     }
+
+    @Test
+    void testLoopKeywords() {
+        final var lexer = new Lexer("while for in x = inside;");
+
+        assertThat(List.of(lexer.nextToken(), lexer.nextToken(), lexer.nextToken(), lexer.nextToken(), lexer.nextToken(), lexer.nextToken()))
+            .containsExactly(
+                new Token(WHILE, "while"),
+                new Token(FOR, "for"),
+                new Token(IN, "in"),
+                new Token(IDENT, "x"),
+                new Token(ASSIGN, "="),
+                new Token(IDENT, "inside"));
+    }
+
+    @Test
+    void testFloatLiterals() {
+        final var lexer = new Lexer("3.14 0.5 12 7.x");
+
+        assertThat(List.of(lexer.nextToken(), lexer.nextToken(), lexer.nextToken(), lexer.nextToken(), lexer.nextToken(), lexer.nextToken()))
+            .containsExactly(
+                new Token(FLOAT, "3.14"),
+                new Token(FLOAT, "0.5"),
+                new Token(INT, "12"),
+                // A point without digits after it is not part of the number
+                new Token(INT, "7"),
+                new Token(ILLEGAL, "."),
+                new Token(IDENT, "x"));
+    }
 }
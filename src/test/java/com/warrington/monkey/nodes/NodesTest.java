@@ -0,0 +1,96 @@
+package com.warrington.monkey.nodes;
+
+import com.warrington.monkey.ast.Program;
+import com.warrington.monkey.lexer.Lexer;
+import com.warrington.monkey.object.*;
+import com.warrington.monkey.parser.Parser;
+import com.warrington.monkey.repl.Engine;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class NodesTest {
+
+    @ParameterizedTest
+    @ValueSource(strings = {
+        "(5 + 10 * 2 + 15 / 3) * 2 + -10",
+        "1 < 2 == true",
+        "!!5",
+        "if (1 > 2) { 10 } else { 20 }",
+        "if (false) { 10 }",
+        "9; return 2 * 5; 9;",
+        "if (10 > 1) { if (10 > 1) { return 10; } return 1; }",
+        "5 + true; 5;",
+        "-true",
+        "foobar",
+        "\"Hello\" + \" \" + \"World!\"",
+        "\"Hello\" - \"World\"",
+        "let myArray = [1, 2, 3]; let i = myArray[0]; myArray[i]",
+        "{\"foo\": 5}[\"foo\"]",
+        "{\"name\": \"Monkey\"}[fn(x) { x }];",
+        "len(\"one\", \"two\")",
+        "rest([10, 15, 20])",
+        "let add = fn(x, y) { x + y; }; add(5 + 5, add(5, 5));",
+        "let newAdder = fn(x) { fn(y) { x + y } }; let addTwo = newAdder(2); addTwo(2);",
+        "let f = fn() { g() }; let g = fn() { 7 }; f();",
+        "let x = 1; let f = fn() { let y = x; let x = 2; y + x }; f();",
+        "let scale = fn(x, k) { x * k + 0.5 }; [scale(2, 3), scale(1.5, 2), scale(4, 2), -2.5 * 2, 1 == 1.0, 3.0 / 2]"
+    })
+    void testAgreesWithEvaluator(String input) {
+        final MonkeyObject expected = Engine.EVALUATOR.newSession().run(parse(input));
+        final MonkeyObject actual = Engine.NODES.newSession().run(parse(input));
+
+        assertThat(actual.inspect())
+            .withFailMessage("nodes and evaluator disagree on %s. evaluator=%s, nodes=%s", input, expected.inspect(), actual.inspect())
+            .isEqualTo(expected.inspect());
+    }
+
+    @Test
+    void testInfixSpecializesOnIntegers() {
+        final ProgramNode program = NodeBuilder.build(parse("1 + 2"), new Environment());
+
+        assertThat(program.statements().getFirst()).isInstanceOf(InfixNode.Uninitialized.class);
+
+        assertThat(program.execute(new Environment())).isEqualTo(new Int(3));
+        assertThat(program.statements().getFirst()).isInstanceOf(InfixNode.IntAdd.class);
+    }
+
+    @Test
+    void testSpecializationFallsBackToGeneric() {
+        final var env = new Environment();
+
+        env.set("a", new Int(1));
+        env.set("b", new Int(2));
+
+        final ProgramNode program = NodeBuilder.build(parse("a + b"), env);
+
+        assertThat(program.execute(env)).isEqualTo(new Int(3));
+        assertThat(program.statements().getFirst()).isInstanceOf(InfixNode.IntAdd.class);
+
+        env.set("a", new Str("a"));
+        env.set("b", new Str("b"));
+
+        assertThat(program.execute(env)).isEqualTo(new Str("ab"));
+        assertThat(program.statements().getFirst()).isInstanceOf(InfixNode.Generic.class);
+    }
+
+    @Test
+    void testRecursiveFibonacci() {
+        final var input = """
+            let fibonacci = fn(x) {
+                if (x < 2) { return x; }
+                fibonacci(x - 1) + fibonacci(x - 2);
+            };
+            fibonacci(15);
+            """;
+
+        assertThat(Engine.NODES.newSession().run(parse(input)))
+            .isEqualTo(new Int(610));
+    }
+
+    private Program parse(String input) {
+        return new Parser(new Lexer(input)).parseProgram();
+    }
+}
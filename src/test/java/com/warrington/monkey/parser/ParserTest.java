@@ -12,6 +12,7 @@ import org.junit.jupiter.params.ParameterizedTest;
 import org.junit.jupiter.params.provider.Arguments;
 import org.junit.jupiter.params.provider.CsvSource;
 import org.junit.jupiter.params.provider.MethodSource;
+import org.junit.jupiter.params.provider.ValueSource;
 
 import java.util.Collections;
 import java.util.List;
@@ -65,6 +66,14 @@ class ParserTest {
         );
     }
 
+    private static Stream<Arguments> provideAssignStatements() {
+        return Stream.of(
+            Arguments.of("x = 5;", "x", 5),
+            Arguments.of("y = true", "y", true),
+            Arguments.of("foobar = y;", "foobar", "y")
+        );
+    }
+
     private static Stream<Arguments> provideReturnStatements() {
         return Stream.of(
             Arguments.of("return 5;", 5),
@@ -426,6 +435,25 @@ class ParserTest {
             .isEqualTo("5");
     }
 
+    @Test
+    void testFloatLiteralExpression() {
+        final var parser = new Parser(new Lexer("2.5 * 4;"));
+        final Program program = parser.parseProgram();
+
+        checkParserErrors(parser);
+
+        final var infix = (InfixExpression) ((ExpressionStatement) program.getStatements().getFirst()).getExpression();
+        final var literal = (FloatLiteral) infix.left();
+
+        assertThat(literal.value())
+            .withFailMessage("literal.value() not %s. got=%s", 2.5, literal.value())
+            .isEqualTo(2.5);
+
+        assertThat(literal.tokenLiteral())
+            .withFailMessage("literal.tokenLiteral() not %s. got=%s", "2.5", literal.tokenLiteral())
+            .isEqualTo("2.5");
+    }
+
     @Test
     void testIfElseExpression() {
         final var input = "if (x < y) { x } else { y }";
@@ -616,6 +644,65 @@ class ParserTest {
             .isNull();
     }
 
+    @Test
+    void testWhileExpression() {
+        final var parser = new Parser(new Lexer("while (x < y) { x = x + 1; }"));
+        final Program program = parser.parseProgram();
+
+        checkParserErrors(parser);
+
+        final var stmt = (ExpressionStatement) program.getStatements().getFirst();
+        final var whileExpression = (WhileExpression) stmt.getExpression();
+
+        testInfixExpression(whileExpression.condition(), "x", "<", "y");
+
+        final var assignment = (AssignStatement) whileExpression.body().statements().getFirst();
+
+        testIdentifier(assignment.name(), "x");
+        testInfixExpression(assignment.value(), "x", "+", 1);
+    }
+
+    @Test
+    void testForExpression() {
+        final var parser = new Parser(new Lexer("for (x in range(10)) { puts(x) }"));
+        final Program program = parser.parseProgram();
+
+        checkParserErrors(parser);
+
+        final var stmt = (ExpressionStatement) program.getStatements().getFirst();
+        final var forExpression = (ForExpression) stmt.getExpression();
+
+        testIdentifier(forExpression.variable(), "x");
+        assertThat(forExpression.iterable()).isInstanceOf(CallExpression.class);
+        assertThat(forExpression.body().statements()).hasSize(1);
+        assertThat(program.toString()).isEqualTo("for(x in range(10)) puts(x)");
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {"for x in xs", "for (1 in xs)", "for (x xs)", "for (x in xs) x", "while x"})
+    void testMalformedLoops(String input) {
+        final var parser = new Parser(new Lexer(input));
+
+        parser.parseProgram();
+
+        assertThat(parser.errors()).withFailMessage("%s parsed without errors", input).isNotEmpty();
+    }
+
+    @ParameterizedTest
+    @MethodSource("provideAssignStatements")
+    void testAssignStatements(String input, String expectedIdentifier, Object expectedValue) {
+        final var parser = new Parser(new Lexer(input));
+        final Program program = parser.parseProgram();
+
+        checkParserErrors(parser);
+
+        assertThat(program.getStatements()).hasSize(1);
+        assertThat(program.getStatements().getFirst()).isInstanceOfSatisfying(AssignStatement.class, assignment -> {
+            testIdentifier(assignment.name(), expectedIdentifier);
+            testLiteralExpression(assignment.value(), expectedValue);
+        });
+    }
+
     @Test
     void testIdentifierExpression() {
         final var input = "foobar;";
@@ -0,0 +1,173 @@
+package com.warrington.monkey.vm;
+
+import com.warrington.monkey.ast.Program;
+import com.warrington.monkey.lexer.Lexer;
+import com.warrington.monkey.object.*;
+import com.warrington.monkey.parser.Parser;
+import com.warrington.monkey.repl.Engine;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.Arguments;
+import org.junit.jupiter.params.provider.MethodSource;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class VmTest {
+
+    private static Stream<Arguments> provideErrors() {
+        return Stream.of(
+            Arguments.of("5 + true;", "type mismatch: INTEGER + BOOLEAN"),
+            Arguments.of("5 + true; 5;", "type mismatch: INTEGER + BOOLEAN"),
+            Arguments.of("-true", "unknown operator: -BOOLEAN"),
+            Arguments.of("true + false", "unknown operator: BOOLEAN + BOOLEAN"),
+            Arguments.of("if (10 > 1) { true + false; }", "unknown operator: BOOLEAN + BOOLEAN"),
+            Arguments.of("foobar", "identifier not found: foobar"),
+            Arguments.of("\"Hello\" - \"World\"", "unknown operator: STRING - STRING"),
+            Arguments.of("{\"name\": \"Monkey\"}[fn(x) { x }];", "unusable as hash key: FUNCTION"),
+            Arguments.of("len(1)", "argument to 'len' not supported, got INTEGER"),
+            Arguments.of("1(2)", "not a function: INTEGER"),
+            Arguments.of("fn(a) { a }()", "wrong number of arguments. got=0, want=1")
+        );
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {
+        "(5 + 10 * 2 + 15 / 3) * 2 + -10",
+        "1 < 2 == true",
+        "!!5",
+        "if (1 > 2) { 10 } else { 20 }",
+        "if (false) { 10 }",
+        "return 2 * 5; 9;",
+        "if (10 > 1) { if (10 > 1) { return 10; } return 1; }",
+        "let a = 5; let b = a; let c = a + b + 5; c;",
+        "\"Hello\" + \" \" + \"World!\"",
+        "[1, 2 * 2, 3 + 3]",
+        "let myArray = [1, 2, 3]; let i = myArray[0]; myArray[i]",
+        "[1, 2, 3][3]",
+        "{\"foo\": 5}[\"foo\"]",
+        "{true: 5}[true]",
+        "rest([10, 15, 20])",
+        "push([1], 2)",
+        "first([])",
+        "let add = fn(x, y) { x + y; }; add(5 + 5, add(5, 5));",
+        "fn(x) { x; }(5)",
+        "let newAdder = fn(x) { fn(y) { x + y } }; let addTwo = newAdder(2); addTwo(2);",
+        "let f = fn() { g() }; let g = fn() { 7 }; f();",
+        "let early = fn() { if (true) { return 1; } 2 }; early();",
+        "let scale = fn(x, k) { x * k + 0.5 }; [scale(2, 3), scale(1.5, 2), scale(4, 2), -2.5 * 2, 1 == 1.0, 3.0 / 2]",
+        // A let that has not run stands for the name outside the function
+        "let f = fn(a) { if (a) { let q = 1; }; q }; f(false)",
+        "let q = 50; let f = fn(a) { if (a) { let q = 1; }; q }; [f(false), f(true)]",
+        "let f = fn() { let g = fn() { if (true) { let y = 1; }; [y, len] }; g() }; f()",
+        // Closures see lets of the function made in that run after them
+        "let f = fn() { let g = fn() { x }; let x = 5; g() }; f()",
+        "let f = fn() { let g = fn() { len }; let len = 5; g() }; f()",
+        "let f = fn() { let g = fn() { fn() { n } }; let n = 3; g()() }; f()",
+        "let counter = fn() { let get = fn() { n }; let n = 1; let a = get(); let n = 2; [a, get()] }; counter()",
+        // A return inside an expression ends the blocks up to there, and the function only if its value gets to a statement
+        "let f = fn(x) { [1, if (x) { return 5; } else { 2 }, 3] }; [f(true), f(false)]",
+        "[1, if (true) { return 5; } else { 2 }, 3]",
+        "let f = fn(x) { 1 + if (x) { return 5; } else { 2 } }; f(true)",
+        "let f = fn(x) { let a = [if (x) { return 5; 6 } else { 2 }]; [a, 9] }; f(true)",
+        "let f = fn(x) { len([if (x) { if (x) { return 1; } 2 }]) }; f(true)",
+        "let f = fn(x) { [if (x) { return 5; } else { 2 }][0]; 9 }; [f(true), f(false)]",
+        "let f = fn(x) { let b = if (x) { return 5; }; 8 }; [f(true), f(false)]",
+        "let f = fn(x) { if (x) { let b = if (x) { return 5; }; 8 } else { 2 }; 9 }; [f(true), f(false)]",
+        "let f = fn(x) { let a = 1; if (x) { let a = if (x) { let c = [if (x) { return 3; }][0]; 4 }; a + 10 } }; f(true)",
+        // Arguments past the parameters are evaluated, then dropped
+        "let f = fn(a) { let b = 2; a + b }; f(1, 10, 20)",
+        "fn(a) { a }(1, 2, 3)",
+        "fn(a) { a }(1, missing)"
+    })
+    void testAgreesWithEvaluator(String input) {
+        final MonkeyObject expected = Engine.EVALUATOR.newSession().run(parse(input));
+        final MonkeyObject actual = Engine.VM.newSession().run(parse(input));
+
+        assertThat(actual.inspect())
+            .withFailMessage("vm and evaluator disagree on %s. evaluator=%s, vm=%s", input, expected.inspect(), actual.inspect())
+            .isEqualTo(expected.inspect());
+    }
+
+    @ParameterizedTest
+    @MethodSource("provideErrors")
+    void testErrorHandling(String input, String expectedMessage) {
+        final MonkeyObject result = Engine.VM.newSession().run(parse(input));
+
+        assertThat(result)
+            .withFailMessage("no error object returned. got=%s", result)
+            .isInstanceOf(MonkeyError.class);
+
+        assertThat(((MonkeyError) result).message())
+            .isEqualTo(expectedMessage);
+    }
+
+    @Test
+    void testRecursiveFibonacci() {
+        final var input = """
+            let fibonacci = fn(x) {
+                if (x == 0) {
+                    return 0;
+                } else {
+                    if (x == 1) {
+                        return 1;
+                    } else {
+                        fibonacci(x - 1) + fibonacci(x - 2);
+                    }
+                }
+            };
+            fibonacci(15);
+            """;
+
+        assertThat(Engine.VM.newSession().run(parse(input)))
+            .isEqualTo(new Int(610));
+    }
+
+    @Test
+    void testRecursiveClosures() {
+        final var input = """
+            let wrapper = fn() {
+                let countDown = fn(x) {
+                    if (x == 0) {
+                        return 0;
+                    } else {
+                        countDown(x - 1);
+                    }
+                };
+                countDown(1);
+            };
+            wrapper();
+            """;
+
+        assertThat(Engine.VM.newSession().run(parse(input)))
+            .isEqualTo(new Int(0));
+    }
+
+    @Test
+    void testSessionKeepsGlobals() {
+        final Engine.Session session = Engine.VM.newSession();
+
+        session.run(parse("let x = 40;"));
+        session.run(parse("let addTwo = fn(a) { a + 2 };"));
+
+        assertThat(session.run(parse("addTwo(x)")))
+            .isEqualTo(new Int(42));
+    }
+
+    @Test
+    void testDeepRecursion() {
+        final var input = """
+            let count = fn(n) { if (n == 0) { 0 } else { 1 + count(n - 1) } };
+            count(5000);
+            """;
+
+        assertThat(Engine.VM.newSession().run(parse(input)))
+            .isEqualTo(new Int(5000));
+    }
+
+    private Program parse(String input) {
+        return new Parser(new Lexer(input)).parseProgram();
+    }
+}